@@ -20,6 +20,8 @@ table = NetworkTable.getTable("data_table")
 
 recording = False
 f = None
+# Sequence of the last row written, batches overlap so rows already written are skipped
+last_sequence = -1
 
 time.sleep(1)
 print "Started Listening"
@@ -30,6 +32,8 @@ while True:
         print "Received Start"
         recording = True
         f = open("can-data.csv", "w")
+        f.write("sequence,time," + table.getString("columns", "") + "\n")
+        last_sequence = -1
 
     if table.getString("end", "") == "true" and recording:
         print "Received End"
@@ -38,8 +42,22 @@ while True:
         exit(0)
 
     if recording:
-        #print table.getString("status","")
-        f.write(table.getString("status",""))
+        # [columns, first sequence, row count, then each row's time and columns]
+        batch = table.getNumberArray("rows", [])
+        if len(batch) >= 3:
+            width = int(batch[0])
+            first = int(batch[1])
+            count = int(batch[2])
+            if last_sequence >= 0 and first > last_sequence + 1:
+                print "Missed rows %d to %d" % (last_sequence + 1, first - 1)
+            for i in range(count):
+                sequence = first + i
+                if sequence <= last_sequence:
+                    continue
+                start = 3 + i * (width + 1)
+                row = batch[start:start + width + 1]
+                f.write(str(sequence) + "," + ",".join(str(x) for x in row) + "\n")
+                last_sequence = sequence
 
     time.sleep(0.02)
     # print "Wait"
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.palyrobotics.frc2017.behavior;
+
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.subsystems.Slider;
+import com.palyrobotics.frc2017.util.Subsystem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One routine manager update with a drive and a slider routine running, as in teleop while scoring
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutineManagerBenchmark {
+	private RoutineManager mRoutineManager;
+	private Commands mCommands;
+
+	// Never finishes, so the manager never logs or cancels while measuring
+	private static class HoldRoutine extends Routine {
+		private final Subsystem mSubsystem;
+
+		HoldRoutine(Subsystem subsystem) {
+			mSubsystem = subsystem;
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public Commands update(Commands commands) {
+			if (mSubsystem == drive) {
+				commands.wantedDriveState = Drive.DriveState.CHEZY;
+			} else {
+				commands.wantedSliderState = Slider.SliderState.CUSTOM_POSITIONING;
+			}
+			return commands;
+		}
+
+		@Override
+		public Commands cancel(Commands commands) {
+			return commands;
+		}
+
+		@Override
+		public boolean finished() {
+			return false;
+		}
+
+		@Override
+		public Subsystem[] getRequiredSubsystems() {
+			return new Subsystem[]{mSubsystem};
+		}
+
+		@Override
+		public String getName() {
+			return "Hold" + mSubsystem;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		mRoutineManager = new RoutineManager();
+		mRoutineManager.addNewRoutine(new HoldRoutine(Drive.getInstance()));
+		mRoutineManager.addNewRoutine(new HoldRoutine(Slider.getInstance()));
+		mCommands = mRoutineManager.update(new Commands());
+	}
+
+	@Benchmark
+	public Commands update() {
+		mCommands = mRoutineManager.update(mCommands);
+		return mCommands;
+	}
+}
@@ -0,0 +1,54 @@
+package com.palyrobotics.frc2017.config;
+
+import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.subsystems.Slider;
+import com.palyrobotics.frc2017.util.archive.DriveSignal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying commands, the routine manager copies into a reused Commands every update
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandsBenchmark {
+	private Commands mCommands;
+	private Commands mTarget = new Commands();
+
+	@Setup
+	public void setUp() {
+		mCommands = new Commands();
+		mCommands.wantedDriveState = Drive.DriveState.CHEZY;
+		mCommands.wantedSliderState = Slider.SliderState.CUSTOM_POSITIONING;
+		mCommands.robotSetpoints.setDrivePowerSetpoint(DriveSignal.getNeutralSignal());
+		mCommands.robotSetpoints.setSliderCustomSetpoint(1.5);
+		mCommands.leftStickInput = new Commands.JoystickInput(0, -0.5, false);
+		mCommands.rightStickInput = new Commands.JoystickInput(0.2, 0, false);
+	}
+
+	@Benchmark
+	public Commands copy() {
+		return mCommands.copy();
+	}
+
+	@Benchmark
+	public Commands copyInto() {
+		mCommands.copyInto(mTarget);
+		return mTarget;
+	}
+}
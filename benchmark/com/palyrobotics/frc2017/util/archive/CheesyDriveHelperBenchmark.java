@@ -0,0 +1,50 @@
+package com.palyrobotics.frc2017.util.archive;
+
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Teleop drive math with the sticks sweeping through their range, quick turn on every other pass
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheesyDriveHelperBenchmark {
+	private CheesyDriveHelper mCheesyDriveHelper;
+	private Commands mCommands;
+	private RobotState mRobotState;
+	private int mStep = 0;
+
+	@Setup
+	public void setUp() {
+		mCheesyDriveHelper = new CheesyDriveHelper();
+		mCommands = new Commands();
+		mRobotState = new RobotState();
+	}
+
+	@Benchmark
+	public DriveSignal cheesyDrive() {
+		mStep = (mStep + 1) % 200;
+		double stick = mStep / 50.0 - 1;
+		mCommands.leftStickInput.y = stick;
+		mCommands.rightStickInput.x = -stick / 2;
+		mCommands.rightStickInput.triggerPressed = mStep >= 100;
+		return mCheesyDriveHelper.cheesyDrive(mCommands, mRobotState);
+	}
+}
@@ -0,0 +1,68 @@
+package com.team254.lib.trajectory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path generation end to end for the red loading station path, with the
+ * default and the on-robot arc length samples, and the step that splits the
+ * reference trajectory into left and right wheels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathGeneratorBenchmark {
+
+  // from Steik CAD, 26.375 inches roughly
+  private static final double kWheelbaseWidth = 26.375 / 12;
+
+  private WaypointSequence waypoints_;
+  private TrajectoryGenerator.Config config_;
+  private Trajectory reference_;
+
+  @Setup
+  public void setUp() {
+    waypoints_ = new WaypointSequence(2);
+    waypoints_.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
+    waypoints_.addWaypoint(new WaypointSequence.Waypoint(104 / 12.0,
+            -67.5 / 12.0, -Math.PI / 3));
+    config_ = new TrajectoryGenerator.Config();
+    config_.dt = .01;
+    config_.max_vel = 5.0;
+    config_.max_acc = 5.0;
+    config_.max_jerk = 50.0;
+    reference_ = PathGenerator.generateFromPath(waypoints_, config_);
+  }
+
+  @Benchmark
+  public Path makePath() {
+    return PathGenerator.makePath(waypoints_, config_, kWheelbaseWidth,
+            "RedLoading");
+  }
+
+  // As PathGenerationService generates paths on the robot
+  @Benchmark
+  public Path makePathFast() {
+    return PathGenerator.makePath(waypoints_, config_, kWheelbaseWidth,
+            "RedLoading", PathGenerator.kFastArcLengthSamples);
+  }
+
+  @Benchmark
+  public Trajectory.Pair makeLeftAndRightTrajectories() {
+    return PathGenerator.makeLeftAndRightTrajectories(reference_,
+            kWheelbaseWidth);
+  }
+}
@@ -0,0 +1,57 @@
+package com.team254.lib.trajectory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spline arc length: integrating the length from scratch, and looking up the
+ * percentage for a distance the way PathGenerator does for every segment.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplineBenchmark {
+
+  private Spline spline_;
+  private double length_;
+  private double distance_;
+
+  @Setup
+  public void setUp() {
+    spline_ = new Spline();
+    Spline.reticulateSplines(0, 0, 0, 104 / 12.0, 67.5 / 12.0, Math.PI / 3,
+            spline_, Spline.QuinticHermite);
+    length_ = spline_.calculateLength();
+  }
+
+  @Benchmark
+  public double calculateLength() {
+    // Forget the cached length so it is integrated again
+    spline_.arc_length_ = -1;
+    spline_.arc_length_table_ = null;
+    return spline_.calculateLength();
+  }
+
+  @Benchmark
+  public double getPercentageForDistance() {
+    // Walk along the spline like a trajectory would
+    distance_ += length_ / 300;
+    if (distance_ > length_) {
+      distance_ = 0;
+    }
+    return spline_.getPercentageForDistance(distance_);
+  }
+}
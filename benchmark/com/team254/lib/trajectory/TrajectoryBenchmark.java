@@ -0,0 +1,82 @@
+package com.team254.lib.trajectory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a whole wheel trajectory the way the follower does each loop, and
+ * copying one. Run with -prof gc to see which reads allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrajectoryBenchmark {
+
+  // Mirrored paths are inverted, which used to copy every segment read
+  @Param({"false", "true"})
+  public boolean inverted;
+
+  private Trajectory trajectory_;
+  private final Trajectory.Segment segment_ = new Trajectory.Segment();
+
+  @Setup
+  public void setUp() {
+    TrajectoryGenerator.Config config = new TrajectoryGenerator.Config();
+    config.dt = .01;
+    config.max_vel = 5.0;
+    config.max_acc = 5.0;
+    config.max_jerk = 50.0;
+    trajectory_ = TrajectoryGenerator.generate(config,
+            TrajectoryGenerator.SCurvesStrategy, 0.0, 0.0, 10.0, 0.0, 1.0);
+    trajectory_.setInvertedY(inverted);
+  }
+
+  @Benchmark
+  public double readSegments() {
+    double sum = 0;
+    for (int i = 0; i < trajectory_.getNumSegments(); ++i) {
+      Trajectory.Segment segment = trajectory_.getSegment(i);
+      sum += segment.pos + segment.vel + segment.acc + segment.heading;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double readIntoSegment() {
+    double sum = 0;
+    for (int i = 0; i < trajectory_.getNumSegments(); ++i) {
+      trajectory_.getSegment(i, segment_);
+      sum += segment_.pos + segment_.vel + segment_.acc + segment_.heading;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double readFields() {
+    double sum = 0;
+    for (int i = 0; i < trajectory_.getNumSegments(); ++i) {
+      sum += trajectory_.getPos(i) + trajectory_.getVel(i)
+              + trajectory_.getAcc(i) + trajectory_.getHeading(i);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public Trajectory copy() {
+    return trajectory_.copy();
+  }
+}
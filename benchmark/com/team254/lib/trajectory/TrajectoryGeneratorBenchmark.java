@@ -0,0 +1,61 @@
+package com.team254.lib.trajectory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating a one dimensional profile with each strategy, about the length
+ * of a side peg path with the limits in paths/definitions.cfg.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrajectoryGeneratorBenchmark {
+
+  @Param({"StepStrategy", "TrapezoidalStrategy", "SCurvesStrategy",
+          "AutomaticStrategy"})
+  public String strategy;
+
+  private TrajectoryGenerator.Strategy strategy_;
+  private TrajectoryGenerator.Config config_;
+
+  @Setup
+  public void setUp() {
+    TrajectoryGenerator.Strategy[] strategies = {
+      TrajectoryGenerator.StepStrategy,
+      TrajectoryGenerator.TrapezoidalStrategy,
+      TrajectoryGenerator.SCurvesStrategy,
+      TrajectoryGenerator.AutomaticStrategy
+    };
+    for (TrajectoryGenerator.Strategy s : strategies) {
+      if (s.toString().equals(strategy)) {
+        strategy_ = s;
+      }
+    }
+    config_ = new TrajectoryGenerator.Config();
+    config_.dt = .01;
+    config_.max_vel = 5.0;
+    config_.max_acc = 5.0;
+    config_.max_jerk = 50.0;
+  }
+
+  @Benchmark
+  public Trajectory generate() {
+    return TrajectoryGenerator.generate(config_, strategy_, 0.0, 0.0, 10.0,
+            0.0, 0.0);
+  }
+}
@@ -0,0 +1,65 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.Path;
+import com.team254.lib.trajectory.PathGenerator;
+import com.team254.lib.trajectory.TrajectoryGenerator;
+import com.team254.lib.trajectory.WaypointSequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The text path format the robot falls back to when there is no binary copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextSerializationBenchmark {
+
+  private final TextFileSerializer serializer_ = new TextFileSerializer();
+  private final TextFileDeserializer deserializer_ = new TextFileDeserializer();
+  private Path path_;
+  private String serialized_;
+
+  @Setup
+  public void setUp() {
+    WaypointSequence p = new WaypointSequence(2);
+    p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
+    p.addWaypoint(new WaypointSequence.Waypoint(104 / 12.0, -67.5 / 12.0,
+            -Math.PI / 3));
+    TrajectoryGenerator.Config config = new TrajectoryGenerator.Config();
+    config.dt = .01;
+    config.max_vel = 5.0;
+    config.max_acc = 5.0;
+    config.max_jerk = 50.0;
+    path_ = PathGenerator.makePath(p, config, 26.375 / 12, "RedLoading");
+    serialized_ = serializer_.serialize(path_);
+  }
+
+  @Benchmark
+  public String serialize() {
+    return serializer_.serialize(path_);
+  }
+
+  @Benchmark
+  public Path deserialize() {
+    return deserializer_.deserialize(serialized_);
+  }
+
+  @Benchmark
+  public Path roundTrip() {
+    return deserializer_.deserialize(serializer_.serialize(path_));
+  }
+}
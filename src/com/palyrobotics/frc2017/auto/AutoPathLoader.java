@@ -2,6 +2,8 @@ package com.palyrobotics.frc2017.auto;
 
 import com.palyrobotics.frc2017.util.archive.team254.TextFileReader;
 import com.team254.lib.trajectory.Path;
+import com.team254.lib.trajectory.io.BinaryFileDeserializer;
+import com.team254.lib.trajectory.io.BinaryFileSerializer;
 import com.team254.lib.trajectory.io.TextFileDeserializer;
 
 import java.io.File;
@@ -9,6 +11,9 @@ import java.util.Hashtable;
 
 /**
  * Load all autonomous mode paths.
+ * Memory maps the binary copy of each path (written next to the text by the path generator Main,
+ * or by TextToBinaryConverter) when there is one,
+ * otherwise falls back to parsing the text file.
  * Revised for Team 8 2017 by Nihar
  * @author Jared341
  * @author Stephen Pinkerton
@@ -56,17 +61,37 @@ public class AutoPathLoader {
 		} else {
 			// Pray that this is a roborio because I don't know a programmer using Linux
 			sourceDir = "/home/lvuser/paths/";
+			// Simulations and unit tests run from the project directory
+			if (!new File(sourceDir).isDirectory()) {
+				sourceDir = "."+File.separatorChar+"paths"+File.separatorChar;
+			}
 		}
 
-		TextFileDeserializer deserializer = new TextFileDeserializer();
+		BinaryFileDeserializer binaryDeserializer = new BinaryFileDeserializer();
+		TextFileDeserializer textDeserializer = new TextFileDeserializer();
+		int binaryCount = 0;
 		for (int i = 0; i < kPathNames.length; ++i) {
-			TextFileReader reader = new TextFileReader(sourceDir + kPathNames[i] +
-					".txt");
-
-			Path path = deserializer.deserialize(reader.readWholeFile());
+			File binaryFile = new File(sourceDir + kPathNames[i] + BinaryFileSerializer.kFileExtension);
+			File textFile = new File(sourceDir + kPathNames[i] + ".txt");
+			Path path = null;
+			if (binaryFile.exists()) {
+				path = binaryDeserializer.deserializeFile(binaryFile);
+				if (path != null) {
+					binaryCount++;
+				}
+			}
+			if (path == null && textFile.exists()) {
+				TextFileReader reader = new TextFileReader(textFile.getPath());
+				path = textDeserializer.deserialize(reader.readWholeFile());
+			}
+			if (path == null) {
+				System.err.println("Could not load path " + kPathNames[i]);
+				continue;
+			}
 			paths_.put(kPathNames[i], path);
 		}
-		System.out.println("Parsing paths took: " + (System.currentTimeMillis()-startTime/1000));
+		System.out.println("Loading " + paths_.size() + " paths (" + binaryCount + " binary) took: "
+				+ (System.currentTimeMillis()-startTime) + " ms");
 	}
 
 	public static Path get(String name) {
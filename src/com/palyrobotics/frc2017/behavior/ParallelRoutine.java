@@ -29,7 +29,8 @@ public class ParallelRoutine extends Routine {
 
 	@Override
 	public Commands update(Commands commands) {
-		for(Routine routine: mRoutines) {
+		for(int i = 0; i < mRoutines.size(); i++) {
+			Routine routine = mRoutines.get(i);
 			if(!routine.finished()) {
 				commands = routine.update(commands);
 			}
@@ -47,8 +48,8 @@ public class ParallelRoutine extends Routine {
 
 	@Override
 	public boolean finished() {
-		for(Routine routine : mRoutines) {
-			if(!routine.finished()) {
+		for(int i = 0; i < mRoutines.size(); i++) {
+			if(!mRoutines.get(i).finished()) {
 				return false;
 			}
 		}
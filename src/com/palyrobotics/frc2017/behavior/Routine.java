@@ -4,6 +4,8 @@ import com.palyrobotics.frc2017.config.Commands;
 import com.palyrobotics.frc2017.subsystems.*;
 import com.palyrobotics.frc2017.util.Subsystem;
 
+import java.util.function.DoubleSupplier;
+
 
 /**
  * Abstract superclass for a routine, which specifies an autonomous series of actions <br />
@@ -23,6 +25,10 @@ public abstract class Routine {
     protected final Spatula spatula = Spatula.getInstance();
     protected final Intake intake = Intake.getInstance();
 
+    // Seconds, replaced by simulations that run routines faster than real time
+    private static final DoubleSupplier kSystemClock = () -> System.currentTimeMillis() / 1000.0;
+    private static DoubleSupplier clock = kSystemClock;
+
     // Called to start a routine
     public abstract void start();
     // Update method, returns modified commands
@@ -37,4 +43,19 @@ public abstract class Routine {
     public abstract String getName();
     @Override
     public String toString() { return getName(); }
+
+    /**
+     * Sets the clock all routines time themselves with
+     * @param seconds current time in seconds, null to go back to the system clock
+     */
+    public static void setClock(DoubleSupplier seconds) {
+        clock = (seconds == null) ? kSystemClock : seconds;
+    }
+
+    /**
+     * Milliseconds on the routine clock, routines use this instead of System.currentTimeMillis()
+     */
+    protected static long currentTimeMillis() {
+        return (long) (clock.getAsDouble() * 1000);
+    }
 }
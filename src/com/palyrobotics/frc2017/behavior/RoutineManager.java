@@ -16,6 +16,8 @@ import java.util.*;
 
 /**
  * Handles the updating of commands by passing them to each running routine. <br />
+ * Updates write into one of two Commands owned by the manager instead of a new copy, so the returned
+ * commands are only valid until the update after next
  * @author Nihar, Ailyn
  */
 public class RoutineManager implements Tappable {
@@ -24,6 +26,10 @@ public class RoutineManager implements Tappable {
 	private ArrayList<Routine> routinesToRemove = new ArrayList<>();
 	private ArrayList<Routine> routinesToAdd = new ArrayList<>();
 
+	// Double buffered output, the previous output is usually passed back in as the next input
+	private final Commands[] mOutputs = {new Commands(), new Commands()};
+	private int mOutputIndex = 0;
+
 	/**
 	 * Stores the new routine to be added in next update cycle <br />
 	 * Will automatically cancel any existing routines with the same subsystems
@@ -47,14 +53,19 @@ public class RoutineManager implements Tappable {
 	 * @return modified commands if needed
 	 */
 	public Commands reset(Commands commands) {
+		Commands output = nextOutput(commands);
+		commands.copyInto(output);
+		return cancelAll(output);
+	}
+
+	// Cancels every routine and empties the routine buffers, modifying output in place
+	private Commands cancelAll(Commands output) {
 		Logger.getInstance().logRobotThread("Routine manager reset");
-		Commands output = commands.copy();
 		// Cancel all running routines
-		if(runningRoutines.size() != 0) {
-			for(Routine routine : runningRoutines) {
-				System.out.println("Canceling "+routine.getName());
-				output = routine.cancel(output);
-			}
+		for(int i = 0; i < runningRoutines.size(); i++) {
+			Routine routine = runningRoutines.get(i);
+			System.out.println("Canceling "+routine.getName());
+			output = routine.cancel(output);
 		}
 		// Empty the routine buffers
 		runningRoutines.clear();
@@ -63,16 +74,27 @@ public class RoutineManager implements Tappable {
 		return output;
 	}
 
+	// Output buffer to use next, never the commands that were passed in
+	private Commands nextOutput(Commands input) {
+		mOutputIndex = 1 - mOutputIndex;
+		if (mOutputs[mOutputIndex] == input) {
+			mOutputIndex = 1 - mOutputIndex;
+		}
+		return mOutputs[mOutputIndex];
+	}
+
 	/**
 	 * Updates the commands that are passed in based on the running and canceled routines
 	 * @param commands Current commands
 	 * @return Modified commands
 	 */
 	public Commands update(Commands commands) {
-		routinesToRemove = new ArrayList<>();
-		Commands output = commands.copy();
-		// Update all running routines
-		for(Routine routine : runningRoutines) {
+		routinesToRemove.clear();
+		Commands output = nextOutput(commands);
+		commands.copyInto(output);
+		// Update all running routines, indexed so that no iterators are allocated
+		for(int i = 0; i < runningRoutines.size(); i++) {
+			Routine routine = runningRoutines.get(i);
 			if(routine.finished()) {
 				Logger.getInstance().logRobotThread("Routine "+routine.getName()+" finished, canceled");
 //				System.out.println("Routine cancel called");
@@ -84,13 +106,14 @@ public class RoutineManager implements Tappable {
 		}
 		
 		// Remove routines that finished
-		for(Routine routine : routinesToRemove) {
+		for(int i = 0; i < routinesToRemove.size(); i++) {
 //			System.out.println("Completed routine: " + routine.getName());
-			runningRoutines.remove(routine);
+			runningRoutines.remove(routinesToRemove.get(i));
 		}
 
 		// Add newest routines after current routines may have finished, start them, and update them
-		for (Routine newRoutine : routinesToAdd) {
+		for (int i = 0; i < routinesToAdd.size(); i++) {
+			Routine newRoutine = routinesToAdd.get(i);
 			// combine running routines w/ new routine to check for shared subsystems
 			ArrayList<Routine> conflicts = conflictingRoutines(runningRoutines, newRoutine);
 			for(Routine routine : conflicts) {
@@ -110,15 +133,15 @@ public class RoutineManager implements Tappable {
 		if (output.cancelCurrentRoutines) {
 			System.out.println("Cancel routine button");
 			Logger.getInstance().logRobotThread("Cancel routine button");
-			output = this.reset(output);
+			output = cancelAll(output);
 		} else if(!output.wantedRoutines.isEmpty()) {
 			// Routines requested by newly added routines
-			for(Routine routine : output.wantedRoutines) {
-				addNewRoutine(routine);
+			for(int i = 0; i < output.wantedRoutines.size(); i++) {
+				addNewRoutine(output.wantedRoutines.get(i));
 			}
 		}
 		//clears the wanted routines every update cycle
-		output.wantedRoutines = new ArrayList<Routine>();
+		output.wantedRoutines.clear();
 		return output;
 	}
 
@@ -26,7 +26,7 @@ public class SequentialRoutine extends Routine {
 
 	@Override
 	public Commands update(Commands commands) {
-		Commands output = commands.copy();
+		Commands output = commands;
 		if(mIsDone) {
 			return output;
 		}
@@ -23,7 +23,7 @@ public class TimedRoutine extends Routine {
 
 	@Override
 	public void start() {
-		this.startTime = System.currentTimeMillis();
+		this.startTime = currentTimeMillis();
 	}
 
 	@Override
@@ -44,7 +44,7 @@ public class TimedRoutine extends Routine {
 
 	@Override
 	public boolean finished() {
-		if (System.currentTimeMillis() > startTime + time) {
+		if (currentTimeMillis() > startTime + time) {
 			System.out.println("Timed out routine");
 			return true;
 		}
@@ -2,7 +2,7 @@ package com.palyrobotics.frc2017.behavior.routines;
 
 import com.palyrobotics.frc2017.behavior.Routine;
 import com.palyrobotics.frc2017.config.Commands;
-import com.palyrobotics.frc2017.robot.HardwareAdapter;
+import com.palyrobotics.frc2017.robot.Robot;
 import com.palyrobotics.frc2017.util.Subsystem;
 
 /**
@@ -11,19 +11,17 @@ import com.palyrobotics.frc2017.util.Subsystem;
 public class SliderSensorResetRoutine extends Routine {
     @Override
     public void start() {
-        HardwareAdapter.getInstance().getSlider().resetEncoder();
+        Robot.getHardware().resetSliderEncoder();
     }
 
     @Override
     public Commands update(Commands commands) {
-        Commands output = commands.copy();
-        return output;
+        return commands;
     }
 
     @Override
     public Commands cancel(Commands commands) {
-        Commands output = commands.copy();
-        return output;
+        return commands;
     }
 
     @Override
@@ -20,7 +20,7 @@ public class SpatulaDownAutocorrectRoutine extends Routine {
 	
 	@Override
 	public void start() {
-		mStartTime = System.currentTimeMillis();
+		mStartTime = currentTimeMillis();
 		mState = (Math.abs(Robot.getRobotState().sliderEncoder) < 40) ? AutocorrectState.FLIPPING : AutocorrectState.CENTERING;
 	}
 
@@ -32,7 +32,7 @@ public class SpatulaDownAutocorrectRoutine extends Routine {
 		case CENTERING:
 			commands.robotSetpoints.sliderSetpoint = Slider.SliderTarget.CENTER;
 			commands.wantedSliderState = Slider.SliderState.AUTOMATIC_POSITIONING;
-			if (System.currentTimeMillis()-mStartTime > 300 && Robot.getRobotState().sliderVelocity == 0) {
+			if (currentTimeMillis()-mStartTime > 300 && Robot.getRobotState().sliderVelocity == 0) {
 				mState = AutocorrectState.FLIPPING;
 				break;
 			}
@@ -66,7 +66,7 @@ public class SpatulaDownAutocorrectRoutine extends Routine {
 
 	@Override
 	public boolean finished() {
-		return mUpdated && mState == AutocorrectState.FLIPPING && (System.currentTimeMillis() - mStartTime) > 2000;
+		return mUpdated && mState == AutocorrectState.FLIPPING && (currentTimeMillis() - mStartTime) > 2000;
 	}
 
 	@Override
@@ -11,7 +11,7 @@ public class SpatulaUpRoutine extends Routine {
 
 	@Override
 	public void start() {
-		mStartTime = System.currentTimeMillis();
+		mStartTime = currentTimeMillis();
 	}
 
 	@Override
@@ -29,7 +29,7 @@ public class SpatulaUpRoutine extends Routine {
 	@Override
 	public boolean finished() {
 		// TODO Auto-generated method stub
-		return mUpdated && (System.currentTimeMillis() - mStartTime) > 2000;
+		return mUpdated && (currentTimeMillis() - mStartTime) > 2000;
 	}
 
 	@Override
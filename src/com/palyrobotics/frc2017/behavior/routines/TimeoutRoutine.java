@@ -19,7 +19,7 @@ public class TimeoutRoutine extends Routine {
 
     @Override
     public boolean finished() {
-        return System.currentTimeMillis() >= timeStart + 1000 * timeout;
+        return currentTimeMillis() >= timeStart + 1000 * timeout;
     }
 
     @Override
@@ -34,7 +34,7 @@ public class TimeoutRoutine extends Routine {
 
     @Override
     public void start() {
-        timeStart = System.currentTimeMillis();
+        timeStart = currentTimeMillis();
     }
 
 	@Override
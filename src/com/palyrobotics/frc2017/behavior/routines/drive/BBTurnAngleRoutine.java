@@ -29,12 +29,12 @@ public class BBTurnAngleRoutine extends Routine {
 		System.out.println("start bb turn angle");
 		drive.setNeutral();
 		mState = GyroBBState.START;
-		startTime = System.currentTimeMillis();
+		startTime = currentTimeMillis();
 	}
 
 	@Override
 	public Commands update(Commands commands) {	
-		if (mState != GyroBBState.TIMED_OUT && (System.currentTimeMillis() - startTime > 5000)) {
+		if (mState != GyroBBState.TIMED_OUT && (currentTimeMillis() - startTime > 5000)) {
 			System.err.println("Timed out!");
 			mState = GyroBBState.TIMED_OUT;
 		}
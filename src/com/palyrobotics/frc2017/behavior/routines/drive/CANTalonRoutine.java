@@ -43,7 +43,7 @@ public class CANTalonRoutine extends Routine {
 	@Override
 	public void start() {
 		
-		startTime = System.currentTimeMillis();
+		startTime = currentTimeMillis();
 		
 		if (relativeSetpoint) {
 			if (mSignal.leftMotor.getControlMode() == CANTalon.TalonControlMode.MotionMagic) {
@@ -71,9 +71,8 @@ public class CANTalonRoutine extends Routine {
 
 	@Override
 	public Commands update(Commands commands) {
-		Commands output = commands.copy();
-		output.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
-		return output;
+		commands.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
+		return commands;
 	}
 
 	@Override
@@ -108,7 +107,7 @@ public class CANTalonRoutine extends Routine {
 		}
 		if (!drive.hasController() || (drive.getController().getClass() == CANTalonDriveController.class && drive.controllerOnTarget())) {
 		}
-		return !drive.hasController() || System.currentTimeMillis() > this.timeout+startTime || (drive.getController().getClass() == CANTalonDriveController.class && drive.controllerOnTarget());
+		return !drive.hasController() || currentTimeMillis() > this.timeout+startTime || (drive.getController().getClass() == CANTalonDriveController.class && drive.controllerOnTarget());
 	}
 
 	@Override
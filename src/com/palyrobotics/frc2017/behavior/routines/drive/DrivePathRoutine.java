@@ -2,10 +2,13 @@ package com.palyrobotics.frc2017.behavior.routines.drive;
 
 import com.palyrobotics.frc2017.behavior.Routine;
 import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.Constants;
 import com.palyrobotics.frc2017.config.Gains;
 import com.palyrobotics.frc2017.subsystems.Drive;
 import com.palyrobotics.frc2017.util.Subsystem;
+import com.palyrobotics.frc2017.util.logger.Logger;
 import com.team254.lib.trajectory.Path;
+import com.team254.lib.trajectory.PathGenerationService;
 import com.team254.lib.trajectory.Trajectory;
 
 /**
@@ -16,6 +19,13 @@ public class DrivePathRoutine extends Routine {
 	private Gains.TrajectoryGains mGains;
 	private boolean mUseGyro;
 	private boolean mInverted;
+
+	// Path still being generated on the robot, null for a path given up front
+	private PathGenerationService.Request mRequest;
+	private boolean mFollowing = false;
+	private boolean mFailed = false;
+	private long mStartTime;
+
 	/**
 	 *
 	 * @param path Path to follow
@@ -28,14 +38,64 @@ public class DrivePathRoutine extends Routine {
 		this.mInverted = inverted;
 	}
 
+	/**
+	 * Follows a path once it has been generated, the drivetrain is held in neutral until then
+	 * @param request Path being generated by a {@link PathGenerationService}
+	 */
+	public DrivePathRoutine(PathGenerationService.Request request, Gains.TrajectoryGains gains, boolean useGyro, boolean inverted) {
+		this((Path) null, gains, useGyro, inverted);
+		this.mRequest = request;
+	}
+
 	@Override
 	public void start() {
-		drive.setTrajectoryController(mPath, mGains, mUseGyro, mInverted);
+		mStartTime = currentTimeMillis();
+		mFollowing = false;
+		mFailed = false;
+		if (mRequest == null) {
+			startFollowing(mPath);
+		} else {
+			checkRequest();
+		}
+	}
+
+	private void startFollowing(Path path) {
+		drive.setTrajectoryController(path, mGains, mUseGyro, mInverted);
+		mFollowing = true;
+	}
+
+	private void checkRequest() {
+		if (mRequest.isDone()) {
+			System.out.println("Generated path " + mRequest);
+			if (mRequest.succeeded()) {
+				mPath = mRequest.getPath();
+				startFollowing(mPath);
+			} else {
+				mFailed = true;
+			}
+			logGeneration();
+		} else if (currentTimeMillis() - mStartTime > Constants.kPathGenerationTimeout * 1000) {
+			System.out.println("Gave up waiting for path " + mRequest);
+			mRequest.cancel();
+			mFailed = true;
+			logGeneration();
+		}
+	}
+
+	// Once per request, when the routine stops waiting on it
+	private void logGeneration() {
+		Logger.getInstance().logRobotThread("Path generation", mRequest);
+		if (mRequest.getService() != null) {
+			Logger.getInstance().logRobotThread("Path generation service", mRequest.getService().getSummary());
+		}
 	}
 
 	@Override
 	public Commands update(Commands commands) {
-		commands.wantedDriveState = Drive.DriveState.ON_BOARD_CONTROLLER;
+		if (!mFollowing && !mFailed) {
+			checkRequest();
+		}
+		commands.wantedDriveState = mFollowing ? Drive.DriveState.ON_BOARD_CONTROLLER : Drive.DriveState.NEUTRAL;
 		return commands;
 	}
 
@@ -48,7 +108,10 @@ public class DrivePathRoutine extends Routine {
 
 	@Override
 	public boolean finished() {
-		return drive.controllerOnTarget();
+		if (mFailed) {
+			return true;
+		}
+		return mFollowing && drive.controllerOnTarget();
 	}
 
 	@Override
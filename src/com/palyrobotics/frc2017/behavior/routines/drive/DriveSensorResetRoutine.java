@@ -3,7 +3,7 @@ package com.palyrobotics.frc2017.behavior.routines.drive;
 import com.palyrobotics.frc2017.behavior.Routine;
 import com.palyrobotics.frc2017.config.Commands;
 import com.palyrobotics.frc2017.config.Constants;
-import com.palyrobotics.frc2017.robot.HardwareAdapter;
+import com.palyrobotics.frc2017.robot.Robot;
 import com.palyrobotics.frc2017.robot.team254.lib.util.ConstantsBase;
 import com.palyrobotics.frc2017.util.Subsystem;
 
@@ -15,19 +15,17 @@ public class DriveSensorResetRoutine extends Routine
 
     @Override
     public void start() {
-        HardwareAdapter.getInstance().getDrivetrain().resetSensors();
+        Robot.getHardware().resetDriveSensors();
     }
 
     @Override
     public Commands update(Commands commands) {
-        Commands output = commands.copy();
-        return output;
+        return commands;
     }
 
     @Override
     public Commands cancel(Commands commands) {
-        Commands output = commands.copy();
-        return output;
+        return commands;
     }
 
     @Override
@@ -37,15 +37,14 @@ public class DriveStraightRoutine extends Routine {
 
 	@Override
 	public Commands update(Commands commands) {
-		Commands output = commands.copy();
 		switch(state) {
 		case START:
 			drive.setDriveStraight(distance);
-			output.wantedDriveState = Drive.DriveState.ON_BOARD_CONTROLLER;
+			commands.wantedDriveState = Drive.DriveState.ON_BOARD_CONTROLLER;
 			state = DriveStraightRoutineState.DRIVING;
 			break;
 		case DRIVING:
-			output.wantedDriveState = Drive.DriveState.ON_BOARD_CONTROLLER;
+			commands.wantedDriveState = Drive.DriveState.ON_BOARD_CONTROLLER;
 			if (drive.controllerOnTarget() && drive.hasController()) {
 				state = DriveStraightRoutineState.DONE;
 			}
@@ -56,7 +55,7 @@ public class DriveStraightRoutine extends Routine {
 		default:
 			break;
 		}
-		return output;
+		return commands;
 	}
 	
 	@Override
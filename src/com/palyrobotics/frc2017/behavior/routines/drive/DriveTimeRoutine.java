@@ -7,7 +7,6 @@ import com.palyrobotics.frc2017.util.archive.DriveSignal;
 
 import com.palyrobotics.frc2017.util.Subsystem;
 
-import java.util.Optional;
 
 public class DriveTimeRoutine extends Routine {
 	private long mEndTime;
@@ -28,14 +27,14 @@ public class DriveTimeRoutine extends Routine {
 	public void start() {
 		drive.resetController();
 		// mEndTime already has the desired drive time
-		mEndTime += System.currentTimeMillis();
+		mEndTime += currentTimeMillis();
 	}
 
 	//Routines just change the states of the robotsetpoints, which the behavior manager then moves the physical subsystems based on.
 	@Override
 	public Commands update(Commands commands) {
 		commands.wantedDriveState = Drive.DriveState.OPEN_LOOP;
-		commands.robotSetpoints.drivePowerSetpoint = Optional.of(mDrivePower);
+		commands.robotSetpoints.setDrivePowerSetpoint(mDrivePower);
 		return commands;
 	}
 
@@ -51,7 +50,7 @@ public class DriveTimeRoutine extends Routine {
 	@Override
 	public boolean finished() {
 		// Finish after the time is up
-		return (System.currentTimeMillis() >= mEndTime);
+		return (currentTimeMillis() >= mEndTime);
 	}
 
 	@Override
@@ -91,7 +91,7 @@ public class EncoderDriveRoutine extends Routine {
 		EncoderDriveRoutineStates newState = state;
 		switch (state) {
 		case START:
-			mStartTime = System.currentTimeMillis();
+			mStartTime = currentTimeMillis();
 			// Only set the setpoint the first time the state is START
 			if(mIsNewState) {
 //				drive.setDistanceSetpoint(mDistance, mVelocitySetpoint);
@@ -103,7 +103,7 @@ public class EncoderDriveRoutine extends Routine {
 			if(drive.controllerOnTarget()) {
 				newState = EncoderDriveRoutineStates.DONE;
 			}
-			if((System.currentTimeMillis()-mStartTime) > mTimeout*1000) {
+			if((currentTimeMillis()-mStartTime) > mTimeout*1000) {
 				newState = EncoderDriveRoutineStates.DONE;
 			}
 			break;
@@ -132,7 +132,7 @@ public class EncoderDriveRoutine extends Routine {
 	@Override
 	public void start() {
 		drive.resetController();
-		mStartTime = System.currentTimeMillis();
+		mStartTime = currentTimeMillis();
 	}
 
 	@Override
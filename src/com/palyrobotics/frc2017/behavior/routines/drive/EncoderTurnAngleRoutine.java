@@ -27,15 +27,14 @@ public class EncoderTurnAngleRoutine extends Routine {
 
 	@Override
 	public Commands update(Commands commands) {
-		Commands output = commands.copy();
 		switch(mState) {
 		case START:
 			drive.setTurnAngleEncoderSetpoint(angle);
-			output.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
+			commands.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
 			mState = State.TURNING;
 			break;
 		case TURNING:
-			output.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
+			commands.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
 			if(drive.controllerOnTarget() && drive.hasController()) {
 				mState = State.DONE;
 			}
@@ -46,7 +45,7 @@ public class EncoderTurnAngleRoutine extends Routine {
 		default:
 			break;
 		}
-		return output;
+		return commands;
 	}
 
 	@Override
@@ -25,15 +25,14 @@ public class GyroMotionMagicTurnAngleRoutine extends Routine {
 
 	@Override
 	public Commands update(Commands commands) {
-		Commands output = commands.copy();
 		switch(mState) {
 		case START:
 			drive.setGyroMotionMagicTurnAngleSetpoint(mAngle);
-			output.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
+			commands.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
 			mState = State.TURNING;
 			break;
 		case TURNING:
-			output.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
+			commands.wantedDriveState = Drive.DriveState.OFF_BOARD_CONTROLLER;
 			if (drive.controllerOnTarget() && drive.hasController()) {
 				mState = State.DONE;
 			}
@@ -44,7 +43,7 @@ public class GyroMotionMagicTurnAngleRoutine extends Routine {
 		default:
 			break;
 		}
-		return output;
+		return commands;
 	}
 
 	@Override
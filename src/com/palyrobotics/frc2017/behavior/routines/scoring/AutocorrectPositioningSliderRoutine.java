@@ -40,7 +40,7 @@ public class AutocorrectPositioningSliderRoutine extends Routine {
 		else {
 			mState = DistancePositioningState.MOVING;
 		}
-		startTime = System.currentTimeMillis();
+		startTime = currentTimeMillis();
 	}
 
 	@Override
@@ -52,7 +52,7 @@ public class AutocorrectPositioningSliderRoutine extends Routine {
 			commands.wantedSliderState = Slider.SliderState.AUTOMATIC_POSITIONING;
 			break;
 		case RAISING:
-			if(System.currentTimeMillis() > (raiseTime+startTime)) {
+			if(currentTimeMillis() > (raiseTime+startTime)) {
 				System.out.println("Time up");
 				mState = DistancePositioningState.MOVING;
 				break;
@@ -1,13 +1,11 @@
 package com.palyrobotics.frc2017.behavior.routines.scoring;
 
-import java.util.Optional;
 
 import com.palyrobotics.frc2017.behavior.ParallelRoutine;
 import com.palyrobotics.frc2017.behavior.Routine;
 import com.palyrobotics.frc2017.config.Commands;
 import com.palyrobotics.frc2017.config.Constants;
 import com.palyrobotics.frc2017.config.RobotState;
-import com.palyrobotics.frc2017.robot.HardwareAdapter;
 import com.palyrobotics.frc2017.robot.Robot;
 import com.palyrobotics.frc2017.subsystems.Slider;
 import com.palyrobotics.frc2017.subsystems.Spatula;
@@ -47,13 +45,13 @@ public class CustomPositioningSliderRoutine extends Routine {
 		else {
 			mState = DistancePositioningState.MOVING;
 		}
-		startTime = System.currentTimeMillis();
+		startTime = currentTimeMillis();
 	}
 
 	@Override
 	public Commands update(Commands commands) {
 		commands.robotSetpoints.sliderSetpoint = Slider.SliderTarget.CUSTOM;
-		commands.robotSetpoints.sliderCustomSetpoint = Optional.of(target * Constants.kSliderRevolutionsPerInch);
+		commands.robotSetpoints.setSliderCustomSetpoint(target * Constants.kSliderRevolutionsPerInch);
 		updated = true;
 		switch(mState) {
 		case MOVING:
@@ -67,7 +65,7 @@ public class CustomPositioningSliderRoutine extends Routine {
 			}
 			break;
 			case RAISING:
-			if(System.currentTimeMillis() > (raiseTime+startTime)) {
+			if(currentTimeMillis() > (raiseTime+startTime)) {
 				mState = DistancePositioningState.MOVING;
 				break;
 			}
@@ -81,7 +79,7 @@ public class CustomPositioningSliderRoutine extends Routine {
 	@Override
 	public Commands cancel(Commands commands) {
 		commands.wantedSliderState = Slider.SliderState.IDLE;
-		commands.robotSetpoints.sliderCustomSetpoint = Optional.empty();
+		commands.robotSetpoints.clearSliderCustomSetpoint();
 		try {
 			slider.run(commands, this);
 		} catch (IllegalAccessException e) {
@@ -94,15 +92,15 @@ public class CustomPositioningSliderRoutine extends Routine {
 	public boolean finished() {
 		RobotState robotState = Robot.getRobotState();
 
-		if(!HardwareAdapter.getInstance().getSlider().sliderTalon.getControlMode().isPID()) {
+		if(!robotState.sliderControlMode.isPID()) {
 			return false;
 		}
 		// Give up after 1.5 seconds
-		if (System.currentTimeMillis()-startTime > 1500) {
+		if (currentTimeMillis()-startTime > 1500) {
 			return true;
 		}
 		return updated && mState==DistancePositioningState.MOVING &&
-				(System.currentTimeMillis() - startTime > 1000) && (robotState.sliderVelocity == 0) && slider.onTarget();
+				(currentTimeMillis() - startTime > 1000) && (robotState.sliderVelocity == 0) && slider.onTarget();
 	}
 
 	@Override
@@ -2,14 +2,20 @@ package com.palyrobotics.frc2017.behavior.routines.scoring;
 
 import com.palyrobotics.frc2017.behavior.Routine;
 import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.Constants;
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.config.RobotStateHistory;
 import com.palyrobotics.frc2017.robot.Robot;
 import com.palyrobotics.frc2017.subsystems.Slider;
 import com.palyrobotics.frc2017.subsystems.Spatula;
+import com.palyrobotics.frc2017.util.Pose;
 import com.palyrobotics.frc2017.util.Subsystem;
 import com.palyrobotics.frc2017.vision.AndroidConnectionHelper;
+import com.palyrobotics.frc2017.vision.VisionSampleHistory;
+
+import edu.wpi.first.wpilibj.Timer;
 
 import java.util.Arrays;
-import java.util.Optional;
 
 /**
  * Moves slider to 3 positions to sample vision data and finds the best target
@@ -23,13 +29,19 @@ public class MultiSampleVisionSliderRoutine extends Routine {
 	private SamplingState mState;
 	private boolean newState = false;
 	private double startTime = 0;
+	// Slider position commanded for the current sample
+	private double sliderSetpoint = 0;
+	// roboRIO time the slider was first seen stopped at the setpoint, only images captured after it are sampled
+	private double arrivalTime = Double.NaN;
+	// Where the drive was when the sampled image was captured
+	private final Pose capturePose = new Pose();
 	private double[] visionSetpoints = new double[3];
 	private double threshold = 1;
 
 	@Override
 	public void start() {
 		mState = SamplingState.LEFT;
-		startTime = System.currentTimeMillis();
+		startTime = currentTimeMillis();
 		newState = true;
 	}
 
@@ -38,39 +50,30 @@ public class MultiSampleVisionSliderRoutine extends Routine {
 		switch (mState) {
 			case LEFT:
 				if (newState) {
-					commands.robotSetpoints.sliderCustomSetpoint = Optional.of(-7.0);
-					commands.wantedSliderState = Slider.SliderState.CUSTOM_POSITIONING;
-					startTime = System.currentTimeMillis();
+					moveTo(commands, -7.0);
 					newState = false;
 				}
-				if (Robot.getRobotState().sliderVelocity==0 && System.currentTimeMillis()-startTime > 200) {
-					visionSetpoints[0] = AndroidConnectionHelper.getInstance().getXDist();
+				if (sample(0)) {
 					mState = SamplingState.CENTER;
 					newState = true;
 				}
 				break;
 			case CENTER:
 				if (newState) {
-					commands.robotSetpoints.sliderCustomSetpoint = Optional.of(0.0);
-					commands.wantedSliderState = Slider.SliderState.CUSTOM_POSITIONING;
-					startTime = System.currentTimeMillis();
+					moveTo(commands, 0.0);
 					newState = false;
 				}
-				if (Robot.getRobotState().sliderVelocity==0 && System.currentTimeMillis()-startTime > 200) {					mState = SamplingState.RIGHT;
-					visionSetpoints[1] = AndroidConnectionHelper.getInstance().getXDist();
+				if (sample(1)) {
 					mState = SamplingState.RIGHT;
 					newState = true;
 				}
 				break;
 			case RIGHT:
 				if (newState) {
-					commands.robotSetpoints.sliderCustomSetpoint = Optional.of(7.0);
-					commands.wantedSliderState = Slider.SliderState.CUSTOM_POSITIONING;
-					startTime = System.currentTimeMillis();
+					moveTo(commands, 7.0);
 					newState = false;
 				}
-				if (Robot.getRobotState().sliderVelocity==0 && System.currentTimeMillis()-startTime > 200) {					mState = SamplingState.SCORE;
-					visionSetpoints[2] = AndroidConnectionHelper.getInstance().getXDist();
+				if (sample(2)) {
 					mState = SamplingState.SCORE;
 					newState = true;
 				}
@@ -80,48 +83,108 @@ public class MultiSampleVisionSliderRoutine extends Routine {
 				if (newState) {
 					newState = false;
 					Arrays.sort(visionSetpoints);
-					startTime = System.currentTimeMillis();
+					startTime = currentTimeMillis();
 					System.out.println("Vision setpoints: " + Arrays.toString(visionSetpoints));
 					if (visionSetpoints[1] - visionSetpoints[0] < threshold) {
 						double setpoint = (visionSetpoints[1] + visionSetpoints[0]) / 2;
 						System.out.println("Chosen one: " + setpoint);
-						commands.robotSetpoints.sliderCustomSetpoint = Optional.of(setpoint);
+						commands.robotSetpoints.setSliderCustomSetpoint(setpoint);
 						break;
 					}
 					else if (visionSetpoints[2] - visionSetpoints[1] > threshold) {
 						double setpoint = (visionSetpoints[2] + visionSetpoints[1]) / 2;
 						System.out.println("Chosen one: " + setpoint);
-						commands.robotSetpoints.sliderCustomSetpoint = Optional.of(setpoint);
+						commands.robotSetpoints.setSliderCustomSetpoint(setpoint);
 						break;
 					}
 					// good value on right side but out of bounds on left side
 					else if (visionSetpoints[0] <= -7 && visionSetpoints[2] < 7 && visionSetpoints[2] > -7) {
 						double setpoint = -7;
 						System.out.println("Chosen one: " + setpoint);
-						commands.robotSetpoints.sliderCustomSetpoint = Optional.of(setpoint);
+						commands.robotSetpoints.setSliderCustomSetpoint(setpoint);
 						break;
 					}
 					// good value on left side but out of bounds on right side
 					else if (visionSetpoints[2] >= 7 && visionSetpoints[0] < 7 && visionSetpoints[0] > -7) {
 						double setpoint = 7;
 						System.out.println("Chosen one: " + setpoint);
-						commands.robotSetpoints.sliderCustomSetpoint = Optional.of(setpoint);
+						commands.robotSetpoints.setSliderCustomSetpoint(setpoint);
 						break;
 					}
 				}
 			}
 		try {
-			System.out.println(commands.robotSetpoints.sliderCustomSetpoint.get());
+			System.out.println(commands.robotSetpoints.sliderCustomSetpoint);
 			slider.run(commands, this);
 		} catch (IllegalAccessException e) {
 		}
 		return commands;
 	}
 
+	private void moveTo(Commands commands, double setpoint) {
+		commands.robotSetpoints.setSliderCustomSetpoint(setpoint);
+		commands.wantedSliderState = Slider.SliderState.CUSTOM_POSITIONING;
+		sliderSetpoint = setpoint;
+		arrivalTime = Double.NaN;
+	}
+
+	/**
+	 * Takes a vision sample once the slider has stopped at the setpoint <br />
+	 * With vision records coming over the socket, the first image captured after the slider arrived is used,
+	 * so there is no need to wait for the image to catch up. Images captured while the drive was moving are skipped.
+	 * Otherwise waits 200 ms after arriving for data.json to catch up.
+	 * @return whether the sample was taken
+	 */
+	private boolean sample(int index) {
+		RobotState state = Robot.getRobotState();
+		double now = Timer.getFPGATimestamp();
+		if (Math.abs(state.sliderPosition - sliderSetpoint) > Constants.kAcceptableSliderPositionError
+				|| state.sliderVelocity != 0) {
+			arrivalTime = Double.NaN;
+			return false;
+		}
+		if (Double.isNaN(arrivalTime)) {
+			arrivalTime = now;
+		}
+		AndroidConnectionHelper vision = AndroidConnectionHelper.getInstance();
+		VisionSampleHistory samples = vision.getVisionSamples();
+		double captureTime = samples.getLatestCaptureTime(now, Constants.kVisionRecordTimeout);
+		if (!Double.isNaN(captureTime)) {
+			if (captureTime < arrivalTime || driveMovedSince(captureTime, state.drivePose)) {
+				return false;
+			}
+			visionSetpoints[index] = samples.getLatestXDisplacement(now, Constants.kVisionRecordTimeout);
+			return true;
+		}
+		if (now - arrivalTime > 0.2) {
+			visionSetpoints[index] = vision.getXDist();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether the drive moved or turned between captureTime and the current pose,
+	 * or the capture time isn't in the sensor history yet
+	 */
+	private boolean driveMovedSince(double captureTime, Pose current) {
+		RobotStateHistory history = Robot.getRobotStateHistory();
+		if (history.size() == 0) {
+			// Nothing records the history, like in simulation
+			return false;
+		}
+		if (!history.getPoseAt(captureTime, capturePose)) {
+			return true;
+		}
+		return Math.abs(current.leftEnc - capturePose.leftEnc) > Constants.kAcceptableDrivePositionError
+				|| Math.abs(current.rightEnc - capturePose.rightEnc) > Constants.kAcceptableDrivePositionError
+				|| Math.abs(current.heading - capturePose.heading) > Constants.kAcceptableTurnAngleError;
+	}
+
 	@Override
 	public Commands cancel(Commands commands) {
 		commands.wantedSliderState = Slider.SliderState.IDLE;
-		commands.robotSetpoints.sliderCustomSetpoint = Optional.empty();
+		commands.robotSetpoints.clearSliderCustomSetpoint();
 		try {
 			slider.run(commands, this);
 		} catch (IllegalAccessException e) {
@@ -134,7 +197,7 @@ public class MultiSampleVisionSliderRoutine extends Routine {
 	public boolean finished() {
 		return mState==SamplingState.SCORE &&
 				Robot.getRobotState().sliderVelocity==0 &&
-				System.currentTimeMillis() - startTime > 200;
+				currentTimeMillis() - startTime > 200;
 	}
 
 	@Override
@@ -1,6 +1,5 @@
 package com.palyrobotics.frc2017.behavior.routines.scoring;
 
-import java.util.Optional;
 
 import com.palyrobotics.frc2017.behavior.Routine;
 import com.palyrobotics.frc2017.config.Commands;
@@ -27,7 +26,7 @@ public class VisionSliderRoutine extends Routine {
 	
 	@Override
 	public void start() {
-		startTime = System.currentTimeMillis();
+		startTime = currentTimeMillis();
 	}
 
 	@Override
@@ -49,11 +48,10 @@ public class VisionSliderRoutine extends Routine {
 		}
 		System.out.println("Vision setpoint pre min/max: "+visionSetpoint);
 		visionSetpoint = Math.max(-7, Math.min(visionSetpoint, 7));
-		if (commands.robotSetpoints.sliderCustomSetpoint.isPresent()) {
+		if (commands.robotSetpoints.hasSliderCustomSetpoint) {
 			System.out.println("Vision setpoint: "+visionSetpoint);
 		}
-		commands.robotSetpoints.sliderCustomSetpoint =
-				Optional.of(visionSetpoint * Constants.kSliderRevolutionsPerInch);
+		commands.robotSetpoints.setSliderCustomSetpoint(visionSetpoint * Constants.kSliderRevolutionsPerInch);
 		switch(mState) {
 		case START:
 			commands.wantedSliderState = Slider.SliderState.CUSTOM_POSITIONING;
@@ -74,7 +72,7 @@ public class VisionSliderRoutine extends Routine {
 	@Override
 	public Commands cancel(Commands commands) {
 		commands.wantedSliderState = SliderState.IDLE;
-		commands.robotSetpoints.sliderCustomSetpoint = Optional.empty();
+		commands.robotSetpoints.clearSliderCustomSetpoint();
 		try {
 			slider.run(commands, this);
 		} catch (IllegalAccessException e) {
@@ -86,7 +84,7 @@ public class VisionSliderRoutine extends Routine {
 	@Override
 	public boolean finished() {
 		return mState==VisionPositioningState.SENT && 
-				(System.currentTimeMillis() - startTime > 200) &&
+				(currentTimeMillis() - startTime > 200) &&
 				Robot.getRobotState().sliderVelocity == 0;
 	}
 
@@ -1,7 +1,6 @@
 package com.palyrobotics.frc2017.config;
 
 import java.util.ArrayList;
-import java.util.Optional;
 
 import com.palyrobotics.frc2017.behavior.Routine;
 import com.palyrobotics.frc2017.util.archive.DriveSignal;
@@ -24,7 +23,8 @@ import edu.wpi.first.wpilibj.DoubleSolenoid;
  *
  */
 public class Commands {
-	public ArrayList<Routine> wantedRoutines = new ArrayList<Routine>();
+	// Cleared instead of replaced so the list is reused every cycle
+	public final ArrayList<Routine> wantedRoutines = new ArrayList<Routine>();
 
 	// Store WantedStates for each subsystem state machine
 	public Drive.DriveState wantedDriveState = Drive.DriveState.NEUTRAL;
@@ -46,26 +46,60 @@ public class Commands {
 	}
 	
 	/**
-	 * Stores numeric setpoints
+	 * Stores numeric setpoints <br />
+	 * Optional setpoints are a value and a flag for whether it is set, so copying them never allocates
 	 * @author Nihar
 	 */
 	public static class Setpoints {
-		public static final Optional<Double> NULLOPT = Optional.empty();
-		
-		public Optional<DriveSignal> drivePowerSetpoint = Optional.empty();
+		// Only used when hasDrivePowerSetpoint is set
+		public DriveSignal drivePowerSetpoint = null;
+		public boolean hasDrivePowerSetpoint = false;
 		public Slider.SliderTarget sliderSetpoint = Slider.SliderTarget.NONE;
-		public Optional<Double> sliderCustomSetpoint = Optional.empty();
+		// Only used when hasSliderCustomSetpoint is set
+		public double sliderCustomSetpoint = 0;
+		public boolean hasSliderCustomSetpoint = false;
+
+		public void setDrivePowerSetpoint(DriveSignal signal) {
+			drivePowerSetpoint = signal;
+			hasDrivePowerSetpoint = true;
+		}
+
+		public void clearDrivePowerSetpoint() {
+			drivePowerSetpoint = null;
+			hasDrivePowerSetpoint = false;
+		}
+
+		public void setSliderCustomSetpoint(double setpoint) {
+			sliderCustomSetpoint = setpoint;
+			hasSliderCustomSetpoint = true;
+		}
+
+		public void clearSliderCustomSetpoint() {
+			sliderCustomSetpoint = 0;
+			hasSliderCustomSetpoint = false;
+		}
 
 		/**
 		 * Resets all the setpoints
 		 */
 		public void reset() {
-			drivePowerSetpoint = Optional.empty();
+			clearDrivePowerSetpoint();
 			sliderSetpoint = Slider.SliderTarget.NONE;
 		}
+
+		/**
+		 * Overwrites dst with these setpoints, the drive signal is shared and not copied
+		 */
+		public void copyInto(Setpoints dst) {
+			dst.drivePowerSetpoint = drivePowerSetpoint;
+			dst.hasDrivePowerSetpoint = hasDrivePowerSetpoint;
+			dst.sliderSetpoint = sliderSetpoint;
+			dst.sliderCustomSetpoint = sliderCustomSetpoint;
+			dst.hasSliderCustomSetpoint = hasSliderCustomSetpoint;
+		}
 	}
 	// All robot setpoints
-	public Setpoints robotSetpoints = new Setpoints();
+	public final Setpoints robotSetpoints = new Setpoints();
 	
 	/**
 	 * Class to store Joystick input
@@ -87,6 +121,9 @@ public class Commands {
 		public JoystickInput(double x, double y, boolean triggerPressed) {
 			this.x = x; this.y = y; this.triggerPressed = triggerPressed;
 		}
+		public void set(double x, double y, boolean triggerPressed) {
+			this.x = x; this.y = y; this.triggerPressed = triggerPressed;
+		}
 		@Override
 		public String toString() {
 			return "Joystick X: "+this.x+" Y: "+ this.y;
@@ -106,32 +143,45 @@ public class Commands {
 	 */
 	public Commands copy() {
 		Commands copy = new Commands();
-		copy.wantedDriveState = this.wantedDriveState;
-		copy.wantedFlipperSignal = this.wantedFlipperSignal;
-		copy.wantedSpatulaState = this.wantedSpatulaState;
-		copy.wantedSliderState = this.wantedSliderState;
-		copy.wantedIntakeState = this.wantedIntakeState;
-		copy.wantedClimberState = this.wantedClimberState;
-
-		copy.cancelCurrentRoutines = this.cancelCurrentRoutines;
-		copy.leftStickInput = this.leftStickInput;
-		copy.rightStickInput = this.rightStickInput;
-		copy.sliderStickInput = this.sliderStickInput;
-		copy.climberStickInput = this.climberStickInput;
-
-		for (Routine r : this.wantedRoutines) {
-			copy.wantedRoutines.add(r);
-		}
-		
-		// Copy robot setpoints
-		copy.robotSetpoints = new Setpoints();
-		// Copy optionals that are present
-		robotSetpoints.drivePowerSetpoint.ifPresent((DriveSignal signal) -> copy.robotSetpoints.drivePowerSetpoint = Optional.of(signal));
-		copy.robotSetpoints.sliderSetpoint = robotSetpoints.sliderSetpoint;
-		robotSetpoints.sliderCustomSetpoint.ifPresent((Double setpoint) -> copy.robotSetpoints.sliderCustomSetpoint = Optional.of(setpoint));
+		copyInto(copy);
 		return copy;
 	}
 
+	/**
+	 * Overwrites dst with these commands without allocating, so the same Commands can be reused every cycle <br />
+	 * Joystick values are copied into dst's own inputs, the wanted routines and flipper signal are shared
+	 * @param dst commands to overwrite, copying into itself does nothing
+	 */
+	public void copyInto(Commands dst) {
+		if (dst == this) {
+			return;
+		}
+		dst.wantedDriveState = this.wantedDriveState;
+		dst.wantedFlipperSignal = this.wantedFlipperSignal;
+		dst.wantedSpatulaState = this.wantedSpatulaState;
+		dst.wantedSliderState = this.wantedSliderState;
+		dst.wantedIntakeState = this.wantedIntakeState;
+		dst.wantedClimberState = this.wantedClimberState;
+
+		dst.cancelCurrentRoutines = this.cancelCurrentRoutines;
+		copyJoystick(this.leftStickInput, dst.leftStickInput);
+		copyJoystick(this.rightStickInput, dst.rightStickInput);
+		copyJoystick(this.sliderStickInput, dst.sliderStickInput);
+		copyJoystick(this.climberStickInput, dst.climberStickInput);
+
+		// Indexed to avoid an iterator or addAll's array copy
+		dst.wantedRoutines.clear();
+		for (int i = 0; i < this.wantedRoutines.size(); i++) {
+			dst.wantedRoutines.add(this.wantedRoutines.get(i));
+		}
+
+		robotSetpoints.copyInto(dst.robotSetpoints);
+	}
+
+	private static void copyJoystick(JoystickInput src, JoystickInput dst) {
+		dst.set(src.x, src.y, src.triggerPressed);
+	}
+
 	@Override
 	public String toString() {
 		String log = "";
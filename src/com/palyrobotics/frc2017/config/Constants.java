@@ -11,6 +11,11 @@ public class Constants extends ConstantsBase {
 	public static final RobotName kRobotName = RobotName.STEIK;
 	public static final boolean kCalibrateSliderWithPotentiometer = true;
 	
+	public static double kDashboardPublishRate = 20;	// Hz, changed dashboard values are sent this often
+	public static int kCANTelemetryCapacity = 256;	// Rows of trajectory data kept on the robot
+	public static int kCANTelemetryBatchRows = 15;	// Newest rows in each CAN table batch, batches overlap so a missed one loses nothing
+	public static double kPathGenerationTimeout = 0.5;	// Seconds DrivePathRoutine waits for a path generated on the robot before giving up
+
 	// Android app information
 	public static String kPackageName = "com.frc8.team8vision";
 	public static String kActivityName = "MainActivity";
@@ -21,6 +26,17 @@ public class Constants extends ConstantsBase {
 	public static int kAndroidDataSocketPort = 8008;
 	public static int kAndroidVisionSocketPort = 8009;
 	public static int kMJPEGServerSocketPort = 1180;
+	public static int kMJPEGMaxClients = 4;	// Dashboards streamed to at once, more are turned away
+	public static double kVisionRecordTimeout = 0.5;	// Seconds before falling back to polling data.json over adb
+	public static int kVisionSampleHistorySize = 32;
+	public static int kVisionFramePoolSize = 12;	// Images held at once, by the socket, the stream and its clients, and the recorder
+	public static int kVisionFrameMaxBytes = 262144;	// Larger images are skipped
+	public static boolean kRecordVision = false;	// Record the Nexus' images to the USB stick during matches
+	public static String kVisionRecordingDirectory = "/media/sda1";	// USB stick
+	public static long kVisionRecordingSegmentBytes = 64L * 1024 * 1024;
+	public static int kVisionRecorderQueueSize = 3;	// Frames waiting on the USB stick before the oldest is dropped
+	public static long kVisionRecorderStopTimeoutMs = 500;	// Longest disabledInit waits for the queued frames to be written
+	public static int kRobotStateHistorySize = 100;	// One second of the sensor loop, for vision latency compensation
 
 	// Cheesy Drive
 
@@ -78,7 +94,7 @@ public class Constants extends ConstantsBase {
 	public static double kAcceptableDrivePositionError = 15;
 	public static double kAcceptableDriveVelocityError = 5;
 	public static double kAcceptableTurnAngleError = 1; // 0.5
-	public static double kAcceptableSliderPositionError;
+	public static double kAcceptableSliderPositionError = 0.01;	// revolutions, about the slider's 40 tick encoder tolerance
 	public static double kAcceptableGyroZeroError = 3;
 	public static double kAcceptableEncoderZeroError = 10;
 
@@ -148,11 +164,30 @@ public class Constants extends ConstantsBase {
 	// !!! Loop rate of normal Looper
 	public static double kNormalLoopsDt = 0.01;
 
-	// !!! Loop rate of subsystem updates
-	public static double kSubsystemLooperDt = 0.01;
-	
 	public static double kSubsystemPrintLooperDt = 0.01;
 
+	// !!! Tick rate of the scheduler running the sensor, subsystem and hardware loops
+	public static double kSchedulerDt = 0.01;
+	// Subsystem update rates, rounded to a multiple of kSchedulerDt, which is the fastest they can run
+	public static double kSliderLoopDt = 0.01;
+	public static double kClimberLoopDt = 0.01;
+
+	// Seconds between loop timing summaries in the log and on the dashboard
+	public static double kLoopTimingSummaryDt = 5;
+
+	// !!! Logger file output
+	public static int kLoggerBufferBytes = 64 * 1024;
+	public static int kLoggerFlushBytes = 32 * 1024;	// write to the file once this much is buffered
+	public static int kLoggerFlushIntervalMs = 1000;	// or once the oldest buffered line is this old
+	public static long kLoggerRolloverBytes = 16 * 1024 * 1024;	// start a new file after this size
+
+	// !!! CAN bus status frames, faster means fresher sensor values and a busier bus
+	public static int kDriveMasterFeedbackStatusMs = 5;
+	public static int kSliderGeneralStatusMs = 5;
+	public static double kCANStatsDt = 1;	// seconds between bus load estimates
+	public static double kCANMaxUtilization = 0.7;	// log what to slow down above this
+	public static double kCANBusyLogDt = 10;	// seconds between busy bus logs, the summary is built on the subsystem thread
+
 	@Override
 	public String toString() {
 	return "kLowGearDriveSensitivity "+kLowGearDriveSensitivity+
@@ -29,16 +29,38 @@ public class RobotState {
 	public double totalVoltageDraw = 0;
 
 	// Pose stores drivetrain sensor data
-	public Pose drivePose = new Pose(0,0,0,0,0, 0, 0,0,0,0);
+	public final Pose drivePose = new Pose(0,0,0,0,0, 0, 0,0,0,0);
 
 	// Slider
 	public double sliderPotentiometer = 0;
 	public double sliderEncoder = 0;
 	public double sliderVelocity = 0;
 	public Optional<Integer> sliderClosedLoopError = Optional.empty();
+	public TalonControlMode sliderControlMode = TalonControlMode.Disabled;
 	public double sliderPosition = 0;
 
 	// Climber
 	public double climberCurrentDraw = 0;
 	public double climberEncoder = 0;
+
+	/**
+	 * Overwrites dst with this state without allocating
+	 */
+	public void copyInto(RobotState dst) {
+		dst.gamePeriod = gamePeriod;
+		dst.leftControlMode = leftControlMode;
+		dst.rightControlMode = rightControlMode;
+		dst.leftSetpoint = leftSetpoint;
+		dst.rightSetpoint = rightSetpoint;
+		dst.totalVoltageDraw = totalVoltageDraw;
+		drivePose.copyInto(dst.drivePose);
+		dst.sliderPotentiometer = sliderPotentiometer;
+		dst.sliderEncoder = sliderEncoder;
+		dst.sliderVelocity = sliderVelocity;
+		dst.sliderClosedLoopError = sliderClosedLoopError;
+		dst.sliderControlMode = sliderControlMode;
+		dst.sliderPosition = sliderPosition;
+		dst.climberCurrentDraw = climberCurrentDraw;
+		dst.climberEncoder = climberEncoder;
+	}
 }
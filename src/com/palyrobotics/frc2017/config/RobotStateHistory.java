@@ -0,0 +1,80 @@
+package com.palyrobotics.frc2017.config;
+
+import com.palyrobotics.frc2017.util.Pose;
+
+/**
+ * Recent drive poses, so vision samples can be matched to where the robot was when the image was captured <br />
+ * A fixed size ring filled by the sensor thread, all of it is allocated up front.
+ * Reads from other threads lock the ring only long enough to copy a sample out.
+ */
+public class RobotStateHistory {
+	private final double[] mTimes;
+	private final Pose[] mPoses;
+	// Index the next sample is written to
+	private int mNext = 0;
+	private int mSize = 0;
+
+	/**
+	 * @param capacity samples kept, at the sensor loop rate
+	 */
+	public RobotStateHistory(int capacity) {
+		mTimes = new double[capacity];
+		mPoses = new Pose[capacity];
+		for (int i = 0; i < capacity; i++) {
+			mPoses[i] = new Pose();
+		}
+	}
+
+	/**
+	 * Adds the state read at time, times must increase
+	 * @param time seconds on the roboRIO's clock
+	 */
+	public synchronized void add(double time, RobotState state) {
+		mTimes[mNext] = time;
+		state.drivePose.copyInto(mPoses[mNext]);
+		mNext = (mNext + 1) % mTimes.length;
+		if (mSize < mTimes.length) {
+			mSize++;
+		}
+	}
+
+	public synchronized void clear() {
+		mNext = 0;
+		mSize = 0;
+	}
+
+	public synchronized int size() {
+		return mSize;
+	}
+
+	// i = 0 is the oldest sample
+	private int index(int i) {
+		return (mNext - mSize + i + mTimes.length) % mTimes.length;
+	}
+
+	/**
+	 * @return whether time is between the oldest and newest samples
+	 */
+	public synchronized boolean covers(double time) {
+		return mSize > 0 && time >= mTimes[index(0)] && time <= mTimes[index(mSize - 1)];
+	}
+
+	/**
+	 * Copies the drive pose of the last sample at or before time into pose
+	 * @return false if time is outside the history, pose is left alone
+	 */
+	public synchronized boolean getPoseAt(double time, Pose pose) {
+		if (!covers(time)) {
+			return false;
+		}
+		// Newest first, the samples wanted are usually recent
+		for (int i = mSize - 1; i >= 0; i--) {
+			int sample = index(i);
+			if (mTimes[sample] <= time) {
+				mPoses[sample].copyInto(pose);
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,75 @@
+package com.palyrobotics.frc2017.config;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Hands the sensor thread's RobotState to the threads that read it, as a seqlock <br />
+ * The sensor thread fills its own RobotState, then {@link #publish(RobotState)} copies the whole thing at once.
+ * Each reader keeps its own RobotState that {@link #read(RobotState)} copies the latest published state into,
+ * retrying if a publish happened during the copy, so a reader never sees the left encoder from one tick
+ * and the right encoder from the next. Readers never take the lock, so they never block the sensor thread,
+ * and if every retry collides with a publish they keep the last state they read whole.
+ * Nothing is allocated after each thread's first read. <br />
+ * The game period is set by the robot thread instead of read from sensors, so it is kept separately.
+ */
+public class RobotStatePublisher {
+	// Optimistic copies to try before giving up and keeping the previous snapshot
+	private static final int kOptimisticReadAttempts = 8;
+
+	private final StampedLock mLock = new StampedLock();
+	private final RobotState mPublished = new RobotState();
+	private volatile RobotState.GamePeriod mGamePeriod = RobotState.GamePeriod.DISABLED;
+	private volatile long mPublishCount = 0;
+	// Each reader copies into its own scratch state first, so a copy torn by a publish never reaches its snapshot
+	private final ThreadLocal<RobotState> mScratch = ThreadLocal.withInitial(RobotState::new);
+
+	/**
+	 * Publishes a copy of state, the caller can start filling state again as soon as this returns
+	 */
+	public void publish(RobotState state) {
+		long stamp = mLock.writeLock();
+		try {
+			state.copyInto(mPublished);
+			mPublishCount++;
+		} finally {
+			mLock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Copies the latest published state into snapshot, or leaves it as it was if a publish
+	 * was in progress for every attempt
+	 * @param snapshot owned by the calling thread, nothing else writes to it
+	 * @return snapshot
+	 */
+	public RobotState read(RobotState snapshot) {
+		RobotState scratch = mScratch.get();
+		for (int i = 0; i < kOptimisticReadAttempts; i++) {
+			long stamp = mLock.tryOptimisticRead();
+			if (stamp != 0) {
+				mPublished.copyInto(scratch);
+				if (mLock.validate(stamp)) {
+					scratch.copyInto(snapshot);
+					break;
+				}
+			}
+		}
+		snapshot.gamePeriod = mGamePeriod;
+		return snapshot;
+	}
+
+	public void setGamePeriod(RobotState.GamePeriod gamePeriod) {
+		mGamePeriod = gamePeriod;
+	}
+
+	public RobotState.GamePeriod getGamePeriod() {
+		return mGamePeriod;
+	}
+
+	/**
+	 * Number of states published so far, readers can compare it to tell whether there is anything new
+	 */
+	public long getPublishCount() {
+		return mPublishCount;
+	}
+}
@@ -0,0 +1,136 @@
+package com.palyrobotics.frc2017.config.dashboard;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed schema rows of numbers from a control loop, shipped to the desktop CAN table recorder in batches
+ *
+ * One controller thread writes rows with {@link #row()} and {@link #commit(double)}, nothing is allocated.
+ * Rows are numbered in order and kept in a preallocated ring, the oldest are overwritten.
+ * The publisher thread copies the newest rows into a batch with {@link #fillBatch(double[])}.
+ * Batches overlap, each has every row from the last {@link #getBatchRows()}, so a batch the client misses
+ * is covered by the next one. The client drops rows it already has by their sequence number.
+ *
+ * A batch is one number array: columns, sequence of the first row, row count,
+ * then per row its time followed by one number per column.
+ */
+public class CANTelemetry {
+	public static final int kBatchHeader = 3;
+
+	/**
+	 * Columns written by TrajectoryFollowingController, 8 per side and the gyro error
+	 */
+	public static final String[] kTrajectoryColumns = {
+			"left_output", "left_pos", "left_vel", "left_acc", "left_distance", "left_speed", "left_error", "left_vel_error",
+			"right_output", "right_pos", "right_vel", "right_acc", "right_distance", "right_speed", "right_error", "right_vel_error",
+			"gyro_error"
+	};
+
+	private final String[] mColumns;
+	private final int mWidth;
+	private final int mCapacity;
+	private final int mMask;
+	private final int mBatchRows;
+
+	private final double[] mRows;
+	private final double[] mTimes;
+	private final double[] mRow;
+	// Sequence of the next row, row n is in slot n & mMask
+	private final AtomicLong mHead = new AtomicLong();
+
+	/**
+	 * @param columns names of the numbers in each row
+	 * @param capacity rows kept, rounded up to a power of two, must be well over batchRows
+	 * @param batchRows newest rows in each batch
+	 */
+	public CANTelemetry(String[] columns, int capacity, int batchRows) {
+		mColumns = columns.clone();
+		mWidth = columns.length;
+		mCapacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		mMask = mCapacity - 1;
+		mBatchRows = Math.min(batchRows, mCapacity / 2);
+		mRows = new double[mCapacity * mWidth];
+		mTimes = new double[mCapacity];
+		mRow = new double[mWidth];
+	}
+
+	/**
+	 * @return The row being written, fill in every column then {@link #commit(double)}, only for the writing thread
+	 */
+	public double[] row() {
+		return mRow;
+	}
+
+	/**
+	 * Adds the row written into {@link #row()}
+	 * @param time seconds on the roboRIO's clock
+	 */
+	public void commit(double time) {
+		long head = mHead.get();
+		int slot = (int) (head & mMask);
+		mTimes[slot] = time;
+		System.arraycopy(mRow, 0, mRows, slot * mWidth, mWidth);
+		mHead.lazySet(head + 1);
+	}
+
+	public String[] getColumns() {
+		return mColumns.clone();
+	}
+
+	/**
+	 * @return The columns joined with commas, for the CSV header
+	 */
+	public String getColumnHeader() {
+		return String.join(",", mColumns);
+	}
+
+	/**
+	 * @return Rows committed so far, also the sequence of the next one
+	 */
+	public long getRowCount() {
+		return mHead.get();
+	}
+
+	public int getBatchRows() {
+		return mBatchRows;
+	}
+
+	/**
+	 * @return Length of the array {@link #fillBatch(double[])} needs
+	 */
+	public int getBatchLength() {
+		return kBatchHeader + mBatchRows * (1 + mWidth);
+	}
+
+	/**
+	 * Copies the newest rows into batch, called by the publisher thread
+	 * @param batch at least {@link #getBatchLength()} long, reused between calls
+	 * @return Number of entries of batch used
+	 */
+	public int fillBatch(double[] batch) {
+		long end = mHead.get();
+		long first = Math.max(0, end - mBatchRows);
+		int stride = 1 + mWidth;
+		int offset = kBatchHeader;
+		for (long sequence = first; sequence < end; sequence++) {
+			int slot = (int) (sequence & mMask);
+			batch[offset] = mTimes[slot];
+			System.arraycopy(mRows, slot * mWidth, batch, offset + 1, mWidth);
+			offset += stride;
+		}
+		// Rows the writer may have overwritten while they were copied are left out,
+		// the writer could be in the middle of replacing the row a whole ring before its head
+		long oldestIntact = mHead.get() - mCapacity + 1;
+		if (oldestIntact > first) {
+			int skipped = (int) Math.min(oldestIntact - first, end - first);
+			System.arraycopy(batch, kBatchHeader + skipped * stride, batch, kBatchHeader,
+					offset - kBatchHeader - skipped * stride);
+			offset -= skipped * stride;
+			first += skipped;
+		}
+		batch[0] = mWidth;
+		batch[1] = first;
+		batch[2] = (offset - kBatchHeader) / stride;
+		return offset;
+	}
+}
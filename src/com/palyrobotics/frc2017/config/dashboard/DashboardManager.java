@@ -1,9 +1,21 @@
 package com.palyrobotics.frc2017.config.dashboard;
 
+import com.palyrobotics.frc2017.config.Constants;
 import com.palyrobotics.frc2017.config.Gains;
 
 import edu.wpi.first.wpilibj.networktables.NetworkTable;
 
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes {@link DashboardValue}s to the robot table
+ *
+ * Control threads only update values and register them with {@link #publishKVPair(DashboardValue)},
+ * a background thread puts the values that changed into the network table at {@link Constants#kDashboardPublishRate}.
+ * A value updated many times between flushes is sent once, with its latest value.
+ * The same thread ships {@link CANTelemetry} batches to the CAN table for CANTables.py.
+ */
 public class DashboardManager {
 
 	// Usage of cantable or not
@@ -18,7 +30,35 @@ public class DashboardManager {
 	public static final String CAN_TABLE_NAME = "data_table";
 	
 	public NetworkTable robotTable;
-	private NetworkTable canTable;
+	// Reached lazily by whichever of the robot and publisher threads needs it first
+	private volatile NetworkTable canTable;
+
+	// Latest value registered for each key
+	private final ConcurrentHashMap<String, DashboardValue> values = new ConcurrentHashMap<>();
+	private final DashboardValue.Table robotTableWriter = new DashboardValue.Table() {
+		@Override
+		public void putNumber(String key, double value) {
+			robotTable.putNumber(key, value);
+		}
+
+		@Override
+		public void putBoolean(String key, boolean value) {
+			robotTable.putBoolean(key, value);
+		}
+
+		@Override
+		public void putString(String key, String value) {
+			robotTable.putString(key, value);
+		}
+	};
+	private Thread publisherThread = null;
+	private volatile long publishedCount = 0;
+
+	private final CANTelemetry canTelemetry = new CANTelemetry(CANTelemetry.kTrajectoryColumns,
+			Constants.kCANTelemetryCapacity, Constants.kCANTelemetryBatchRows);
+	// Only used by the publisher thread
+	private final double[] canBatch = new double[canTelemetry.getBatchLength()];
+	private long canRowsPublished = 0;
 	
 	public static DashboardManager getInstance() {
 		return instance;
@@ -40,36 +80,110 @@ public class DashboardManager {
 		}
 		catch (NoClassDefFoundError e) {
 		}
+		startPublisher();
+	}
+
+	/**
+	 * Starts the thread publishing changed values, once
+	 */
+	public synchronized void startPublisher() {
+		if (publisherThread != null) {
+			return;
+		}
+		publisherThread = new Thread(this::publishValues, "DashboardPublisher");
+		publisherThread.setDaemon(true);
+		publisherThread.start();
 	}
 	
 	/**
-	 * Publishes a KV pair to the Network Table.
-	 * @param d	The dashboard value.
+	 * Queues a KV pair for the Network Table, sent by the publisher thread once it changes.
+	 * Never touches the network table, safe to call from control loops.
+	 * @param d	The dashboard value, replaces any other value registered with its key.
 	 */
 	public void publishKVPair(DashboardValue d) {
-		if (robotTable == null) {
-			try {
-				this.robotTable = NetworkTable.getTable(TABLE_NAME);
-			}
-			catch (UnsatisfiedLinkError e) {
-				// Block the error in a unit test and don't publish the value.
+		DashboardValue previous = values.get(d.getKey());
+		if (previous != d) {
+			values.put(d.getKey(), d);
+			d.markDirty();
+		}
+	}
+
+	/**
+	 * Puts every value that changed since the last flush into the table
+	 * @return the number of values published
+	 */
+	int flush(DashboardValue.Table table) {
+		int published = 0;
+		for (DashboardValue value : values.values()) {
+			if (value.publishIfDirty(table)) {
+				published++;
 			}
-			catch (NoClassDefFoundError e) {}
 		}
-		
-		// If we are now connected
-		if (robotTable != null) {
-			robotTable.putString(d.getKey(), d.getValue());
+		publishedCount += published;
+		return published;
+	}
+
+	/**
+	 * @return values put in the network table so far
+	 */
+	public long getPublishedCount() {
+		return publishedCount;
+	}
+
+	private void publishValues() {
+		while (true) {
+			if (robotTable == null) {
+				try {
+					this.robotTable = NetworkTable.getTable(TABLE_NAME);
+				}
+				catch (UnsatisfiedLinkError e) {
+					// Block the error in a unit test and don't publish the values.
+				}
+				catch (NoClassDefFoundError e) {}
+			}
+
+			// If we are now connected
+			if (robotTable != null) {
+				flush(robotTableWriter);
+			}
+			publishCANTelemetry();
+
+			try {
+				Thread.sleep((long) (1000 / Constants.kDashboardPublishRate));
+			} catch (InterruptedException e) {
+				return;
+			}
 		}
 	}
 	
-	public void updateCANTable(String string) {
-		if (enableCANTable) {
+	/**
+	 * Rows of trajectory following data for the CAN table, written by the drive controller
+	 */
+	public CANTelemetry getCANTelemetry() {
+		return canTelemetry;
+	}
+
+	/**
+	 * Sends the newest rows as one number array, if any were added since the last batch
+	 */
+	private void publishCANTelemetry() {
+		long rows = canTelemetry.getRowCount();
+		if (rows == canRowsPublished) {
 			return;
 		}
-		if (canTable != null) {
-			canTable.putString("status", string+"\n");
-		} else {
+		NetworkTable table = getCANTable();
+		if (table != null) {
+			int length = canTelemetry.fillBatch(canBatch);
+			table.putNumberArray("rows", Arrays.copyOf(canBatch, length));
+			canRowsPublished = rows;
+		}
+	}
+
+	/**
+	 * @return the CAN table, null if it can't be reached (unit tests)
+	 */
+	private NetworkTable getCANTable() {
+		if (canTable == null) {
 			// try to reach it again
 			try {
 				this.canTable = NetworkTable.getTable(CAN_TABLE_NAME);
@@ -78,6 +192,7 @@ public class DashboardManager {
 			}
 			catch (NoClassDefFoundError e) {}
 		}
+		return canTable;
 	}
 
 	/**
@@ -85,16 +200,18 @@ public class DashboardManager {
 	 * @param start true if you want to start sending data
 	 */
 	public void toggleCANTable(boolean start) {
+		// The publisher only reaches the table once there are rows, so it may not have been created yet
+		NetworkTable table = getCANTable();
+		if (table == null) {
+			return;
+		}
 		if (start) {
-			if (canTable != null) {
-				canTable.putString("start", "true");
-				canTable.putString("end", "false");
-			}
+			table.putString("columns", canTelemetry.getColumnHeader());
+			table.putString("start", "true");
+			table.putString("end", "false");
 		} else {
-			if (canTable != null) {
-				canTable.putString("start", "false");
-				canTable.putString("end", "true");
-			}
+			table.putString("start", "false");
+			table.putString("end", "true");
 		}
 	}
 }
@@ -1,26 +1,104 @@
 package com.palyrobotics.frc2017.config.dashboard;
 
+/**
+ * A value shown on the dashboard, numbers and booleans are kept and published as they are.
+ * Updating only marks the value dirty, {@link DashboardManager}'s publisher thread sends it to the network table.
+ * Setting the value it already has does not mark it dirty.
+ */
 public class DashboardValue {
 
+	/**
+	 * How the value is put in the network table, PAIR is two numbers sent as the string "first, second"
+	 */
+	public enum Type {
+		NUMBER, BOOLEAN, STRING, PAIR
+	}
+
+	/**
+	 * Where the publisher puts values, the network table outside of tests
+	 */
+	interface Table {
+		void putNumber(String key, double value);
+		void putBoolean(String key, boolean value);
+		void putString(String key, String value);
+	}
+
 	private final String key;
-	private String value;
+	private Type type;
+	private double number;
+	private double second;
+	private boolean bool;
+	private String string;
+	private boolean dirty = true;
 	
 	/**
 	 * Key where the data can be found in the networktable.
 	 * @param key: the key in the networktable. 
 	 */
 	public DashboardValue(String key) {
-		this.key = key;
-		value = "NO_ELEMENT";
+		this(key, "NO_ELEMENT");
 	}
 
 	public DashboardValue(String key, String initialValue) {
 		this.key = key;
-		this.value = initialValue;
+		this.type = Type.STRING;
+		this.string = initialValue;
 	}
-	
+
+	public DashboardValue(String key, double initialValue) {
+		this.key = key;
+		this.type = Type.NUMBER;
+		this.number = initialValue;
+	}
+
+	public DashboardValue(String key, boolean initialValue) {
+		this.key = key;
+		this.type = Type.BOOLEAN;
+		this.bool = initialValue;
+	}
+
+	public synchronized void updateValue(double val) {
+		if (type != Type.NUMBER || Double.doubleToLongBits(number) != Double.doubleToLongBits(val)) {
+			type = Type.NUMBER;
+			number = val;
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Two numbers, published as "first, second"
+	 */
+	public synchronized void updateValue(double first, double second) {
+		if (type != Type.PAIR || Double.doubleToLongBits(number) != Double.doubleToLongBits(first)
+				|| Double.doubleToLongBits(this.second) != Double.doubleToLongBits(second)) {
+			type = Type.PAIR;
+			number = first;
+			this.second = second;
+			dirty = true;
+		}
+	}
+
+	public synchronized void updateValue(boolean val) {
+		if (type != Type.BOOLEAN || bool != val) {
+			type = Type.BOOLEAN;
+			bool = val;
+			dirty = true;
+		}
+	}
+
+	public synchronized void updateValue(String val) {
+		if (type != Type.STRING || !val.equals(string)) {
+			type = Type.STRING;
+			string = val;
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Published as a string, prefer the typed overloads in loops
+	 */
 	public void updateValue(Object val) {
-		this.value = val.toString();
+		updateValue(val.toString());
 	}
 	
 	/**
@@ -30,12 +108,74 @@ public class DashboardValue {
 	String getKey() {
 		return this.key;
 	}
+
+	public synchronized Type getType() {
+		return type;
+	}
+
+	public synchronized boolean isDirty() {
+		return dirty;
+	}
 	
 	/**
 	 * Package avaiable method for the manager to call when passed a dashboard value.
-	 * @return the value
+	 * @return the value as a string
+	 */
+	synchronized String getValue() {
+		switch (type) {
+			case NUMBER:
+				return Double.toString(number);
+			case BOOLEAN:
+				return Boolean.toString(bool);
+			case PAIR:
+				return number + ", " + second;
+			default:
+				return string;
+		}
+	}
+
+	/**
+	 * Puts the value in the table if it changed since it was last published
+	 * <br>Only the copy is made holding the lock, so updates never wait on the table
+	 * @return whether it was published
+	 */
+	boolean publishIfDirty(Table table) {
+		Type type;
+		double number, second;
+		boolean bool;
+		String string;
+		synchronized (this) {
+			if (!dirty) {
+				return false;
+			}
+			dirty = false;
+			type = this.type;
+			number = this.number;
+			second = this.second;
+			bool = this.bool;
+			string = this.string;
+		}
+		switch (type) {
+			case NUMBER:
+				table.putNumber(key, number);
+				break;
+			case BOOLEAN:
+				table.putBoolean(key, bool);
+				break;
+			case PAIR:
+				table.putString(key, number + ", " + second);
+				break;
+			default:
+				table.putString(key, string);
+				break;
+		}
+		return true;
+	}
+
+	/**
+	 * Publishes again on the next flush, like after the table reconnects
 	 */
-	String getValue() {
-		return this.value;
+	synchronized void markDirty() {
+		dirty = true;
 	}
 }
@@ -0,0 +1,195 @@
+package com.palyrobotics.frc2017.robot;
+
+import com.ctre.CANTalon.StatusFrameRate;
+import com.palyrobotics.frc2017.config.dashboard.DashboardManager;
+import com.palyrobotics.frc2017.config.dashboard.DashboardValue;
+import com.palyrobotics.frc2017.util.LatencyHistogram;
+
+import java.util.ArrayList;
+
+/**
+ * Estimates how loaded the CAN bus is, per Talon and in total <br />
+ * Frames received come from each device's {@link TalonStatusProfile}. Frames sent are the roboRIO's periodic
+ * control frame plus the gain and motion magic frames the device's {@link CANTalonWriteCoalescer} sent.
+ * Control mode and setpoint changes ride in the periodic control frame, so they add nothing.
+ * It also keeps a histogram of how long reading each device's sensors takes. <br />
+ * Devices are added when the hardware updater is created, after that {@link #recordRead(int, long)},
+ * {@link #update(double)} and {@link #publishToDashboard()} are allocation free.
+ */
+public class CANBusProfiler {
+	private static final double kBitRate = 1e6;
+	// An extended frame with 8 data bytes is 128 bits, plus some bit stuffing
+	private static final double kBitsPerFrame = 140;
+	// The roboRIO sends every Talon a control frame this often whether or not anything changed
+	private static final double kControlFramePeriodMs = 10;
+	private static final double kMicrosPerMilli = 1000.0;
+
+	private static class Device {
+		final TalonStatusProfile profile;
+		// Null for Talons that are never written to, like followers
+		final CANTalonWriteCoalescer writer;
+		final LatencyHistogram readLatency = new LatencyHistogram();
+		long lastFramesSent = 0;
+		volatile double framesSentPerSecond = 0;
+		final DashboardValue rxPerSecond;
+		final DashboardValue txPerSecond;
+		final DashboardValue readP99Ms;
+
+		Device(TalonStatusProfile profile, CANTalonWriteCoalescer writer) {
+			this.profile = profile;
+			this.writer = writer;
+			String key = "can_" + profile.getName();
+			rxPerSecond = new DashboardValue(key + "_rx_per_sec", 0.0);
+			txPerSecond = new DashboardValue(key + "_tx_per_sec", 0.0);
+			readP99Ms = new DashboardValue(key + "_read_p99_ms", 0.0);
+		}
+
+		double getFramesReceivedPerSecond() {
+			return profile.getStatusFramesPerSecond();
+		}
+	}
+
+	private final ArrayList<Device> mDevices = new ArrayList<>();
+	private double mLastUpdateTime = Double.NaN;
+	private final DashboardValue mUtilization = new DashboardValue("can_utilization", 0.0);
+	private final DashboardValue mFramesPerSecond = new DashboardValue("can_frames_per_sec", 0.0);
+
+	/**
+	 * Adds a Talon, call before the loops start
+	 * @param writer the device's write coalescer, or null if it only gets configured
+	 * @return index to record reads with
+	 */
+	public int addDevice(TalonStatusProfile profile, CANTalonWriteCoalescer writer) {
+		mDevices.add(new Device(profile, writer));
+		return mDevices.size() - 1;
+	}
+
+	/**
+	 * @param device from {@link #addDevice(TalonStatusProfile, CANTalonWriteCoalescer)}
+	 * @param nanos how long reading the device's sensors took
+	 */
+	public void recordRead(int device, long nanos) {
+		mDevices.get(device).readLatency.record(nanos / 1000);
+	}
+
+	/**
+	 * Updates the frames sent per second from the writers, call periodically from the thread that writes
+	 * @param now seconds
+	 */
+	public void update(double now) {
+		boolean first = Double.isNaN(mLastUpdateTime);
+		double elapsed = now - mLastUpdateTime;
+		for (int i = 0; i < mDevices.size(); i++) {
+			Device device = mDevices.get(i);
+			double written = 0;
+			if (device.writer != null) {
+				long sent = device.writer.getExtraFramesSent();
+				if (!first && elapsed > 0) {
+					written = (sent - device.lastFramesSent) / elapsed;
+				}
+				device.lastFramesSent = sent;
+			}
+			device.framesSentPerSecond = 1000.0 / kControlFramePeriodMs + written;
+		}
+		mLastUpdateTime = now;
+	}
+
+	public int getDeviceCount() {
+		return mDevices.size();
+	}
+
+	public String getDeviceName(int device) {
+		return mDevices.get(device).profile.getName();
+	}
+
+	public double getFramesReceivedPerSecond(int device) {
+		return mDevices.get(device).getFramesReceivedPerSecond();
+	}
+
+	// Includes the periodic control frame, so this is never 0 after the first update
+	public double getFramesSentPerSecond(int device) {
+		return mDevices.get(device).framesSentPerSecond;
+	}
+
+	// Microseconds reading the device's sensors took
+	public LatencyHistogram getReadLatency(int device) {
+		return mDevices.get(device).readLatency;
+	}
+
+	public double getFramesPerSecond() {
+		double frames = 0;
+		for (int i = 0; i < mDevices.size(); i++) {
+			frames += getFramesReceivedPerSecond(i) + getFramesSentPerSecond(i);
+		}
+		return frames;
+	}
+
+	/**
+	 * Estimated fraction of the bus in use by the Talons, the PDP and PCM are not counted
+	 */
+	public double getUtilization() {
+		return getFramesPerSecond() * kBitsPerFrame / kBitRate;
+	}
+
+	/**
+	 * Status frames that are faster than the Talon's default, and the load slowing them back down would save <br />
+	 * These are the ones to look at first when the bus is too busy.
+	 */
+	public String getRecommendations() {
+		StringBuilder recommendations = new StringBuilder();
+		for (Device device : mDevices) {
+			for (StatusFrameRate frame : StatusFrameRate.values()) {
+				int periodMs = device.profile.getPeriodMs(frame);
+				int defaultMs = TalonStatusProfile.getDefaultPeriodMs(frame);
+				if (periodMs < defaultMs) {
+					double saved = (1000.0 / periodMs - 1000.0 / defaultMs) * kBitsPerFrame / kBitRate;
+					if (recommendations.length() > 0) {
+						recommendations.append(", ");
+					}
+					recommendations.append(device.profile.getName()).append(' ').append(frame)
+							.append(' ').append(periodMs).append(" ms -> ").append(defaultMs)
+							.append(" ms saves ").append(Math.round(saved * 1000) / 10.0).append('%');
+				}
+			}
+		}
+		return recommendations.toString();
+	}
+
+	/**
+	 * One line per device with frames per second and read latency, for the log
+	 */
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder("CAN bus ").append(Math.round(getUtilization() * 1000) / 10.0)
+				.append("% ").append(Math.round(getFramesPerSecond())).append(" frames/s");
+		for (int i = 0; i < mDevices.size(); i++) {
+			Device device = mDevices.get(i);
+			summary.append('\n').append(device.profile.getName())
+					.append(" rx ").append(Math.round(device.getFramesReceivedPerSecond()))
+					.append(" tx ").append(Math.round(device.framesSentPerSecond))
+					.append(" read p50 ").append(device.readLatency.getValueAtPercentile(50) / kMicrosPerMilli)
+					.append(" p99 ").append(device.readLatency.getValueAtPercentile(99) / kMicrosPerMilli)
+					.append(" ms");
+		}
+		return summary.toString();
+	}
+
+	/**
+	 * Updates the dashboard values, the {@link DashboardManager} publisher thread sends them
+	 */
+	public void publishToDashboard() {
+		DashboardManager dashboard = DashboardManager.getInstance();
+		mUtilization.updateValue(getUtilization());
+		mFramesPerSecond.updateValue(getFramesPerSecond());
+		dashboard.publishKVPair(mUtilization);
+		dashboard.publishKVPair(mFramesPerSecond);
+		for (int i = 0; i < mDevices.size(); i++) {
+			Device device = mDevices.get(i);
+			device.rxPerSecond.updateValue(device.getFramesReceivedPerSecond());
+			device.txPerSecond.updateValue(device.framesSentPerSecond);
+			device.readP99Ms.updateValue(device.readLatency.getValueAtPercentile(99) / kMicrosPerMilli);
+			dashboard.publishKVPair(device.rxPerSecond);
+			dashboard.publishKVPair(device.txPerSecond);
+			dashboard.publishKVPair(device.readP99Ms);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.palyrobotics.frc2017.robot;
+
+import com.ctre.CANTalon;
+import com.ctre.CANTalon.TalonControlMode;
+import com.palyrobotics.frc2017.config.Gains;
+import com.palyrobotics.frc2017.util.CANTalonOutput;
+
+/**
+ * Writes CANTalonOutputs to one Talon, only sending what changed since the last write <br />
+ * Keeps a shadow of the control mode, gains, profile, motion magic parameters and setpoint last sent.
+ * The setpoint is sent again whenever the control mode changes, gains only when the Gains differ.
+ * The Talon keeps all of these on its own, so nothing is lost by not sending them every tick. <br />
+ * Call {@link #invalidate()} after anything else touches the Talon (reset, disable) so the next write sends everything.
+ */
+public class CANTalonWriteCoalescer {
+	/**
+	 * The Talon calls made by the coalescer, so tests can count them without hardware
+	 */
+	public interface Talon {
+		void changeControlMode(TalonControlMode controlMode);
+
+		void setPID(double p, double i, double d, double f, int izone, double rampRate, int profile);
+
+		void setMotionMagicAcceleration(double accel);
+
+		void setMotionMagicCruiseVelocity(double cruiseVelocity);
+
+		void set(double setpoint);
+	}
+
+	// setPID sends the six gains and selects the profile
+	public static final int kSetPIDFrames = 7;
+
+	private final Talon mTalon;
+
+	// Set from other threads, the next write clears the shadow
+	private volatile boolean mInvalidated = true;
+	private boolean mModeSent = false;
+	private TalonControlMode mControlMode = null;
+	// Gains are immutable, so the reference is enough to compare against
+	private Gains mGains = null;
+	private int mProfile = 0;
+	private boolean mMotionMagicSent = false;
+	private double mAccel = 0;
+	private double mCruiseVelocity = 0;
+	private double mSetpoint = 0;
+
+	private long mFramesSent = 0;
+	private long mFramesSaved = 0;
+	private long mExtraFramesSent = 0;
+
+	public CANTalonWriteCoalescer(Talon talon) {
+		mTalon = talon;
+	}
+
+	/**
+	 * @param talon may be null on robots without it, as long as nothing is written
+	 */
+	public static CANTalonWriteCoalescer forTalon(CANTalon talon) {
+		return new CANTalonWriteCoalescer(new Talon() {
+			@Override
+			public void changeControlMode(TalonControlMode controlMode) {
+				talon.changeControlMode(controlMode);
+			}
+
+			@Override
+			public void setPID(double p, double i, double d, double f, int izone, double rampRate, int profile) {
+				talon.setPID(p, i, d, f, izone, rampRate, profile);
+			}
+
+			@Override
+			public void setMotionMagicAcceleration(double accel) {
+				talon.setMotionMagicAcceleration(accel);
+			}
+
+			@Override
+			public void setMotionMagicCruiseVelocity(double cruiseVelocity) {
+				talon.setMotionMagicCruiseVelocity(cruiseVelocity);
+			}
+
+			@Override
+			public void set(double setpoint) {
+				talon.set(setpoint);
+			}
+		});
+	}
+
+	/**
+	 * Same Talon calls HardwareUpdater used to make every tick, minus the ones that would not change anything
+	 */
+	public void write(CANTalonOutput output) {
+		if (mInvalidated) {
+			mInvalidated = false;
+			mModeSent = false;
+			mGains = null;
+			mMotionMagicSent = false;
+		}
+		TalonControlMode controlMode = output.getControlMode();
+		boolean modeChanged = !mModeSent || controlMode != mControlMode;
+		if (modeChanged) {
+			mTalon.changeControlMode(controlMode);
+			mControlMode = controlMode;
+			mModeSent = true;
+			mFramesSent++;
+		} else {
+			mFramesSaved++;
+		}
+		if (controlMode.isPID() || controlMode == TalonControlMode.MotionMagic) {
+			Gains gains = output.gains;
+			if (mGains == null || output.profile != mProfile || (gains != mGains && !gains.equals(mGains))) {
+				mTalon.setPID(gains.P, gains.I, gains.D, gains.F, gains.izone, gains.rampRate, output.profile);
+				mGains = gains;
+				mProfile = output.profile;
+				mFramesSent += kSetPIDFrames;
+				mExtraFramesSent += kSetPIDFrames;
+			} else {
+				mFramesSaved += kSetPIDFrames;
+			}
+		}
+		if (controlMode == TalonControlMode.MotionMagic) {
+			if (!mMotionMagicSent || output.accel != mAccel) {
+				mTalon.setMotionMagicAcceleration(output.accel);
+				mAccel = output.accel;
+				mFramesSent++;
+				mExtraFramesSent++;
+			} else {
+				mFramesSaved++;
+			}
+			if (!mMotionMagicSent || output.cruiseVel != mCruiseVelocity) {
+				mTalon.setMotionMagicCruiseVelocity(output.cruiseVel);
+				mCruiseVelocity = output.cruiseVel;
+				mFramesSent++;
+				mExtraFramesSent++;
+			} else {
+				mFramesSaved++;
+			}
+			mMotionMagicSent = true;
+		}
+		if (modeChanged || output.getSetpoint() != mSetpoint) {
+			mTalon.set(output.getSetpoint());
+			mSetpoint = output.getSetpoint();
+			mFramesSent++;
+		} else {
+			mFramesSaved++;
+		}
+	}
+
+	/**
+	 * Forgets what was sent, call from any thread after the Talon was reset, disabled or configured
+	 */
+	public void invalidate() {
+		mInvalidated = true;
+	}
+
+	// Frames written to the Talon, counting setPID as kSetPIDFrames
+	public long getFramesSent() {
+		return mFramesSent;
+	}
+
+	// Frames that were skipped because the Talon already had the value
+	public long getFramesSaved() {
+		return mFramesSaved;
+	}
+
+	// Gain and motion magic frames, the control mode and setpoint only change what the periodic control frame carries
+	public long getExtraFramesSent() {
+		return mExtraFramesSent;
+	}
+}
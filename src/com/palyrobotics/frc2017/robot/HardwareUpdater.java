@@ -1,7 +1,6 @@
 package com.palyrobotics.frc2017.robot;
 
 import com.ctre.CANTalon;
-import com.ctre.CANTalon.TalonControlMode;
 import com.kauailabs.navx.frc.AHRS;
 import com.palyrobotics.frc2017.config.Constants;
 import com.palyrobotics.frc2017.config.Constants2016;
@@ -10,12 +9,13 @@ import com.palyrobotics.frc2017.robot.team254.lib.util.ADXRS453_Gyro;
 import com.palyrobotics.frc2017.robot.team254.lib.util.Loop;
 import com.palyrobotics.frc2017.config.Constants.RobotName;
 import com.palyrobotics.frc2017.config.dashboard.DashboardManager;
+import com.palyrobotics.frc2017.config.dashboard.DashboardValue;
 import com.palyrobotics.frc2017.subsystems.*;
-import com.palyrobotics.frc2017.util.CANTalonOutput;
 import com.palyrobotics.frc2017.util.logger.Logger;
 
 import edu.wpi.first.wpilibj.ADXRS450_Gyro;
 import edu.wpi.first.wpilibj.GyroBase;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.interfaces.Gyro;
 
 import java.util.Optional;
@@ -23,18 +23,25 @@ import java.util.Optional;
 /**
  * Should only be used in robot package.
  */
-class HardwareUpdater {
+class HardwareUpdater implements RobotHardware {
+	@Override
 	public HardwareSensorLoop getHardwareSensorLoop() {
 		return new HardwareSensorLoop();
 	}
+	@Override
 	public HardwareEnabledLoop getHardwareEnabledLoop() {
 		return new HardwareEnabledLoop();
 	}
 	
 	public class HardwareSensorLoop implements Loop {
+		// Filled on the sensor thread, then published all at once
+		private final RobotState mSensorState = new RobotState();
+
 		@Override
 		public void update() {
-			updateSensors(Robot.getRobotState());
+			updateSensors(mSensorState);
+			Robot.getRobotStatePublisher().publish(mSensorState);
+			Robot.getRobotStateHistory().add(Timer.getFPGATimestamp(), mSensorState);
 		}
 
 		@Override
@@ -72,6 +79,42 @@ class HardwareUpdater {
 	private Intake mIntake;
 	private Climber mClimber;
 
+	// Only send the Talons what changed, a null Talon is never written to
+	private final CANTalonWriteCoalescer mLeftDriveWriter =
+			CANTalonWriteCoalescer.forTalon(HardwareAdapter.getInstance().getDrivetrain().leftMasterTalon);
+	private final CANTalonWriteCoalescer mRightDriveWriter =
+			CANTalonWriteCoalescer.forTalon(HardwareAdapter.getInstance().getDrivetrain().rightMasterTalon);
+	private final CANTalonWriteCoalescer mSliderWriter =
+			CANTalonWriteCoalescer.forTalon(HardwareAdapter.getInstance().getSlider().sliderTalon);
+	private final CANTalonWriteCoalescer mClimberWriter =
+			CANTalonWriteCoalescer.forTalon(HardwareAdapter.getInstance().getClimber().climberTalon);
+	private final CANTalonWriteCoalescer[] mWriters = {mLeftDriveWriter, mRightDriveWriter, mSliderWriter, mClimberWriter};
+
+	// Status frame rates of each Talon, applied when configuring and used to estimate the bus load
+	private final TalonStatusProfile mLeftMasterProfile = new TalonStatusProfile("left_master")
+			.withPeriod(CANTalon.StatusFrameRate.Feedback, Constants.kDriveMasterFeedbackStatusMs);
+	private final TalonStatusProfile mRightMasterProfile = new TalonStatusProfile("right_master")
+			.withPeriod(CANTalon.StatusFrameRate.Feedback, Constants.kDriveMasterFeedbackStatusMs);
+	private final TalonStatusProfile mLeftSlave1Profile = new TalonStatusProfile("left_slave_1");
+	private final TalonStatusProfile mLeftSlave2Profile = new TalonStatusProfile("left_slave_2");
+	private final TalonStatusProfile mRightSlave1Profile = new TalonStatusProfile("right_slave_1");
+	private final TalonStatusProfile mRightSlave2Profile = new TalonStatusProfile("right_slave_2");
+	private final TalonStatusProfile mSliderProfile = new TalonStatusProfile("slider")
+			.withPeriod(CANTalon.StatusFrameRate.General, Constants.kSliderGeneralStatusMs);
+	private final TalonStatusProfile mClimberProfile = new TalonStatusProfile("climber");
+
+	private final CANBusProfiler mCANProfiler = new CANBusProfiler();
+	// Profiler device indices of the Talons whose reads are timed, -1 if the robot doesn't have it
+	private int mLeftMasterDevice = -1;
+	private int mRightMasterDevice = -1;
+	private int mSliderDevice = -1;
+	private double mLastCANStatsTime = 0;
+	private double mLastCANBusyLogTime = Double.NEGATIVE_INFINITY;
+	private long mLastFramesSent = 0;
+	private long mLastFramesSaved = 0;
+	private final DashboardValue mFramesSentPerSecond = new DashboardValue("can_frames_sent_per_sec", 0.0);
+	private final DashboardValue mFramesSavedPerSecond = new DashboardValue("can_frames_saved_per_sec", 0.0);
+
 	/**
 	 * Hardware Updater for Steik
 	 */
@@ -87,6 +130,7 @@ class HardwareUpdater {
 		this.mSpatula = spatula;
 		this.mIntake = intake;
 		this.mClimber = climber;
+		addCANDevices();
 	}
 
 	/**
@@ -100,13 +144,25 @@ class HardwareUpdater {
 			throw new Exception();
 		}
 		this.mDrive = drive;
+		addCANDevices();
+	}
+
+	private void addCANDevices() {
+		mLeftMasterDevice = mCANProfiler.addDevice(mLeftMasterProfile, mLeftDriveWriter);
+		mRightMasterDevice = mCANProfiler.addDevice(mRightMasterProfile, mRightDriveWriter);
+		mCANProfiler.addDevice(mLeftSlave1Profile, null);
+		mCANProfiler.addDevice(mRightSlave1Profile, null);
+		if (Constants.kRobotName == RobotName.STEIK) {
+			mCANProfiler.addDevice(mLeftSlave2Profile, null);
+			mCANProfiler.addDevice(mRightSlave2Profile, null);
+			mSliderDevice = mCANProfiler.addDevice(mSliderProfile, mSliderWriter);
+			mCANProfiler.addDevice(mClimberProfile, mClimberWriter);
+		}
 	}
 
 	
-	/**
-	 * Initialize all hardware
-	 */
-	void initHardware() {
+	@Override
+	public void initHardware() {
 		Logger.getInstance().logRobotThread("Init hardware");
 		configureTalons(true);
 		AHRS gyro = HardwareAdapter.getInstance().getDrivetrain().gyro;
@@ -123,7 +179,8 @@ class HardwareUpdater {
 		gyro.zeroYaw();
 	}
 	
-	void disableTalons() {
+	@Override
+	public void disableTalons() {
 		Logger.getInstance().logRobotThread("Disabling talons");
 		HardwareAdapter.getInstance().getDrivetrain().leftMasterTalon.disable();
 		HardwareAdapter.getInstance().getDrivetrain().leftSlave1Talon.disable();
@@ -135,9 +192,18 @@ class HardwareUpdater {
 			HardwareAdapter.getInstance().getClimber().climberTalon.disable();
 			HardwareAdapter.getInstance().getSlider().sliderTalon.disable();
 		}
+		invalidateWriters();
+	}
+
+	// Makes the next update send everything to the Talons again
+	private void invalidateWriters() {
+		for (CANTalonWriteCoalescer writer : mWriters) {
+			writer.invalidate();
+		}
 	}
 	
-	void configureTalons(boolean calibrateSliderEncoder) {
+	@Override
+	public void configureTalons(boolean calibrateSliderEncoder) {
 		configureDriveTalons();
 		if (Constants.kRobotName == RobotName.STEIK) {
 			//Climber setup
@@ -149,13 +215,14 @@ class HardwareUpdater {
 			climber.configPeakOutputVoltage(Constants.kClimberMaxVoltage, 0); // Should never be used
 			climber.ConfigRevLimitSwitchNormallyOpen(false); // Prevent the motor from spinning backwards
 			climber.ConfigFwdLimitSwitchNormallyOpen(true);
+			mClimberProfile.apply(climber);
 			climber.enable();
 			
 			CANTalon slider = HardwareAdapter.SliderHardware.getInstance().sliderTalon;
 			// Reset and turn on the Talon 
 			slider.reset();
 			slider.clearStickyFaults();
-			slider.setStatusFrameRateMs(CANTalon.StatusFrameRate.General, 5);
+			mSliderProfile.apply(slider);
 			slider.enable();
 			slider.enableControl();
 			slider.configMaxOutputVoltage(Constants.kSliderMaxVoltage);
@@ -174,9 +241,11 @@ class HardwareUpdater {
 				}
 			}
 		}
+		invalidateWriters();
 	}
 	
-	void configureDriveTalons() {
+	@Override
+	public void configureDriveTalons() {
 		CANTalon leftMasterTalon = HardwareAdapter.getInstance().getDrivetrain().leftMasterTalon;
 		CANTalon leftSlave1Talon = HardwareAdapter.getInstance().getDrivetrain().leftSlave1Talon;
 		CANTalon leftSlave2Talon = HardwareAdapter.getInstance().getDrivetrain().leftSlave2Talon;
@@ -232,8 +301,12 @@ class HardwareUpdater {
 		leftMasterTalon.setFeedbackDevice(CANTalon.FeedbackDevice.QuadEncoder);
 		rightMasterTalon.setFeedbackDevice(CANTalon.FeedbackDevice.QuadEncoder);
 
-		leftMasterTalon.setStatusFrameRateMs(CANTalon.StatusFrameRate.Feedback, 5);
-		rightMasterTalon.setStatusFrameRateMs(CANTalon.StatusFrameRate.Feedback, 5);
+		mLeftMasterProfile.apply(leftMasterTalon);
+		mRightMasterProfile.apply(rightMasterTalon);
+		mLeftSlave1Profile.apply(leftSlave1Talon);
+		mLeftSlave2Profile.apply(leftSlave2Talon);
+		mRightSlave1Profile.apply(rightSlave1Talon);
+		mRightSlave2Profile.apply(rightSlave2Talon);
 
 		// Zero encoders
 		leftMasterTalon.setEncPosition(0);
@@ -261,10 +334,18 @@ class HardwareUpdater {
 		}
 	}
 
-	/**
-	 * Updates all the sensor data taken from the hardware
-	 */
-	void updateSensors(RobotState robotState) {
+	@Override
+	public void resetDriveSensors() {
+		HardwareAdapter.DrivetrainHardware.resetSensors();
+	}
+
+	@Override
+	public void resetSliderEncoder() {
+		HardwareAdapter.SliderHardware.resetEncoder();
+	}
+
+	@Override
+	public void updateSensors(RobotState robotState) {
 		robotState.leftControlMode = HardwareAdapter.DrivetrainHardware.getInstance().leftMasterTalon.getControlMode();
 		robotState.rightControlMode = HardwareAdapter.DrivetrainHardware.getInstance().rightMasterTalon.getControlMode();
 		robotState.leftSetpoint = HardwareAdapter.DrivetrainHardware.getInstance().leftMasterTalon.getSetpoint();
@@ -284,14 +365,19 @@ class HardwareUpdater {
 		}
 		CANTalon leftMasterTalon = HardwareAdapter.DrivetrainHardware.getInstance().leftMasterTalon;
 		CANTalon rightMasterTalon = HardwareAdapter.DrivetrainHardware.getInstance().rightMasterTalon;
+		// Mostly run by the sensor thread, a read timed on the robot thread now and then doesn't skew the histograms
+		long readStart = System.nanoTime();
 		robotState.drivePose.leftEnc = leftMasterTalon.getPosition();
 		robotState.drivePose.leftEncVelocity = leftMasterTalon.getEncVelocity();
 		robotState.drivePose.leftSpeed = leftMasterTalon.getSpeed();
+		long readEnd = System.nanoTime();
+		mCANProfiler.recordRead(mLeftMasterDevice, readEnd - readStart);
 		// rightEnc is not getEncPosition() because that returns the absolute
 		// position, not the inverted one, which we want.
 		robotState.drivePose.rightEnc = rightMasterTalon.getPosition();
 		robotState.drivePose.rightEncVelocity = rightMasterTalon.getEncVelocity();
 		robotState.drivePose.rightSpeed = rightMasterTalon.getSpeed();
+		mCANProfiler.recordRead(mRightMasterDevice, System.nanoTime() - readEnd);
 		if (leftMasterTalon.getControlMode().isPID()) {
 			robotState.drivePose.leftError = Optional.of(leftMasterTalon.getError());
 		} else {
@@ -304,11 +390,14 @@ class HardwareUpdater {
 		}
 		if (Constants.kRobotName == Constants.RobotName.STEIK) {
 			CANTalon sliderTalon = HardwareAdapter.SliderHardware.getInstance().sliderTalon;
+			readStart = System.nanoTime();
 			robotState.sliderEncoder = sliderTalon.getEncPosition();
 			// update the cantables with talon info
 //			DashboardManager.getInstance().updateCANTable(HardwareAdapter.DrivetrainHardware.getInstance().leftMasterTalon.getOutputVoltage() + "," + HardwareAdapter.DrivetrainHardware.getInstance().rightMasterTalon.getOutputVoltage() + "," + HardwareAdapter.DrivetrainHardware.getInstance().leftMasterTalon.getPosition() + "," + HardwareAdapter.DrivetrainHardware.getInstance().rightMasterTalon.getPosition() + "," +  HardwareAdapter.DrivetrainHardware.getInstance().leftMasterTalon.getClosedLoopError() + "," + HardwareAdapter.DrivetrainHardware.getInstance().rightMasterTalon.getClosedLoopError());
 			robotState.sliderPotentiometer = HardwareAdapter.SliderHardware.getInstance().sliderPotentiometer.getValue();
 			robotState.sliderVelocity = sliderTalon.getSpeed();
+			mCANProfiler.recordRead(mSliderDevice, System.nanoTime() - readStart);
+			robotState.sliderControlMode = sliderTalon.getControlMode();
 			if (sliderTalon.getControlMode().isPID()) {
 				if (sliderTalon.getSetpoint() == mSlider.getOutput().getSetpoint()) {
 					robotState.sliderClosedLoopError = Optional.of(sliderTalon.getClosedLoopError());
@@ -328,15 +417,14 @@ class HardwareUpdater {
 		}
 	}
 
-	/**
-	 * Sets the output from all subsystems for the respective hardware
-	 */
-	void updateSubsystems() {
+	@Override
+	public void updateSubsystems() {
 		// On Derica only update the drivetrain
 		if (Constants.kRobotName == Constants.RobotName.STEIK) {
 			updateSteikSubsystems();
 		}
 		updateDrivetrain();
+		outputCANStats();
 	}
 
 	private void updateSteikSubsystems() {
@@ -347,13 +435,13 @@ class HardwareUpdater {
 //		System.out.println(mSlider.getOutput().toString());
 //		System.out.println("Talon setpt:"+HardwareAdapter.getInstance().getSlider().sliderTalon.getSetpoint());
 //		System.out.println("Talon setpt:"+HardwareAdapter.getInstance().getSlider().sliderTalon.getControlMode());
-		updateCANTalonSRX(HardwareAdapter.getInstance().getSlider().sliderTalon, mSlider.getOutput());
+		mSliderWriter.write(mSlider.getOutput());
 		// SPATULA
 		HardwareAdapter.getInstance().getSpatula().spatulaSolenoid.set(mSpatula.getOutput());
 //		// INTAKE
 		HardwareAdapter.getInstance().getIntake().intakeMotor.set(mIntake.getOutput());
 		// CLIMBER
-		updateCANTalonSRX(HardwareAdapter.getInstance().getClimber().climberTalon, mClimber.getOutput());
+		mClimberWriter.write(mClimber.getOutput());
 	}
 
 	/**
@@ -361,22 +449,41 @@ class HardwareUpdater {
 	 * Uses CANTalonOutput and can run off-board control loops through SRX
 	 */
 	private void updateDrivetrain() {
-		updateCANTalonSRX(HardwareAdapter.getInstance().getDrivetrain().leftMasterTalon, mDrive.getDriveSignal().leftMotor);
-		updateCANTalonSRX(HardwareAdapter.getInstance().getDrivetrain().rightMasterTalon, mDrive.getDriveSignal().rightMotor);
+		mLeftDriveWriter.write(mDrive.getDriveSignal().leftMotor);
+		mRightDriveWriter.write(mDrive.getDriveSignal().rightMotor);
 	}
 
 	/**
-	 * Helper method for processing a CANTalonOutput for an SRX
+	 * Publishes the estimated CAN bus load and how many frames per second the write coalescers sent and skipped <br />
+	 * Logs what could be slowed down when the bus is busier than Constants.kCANMaxUtilization,
+	 * at most every Constants.kCANBusyLogDt since building the summary allocates on this thread
 	 */
-	private void updateCANTalonSRX(CANTalon talon, CANTalonOutput output) {
-		talon.changeControlMode(output.getControlMode());
-		if(output.getControlMode().isPID() || output.getControlMode() == TalonControlMode.MotionMagic) {
-			talon.setPID(output.gains.P, output.gains.I, output.gains.D, output.gains.F, output.gains.izone, output.gains.rampRate, output.profile);
+	private void outputCANStats() {
+		double now = Timer.getFPGATimestamp();
+		if (now - mLastCANStatsTime < Constants.kCANStatsDt) {
+			return;
+		}
+		mCANProfiler.update(now);
+		mCANProfiler.publishToDashboard();
+		if (mCANProfiler.getUtilization() > Constants.kCANMaxUtilization
+				&& now - mLastCANBusyLogTime >= Constants.kCANBusyLogDt) {
+			mLastCANBusyLogTime = now;
+			Logger.getInstance().logSubsystemThread("CAN bus busy", mCANProfiler.getSummary());
+			Logger.getInstance().logSubsystemThread("CAN bus recommendations", mCANProfiler.getRecommendations());
 		}
-		if (output.getControlMode() == CANTalon.TalonControlMode.MotionMagic) {
-			talon.setMotionMagicAcceleration(output.accel);
-			talon.setMotionMagicCruiseVelocity(output.cruiseVel);
+		long sent = 0;
+		long saved = 0;
+		for (CANTalonWriteCoalescer writer : mWriters) {
+			sent += writer.getFramesSent();
+			saved += writer.getFramesSaved();
 		}
-		talon.set(output.getSetpoint());
+		double elapsed = now - mLastCANStatsTime;
+		mFramesSentPerSecond.updateValue((sent - mLastFramesSent) / elapsed);
+		mFramesSavedPerSecond.updateValue((saved - mLastFramesSaved) / elapsed);
+		DashboardManager.getInstance().publishKVPair(mFramesSentPerSecond);
+		DashboardManager.getInstance().publishKVPair(mFramesSavedPerSecond);
+		mLastCANStatsTime = now;
+		mLastFramesSent = sent;
+		mLastFramesSaved = saved;
 	}
-}
\ No newline at end of file
+}
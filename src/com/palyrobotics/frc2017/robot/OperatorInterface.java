@@ -34,6 +34,10 @@ public class OperatorInterface {
 	private Joystick mSliderStick = mJoysticks.sliderStick;
 	private Joystick mClimberStick = mJoysticks.climberStick;
 	
+	// Double buffered output so the previous commands can be passed back in without a copy being allocated
+	private final Commands[] mOutputs = {new Commands(), new Commands()};
+	private int mOutputIndex = 0;
+
 	// Adjust parameters as needed, default for now
 	private DoubleClickTimer sliderLeft = new DoubleClickTimer();
 	private DoubleClickTimer sliderRight = new DoubleClickTimer();
@@ -55,19 +59,24 @@ public class OperatorInterface {
 	}
 
 	/**
-	 * Returns modified commands
+	 * Returns modified commands, which are reused by the update after next
 	 * @param prevCommands
 	 */
 	public Commands updateCommands(Commands prevCommands) {
-		Commands newCommands = prevCommands.copy();
+		mOutputIndex = 1 - mOutputIndex;
+		if (mOutputs[mOutputIndex] == prevCommands) {
+			mOutputIndex = 1 - mOutputIndex;
+		}
+		Commands newCommands = mOutputs[mOutputIndex];
+		prevCommands.copyInto(newCommands);
 		if(prevCommands.wantedDriveState != Drive.DriveState.OFF_BOARD_CONTROLLER
 				&& prevCommands.wantedDriveState != Drive.DriveState.ON_BOARD_CONTROLLER) {
 			newCommands.wantedDriveState = Drive.DriveState.CHEZY;
 		}
-		newCommands.leftStickInput = new JoystickInput(mDriveStick.getX(), mDriveStick.getY(), mDriveStick.getTrigger());
-		newCommands.rightStickInput = new JoystickInput(mTurnStick.getX(), mTurnStick.getY(), mTurnStick.getTrigger());
-		newCommands.sliderStickInput = new JoystickInput(mSliderStick.getX(), mSliderStick.getY(), mSliderStick.getTrigger());
-		newCommands.climberStickInput = new JoystickInput(mClimberStick.getX(), mClimberStick.getY(), mClimberStick.getTrigger());
+		newCommands.leftStickInput.set(mDriveStick.getX(), mDriveStick.getY(), mDriveStick.getTrigger());
+		newCommands.rightStickInput.set(mTurnStick.getX(), mTurnStick.getY(), mTurnStick.getTrigger());
+		newCommands.sliderStickInput.set(mSliderStick.getX(), mSliderStick.getY(), mSliderStick.getTrigger());
+		newCommands.climberStickInput.set(mClimberStick.getX(), mClimberStick.getY(), mClimberStick.getTrigger());
 
 		// Flippers
 		//TODO figure out flipper controls
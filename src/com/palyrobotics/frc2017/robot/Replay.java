@@ -0,0 +1,293 @@
+package com.palyrobotics.frc2017.robot;
+
+import com.palyrobotics.frc2017.auto.AutoModeBase;
+import com.palyrobotics.frc2017.auto.AutoModeSelector;
+import com.palyrobotics.frc2017.behavior.Routine;
+import com.palyrobotics.frc2017.behavior.RoutineManager;
+import com.palyrobotics.frc2017.behavior.routines.scoring.AutocorrectPositioningSliderRoutine;
+import com.palyrobotics.frc2017.behavior.routines.scoring.ManualControlSliderRoutine;
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.subsystems.Climber;
+import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.subsystems.Intake;
+import com.palyrobotics.frc2017.subsystems.Slider;
+import com.palyrobotics.frc2017.subsystems.Spatula;
+import com.palyrobotics.frc2017.util.archive.SubsystemLoop;
+import com.palyrobotics.frc2017.util.logger.MatchRecordFormat;
+import com.palyrobotics.frc2017.util.logger.MatchRecordSchema;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a file written by {@link Serializer} through a RoutineManager and SubsystemLoops, headless and as fast as possible
+ *
+ * Records are replayed in the order they were written, on one thread:
+ *   the recorded RobotState is loaded into {@link Robot#getRobotState()}, since routines and controllers read it from there,
+ *   recorded operator commands are passed through {@link RoutineManager#update(Commands)},
+ *   the result is compared field by field against the recorded routine manager output,
+ *   and subsystem loops are updated with the replayed commands at every recorded subsystem tick.
+ * Operator commands are replayed open loop, so a difference shows up on the tick it happens instead of snowballing.
+ * Anything that reads the clock directly (timeouts, drive time routines) will not match when replayed faster than real time.
+ */
+public class Replay {
+	/**
+	 * Builds routines again from the names they were recorded with
+	 */
+	public interface RoutineFactory {
+		/**
+		 * @param commands the operator commands the routine was wanted in
+		 * @return a new routine, or null if the name is not known
+		 */
+		Routine createRoutine(String name, Commands commands);
+
+		/**
+		 * @return the routine of a fresh instance of the auto mode, or null if the name is not known
+		 */
+		default Routine createAutoRoutine(String autoMode) {
+			AutoModeSelector selector = AutoModeSelector.getInstance();
+			int index = selector.getAutoModeList().indexOf(autoMode);
+			if (index < 0) {
+				return null;
+			}
+			AutoModeBase mode = selector.getAutoMode(index);
+			mode.prestart();
+			return mode.getRoutine();
+		}
+	}
+
+	/**
+	 * Routines created by {@link OperatorInterface}
+	 */
+	public static final RoutineFactory kOperatorRoutines = (name, commands) -> {
+		if (name.equals(new ManualControlSliderRoutine().getName())) {
+			return new ManualControlSliderRoutine();
+		} else if (name.equals(new AutocorrectPositioningSliderRoutine(Slider.SliderTarget.NONE).getName())) {
+			return new AutocorrectPositioningSliderRoutine(commands.robotSetpoints.sliderSetpoint);
+		}
+		return null;
+	};
+
+	/**
+	 * Outcome of one replay
+	 */
+	public static class Result {
+		public int records = 0;
+		public int routineUpdates = 0;
+		public int subsystemUpdates = 0;
+		// Routine manager updates whose output differed from the recording
+		public int mismatchedUpdates = 0;
+		public double firstMismatchTimestamp = Double.NaN;
+		// Number of mismatched updates per Commands field, in schema order
+		public final Map<String, Integer> fieldMismatches = new LinkedHashMap<>();
+		// Names the routine factory did not know, the routines were left out
+		public final List<String> unknownRoutines = new ArrayList<>();
+		public double seconds = 0;
+
+		public boolean matches() {
+			return mismatchedUpdates == 0 && unknownRoutines.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			String result = records + " records, " + routineUpdates + " routine updates, " + subsystemUpdates
+					+ " subsystem updates in " + seconds + " seconds";
+			if (matches()) {
+				return result + ", matches the recording";
+			}
+			result += ", " + mismatchedUpdates + " mismatched updates";
+			if (mismatchedUpdates > 0) {
+				result += " starting at " + firstMismatchTimestamp + " " + fieldMismatches;
+			}
+			if (!unknownRoutines.isEmpty()) {
+				result += ", unknown routines " + unknownRoutines;
+			}
+			return result;
+		}
+	}
+
+	private final ByteBuffer mBuffer;
+	private final MatchRecordSchema mSchema;
+	private final int mRecordsStart;
+
+	public Replay(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (mBuffer.remaining() < 8 || mBuffer.getInt(0) != Serializer.kMagic) {
+			throw new IOException(file + " is not a replay file");
+		}
+		if (mBuffer.getInt(4) != Serializer.kVersion) {
+			throw new IOException("Unsupported replay version " + mBuffer.getInt(4));
+		}
+		ByteBuffer header = mBuffer.duplicate();
+		header.position(8);
+		mSchema = MatchRecordSchema.read(header);
+		mRecordsStart = header.position();
+	}
+
+	/**
+	 * Replays the whole file
+	 * @param routineManager a fresh routine manager
+	 * @param loops subsystem loops to update, for example the subsystems registered in {@link Robot#robotInit()}
+	 */
+	public Result run(RoutineManager routineManager, List<? extends SubsystemLoop> loops, RoutineFactory routines) {
+		Result result = new Result();
+		long startTime = System.nanoTime();
+		RobotState state = Robot.getRobotState();
+		Commands commands = new Commands();
+		// Receives the Commands half of frames that only the RobotState is wanted from
+		Commands unused = new Commands();
+		for (SubsystemLoop loop : loops) {
+			loop.start();
+		}
+
+		ByteBuffer records = mBuffer.duplicate();
+		records.position(mRecordsStart);
+		int frameSize = mSchema.getFrameSize();
+		while (records.hasRemaining()) {
+			byte kind = records.get();
+			int frame = records.position();
+			// The last record may have been cut off by a crash or power loss
+			if (!isComplete(records, kind, frameSize)) {
+				break;
+			}
+			switch (kind) {
+				case Serializer.kReset:
+					records.getDouble();
+					routineManager.reset(commands);
+					break;
+				case Serializer.kAutoMode:
+					records.getDouble();
+					String autoMode = MatchRecordFormat.getString(records);
+					Routine autoRoutine = routines.createAutoRoutine(autoMode);
+					if (autoRoutine == null) {
+						result.unknownRoutines.add(autoMode);
+					} else {
+						routineManager.addNewRoutine(autoRoutine);
+					}
+					break;
+				case Serializer.kOperatorCommands:
+					Commands input = new Commands();
+					mSchema.readFrame(records, frame, state, input);
+					records.position(frame + frameSize);
+					int count = records.get();
+					for (int i = 0; i < count; i++) {
+						String name = MatchRecordFormat.getString(records);
+						Routine routine = routines.createRoutine(name, input);
+						if (routine == null) {
+							result.unknownRoutines.add(name);
+						} else {
+							input.wantedRoutines.add(routine);
+						}
+					}
+					commands = routineManager.update(input);
+					result.routineUpdates++;
+					break;
+				case Serializer.kRoutineCommands:
+					Commands recorded = new Commands();
+					double timestamp = mSchema.readFrame(records, frame, state, recorded);
+					records.position(frame + frameSize);
+					compare(timestamp, state, recorded, commands, result);
+					break;
+				case Serializer.kSubsystemLoop:
+					mSchema.readFrame(records, frame, state, unused);
+					records.position(frame + frameSize);
+					for (SubsystemLoop loop : loops) {
+						loop.update(commands, state);
+					}
+					result.subsystemUpdates++;
+					break;
+				default:
+					System.err.println("Unknown replay record " + kind + " at " + (frame - 1) + ", stopping");
+					records.position(records.limit());
+					continue;
+			}
+			result.records++;
+		}
+
+		for (SubsystemLoop loop : loops) {
+			loop.stop();
+		}
+		result.seconds = (System.nanoTime() - startTime) / 1e9;
+		return result;
+	}
+
+	private static boolean isComplete(ByteBuffer records, byte kind, int frameSize) {
+		switch (kind) {
+			case Serializer.kReset:
+				return records.remaining() >= 8;
+			case Serializer.kAutoMode:
+				return records.remaining() >= 10 && records.remaining() >= 10 + records.getShort(records.position() + 8);
+			case Serializer.kOperatorCommands:
+				if (records.remaining() < frameSize + 1) {
+					return false;
+				}
+				int position = records.position() + frameSize;
+				int count = records.get(position++);
+				for (int i = 0; i < count; i++) {
+					if (records.limit() - position < 2) {
+						return false;
+					}
+					position += 2 + records.getShort(position);
+				}
+				return position <= records.limit();
+			default:
+				return records.remaining() >= frameSize;
+		}
+	}
+
+	// Both sides are read with the same RobotState, so only Commands fields can differ
+	private static void compare(double timestamp, RobotState state, Commands recorded, Commands replayed, Result result) {
+		boolean mismatch = false;
+		for (MatchRecordFormat.Field field : MatchRecordFormat.getFields()) {
+			double expected = field.valueOf(state, recorded);
+			double actual = field.valueOf(state, replayed);
+			if (expected != actual && !(Double.isNaN(expected) && Double.isNaN(actual))) {
+				result.fieldMismatches.merge(field.name, 1, Integer::sum);
+				mismatch = true;
+			}
+		}
+		if (mismatch) {
+			if (result.mismatchedUpdates == 0) {
+				result.firstMismatchTimestamp = timestamp;
+			}
+			result.mismatchedUpdates++;
+		}
+	}
+
+	/**
+	 * Replays a corpus of recorded matches against the current code
+	 * @param args replay files, exits with 1 if any of them no longer matches
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.out.println("Usage: Replay <match.replay>...");
+			return;
+		}
+		boolean allMatch = true;
+		for (String path : args) {
+			try {
+				Replay replay = new Replay(new File(path));
+				Result result = replay.run(new RoutineManager(), Arrays.asList(Drive.getInstance(), Slider.getInstance(),
+						Spatula.getInstance(), Intake.getInstance(), Climber.getInstance()), kOperatorRoutines);
+				System.out.println(path + ": " + result);
+				allMatch &= result.matches();
+			} catch (IOException e) {
+				System.err.println("Failed to replay " + path);
+				e.printStackTrace();
+				allMatch = false;
+			}
+		}
+		System.exit(allMatch ? 0 : 1);
+	}
+}
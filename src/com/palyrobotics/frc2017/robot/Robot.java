@@ -8,19 +8,41 @@ import com.palyrobotics.frc2017.config.Commands;
 import com.palyrobotics.frc2017.config.Constants;
 import com.palyrobotics.frc2017.config.Gains;
 import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.config.RobotStateHistory;
+import com.palyrobotics.frc2017.config.RobotStatePublisher;
 import com.palyrobotics.frc2017.config.dashboard.DashboardManager;
 import com.palyrobotics.frc2017.config.dashboard.DashboardValue;
 import com.palyrobotics.frc2017.subsystems.*;
+import com.palyrobotics.frc2017.util.PhasedScheduler;
+import com.palyrobotics.frc2017.util.PhasedScheduler.Phase;
+import com.palyrobotics.frc2017.util.PhasedScheduler.Priority;
 import com.palyrobotics.frc2017.util.archive.SubsystemLooper;
 import com.palyrobotics.frc2017.util.logger.Logger;
+import com.palyrobotics.frc2017.util.logger.MatchRecorder;
 import com.palyrobotics.frc2017.vision.AndroidConnectionHelper;
-import com.palyrobotics.frc2017.robot.team254.lib.util.Looper;
+import com.palyrobotics.frc2017.vision.VisionFrameRecorder;
 
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.IterativeRobot;
+import edu.wpi.first.wpilibj.Timer;
+
+import java.io.File;
 
 public class Robot extends IterativeRobot {
 	// Instantiate singleton classes
+	// Sensor data from the hardware sensor loop, every thread reads it into its own RobotState
+	private static final RobotStatePublisher robotStatePublisher = new RobotStatePublisher();
+	public static RobotStatePublisher getRobotStatePublisher() {
+		return robotStatePublisher;
+	}
+
+	// Recent drive poses from the sensor loop, to match vision samples to
+	private static final RobotStateHistory robotStateHistory = new RobotStateHistory(Constants.kRobotStateHistorySize);
+	public static RobotStateHistory getRobotStateHistory() {
+		return robotStateHistory;
+	}
+
+	// The robot thread's snapshot, refreshed at the start of every periodic method
 	private static RobotState robotState = new RobotState();
 	public static RobotState getRobotState() {
 		return robotState;
@@ -30,12 +52,20 @@ public class Robot extends IterativeRobot {
 	private static Commands commands = new Commands();
 	public static Commands getCommands() {return commands;}
 
+	// Hardware layer, set up in robotInit() on the robot or installed by a simulation
+	private static RobotHardware hardware = null;
+	public static RobotHardware getHardware() {
+		return hardware;
+	}
+	public static void setHardware(RobotHardware robotHardware) {
+		hardware = robotHardware;
+	}
+
 	private OperatorInterface operatorInterface = OperatorInterface.getInstance();
-	// Instantiate separate thread controls
-	private SubsystemLooper mSubsystemLooper = new SubsystemLooper();
-	// Instantiate hardware updaters
-	private Looper mHardwareEnabledLooper = new Looper();
-	private Looper mHardwareSensorLooper = new Looper();
+	// Runs the sensor, subsystem and hardware loops in that order every tick
+	private PhasedScheduler mScheduler = new PhasedScheduler("scheduler", Constants.kSchedulerDt);
+	private SubsystemLooper mSubsystemLooper = new SubsystemLooper(mScheduler);
+	private double mLastLoopTimingSummary = 0;
 	private RoutineManager mRoutineManager = new RoutineManager();
 
 	// Subsystem controllers
@@ -46,10 +76,10 @@ public class Robot extends IterativeRobot {
 	private Intake mIntake = Intake.getInstance();
 	private Climber mClimber = Climber.getInstance();
 	private Logger mLogger = Logger.getInstance();
+	private MatchRecorder mMatchRecorder = MatchRecorder.getInstance();
+	// Records the routine manager's input and output for replay, null while disabled
+	private Serializer mSerializer = null;
 
-	// Hardware Updater
-	private HardwareUpdater mHardwareUpdater;
-	
 	@Override
 	public void robotInit() {
 		System.out.println("Start robotInit() for "+Constants.kRobotName.toString());
@@ -74,43 +104,100 @@ public class Robot extends IterativeRobot {
 		}
 		if (Constants.kRobotName == Constants.RobotName.STEIK) {
 			try {
-				mHardwareUpdater = new HardwareUpdater(mDrive, mFlippers, mSlider, mSpatula, mIntake, mClimber);
+				hardware = new HardwareUpdater(mDrive, mFlippers, mSlider, mSpatula, mIntake, mClimber);
 			} catch (Exception e) {
 				System.exit(1);
 			}
-			mSubsystemLooper.register(mDrive);
-			mSubsystemLooper.register(mSlider);
-			mSubsystemLooper.register(mSpatula);
-			mSubsystemLooper.register(mIntake);
-			mSubsystemLooper.register(mClimber);
+			mSubsystemLooper.register(mDrive, Priority.CRITICAL);
+			mSubsystemLooper.register(mSlider, Priority.NORMAL, Constants.kSliderLoopDt);
+			mSubsystemLooper.register(mSpatula, Priority.LOW);
+			mSubsystemLooper.register(mIntake, Priority.LOW);
+			mSubsystemLooper.register(mClimber, Priority.LOW, Constants.kClimberLoopDt);
 		} else {
 			try {
-				mHardwareUpdater = new HardwareUpdater(mDrive);
+				hardware = new HardwareUpdater(mDrive);
 			} catch (Exception e) {
 				System.exit(1);
 			}
-			mSubsystemLooper.register(mDrive);
+			mSubsystemLooper.register(mDrive, Priority.CRITICAL);
 		}
-		mHardwareSensorLooper.register(mHardwareUpdater.getHardwareSensorLoop());
-		mHardwareEnabledLooper.register(mHardwareUpdater.getHardwareEnabledLoop());
-		mHardwareUpdater.initHardware();
-		mHardwareSensorLooper.start();
+		mScheduler.register("hardware_sensor", Phase.SENSE, Priority.CRITICAL, hardware.getHardwareSensorLoop());
+		mScheduler.register("hardware_enabled", Phase.ACTUATE, Priority.CRITICAL, hardware.getHardwareEnabledLoop());
+		hardware.initHardware();
+		mScheduler.startPhase(Phase.SENSE);
+		mScheduler.start();
 		System.out.println("Auto: "+AutoModeSelector.getInstance().getAutoMode().toString());
 //		AndroidConnectionHelper.getInstance().StartVisionApp();
 		System.out.println("End robotInit()");
 		mLogger.logRobotThread("End robotInit()");
 	}
 
+	// Records next to the log file, the replay file is named after the match recording
+	private void startMatchRecording() {
+		File logDirectory = new File(mLogger.getLogPath()).getAbsoluteFile().getParentFile();
+		if (!mMatchRecorder.start(new File(logDirectory, "match.rec")) || mSerializer != null) {
+			return;
+		}
+		String matchFile = mMatchRecorder.getFile().getPath();
+		if (Constants.kRecordVision) {
+			// Images go on the USB stick, named like the match recording so they are easy to pair up
+			String matchName = mMatchRecorder.getFile().getName();
+			VisionFrameRecorder.getInstance().start(new File(Constants.kVisionRecordingDirectory,
+					matchName.substring(0, matchName.lastIndexOf('.')) + ".vindex"));
+		}
+		mSerializer = new Serializer(matchFile.substring(0, matchFile.lastIndexOf('.')) + ".replay");
+		if (mSerializer.start()) {
+			mSubsystemLooper.setSerializer(mSerializer);
+		}
+	}
+
+	private void stopMatchRecording() {
+		mMatchRecorder.stop();
+		VisionFrameRecorder.getInstance().stop();
+		if (mSerializer != null) {
+			mSubsystemLooper.setSerializer(null);
+			mSerializer.stop();
+			mSerializer = null;
+		}
+	}
+
+	// Reads the sensors on this thread instead of waiting for the sensor loop, and publishes them
+	private void updateSensorsNow() {
+		hardware.updateSensors(robotState);
+		robotStatePublisher.publish(robotState);
+		robotStatePublisher.read(robotState);
+	}
+
+	private void resetRoutines() {
+		mRoutineManager.reset(commands);
+		if (mSerializer != null) {
+			mSerializer.recordReset(Timer.getFPGATimestamp());
+		}
+	}
+
+	// Updates routines with the given commands, recording both sides for replay
+	private Commands updateRoutines(Commands input) {
+		if (mSerializer != null) {
+			mSerializer.recordOperatorCommands(Timer.getFPGATimestamp(), robotState, input);
+		}
+		Commands output = mRoutineManager.update(input);
+		if (mSerializer != null) {
+			mSerializer.recordRoutineCommands(Timer.getFPGATimestamp(), robotState, output);
+		}
+		return output;
+	}
+
 	@Override
 	public void autonomousInit() {
 		System.out.println("Start autonomousInit()");
 
 		mLogger.start();
 		mLogger.logRobotThread("Start autonomousInit()");
+		startMatchRecording();
 		DashboardManager.getInstance().toggleCANTable(true);
-		robotState.gamePeriod = RobotState.GamePeriod.AUTO;
-		mHardwareEnabledLooper.start();
-		mHardwareUpdater.configureTalons(false);
+		robotStatePublisher.setGamePeriod(RobotState.GamePeriod.AUTO);
+		mScheduler.startPhase(Phase.ACTUATE);
+		hardware.configureTalons(false);
 		// Wait for talons to update
 		try {
 			System.out.println("Sleeping thread for 200 ms");
@@ -118,9 +205,10 @@ public class Robot extends IterativeRobot {
 		} catch (InterruptedException e) {
 
 		}
-		mHardwareUpdater.updateSensors(robotState);
-		mRoutineManager.reset(commands);
+		updateSensorsNow();
+		resetRoutines();
 		// Start control loops
+		mScheduler.resetTiming();
 		mSubsystemLooper.start();
 
 		// Get the selected auto mode
@@ -128,6 +216,9 @@ public class Robot extends IterativeRobot {
 		// Prestart and run the auto mode
 		mode.prestart();
 		mRoutineManager.addNewRoutine(mode.getRoutine());
+		if (mSerializer != null) {
+			mSerializer.recordAutoMode(Timer.getFPGATimestamp(), mode.toString());
+		}
 		mLogger.logRobotThread("Auto mode", mode.toString());
 		mLogger.logRobotThread("Auto routine", mode.getRoutine().toString());
 		System.out.println("End autonomousInit()");
@@ -143,22 +234,26 @@ public class Robot extends IterativeRobot {
 		//		logPeriodic();
 //		System.out.println(robotState.sliderEncoder);
 		mLogger.logRobotThread("Nexus xdist: "+AndroidConnectionHelper.getInstance().getXDist());
-		commands = mRoutineManager.update(commands);
+		robotStatePublisher.read(robotState);
+		commands = updateRoutines(commands);
+		summarizeLoopTiming(false);
 	}
 
 	@Override
 	public void teleopInit() {
 		System.out.println("Start teleopInit()");
-		mHardwareEnabledLooper.start();
+		mScheduler.startPhase(Phase.ACTUATE);
 		mLogger.start();
 		mLogger.logRobotThread("Start teleopInit()");
-		robotState.gamePeriod = RobotState.GamePeriod.TELEOP;
-		mHardwareUpdater.configureTalons(false);
-		mHardwareUpdater.updateSensors(robotState);
-		mRoutineManager.reset(commands);
+		startMatchRecording();
+		robotStatePublisher.setGamePeriod(RobotState.GamePeriod.TELEOP);
+		hardware.configureTalons(false);
+		updateSensorsNow();
+		resetRoutines();
 		DashboardManager.getInstance().toggleCANTable(true);
 		commands.wantedDriveState = Drive.DriveState.CHEZY;	//switch to chezy after auto ends
 		commands = operatorInterface.updateCommands(commands);
+		mScheduler.resetTiming();
 		mSubsystemLooper.start();
 		mLogger.logRobotThread("End teleopInit()");
 		System.out.println("End teleopInit()");
@@ -171,8 +266,10 @@ public class Robot extends IterativeRobot {
 		// Updates commands based on routines
 //		mLogger.logRobotThread("Teleop Commands: ", commands);
 //		logPeriodic();
-		commands = mRoutineManager.update(operatorInterface.updateCommands(commands));
+		robotStatePublisher.read(robotState);
+		commands = updateRoutines(operatorInterface.updateCommands(commands));
 		//Update the hardware
+		summarizeLoopTiming(false);
 	}
 
 	@Override
@@ -180,9 +277,10 @@ public class Robot extends IterativeRobot {
 		System.out.println("Start disabledInit()");
 		mLogger.logRobotThread("Start disabledInit()");
 		System.out.println("Current Auto Mode: " + AutoModeSelector.getInstance().getAutoMode().toString());
-		robotState.gamePeriod = RobotState.GamePeriod.DISABLED;
+		robotStatePublisher.setGamePeriod(RobotState.GamePeriod.DISABLED);
+		robotStatePublisher.read(robotState);
 		// Stops updating routines
-		mRoutineManager.reset(commands);
+		resetRoutines();
 		
 		commands = new Commands();
 		
@@ -191,10 +289,13 @@ public class Robot extends IterativeRobot {
 
 		// Stop controllers
 		mDrive.setNeutral();
-		mHardwareEnabledLooper.stop();
-		mHardwareUpdater.configureDriveTalons();
-		mHardwareUpdater.disableTalons();
+		mScheduler.stopPhase(Phase.ACTUATE);
+		stopMatchRecording();
+		hardware.configureDriveTalons();
+		hardware.disableTalons();
 		DashboardManager.getInstance().toggleCANTable(false);
+		// Timing since auto or teleop started, it is reset when either starts again
+		summarizeLoopTiming(true);
 		mLogger.logRobotThread("End disabledInit()");
 		mLogger.cleanup();
 		System.out.println("Log file: "+mLogger.getLogPath());
@@ -216,6 +317,21 @@ public class Robot extends IterativeRobot {
 //		}
 	}
 
+	/**
+	 * Logs and publishes loop timing every {@link Constants#kLoopTimingSummaryDt} seconds
+	 * @param now whether to summarize regardless of when the last summary was
+	 */
+	private void summarizeLoopTiming(boolean now) {
+		double time = Timer.getFPGATimestamp();
+		if (!now && time - mLastLoopTimingSummary < Constants.kLoopTimingSummaryDt) {
+			return;
+		}
+		mLastLoopTimingSummary = time;
+		mLogger.logRobotThread("Loop timing", mScheduler.getSummary());
+		mSubsystemLooper.outputToSmartDashboard();
+		mScheduler.outputToSmartDashboard();
+	}
+
 	// Call during tele and auto periodic
 	private void logPeriodic() {
 		mLogger.logRobotThread("Match time", DriverStation.getInstance().getMatchTime());
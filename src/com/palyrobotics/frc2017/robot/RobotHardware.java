@@ -0,0 +1,43 @@
+package com.palyrobotics.frc2017.robot;
+
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.robot.team254.lib.util.Loop;
+
+/**
+ * Hardware layer between the subsystems and the robot <br />
+ * {@link HardwareUpdater} talks to the real CANTalons and gyro,
+ * {@link com.palyrobotics.frc2017.simulation.SimulatedHardware} runs physics models instead
+ */
+public interface RobotHardware {
+	/**
+	 * Initialize all hardware
+	 */
+	void initHardware();
+
+	void configureTalons(boolean calibrateSliderEncoder);
+
+	void configureDriveTalons();
+
+	void disableTalons();
+
+	/**
+	 * Zeroes the drive encoders and gyro
+	 */
+	void resetDriveSensors();
+
+	void resetSliderEncoder();
+
+	/**
+	 * Updates all the sensor data taken from the hardware
+	 */
+	void updateSensors(RobotState robotState);
+
+	/**
+	 * Sets the output from all subsystems for the respective hardware
+	 */
+	void updateSubsystems();
+
+	Loop getHardwareSensorLoop();
+
+	Loop getHardwareEnabledLoop();
+}
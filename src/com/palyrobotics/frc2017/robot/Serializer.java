@@ -1,19 +1,215 @@
 package com.palyrobotics.frc2017.robot;
 
 import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.util.logger.MatchRecordFormat;
+import com.palyrobotics.frc2017.util.logger.PooledChannelWriter;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records the Commands stream around the {@link com.palyrobotics.frc2017.behavior.RoutineManager}
+ * so a match can be replayed headless by {@link Replay}
+ *
+ * File layout (big endian): int kMagic, int kVersion, a {@link MatchRecordFormat} header, then records in the order they happened.
+ * Every record starts with a kind byte:
+ *   kReset            double timestamp
+ *   kAutoMode         double timestamp, auto mode name
+ *   kOperatorCommands frame of RobotState and the Commands passed into the routine manager,
+ *                     byte count and names of the wanted routines
+ *   kRoutineCommands  frame of RobotState and the Commands returned by the routine manager
+ *   kSubsystemLoop    frame of RobotState and Commands the subsystem loops were updated with
+ *
+ * Routines can't be serialized, so only their names are stored and {@link Replay.RoutineFactory} builds them again.
+ * Records are encoded on the calling thread into pooled buffers and written by a {@link PooledChannelWriter}.
+ */
 public class Serializer {
-	
-	
+	public static final int kMagic = 0x52504C59;	// "RPLY"
+	public static final int kVersion = 1;
+
+	static final byte kReset = 0;
+	static final byte kAutoMode = 1;
+	static final byte kOperatorCommands = 2;
+	static final byte kRoutineCommands = 3;
+	static final byte kSubsystemLoop = 4;
+
+	private static final int kBufferSize = 64 * 1024;
+	private static final int kBufferPoolSize = 4;
+	// Routine and auto mode names are cut off past this many characters so a record always fits
+	private static final int kMaxNameLength = 80;
+	private static final int kMaxRoutineNames = 16;
+
+	private final File mFile;
+	private final int mMaxRecordSize = 2 + MatchRecordFormat.getFrameSize() + kMaxRoutineNames * (3 * kMaxNameLength + 2);
+	private final PooledChannelWriter mWriter = new PooledChannelWriter("Serializer", kBufferSize, kBufferPoolSize);
+
+	private ByteBuffer mBuffer = null;
+	private boolean mRecording = false;
+	private long mDroppedRecords = 0;
+
 	public Serializer(String filepath) {
-		
+		mFile = new File(filepath);
+	}
+
+	/**
+	 * Creates the file and starts the writer thread, the file is overwritten if it exists
+	 * @return false if the file could not be created
+	 */
+	public synchronized boolean start() {
+		if (mRecording) {
+			return true;
+		}
+		final FileChannel channel;
+		try {
+			if (mFile.getAbsoluteFile().getParentFile() != null) {
+				mFile.getAbsoluteFile().getParentFile().mkdirs();
+			}
+			channel = FileChannel.open(mFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.WRITE);
+			ByteBuffer header = ByteBuffer.allocate(8);
+			header.putInt(kMagic);
+			header.putInt(kVersion);
+			header.flip();
+			channel.write(header);
+			ByteBuffer schema = MatchRecordFormat.createHeader();
+			while (schema.hasRemaining()) {
+				channel.write(schema);
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to create replay file at " + mFile);
+			e.printStackTrace();
+			return false;
+		}
+		mDroppedRecords = 0;
+		mBuffer = mWriter.acquire();
+		mWriter.start(channel);
+		mRecording = true;
+		System.out.println("Recording replay to " + mFile);
+		return true;
+	}
+
+	/**
+	 * The routine manager was reset, running routines were canceled
+	 */
+	public synchronized void recordReset(double timestamp) {
+		if (!reserve()) {
+			return;
+		}
+		mBuffer.put(kReset);
+		mBuffer.putDouble(timestamp);
+	}
+
+	/**
+	 * The routine of an auto mode was added to the routine manager
+	 */
+	public synchronized void recordAutoMode(double timestamp, String autoMode) {
+		if (!reserve()) {
+			return;
+		}
+		mBuffer.put(kAutoMode);
+		mBuffer.putDouble(timestamp);
+		putName(autoMode);
+	}
+
+	/**
+	 * Commands about to be passed into {@link com.palyrobotics.frc2017.behavior.RoutineManager#update(Commands)}
+	 */
+	public synchronized void recordOperatorCommands(double timestamp, RobotState state, Commands commands) {
+		if (!reserve()) {
+			return;
+		}
+		mBuffer.put(kOperatorCommands);
+		MatchRecordFormat.putFrame(mBuffer, timestamp, state, commands);
+		int count = Math.min(commands.wantedRoutines.size(), kMaxRoutineNames);
+		mBuffer.put((byte) count);
+		for (int i = 0; i < count; i++) {
+			putName(commands.wantedRoutines.get(i).getName());
+		}
 	}
-	
-	public Commands getCommands() {
-		return null;
+
+	/**
+	 * Commands returned by {@link com.palyrobotics.frc2017.behavior.RoutineManager#update(Commands)}
+	 */
+	public synchronized void recordRoutineCommands(double timestamp, RobotState state, Commands commands) {
+		if (!reserve()) {
+			return;
+		}
+		mBuffer.put(kRoutineCommands);
+		MatchRecordFormat.putFrame(mBuffer, timestamp, state, commands);
+	}
+
+	/**
+	 * State and commands the subsystem loops were just updated with, called from the subsystem loop
+	 */
+	public synchronized void recordSubsystemLoop(double timestamp, RobotState state, Commands commands) {
+		if (!reserve()) {
+			return;
+		}
+		mBuffer.put(kSubsystemLoop);
+		MatchRecordFormat.putFrame(mBuffer, timestamp, state, commands);
+	}
+
+	/**
+	 * Writes out everything recorded so far and closes the file
+	 */
+	public synchronized void stop() {
+		if (!mRecording) {
+			return;
+		}
+		if (mBuffer != null) {
+			mWriter.handOff(mBuffer);
+			mBuffer = null;
+		}
+		mWriter.stop();
+		mRecording = false;
+		if (mDroppedRecords > 0) {
+			System.err.println("Serializer dropped " + mDroppedRecords + " records");
+		}
+		System.out.println("Replay saved to " + mFile);
+	}
+
+	public synchronized boolean isRecording() {
+		return mRecording;
 	}
-	
-	public void runSerializedCommands(Commands commands) {
-		
+
+	public long getDroppedRecords() {
+		return mDroppedRecords;
+	}
+
+	public File getFile() {
+		return mFile;
+	}
+
+	/**
+	 * Makes sure the current buffer has room for one more record
+	 * @return false if not recording or every buffer is waiting on the disk, the record is dropped
+	 */
+	private boolean reserve() {
+		if (!mRecording) {
+			return false;
+		}
+		if (mBuffer != null && mBuffer.remaining() < mMaxRecordSize) {
+			mWriter.handOff(mBuffer);
+			mBuffer = null;
+		}
+		if (mBuffer == null) {
+			mBuffer = mWriter.acquire();
+			if (mBuffer == null) {
+				mDroppedRecords++;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void putName(String name) {
+		if (name.length() > kMaxNameLength) {
+			name = name.substring(0, kMaxNameLength);
+		}
+		MatchRecordFormat.putString(mBuffer, name);
 	}
 }
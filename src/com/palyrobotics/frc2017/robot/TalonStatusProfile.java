@@ -0,0 +1,79 @@
+package com.palyrobotics.frc2017.robot;
+
+import com.ctre.CANTalon;
+import com.ctre.CANTalon.StatusFrameRate;
+
+/**
+ * Status frame periods for one Talon, starting from the Talon's defaults <br />
+ * Faster frames mean fresher sensor values in RobotState and more load on the CAN bus.
+ * Declare a profile per device and {@link #apply(CANTalon)} it when the Talon is configured,
+ * {@link CANBusProfiler} uses the same profile to estimate the bus load.
+ */
+public class TalonStatusProfile {
+	// Periods the Talon uses until told otherwise, indexed by StatusFrameRate ordinal
+	private static final int[] kDefaultPeriodsMs = new int[StatusFrameRate.values().length];
+	static {
+		kDefaultPeriodsMs[StatusFrameRate.General.ordinal()] = 10;
+		kDefaultPeriodsMs[StatusFrameRate.Feedback.ordinal()] = 20;
+		kDefaultPeriodsMs[StatusFrameRate.QuadEncoder.ordinal()] = 100;
+		kDefaultPeriodsMs[StatusFrameRate.AnalogTempVbat.ordinal()] = 100;
+		kDefaultPeriodsMs[StatusFrameRate.PulseWidth.ordinal()] = 100;
+	}
+
+	private final String mName;
+	private final int[] mPeriodsMs = kDefaultPeriodsMs.clone();
+
+	/**
+	 * @param name used on the dashboard and in the log
+	 */
+	public TalonStatusProfile(String name) {
+		mName = name;
+	}
+
+	/**
+	 * Sets the period of one status frame, returns this so profiles can be declared in one expression
+	 */
+	public TalonStatusProfile withPeriod(StatusFrameRate frame, int periodMs) {
+		if (periodMs <= 0) {
+			throw new IllegalArgumentException("Status frame period must be positive: " + frame + " " + periodMs);
+		}
+		mPeriodsMs[frame.ordinal()] = periodMs;
+		return this;
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	public int getPeriodMs(StatusFrameRate frame) {
+		return mPeriodsMs[frame.ordinal()];
+	}
+
+	public static int getDefaultPeriodMs(StatusFrameRate frame) {
+		return kDefaultPeriodsMs[frame.ordinal()];
+	}
+
+	/**
+	 * Status frames per second this Talon sends to the roboRIO
+	 */
+	public double getStatusFramesPerSecond() {
+		double frames = 0;
+		for (int periodMs : mPeriodsMs) {
+			frames += 1000.0 / periodMs;
+		}
+		return frames;
+	}
+
+	/**
+	 * Sends every status frame period to the Talon, call while configuring it
+	 * @param talon may be null on robots without this device
+	 */
+	public void apply(CANTalon talon) {
+		if (talon == null) {
+			return;
+		}
+		for (StatusFrameRate frame : StatusFrameRate.values()) {
+			talon.setStatusFrameRateMs(frame, mPeriodsMs[frame.ordinal()]);
+		}
+	}
+}
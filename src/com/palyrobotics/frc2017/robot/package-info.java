@@ -3,7 +3,9 @@
  * This package contains the majority of classes that utilize WPILib <br />
  * Therefore, hardware should only be interacted with in the classes within this package <br />
  * This package also contains the main Robot class {@link com.palyrobotics.frc2017.robot.Robot} <br />
- * {@link com.palyrobotics.frc2017.robot.HardwareAdapter} and {@link com.palyrobotics.frc2017.robot.HardwareUpdater}
+ * {@link com.palyrobotics.frc2017.robot.HardwareAdapter} and {@link com.palyrobotics.frc2017.robot.HardwareUpdater} <br />
+ * Everything else reaches hardware through {@link com.palyrobotics.frc2017.robot.RobotHardware},
+ * which {@link com.palyrobotics.frc2017.simulation.SimulatedHardware} implements for headless simulations
  *
  */
 package com.palyrobotics.frc2017.robot;
\ No newline at end of file
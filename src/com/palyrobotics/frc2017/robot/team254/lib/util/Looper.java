@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.palyrobotics.frc2017.config.Constants;
+import com.palyrobotics.frc2017.util.LoopTimingStats;
 
 import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.Timer;
@@ -26,16 +27,23 @@ public class Looper {
 	private final Object taskRunningLock_ = new Object();
 	private double timestamp_ = 0;
 	private double dt_ = 0;
+	private final LoopTimingStats timing_;
 	// Main method that is run at the update rate
 	private final CrashTrackingRunnable runnable_ = new CrashTrackingRunnable() {
 		@Override
 		public void runCrashTracked() {
 			synchronized (taskRunningLock_) {
 				if (running_) {
+					long tickStart = System.nanoTime();
 					double now = Timer.getFPGATimestamp();
-					for (Loop loop : loops_) {
-						loop.update();
+					long loopStart = tickStart;
+					for (int i = 0; i < loops_.size(); i++) {
+						loops_.get(i).update();
+						long loopEnd = System.nanoTime();
+						timing_.recordLoop(i, loopEnd - loopStart);
+						loopStart = loopEnd;
 					}
+					timing_.recordTick(tickStart, loopStart);
 					dt_ = now - timestamp_;
 					timestamp_ = now;
 				}
@@ -44,22 +52,38 @@ public class Looper {
 	};
 
 	public Looper() {
+		this("looper");
+	}
+
+	/**
+	 * @param name used for the timing stats on the dashboard and in the log
+	 */
+	public Looper(String name) {
 		notifier_ = new Notifier((Runnable) runnable_);
 		running_ = false;
 		loops_ = new ArrayList<>();
+		timing_ = new LoopTimingStats(name, kPeriod);
 	}
 
 	public synchronized void register(Loop loop) {
 		synchronized (taskRunningLock_) {
 			loops_.add(loop);
+			timing_.addLoop(getLoopName(loop));
 		}
 	}
 
+	// Hardware loops are anonymous classes, name them after the class they are in
+	private static String getLoopName(Loop loop) {
+		String name = loop.getClass().getName();
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
 	public synchronized void start() {
 		if (!running_) {
 			System.out.println("Starting loops");
 			synchronized (taskRunningLock_) {
 				timestamp_ = Timer.getFPGATimestamp();
+				timing_.reset();
 				for (Loop loop : loops_) {
 					loop.onStart();
 				}
@@ -83,7 +107,15 @@ public class Looper {
 		}
 	}
 
+	/**
+	 * Update durations, period and overruns since the loops were last started
+	 */
+	public LoopTimingStats getTimingStats() {
+		return timing_;
+	}
+
 	public void outputToSmartDashboard() {
-		SmartDashboard.putNumber("looper_dt", dt_);
+		SmartDashboard.putNumber(timing_.getName() + "_dt", dt_);
+		timing_.outputToSmartDashboard();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.palyrobotics.frc2017.simulation;
+
+/**
+ * Brushed DC motor modeled from its datasheet curve <br />
+ * Torque falls off linearly from stall torque at zero speed to zero at free speed
+ */
+public class DCMotor {
+	// Datasheet values at 12V
+	public static final DCMotor kCIM = new DCMotor(2.41, 131, 5330, 2.7);
+	public static final DCMotor kMiniCIM = new DCMotor(1.41, 89, 5840, 3);
+	public static final DCMotor k775Pro = new DCMotor(0.71, 134, 18730, 0.7);
+	public static final DCMotor kBAG = new DCMotor(0.43, 53, 13180, 1.8);
+
+	public static final double kNominalVoltage = 12.0;
+
+	public final double stallTorque;	// N*m
+	public final double stallCurrent;	// A
+	public final double freeSpeed;		// rad/s
+	public final double freeCurrent;	// A
+
+	// Winding resistance in ohms, torque constant in N*m/A, speed constant in rad/s/V
+	public final double resistance;
+	public final double kT;
+	public final double kV;
+
+	/**
+	 * @param freeSpeedRPM free speed in rotations per minute
+	 */
+	public DCMotor(double stallTorque, double stallCurrent, double freeSpeedRPM, double freeCurrent) {
+		this.stallTorque = stallTorque;
+		this.stallCurrent = stallCurrent;
+		this.freeSpeed = freeSpeedRPM * 2 * Math.PI / 60;
+		this.freeCurrent = freeCurrent;
+		this.resistance = kNominalVoltage / stallCurrent;
+		this.kT = stallTorque / stallCurrent;
+		this.kV = freeSpeed / (kNominalVoltage - resistance * freeCurrent);
+	}
+
+	/**
+	 * @param voltage applied voltage
+	 * @param speed motor shaft speed in rad/s
+	 * @return current drawn by one motor in amps
+	 */
+	public double getCurrent(double voltage, double speed) {
+		return (voltage - speed / kV) / resistance;
+	}
+
+	/**
+	 * @param voltage applied voltage
+	 * @param speed motor shaft speed in rad/s
+	 * @return torque of one motor in N*m
+	 */
+	public double getTorque(double voltage, double speed) {
+		return kT * getCurrent(voltage, speed);
+	}
+}
@@ -0,0 +1,169 @@
+package com.palyrobotics.frc2017.simulation;
+
+import com.palyrobotics.frc2017.config.Constants;
+
+/**
+ * Differential drive physics <br />
+ * Each side is a gearbox of motors driving the robot's mass, turning is driven by the difference between the sides <br />
+ * Works in SI units internally, getters use inches and degrees like the rest of the code <br />
+ * Heading is counterclockwise positive, the same as RobotState after the gyro is inverted
+ */
+public class DrivetrainModel {
+	private static final double kMetersPerInch = 0.0254;
+	private static final double kGravity = 9.81;
+	// Below this speed in m/s a side is considered stopped and held by static friction
+	private static final double kStoppedSpeed = 1e-3;
+
+	private final DCMotor mMotor;
+	private final int mMotorsPerSide;
+	private final double mGearRatio;
+	private final double mWheelRadius;
+	private final double mMass;
+	private final double mMomentOfInertia;
+	private final double mTrackWidth;
+	// Rolling resistance of one side in newtons
+	private final double mFriction;
+
+	private double mLeftPosition = 0, mRightPosition = 0;
+	private double mLeftVelocity = 0, mRightVelocity = 0;
+	private double mLeftCurrent = 0, mRightCurrent = 0;
+	private double mHeading = 0;
+	private double mX = 0, mY = 0;
+
+	/**
+	 * @param gearRatio motor rotations per wheel rotation
+	 * @param wheelDiameter in inches
+	 * @param mass in kilograms
+	 * @param momentOfInertia about the center of the robot in kg*m^2
+	 * @param trackWidth effective distance between the sides in inches, including scrub when turning
+	 * @param rollingResistance fraction of the robot's weight lost to friction
+	 */
+	public DrivetrainModel(DCMotor motor, int motorsPerSide, double gearRatio, double wheelDiameter, double mass,
+						   double momentOfInertia, double trackWidth, double rollingResistance) {
+		mMotor = motor;
+		mMotorsPerSide = motorsPerSide;
+		mGearRatio = gearRatio;
+		mWheelRadius = wheelDiameter / 2 * kMetersPerInch;
+		mMass = mass;
+		mMomentOfInertia = momentOfInertia;
+		mTrackWidth = trackWidth * kMetersPerInch;
+		mFriction = rollingResistance * mass * kGravity / 2;
+	}
+
+	/**
+	 * Steik: 3 CIMs per side, 3.95" wheels, about 140 lbs with battery and bumpers <br />
+	 * Geared so free speed is close to the inverse of the trajectory kV, the track width matches kDriveInchesPerDegree
+	 */
+	public static DrivetrainModel createSteik() {
+		double trackWidth = 2 * Constants.kDriveInchesPerDegree * 180 / Math.PI;
+		return new DrivetrainModel(DCMotor.kCIM, 3, 6.3, 3.95, 63.5, 6.0, trackWidth, 0.05);
+	}
+
+	/**
+	 * Advances the model
+	 * @param leftVoltage voltage on the left motors, positive drives forward
+	 * @param rightVoltage voltage on the right motors, positive drives forward
+	 * @param dt time step in seconds, should be around a millisecond
+	 */
+	public void step(double leftVoltage, double rightVoltage, double dt) {
+		double leftMotorSpeed = mLeftVelocity / mWheelRadius * mGearRatio;
+		double rightMotorSpeed = mRightVelocity / mWheelRadius * mGearRatio;
+		mLeftCurrent = mMotorsPerSide * mMotor.getCurrent(leftVoltage, leftMotorSpeed);
+		mRightCurrent = mMotorsPerSide * mMotor.getCurrent(rightVoltage, rightMotorSpeed);
+		double leftMotorForce = mMotorsPerSide * mMotor.getTorque(leftVoltage, leftMotorSpeed) * mGearRatio / mWheelRadius;
+		double rightMotorForce = mMotorsPerSide * mMotor.getTorque(rightVoltage, rightMotorSpeed) * mGearRatio / mWheelRadius;
+		double leftForce = applyFriction(leftMotorForce, mLeftVelocity);
+		double rightForce = applyFriction(rightMotorForce, mRightVelocity);
+
+		double acceleration = (leftForce + rightForce) / mMass;
+		double angularAcceleration = (rightForce - leftForce) * mTrackWidth / 2 / mMomentOfInertia;
+		double velocity = (mLeftVelocity + mRightVelocity) / 2 + acceleration * dt;
+		double angularVelocity = (mRightVelocity - mLeftVelocity) / mTrackWidth + angularAcceleration * dt;
+		double leftVelocity = velocity - angularVelocity * mTrackWidth / 2;
+		double rightVelocity = velocity + angularVelocity * mTrackWidth / 2;
+		// Friction can stop a side but never push it backwards
+		if (leftVelocity * mLeftVelocity < 0 && Math.abs(leftMotorForce) <= mFriction) {
+			leftVelocity = 0;
+		}
+		if (rightVelocity * mRightVelocity < 0 && Math.abs(rightMotorForce) <= mFriction) {
+			rightVelocity = 0;
+		}
+		mLeftVelocity = leftVelocity;
+		mRightVelocity = rightVelocity;
+
+		mLeftPosition += mLeftVelocity * dt;
+		mRightPosition += mRightVelocity * dt;
+		mHeading += (mRightVelocity - mLeftVelocity) / mTrackWidth * dt;
+		velocity = (mLeftVelocity + mRightVelocity) / 2;
+		mX += velocity * Math.cos(mHeading) * dt;
+		mY += velocity * Math.sin(mHeading) * dt;
+	}
+
+	/**
+	 * @return net force on one side, 0 if static friction holds it
+	 */
+	private double applyFriction(double force, double velocity) {
+		if (Math.abs(velocity) > kStoppedSpeed) {
+			return force - Math.signum(velocity) * mFriction;
+		}
+		if (Math.abs(force) <= mFriction) {
+			return 0;
+		}
+		return force - Math.signum(force) * mFriction;
+	}
+
+	/**
+	 * Puts the robot back at the origin, stopped
+	 */
+	public void reset() {
+		mLeftPosition = mRightPosition = 0;
+		mLeftVelocity = mRightVelocity = 0;
+		mLeftCurrent = mRightCurrent = 0;
+		mHeading = 0;
+		mX = mY = 0;
+	}
+
+	public double getLeftDistance() {
+		return mLeftPosition / kMetersPerInch;
+	}
+
+	public double getRightDistance() {
+		return mRightPosition / kMetersPerInch;
+	}
+
+	// Inches per second
+	public double getLeftVelocity() {
+		return mLeftVelocity / kMetersPerInch;
+	}
+
+	public double getRightVelocity() {
+		return mRightVelocity / kMetersPerInch;
+	}
+
+	public double getHeading() {
+		return Math.toDegrees(mHeading);
+	}
+
+	// Degrees per second
+	public double getHeadingVelocity() {
+		return Math.toDegrees((mRightVelocity - mLeftVelocity) / mTrackWidth);
+	}
+
+	// Field position in inches, x is forward from where the robot started
+	public double getX() {
+		return mX / kMetersPerInch;
+	}
+
+	public double getY() {
+		return mY / kMetersPerInch;
+	}
+
+	// Amps drawn by all the motors on each side
+	public double getLeftCurrent() {
+		return mLeftCurrent;
+	}
+
+	public double getRightCurrent() {
+		return mRightCurrent;
+	}
+}
@@ -0,0 +1,117 @@
+package com.palyrobotics.frc2017.simulation;
+
+import com.palyrobotics.frc2017.config.Constants;
+
+/**
+ * Motors driving an output shaft through a gearbox, with friction and optional hard stops <br />
+ * Used for the slider (lead screw) and the climber (winch) <br />
+ * Position is in rotations of the output shaft, where the encoder is mounted
+ */
+public class MechanismModel {
+	// Below this speed in rad/s the mechanism is considered stopped and held by static friction
+	private static final double kStoppedSpeed = 1e-3;
+
+	private final DCMotor mMotor;
+	private final int mMotorCount;
+	private final double mGearRatio;
+	private final double mMomentOfInertia;
+	private final double mFriction;
+	private final double mMinPosition;
+	private final double mMaxPosition;
+
+	// Radians and radians per second
+	private double mPosition = 0;
+	private double mVelocity = 0;
+	private double mCurrent = 0;
+
+	/**
+	 * @param gearRatio motor rotations per output rotation
+	 * @param momentOfInertia at the output shaft in kg*m^2
+	 * @param friction torque at the output shaft in N*m
+	 * @param minPosition hard stop in rotations, negative infinity for none
+	 * @param maxPosition hard stop in rotations, positive infinity for none
+	 */
+	public MechanismModel(DCMotor motor, int motorCount, double gearRatio, double momentOfInertia, double friction,
+						  double minPosition, double maxPosition) {
+		mMotor = motor;
+		mMotorCount = motorCount;
+		mGearRatio = gearRatio;
+		mMomentOfInertia = momentOfInertia;
+		mFriction = friction;
+		mMinPosition = minPosition * 2 * Math.PI;
+		mMaxPosition = maxPosition * 2 * Math.PI;
+	}
+
+	/**
+	 * Steik's slider: a 775pro on a lead screw, one rotation is 1 / kSliderRevolutionsPerInch inches <br />
+	 * Hard stops are where the potentiometer reads kPotentiometerLeftPos and kPotentiometerRightPos
+	 */
+	public static MechanismModel createSteikSlider() {
+		double travel = (Constants.kPotentiometerLeftPos - Constants.kPotentiometerRightPos) / 2
+				/ SimulatedHardware.kPotentiometerCountsPerRev;
+		return new MechanismModel(DCMotor.k775Pro, 1, 40, 0.002, 0.19, -travel, travel);
+	}
+
+	/**
+	 * Steik's climber: a CIM on a winch, free to spin until the rope is caught
+	 */
+	public static MechanismModel createSteikClimber() {
+		return new MechanismModel(DCMotor.kCIM, 1, 30, 0.01, 0.5, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Advances the model
+	 * @param voltage applied to the motors
+	 * @param dt time step in seconds, should be around a millisecond
+	 */
+	public void step(double voltage, double dt) {
+		double motorSpeed = mVelocity * mGearRatio;
+		mCurrent = mMotorCount * mMotor.getCurrent(voltage, motorSpeed);
+		double motorTorque = mMotorCount * mMotor.getTorque(voltage, motorSpeed) * mGearRatio;
+		double torque;
+		if (Math.abs(mVelocity) > kStoppedSpeed) {
+			torque = motorTorque - Math.signum(mVelocity) * mFriction;
+		} else if (Math.abs(motorTorque) <= mFriction) {
+			torque = 0;
+			mVelocity = 0;
+		} else {
+			torque = motorTorque - Math.signum(motorTorque) * mFriction;
+		}
+		double velocity = mVelocity + torque / mMomentOfInertia * dt;
+		// Friction can stop the mechanism but never push it backwards
+		if (velocity * mVelocity < 0 && Math.abs(motorTorque) <= mFriction) {
+			velocity = 0;
+		}
+		mVelocity = velocity;
+		mPosition += mVelocity * dt;
+		if (mPosition < mMinPosition) {
+			mPosition = mMinPosition;
+			mVelocity = Math.max(0, mVelocity);
+		} else if (mPosition > mMaxPosition) {
+			mPosition = mMaxPosition;
+			mVelocity = Math.min(0, mVelocity);
+		}
+	}
+
+	/**
+	 * Moves the mechanism without simulating it, for starting a simulation somewhere other than 0
+	 */
+	public void setPosition(double rotations) {
+		mPosition = rotations * 2 * Math.PI;
+		mVelocity = 0;
+	}
+
+	public double getPosition() {
+		return mPosition / (2 * Math.PI);
+	}
+
+	// Rotations per second
+	public double getVelocity() {
+		return mVelocity / (2 * Math.PI);
+	}
+
+	// Amps drawn by all the motors
+	public double getCurrent() {
+		return mCurrent;
+	}
+}
@@ -0,0 +1,253 @@
+package com.palyrobotics.frc2017.simulation;
+
+import com.palyrobotics.frc2017.auto.AutoModeBase;
+import com.palyrobotics.frc2017.behavior.Routine;
+import com.palyrobotics.frc2017.behavior.RoutineManager;
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.Constants;
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.robot.Robot;
+import com.palyrobotics.frc2017.robot.team254.lib.util.Loop;
+import com.palyrobotics.frc2017.subsystems.Climber;
+import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.subsystems.Intake;
+import com.palyrobotics.frc2017.subsystems.Slider;
+import com.palyrobotics.frc2017.subsystems.Spatula;
+import com.palyrobotics.frc2017.subsystems.controllers.TrajectoryFollowingController;
+import com.palyrobotics.frc2017.util.PhasedScheduler;
+import com.palyrobotics.frc2017.util.PhasedScheduler.Phase;
+import com.palyrobotics.frc2017.util.PhasedScheduler.Priority;
+import com.palyrobotics.frc2017.util.archive.SubsystemLoop;
+
+/**
+ * Runs the robot's loops headless on simulated hardware, on one thread and on a simulated clock <br />
+ * The loops are registered on a {@link PhasedScheduler} with the same phases, priorities and periods as in
+ * Robot.robotInit(), and every tick of {@link Constants#kSchedulerDt} runs one tick of it:
+ *   the hardware sensor loop publishes the sensors, which are read into {@link Robot#getRobotState()},
+ *   every other tick the routine manager is updated like in autonomousPeriodic() and teleopPeriodic(),
+ *   the subsystem loops that are due are updated, the hardware enabled loop writes their outputs,
+ *   then the physics advance by one tick.
+ * The scheduler runs on the simulated clock, which doesn't move during a tick, so no tick runs over
+ * and tasks are never skipped.
+ * With a speed of 0 the simulation runs as fast as possible, a 15 second autonomous takes well under a second.
+ * The simulation replaces the hardware in {@link Robot} and the clock routines and trajectories use
+ * until {@link #close()} is called.
+ */
+public class RobotSimulation {
+	private static final double kDt = Constants.kSchedulerDt;
+	// The routine manager is updated at the 50Hz of the periodic methods
+	private static final double kRoutineDt = 0.02;
+
+	private final SimulatedHardware mHardware;
+	private final PhasedScheduler mScheduler = new PhasedScheduler("simulation", kDt, () -> (long) (getTime() * 1e9));
+	private final RoutineManager mRoutineManager = new RoutineManager();
+	private Commands mCommands = new Commands();
+
+	private double mTime = 0;
+	// Multiple of real time, 0 to run as fast as possible
+	private double mSpeed = 0;
+	private boolean mEnabled = false;
+
+	public RobotSimulation(SimulatedHardware hardware) {
+		mHardware = hardware;
+		Robot.setHardware(hardware);
+		Routine.setClock(this::getTime);
+		TrajectoryFollowingController.setClock(this::getTime);
+		// Same tasks as Robot.robotInit(), with the routine manager standing in for the periodic methods
+		mScheduler.register("hardware_sensor", Phase.SENSE, Priority.CRITICAL, hardware.getHardwareSensorLoop());
+		mScheduler.register("robot_state", Phase.SENSE, Priority.CRITICAL, new Loop() {
+			@Override
+			public void onStart() {
+			}
+
+			@Override
+			public void update() {
+				Robot.getRobotStatePublisher().read(Robot.getRobotState());
+			}
+
+			@Override
+			public void onStop() {
+			}
+		});
+		mScheduler.register("routines", Phase.SUBSYSTEMS, Priority.CRITICAL, kRoutineDt, new Loop() {
+			@Override
+			public void onStart() {
+			}
+
+			@Override
+			public void update() {
+				mCommands = mRoutineManager.update(mCommands);
+			}
+
+			@Override
+			public void onStop() {
+			}
+		});
+		register(Drive.getInstance(), Priority.CRITICAL, kDt);
+		if (Constants.kRobotName == Constants.RobotName.STEIK) {
+			register(Slider.getInstance(), Priority.NORMAL, Constants.kSliderLoopDt);
+			register(Spatula.getInstance(), Priority.LOW, kDt);
+			register(Intake.getInstance(), Priority.LOW, kDt);
+			register(Climber.getInstance(), Priority.LOW, Constants.kClimberLoopDt);
+		}
+		mScheduler.register("hardware_enabled", Phase.ACTUATE, Priority.CRITICAL, hardware.getHardwareEnabledLoop());
+		hardware.initHardware();
+		hardware.updateSensors(Robot.getRobotState());
+		mScheduler.startPhase(Phase.SENSE);
+	}
+
+	private void register(SubsystemLoop subsystem, Priority priority, double period) {
+		mScheduler.register(subsystem.toString(), Phase.SUBSYSTEMS, priority, period, new Loop() {
+			@Override
+			public void onStart() {
+				subsystem.start();
+			}
+
+			@Override
+			public void update() {
+				subsystem.update(mCommands, Robot.getRobotState());
+			}
+
+			@Override
+			public void onStop() {
+				subsystem.stop();
+			}
+		});
+	}
+
+	/**
+	 * @param speed multiple of real time to run at, 0 to run as fast as possible
+	 */
+	public void setSpeed(double speed) {
+		mSpeed = speed;
+	}
+
+	/**
+	 * Same as Robot.autonomousInit(), starts the loops and the auto mode's routine
+	 */
+	public void autonomousInit(AutoModeBase mode) {
+		enable(RobotState.GamePeriod.AUTO);
+		mode.prestart();
+		mRoutineManager.addNewRoutine(mode.getRoutine());
+	}
+
+	/**
+	 * Same as Robot.teleopInit() without the operator interface, routines can be added with {@link #addRoutine(Routine)}
+	 */
+	public void teleopInit() {
+		enable(RobotState.GamePeriod.TELEOP);
+		mCommands.wantedDriveState = Drive.DriveState.CHEZY;
+	}
+
+	private void enable(RobotState.GamePeriod gamePeriod) {
+		Robot.getRobotStatePublisher().setGamePeriod(gamePeriod);
+		Robot.getRobotState().gamePeriod = gamePeriod;
+		mScheduler.startPhase(Phase.ACTUATE);
+		mHardware.configureTalons(false);
+		mHardware.updateSensors(Robot.getRobotState());
+		mRoutineManager.reset(mCommands);
+		mScheduler.startPhase(Phase.SUBSYSTEMS);
+		mEnabled = true;
+	}
+
+	/**
+	 * Same as Robot.disabledInit(), cancels routines, stops the loops and disables the Talons
+	 */
+	public void disabledInit() {
+		Robot.getRobotStatePublisher().setGamePeriod(RobotState.GamePeriod.DISABLED);
+		Robot.getRobotState().gamePeriod = RobotState.GamePeriod.DISABLED;
+		mRoutineManager.reset(mCommands);
+		mCommands = new Commands();
+		mScheduler.stopPhase(Phase.SUBSYSTEMS);
+		Drive.getInstance().setNeutral();
+		mScheduler.stopPhase(Phase.ACTUATE);
+		mHardware.configureDriveTalons();
+		mHardware.disableTalons();
+		mEnabled = false;
+	}
+
+	public void addRoutine(Routine routine) {
+		mRoutineManager.addNewRoutine(routine);
+	}
+
+	/**
+	 * Runs an auto mode until its routine finishes, then disables
+	 * @param timeout simulated seconds to give up after
+	 * @return whether the routine finished in time
+	 */
+	public boolean runAutonomous(AutoModeBase mode, double timeout) {
+		autonomousInit(mode);
+		double endTime = mTime + timeout;
+		// The routine is only added to the current routines on the first update
+		do {
+			tick();
+		} while (!mRoutineManager.getCurrentRoutines().isEmpty() && mTime < endTime);
+		boolean finished = mRoutineManager.getCurrentRoutines().isEmpty();
+		disabledInit();
+		return finished;
+	}
+
+	/**
+	 * Runs the loops for some amount of simulated time
+	 */
+	public void run(double seconds) {
+		double endTime = mTime + seconds;
+		while (mTime < endTime - kDt / 2) {
+			tick();
+		}
+	}
+
+	/**
+	 * One tick of the scheduler and the physics
+	 */
+	public void tick() {
+		long wallStart = System.nanoTime();
+		mScheduler.runTick();
+		mHardware.step(kDt);
+		mTime += kDt;
+		if (mSpeed > 0) {
+			long sleepNanos = (long) (kDt / mSpeed * 1e9) - (System.nanoTime() - wallStart);
+			if (sleepNanos > 0) {
+				try {
+					Thread.sleep(sleepNanos / 1000000, (int) (sleepNanos % 1000000));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gives the robot back its hardware and routines back the system clock
+	 */
+	public void close() {
+		if (mEnabled) {
+			disabledInit();
+		}
+		Routine.setClock(null);
+		TrajectoryFollowingController.setClock(null);
+		Robot.setHardware(null);
+	}
+
+	// Simulated seconds since the simulation was created
+	public double getTime() {
+		return mTime;
+	}
+
+	public SimulatedHardware getHardware() {
+		return mHardware;
+	}
+
+	// Runs the loops, its timing stats count how often each task updated
+	public PhasedScheduler getScheduler() {
+		return mScheduler;
+	}
+
+	public RoutineManager getRoutineManager() {
+		return mRoutineManager;
+	}
+
+	public Commands getCommands() {
+		return mCommands;
+	}
+}
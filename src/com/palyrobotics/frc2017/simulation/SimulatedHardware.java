@@ -0,0 +1,300 @@
+package com.palyrobotics.frc2017.simulation;
+
+import com.palyrobotics.frc2017.config.Constants;
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.robot.Robot;
+import com.palyrobotics.frc2017.robot.RobotHardware;
+import com.palyrobotics.frc2017.robot.team254.lib.util.Loop;
+import com.palyrobotics.frc2017.subsystems.Climber;
+import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.subsystems.Intake;
+import com.palyrobotics.frc2017.subsystems.Slider;
+import com.palyrobotics.frc2017.subsystems.Spatula;
+import com.palyrobotics.frc2017.util.archive.DriveSignal;
+
+import edu.wpi.first.wpilibj.DoubleSolenoid;
+
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Steik with the CANTalons, gyro and potentiometer replaced by simulations <br />
+ * Mirrors {@link com.palyrobotics.frc2017.robot.HardwareUpdater}, the subsystems can't tell the difference <br />
+ * Physics only advances when {@link #step(double)} is called, so a simulation can run at any speed
+ */
+public class SimulatedHardware implements RobotHardware {
+	// 10 turn potentiometer on a 12 bit analog input, as assumed when calibrating the slider encoder
+	public static final double kPotentiometerCountsPerRev = 4096 / 10.0;
+	private static final int kMagEncoderCodesPerRev = 4096;
+
+	// Sensor noise, standard deviations
+	public static final double kDefaultGyroNoise = 0.05;		// degrees
+	public static final double kDefaultGyroDrift = 0.01;		// degrees per second
+	public static final double kDefaultEncoderNoise = 0.2;	// ticks
+	public static final double kDefaultPotentiometerNoise = 1;	// counts
+
+	private final DrivetrainModel mDrivetrain = DrivetrainModel.createSteik();
+	private final MechanismModel mSlider = MechanismModel.createSteikSlider();
+	private final MechanismModel mClimber = MechanismModel.createSteikClimber();
+
+	private final SimulatedTalon mLeftTalon = new SimulatedTalon(0);
+	private final SimulatedTalon mRightTalon = new SimulatedTalon(0);
+	private final SimulatedTalon mSliderTalon = new SimulatedTalon(kMagEncoderCodesPerRev);
+	private final SimulatedTalon mClimberTalon = new SimulatedTalon(kMagEncoderCodesPerRev);
+
+	private DoubleSolenoid.Value mSpatulaOutput = DoubleSolenoid.Value.kOff;
+	private double mIntakeOutput = 0;
+
+	private final Random mRandom;
+	private double mGyroNoise = kDefaultGyroNoise;
+	private double mGyroDrift = kDefaultGyroDrift;
+	private double mEncoderNoise = kDefaultEncoderNoise;
+	private double mPotentiometerNoise = kDefaultPotentiometerNoise;
+	// Gyro reading is relative to where it was zeroed, and drifts off from there over time
+	private double mGyroZero = 0;
+	private double mGyroBias = 0;
+	private double mGyroTime = 0;
+
+	/**
+	 * @param seed for the sensor noise, the same seed gives the same run
+	 */
+	public SimulatedHardware(long seed) {
+		mRandom = new Random(seed);
+		mGyroBias = mRandom.nextGaussian() * mGyroDrift;
+		// Let the Talons read their sensors once so configuring them sees the starting position
+		readSensors();
+	}
+
+	public SimulatedHardware() {
+		this(0);
+	}
+
+	/**
+	 * Sets the standard deviation of sensor noise, 0 for perfect sensors
+	 * @param gyro degrees
+	 * @param gyroDrift degrees per second
+	 * @param encoder drive encoder ticks
+	 * @param potentiometer analog counts
+	 */
+	public void setNoise(double gyro, double gyroDrift, double encoder, double potentiometer) {
+		mGyroNoise = gyro;
+		mGyroDrift = gyroDrift;
+		mGyroBias = mRandom.nextGaussian() * gyroDrift;
+		mEncoderNoise = encoder;
+		mPotentiometerNoise = potentiometer;
+	}
+
+	/**
+	 * Advances physics, the Talons run their control loops every millisecond
+	 * @param dt seconds
+	 */
+	public void step(double dt) {
+		int steps = Math.max(1, (int) Math.round(dt / SimulatedTalon.kLoopPeriod));
+		double subStep = dt / steps;
+		for (int i = 0; i < steps; i++) {
+			double[] voltages = readSensors();
+			mDrivetrain.step(voltages[0], voltages[1], subStep);
+			mSlider.step(voltages[2], subStep);
+			mClimber.step(voltages[3], subStep);
+			mGyroTime += subStep;
+		}
+	}
+
+	// Runs every Talon's loop on the current sensor values, returns left, right, slider and climber voltage
+	private double[] readSensors() {
+		return new double[] {
+				mLeftTalon.update(mDrivetrain.getLeftDistance() * Constants.kDriveTicksPerInch + mRandom.nextGaussian() * mEncoderNoise),
+				mRightTalon.update(mDrivetrain.getRightDistance() * Constants.kDriveTicksPerInch + mRandom.nextGaussian() * mEncoderNoise),
+				mSliderTalon.update(mSlider.getPosition() * kMagEncoderCodesPerRev),
+				mClimberTalon.update(mClimber.getPosition() * kMagEncoderCodesPerRev)
+		};
+	}
+
+	@Override
+	public void initHardware() {
+		configureTalons(true);
+		resetDriveSensors();
+	}
+
+	@Override
+	public void configureTalons(boolean calibrateSliderEncoder) {
+		configureDriveTalons();
+		mClimberTalon.disable();
+		mClimberTalon.setPosition(0);
+		mClimberTalon.configMaxOutputVoltage(Constants.kClimberMaxVoltage);
+		mClimberTalon.configPeakOutputVoltage(Constants.kClimberMaxVoltage, 0);
+
+		mSliderTalon.disable();
+		mSliderTalon.configMaxOutputVoltage(Constants.kSliderMaxVoltage);
+		mSliderTalon.configPeakOutputVoltage(Constants.kSliderPeakOutputVoltage, -Constants.kSliderPeakOutputVoltage);
+		if (calibrateSliderEncoder) {
+			double distanceToCenter = getSliderPotentiometer() - Constants.kPotentiometerCenterPos;
+			if (Constants.kCalibrateSliderWithPotentiometer) {
+				mSliderTalon.setPosition(-distanceToCenter / kPotentiometerCountsPerRev);
+			} else {
+				mSliderTalon.setPosition(0);
+			}
+		}
+	}
+
+	@Override
+	public void configureDriveTalons() {
+		mLeftTalon.configPeakOutputVoltage(Constants.kDriveMaxClosedLoopOutput, -Constants.kDriveMaxClosedLoopOutput);
+		mRightTalon.configPeakOutputVoltage(Constants.kDriveMaxClosedLoopOutput, -Constants.kDriveMaxClosedLoopOutput);
+		mLeftTalon.configMaxOutputVoltage(13);
+		mRightTalon.configMaxOutputVoltage(13);
+		mLeftTalon.setPosition(0);
+		mRightTalon.setPosition(0);
+	}
+
+	@Override
+	public void disableTalons() {
+		mLeftTalon.disable();
+		mRightTalon.disable();
+		mSliderTalon.disable();
+		mClimberTalon.disable();
+	}
+
+	@Override
+	public void resetDriveSensors() {
+		mGyroZero = mDrivetrain.getHeading();
+		mGyroBias = mRandom.nextGaussian() * mGyroDrift;
+		mGyroTime = 0;
+		mLeftTalon.setPosition(0);
+		mRightTalon.setPosition(0);
+	}
+
+	@Override
+	public void resetSliderEncoder() {
+		// CANTalon.reset() clears the closed loop and disables the Talon until it is set again
+		mSliderTalon.disable();
+	}
+
+	@Override
+	public void updateSensors(RobotState robotState) {
+		robotState.leftControlMode = mLeftTalon.getControlMode();
+		robotState.rightControlMode = mRightTalon.getControlMode();
+		robotState.leftSetpoint = mLeftTalon.getSetpoint();
+		robotState.rightSetpoint = mRightTalon.getSetpoint();
+		robotState.drivePose.heading = mDrivetrain.getHeading() - mGyroZero + mGyroBias * mGyroTime + mRandom.nextGaussian() * mGyroNoise;
+		robotState.drivePose.headingVelocity = mDrivetrain.getHeadingVelocity() + mGyroBias + mRandom.nextGaussian() * mGyroNoise;
+		robotState.drivePose.leftEnc = mLeftTalon.getPosition();
+		robotState.drivePose.leftEncVelocity = mLeftTalon.getEncVelocity();
+		robotState.drivePose.leftSpeed = mLeftTalon.getSpeed();
+		robotState.drivePose.rightEnc = mRightTalon.getPosition();
+		robotState.drivePose.rightEncVelocity = mRightTalon.getEncVelocity();
+		robotState.drivePose.rightSpeed = mRightTalon.getSpeed();
+		robotState.drivePose.leftError = mLeftTalon.getControlMode().isPID()
+				? Optional.of((double) mLeftTalon.getClosedLoopError()) : Optional.empty();
+		robotState.drivePose.rightError = mRightTalon.getControlMode().isPID()
+				? Optional.of((double) mRightTalon.getClosedLoopError()) : Optional.empty();
+
+		robotState.sliderEncoder = mSliderTalon.getEncPosition();
+		robotState.sliderPotentiometer = getSliderPotentiometer();
+		robotState.sliderVelocity = mSliderTalon.getSpeed();
+		robotState.sliderControlMode = mSliderTalon.getControlMode();
+		if (mSliderTalon.getControlMode().isPID() && mSliderTalon.getSetpoint() == Slider.getInstance().getOutput().getSetpoint()) {
+			robotState.sliderClosedLoopError = Optional.of(mSliderTalon.getClosedLoopError());
+		} else {
+			robotState.sliderClosedLoopError = Optional.empty();
+		}
+		robotState.sliderPosition = mSliderTalon.getPosition();
+
+		robotState.climberEncoder = mClimberTalon.getPosition();
+		robotState.climberCurrentDraw = Math.abs(mClimber.getCurrent());
+	}
+
+	@Override
+	public void updateSubsystems() {
+		if (Constants.kRobotName == Constants.RobotName.STEIK) {
+			mSliderTalon.set(Slider.getInstance().getOutput());
+			mSpatulaOutput = Spatula.getInstance().getOutput();
+			mIntakeOutput = Intake.getInstance().getOutput();
+			mClimberTalon.set(Climber.getInstance().getOutput());
+		}
+		DriveSignal signal = Drive.getInstance().getDriveSignal();
+		mLeftTalon.set(signal.leftMotor);
+		mRightTalon.set(signal.rightMotor);
+	}
+
+	// AnalogInput.getValue() is a whole number of counts
+	private int getSliderPotentiometer() {
+		return (int) Math.round(Constants.kPotentiometerCenterPos - mSlider.getPosition() * kPotentiometerCountsPerRev
+				+ mRandom.nextGaussian() * mPotentiometerNoise);
+	}
+
+	@Override
+	public Loop getHardwareSensorLoop() {
+		return new Loop() {
+			private final RobotState mSensorState = new RobotState();
+
+			@Override
+			public void onStart() {
+			}
+
+			@Override
+			public void update() {
+				updateSensors(mSensorState);
+				Robot.getRobotStatePublisher().publish(mSensorState);
+			}
+
+			@Override
+			public void onStop() {
+			}
+		};
+	}
+
+	@Override
+	public Loop getHardwareEnabledLoop() {
+		return new Loop() {
+			@Override
+			public void onStart() {
+			}
+
+			@Override
+			public void update() {
+				updateSubsystems();
+			}
+
+			@Override
+			public void onStop() {
+			}
+		};
+	}
+
+	public DrivetrainModel getDrivetrain() {
+		return mDrivetrain;
+	}
+
+	public MechanismModel getSlider() {
+		return mSlider;
+	}
+
+	public MechanismModel getClimber() {
+		return mClimber;
+	}
+
+	public SimulatedTalon getLeftTalon() {
+		return mLeftTalon;
+	}
+
+	public SimulatedTalon getRightTalon() {
+		return mRightTalon;
+	}
+
+	public SimulatedTalon getSliderTalon() {
+		return mSliderTalon;
+	}
+
+	public SimulatedTalon getClimberTalon() {
+		return mClimberTalon;
+	}
+
+	public DoubleSolenoid.Value getSpatulaOutput() {
+		return mSpatulaOutput;
+	}
+
+	public double getIntakeOutput() {
+		return mIntakeOutput;
+	}
+}
@@ -0,0 +1,275 @@
+package com.palyrobotics.frc2017.simulation;
+
+import com.ctre.CANTalon.TalonControlMode;
+import com.palyrobotics.frc2017.config.Gains;
+import com.palyrobotics.frc2017.util.CANTalonOutput;
+
+import java.util.Arrays;
+
+/**
+ * Simulates a CANTalon SRX and its 1 ms onboard control loop <br />
+ * Supports PercentVbus, Voltage, Position, Speed and MotionMagic, other modes output 0V <br />
+ * Gains use the Talon's scale of 1023 per full output, so gains tuned on the robot can be used as is <br />
+ * Call {@link #update(double)} once per millisecond with the sensor reading
+ */
+public class SimulatedTalon {
+	public static final double kLoopPeriod = 0.001;
+	// The Talon measures velocity as the change in position over 100 ms
+	private static final int kVelocityWindow = 100;
+
+	// 0 for sensors read in native units, otherwise position is in rotations and speed in RPM
+	private final int mCodesPerRev;
+
+	private TalonControlMode mControlMode = TalonControlMode.Disabled;
+	private double mSetpoint = 0;
+	private Gains mGains = new Gains(0, 0, 0, 0, 0, 0);
+	// Native units per 100 ms, and native units per 100 ms per second
+	private double mCruiseVelocity = 0;
+	private double mAcceleration = 0;
+
+	private double mMaxOutputVoltage = DCMotor.kNominalVoltage;
+	private double mPeakForwardVoltage = DCMotor.kNominalVoltage;
+	private double mPeakReverseVoltage = -DCMotor.kNominalVoltage;
+
+	// Sensor in native units
+	private double mSensorOffset = 0;
+	private double mRawSensor = 0;
+	private int mPosition = 0;
+	private final int[] mPositionHistory = new int[kVelocityWindow];
+	private int mHistoryIndex = 0;
+	private int mVelocity = 0;
+	private boolean mSensorRead = false;
+
+	// Closed loop state
+	private double mIntegral = 0;
+	private double mLastError = 0;
+	private int mClosedLoopError = 0;
+	private boolean mProfileStarted = false;
+	// Motion magic profile in native units and native units per second
+	private double mProfilePosition = 0;
+	private double mProfileVelocity = 0;
+
+	private double mOutputVoltage = 0;
+
+	/**
+	 * @param codesPerRev 4096 for a CTRE mag encoder, 0 to read the sensor in native units like the drive encoders
+	 */
+	public SimulatedTalon(int codesPerRev) {
+		mCodesPerRev = codesPerRev;
+	}
+
+	/**
+	 * Applies an output the same way HardwareUpdater does for a real Talon
+	 */
+	public void set(CANTalonOutput output) {
+		changeControlMode(output.getControlMode());
+		if (output.getControlMode().isPID() || output.getControlMode() == TalonControlMode.MotionMagic) {
+			mGains = output.gains;
+		}
+		if (output.getControlMode() == TalonControlMode.MotionMagic) {
+			mAcceleration = output.accel;
+			mCruiseVelocity = output.cruiseVel;
+		}
+		mSetpoint = output.getSetpoint();
+	}
+
+	public void changeControlMode(TalonControlMode controlMode) {
+		if (controlMode == mControlMode) {
+			return;
+		}
+		mControlMode = controlMode;
+		mIntegral = 0;
+		mLastError = 0;
+		mClosedLoopError = 0;
+		mProfileStarted = false;
+	}
+
+	public void disable() {
+		changeControlMode(TalonControlMode.Disabled);
+		mOutputVoltage = 0;
+	}
+
+	/**
+	 * Limits closed loop output
+	 */
+	public void configPeakOutputVoltage(double forwardVoltage, double reverseVoltage) {
+		mPeakForwardVoltage = forwardVoltage;
+		mPeakReverseVoltage = reverseVoltage;
+	}
+
+	/**
+	 * Limits all output
+	 */
+	public void configMaxOutputVoltage(double voltage) {
+		mMaxOutputVoltage = voltage;
+	}
+
+	/**
+	 * Runs one loop of the Talon
+	 * @param sensor current reading of the feedback sensor in native units
+	 * @return voltage applied to the motor until the next update
+	 */
+	public double update(double sensor) {
+		mRawSensor = sensor;
+		mPosition = (int) Math.round(sensor - mSensorOffset);
+		if (!mSensorRead) {
+			Arrays.fill(mPositionHistory, mPosition);
+			mSensorRead = true;
+		}
+		mVelocity = mPosition - mPositionHistory[mHistoryIndex];
+		mPositionHistory[mHistoryIndex] = mPosition;
+		mHistoryIndex = (mHistoryIndex + 1) % kVelocityWindow;
+
+		double voltage;
+		switch (mControlMode) {
+			case PercentVbus:
+				voltage = Math.max(-1, Math.min(1, mSetpoint)) * DCMotor.kNominalVoltage;
+				break;
+			case Voltage:
+				voltage = mSetpoint;
+				break;
+			case Position:
+				voltage = closedLoop(toNativePosition(mSetpoint) - mPosition, toNativePosition(mSetpoint));
+				break;
+			case Speed:
+				voltage = closedLoop(toNativeVelocity(mSetpoint) - mVelocity, toNativeVelocity(mSetpoint));
+				break;
+			case MotionMagic:
+				updateProfile(toNativePosition(mSetpoint));
+				voltage = closedLoop(mProfilePosition - mPosition, mProfileVelocity / 10);
+				break;
+			default:
+				// Follower, current and motion profile modes are not simulated
+				voltage = 0;
+				break;
+		}
+		voltage = Math.max(-mMaxOutputVoltage, Math.min(mMaxOutputVoltage, voltage));
+		mOutputVoltage = voltage;
+		return voltage;
+	}
+
+	/**
+	 * PIDF with the Talon's units, error is in native units
+	 * @param target used for the feed forward term
+	 */
+	private double closedLoop(double error, double target) {
+		mClosedLoopError = (int) Math.round(error);
+		if (mGains.izone != 0 && Math.abs(error) > mGains.izone) {
+			mIntegral = 0;
+		} else {
+			mIntegral += error;
+		}
+		double output = mGains.P * error + mGains.I * mIntegral + mGains.D * (error - mLastError) + mGains.F * target;
+		mLastError = error;
+		double voltage = Math.max(mPeakReverseVoltage, Math.min(mPeakForwardVoltage, output / 1023 * DCMotor.kNominalVoltage));
+		// Closed loop ramp rate is in volts per second
+		if (mGains.rampRate > 0) {
+			double maxChange = mGains.rampRate * kLoopPeriod;
+			voltage = Math.max(mOutputVoltage - maxChange, Math.min(mOutputVoltage + maxChange, voltage));
+		}
+		return voltage;
+	}
+
+	/**
+	 * Trapezoidal profile from where the profile is now to the target, replanned every loop like the Talon
+	 */
+	private void updateProfile(double target) {
+		if (!mProfileStarted) {
+			mProfilePosition = mPosition;
+			mProfileVelocity = mVelocity * 10;
+			mProfileStarted = true;
+		}
+		double cruise = Math.abs(toNativeVelocity(mCruiseVelocity)) * 10;
+		double accel = Math.abs(toNativeVelocity(mAcceleration)) * 10;
+		if (accel == 0 || cruise == 0) {
+			mProfilePosition = target;
+			mProfileVelocity = 0;
+			return;
+		}
+		double remaining = target - mProfilePosition;
+		if (Math.abs(remaining) < 0.5 && Math.abs(mProfileVelocity) <= accel * kLoopPeriod) {
+			mProfilePosition = target;
+			mProfileVelocity = 0;
+			return;
+		}
+		double direction = Math.signum(remaining);
+		double stoppingDistance = mProfileVelocity * mProfileVelocity / (2 * accel);
+		double velocity;
+		if (mProfileVelocity * direction < 0) {
+			// Moving away from the target, turn around first
+			velocity = mProfileVelocity + direction * accel * kLoopPeriod;
+		} else if (stoppingDistance >= Math.abs(remaining)) {
+			velocity = mProfileVelocity - direction * accel * kLoopPeriod;
+			if (velocity * direction < 0) {
+				velocity = 0;
+			}
+		} else {
+			velocity = direction * Math.min(cruise, Math.abs(mProfileVelocity) + accel * kLoopPeriod);
+		}
+		mProfilePosition += (mProfileVelocity + velocity) / 2 * kLoopPeriod;
+		mProfileVelocity = velocity;
+		// Stop on the target instead of overshooting it by a fraction of a loop
+		if ((target - mProfilePosition) * direction < 0) {
+			mProfilePosition = target;
+			mProfileVelocity = 0;
+		}
+	}
+
+	private double toNativePosition(double position) {
+		return (mCodesPerRev == 0) ? position : position * mCodesPerRev;
+	}
+
+	// RPM to native units per 100 ms
+	private double toNativeVelocity(double velocity) {
+		return (mCodesPerRev == 0) ? velocity : velocity * mCodesPerRev / 600;
+	}
+
+	private double fromNativeVelocity(double velocity) {
+		return (mCodesPerRev == 0) ? velocity : velocity * 600 / mCodesPerRev;
+	}
+
+	/**
+	 * Sets the current sensor position, in rotations if the sensor has codes per rev
+	 */
+	public void setPosition(double position) {
+		mSensorOffset = mRawSensor - toNativePosition(position);
+		int nativePosition = (int) Math.round(mRawSensor - mSensorOffset);
+		// Shift the velocity window so the jump is not measured as speed
+		for (int i = 0; i < kVelocityWindow; i++) {
+			mPositionHistory[i] += nativePosition - mPosition;
+		}
+		mPosition = nativePosition;
+	}
+
+	public TalonControlMode getControlMode() {
+		return mControlMode;
+	}
+
+	public double getSetpoint() {
+		return mSetpoint;
+	}
+
+	public double getPosition() {
+		return (mCodesPerRev == 0) ? mPosition : mPosition / (double) mCodesPerRev;
+	}
+
+	public int getEncPosition() {
+		return mPosition;
+	}
+
+	public int getEncVelocity() {
+		return mVelocity;
+	}
+
+	public double getSpeed() {
+		return fromNativeVelocity(mVelocity);
+	}
+
+	public int getClosedLoopError() {
+		return mClosedLoopError;
+	}
+
+	public double getOutputVoltage() {
+		return mOutputVoltage;
+	}
+}
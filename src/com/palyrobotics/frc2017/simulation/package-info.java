@@ -0,0 +1,8 @@
+/**
+ * Simulation package documentation <br />
+ * Physics models of Steik and a simulated {@link com.palyrobotics.frc2017.robot.RobotHardware} <br />
+ * {@link com.palyrobotics.frc2017.simulation.RobotSimulation} runs routines, subsystems and controllers against them
+ * on a plain JVM, faster than real time, so auto modes and controllers can be tried without the robot
+ *
+ */
+package com.palyrobotics.frc2017.simulation;
@@ -132,8 +132,8 @@ public class Drive extends Subsystem implements SubsystemLoop {
 				}
 				break;
 			case OPEN_LOOP:
-				if (commands.robotSetpoints.drivePowerSetpoint.isPresent()) {
-					setDriveOutputs(commands.robotSetpoints.drivePowerSetpoint.get());
+				if (commands.robotSetpoints.hasDrivePowerSetpoint) {
+					setDriveOutputs(commands.robotSetpoints.drivePowerSetpoint);
 				}
 				break;
 			case NEUTRAL:
@@ -160,7 +160,7 @@ public class Drive extends Subsystem implements SubsystemLoop {
 		DashboardManager.getInstance().publishKVPair(leftEncoder);
 		DashboardManager.getInstance().publishKVPair(rightEncoder);
 
-		motors.updateValue(state.drivePose.leftSpeed + ", " + state.drivePose.rightSpeed);
+		motors.updateValue(state.drivePose.leftSpeed, state.drivePose.rightSpeed);
 		DashboardManager.getInstance().publishKVPair(motors);
 	}
 
@@ -164,7 +164,7 @@ public class Slider extends Subsystem implements SubsystemLoop {
 					System.err.println("No custom positioning with potentiometer");
 					break;
 				}
-				if (!commands.robotSetpoints.sliderCustomSetpoint.isPresent()) {
+				if (!commands.robotSetpoints.hasSliderCustomSetpoint) {
 					System.err.println("No setpoint");
 					break;
 				} else {
@@ -172,7 +172,7 @@ public class Slider extends Subsystem implements SubsystemLoop {
 				}
 				mTarget = SliderTarget.CUSTOM;
 				//problem  below
-				mOutput.setPosition(commands.robotSetpoints.sliderCustomSetpoint.get(), mEncoderGains);
+				mOutput.setPosition(commands.robotSetpoints.sliderCustomSetpoint, mEncoderGains);
 				break;
 		}		
 	}
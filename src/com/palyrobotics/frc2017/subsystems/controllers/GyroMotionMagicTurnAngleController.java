@@ -66,7 +66,7 @@ public class GyroMotionMagicTurnAngleController implements DriveController {
 		double error = mTargetHeading - mCachedPose.heading;
 //		System.out.println(mCachedPose.headingVelocity);
 		// Compensate for current motion
-//		error -= mCachedPose.headingVelocity*Constants.kSubsystemLooperDt;
+//		error -= mCachedPose.headingVelocity*Constants.kSchedulerDt;
 		mLeftTarget = mCachedPose.leftEnc - (error * kInchesPerDegree * kTicksPerInch);
 		mRightTarget = mCachedPose.rightEnc + (error * kInchesPerDegree * kTicksPerInch);
 		mLeftOutput.setMotionMagic(mLeftTarget, mGains, mCruiseVel, mMaxAccel);
@@ -3,25 +3,35 @@ package com.palyrobotics.frc2017.subsystems.controllers;
 import com.palyrobotics.frc2017.config.Constants;
 import com.palyrobotics.frc2017.config.Gains;
 import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.config.dashboard.CANTelemetry;
 import com.palyrobotics.frc2017.config.dashboard.DashboardManager;
 import com.palyrobotics.frc2017.robot.team254.lib.util.ChezyMath;
 import com.palyrobotics.frc2017.robot.team254.lib.util.SynchronousPID;
 import com.palyrobotics.frc2017.subsystems.Drive;
 import com.palyrobotics.frc2017.util.Pose;
 import com.palyrobotics.frc2017.util.archive.DriveSignal;
-import com.palyrobotics.frc2017.util.archive.team254.trajectory.LegacyTrajectoryFollower;
+import com.palyrobotics.frc2017.util.archive.team254.trajectory.TimedTrajectoryFollower;
 import com.palyrobotics.frc2017.util.logger.Logger;
 import com.team254.lib.trajectory.Path;
+import edu.wpi.first.wpilibj.Timer;
+
+import java.util.function.DoubleSupplier;
 
 /**
  * Created by Nihar on 4/5/17.
  */
 public class TrajectoryFollowingController implements Drive.DriveController {
-	private LegacyTrajectoryFollower mLeftFollower = new LegacyTrajectoryFollower("left");
-	private LegacyTrajectoryFollower mRightFollower = new LegacyTrajectoryFollower("right");
+	// Seconds the profiles are sampled at, replaced by simulations that run faster than real time
+	private static final DoubleSupplier kFPGAClock = Timer::getFPGATimestamp;
+	private static DoubleSupplier sClock = kFPGAClock;
+
+	// Sampled by time, so late drive loops don't stretch the path
+	private TimedTrajectoryFollower mLeftFollower = new TimedTrajectoryFollower("left", Constants.kSchedulerDt);
+	private TimedTrajectoryFollower mRightFollower = new TimedTrajectoryFollower("right", Constants.kSchedulerDt);
 
 	private boolean mGyroCorrection;
 	private boolean mIllegalPath;
+	private boolean mLoggedTiming = false;
 
 	private SynchronousPID headingPID;
 
@@ -65,8 +75,12 @@ public class TrajectoryFollowingController implements Drive.DriveController {
 		}
 		DriveSignal driveSignal = DriveSignal.getNeutralSignal();
 
-		double leftPower = mLeftFollower.calculate(state.drivePose.leftEnc/Constants.kDriveTicksPerInch/12);
-		double rightPower = mRightFollower.calculate(state.drivePose.rightEnc/Constants.kDriveTicksPerInch/12);
+		double now = sClock.getAsDouble();
+		// Speeds from the state passed in, this runs on the subsystem thread
+		double leftPower = mLeftFollower.calculate(state.drivePose.leftEnc/Constants.kDriveTicksPerInch/12,
+				state.drivePose.leftSpeed/(12.0*Constants.kDriveSpeedUnitConversion), now);
+		double rightPower = mRightFollower.calculate(state.drivePose.rightEnc/Constants.kDriveTicksPerInch/12,
+				state.drivePose.rightSpeed/(12.0*Constants.kDriveSpeedUnitConversion), now);
 		
 		double gyroError = 0;
 
@@ -83,13 +97,31 @@ public class TrajectoryFollowingController implements Drive.DriveController {
 			driveSignal.rightMotor.setVoltage((rightPower-gyroCorrection)*12);
 		}
 		
-		DashboardManager.getInstance().updateCANTable(mLeftFollower.getCanTableString() + ", " + mRightFollower.getCanTableString() + ", " + gyroError);
+		CANTelemetry telemetry = DashboardManager.getInstance().getCANTelemetry();
+		double[] row = telemetry.row();
+		mLeftFollower.copyTelemetry(row, 0);
+		mRightFollower.copyTelemetry(row, TimedTrajectoryFollower.kTelemetryColumns);
+		row[2 * TimedTrajectoryFollower.kTelemetryColumns] = gyroError;
+		telemetry.commit(now);
+
+		if (onTarget() && !mLoggedTiming) {
+			mLoggedTiming = true;
+			Logger.getInstance().logSubsystemThread("Trajectory timing", mLeftFollower.getSummary());
+		}
 		
 		return driveSignal;
 		
 		
 	}
 
+	/**
+	 * Sets the clock trajectories are followed with
+	 * @param seconds current time in seconds, null to go back to the FPGA clock
+	 */
+	public static void setClock(DoubleSupplier seconds) {
+		sClock = (seconds == null) ? kFPGAClock : seconds;
+	}
+
 	@Override
 	public Pose getSetpoint() {
 		// TODO: what to return?
@@ -98,6 +130,6 @@ public class TrajectoryFollowingController implements Drive.DriveController {
 
 	@Override
 	public boolean onTarget() {
-		return !mIllegalPath | mLeftFollower.isFinishedTrajectory() && mRightFollower.isFinishedTrajectory();
+		return mIllegalPath || (mLeftFollower.isFinishedTrajectory() && mRightFollower.isFinishedTrajectory());
 	}
 }
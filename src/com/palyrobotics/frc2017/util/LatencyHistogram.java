@@ -0,0 +1,98 @@
+package com.palyrobotics.frc2017.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size histogram of durations in microseconds, in the style of HdrHistogram <br />
+ * Values under 64us get their own bucket, above that every power of two is split into 32 buckets,
+ * so percentiles are within about 3% of the real value <br />
+ * All buckets are allocated up front, recording never allocates. Only one thread should record,
+ * other threads can read percentiles at any time and may see a count that is one tick behind.
+ */
+public class LatencyHistogram {
+	private static final int kSubBucketBits = 5;
+	private static final int kSubBucketCount = 1 << kSubBucketBits;
+	// Values below this are counted exactly
+	private static final int kLinearCount = 2 * kSubBucketCount;
+	// 2^24 microseconds is about 16 seconds, anything longer is clamped
+	private static final int kMaxValueBits = 24;
+	public static final long kMaxValue = (1L << kMaxValueBits) - 1;
+
+	// int so that writes are atomic on the roboRIO's 32 bit JVM
+	private final int[] mCounts = new int[kLinearCount + (kMaxValueBits - kSubBucketBits - 1) * kSubBucketCount];
+	private volatile int mTotalCount = 0;
+	private volatile long mMax = 0;
+
+	/**
+	 * @param micros duration, negative values count as 0
+	 */
+	public void record(long micros) {
+		if (micros < 0) {
+			micros = 0;
+		} else if (micros > kMaxValue) {
+			micros = kMaxValue;
+		}
+		mCounts[getIndex(micros)]++;
+		if (micros > mMax) {
+			mMax = micros;
+		}
+		mTotalCount++;
+	}
+
+	private static int getIndex(long value) {
+		if (value < kLinearCount) {
+			return (int) value;
+		}
+		// Keep the top kSubBucketBits + 1 bits of the value
+		int shift = 63 - Long.numberOfLeadingZeros(value) - kSubBucketBits;
+		int subBucket = (int) (value >> shift) - kSubBucketCount;
+		return kLinearCount + (shift - 1) * kSubBucketCount + subBucket;
+	}
+
+	// Largest value that lands in the bucket
+	private static long getHighestValue(int index) {
+		if (index < kLinearCount) {
+			return index;
+		}
+		int shift = (index - kLinearCount) / kSubBucketCount + 1;
+		long subBucket = (index - kLinearCount) % kSubBucketCount + kSubBucketCount;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the duration in microseconds that percentile of samples were at or under, 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		int total = mTotalCount;
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < mCounts.length; i++) {
+			seen += mCounts[i];
+			if (seen >= target) {
+				return Math.min(getHighestValue(i), mMax);
+			}
+		}
+		return mMax;
+	}
+
+	public long getMax() {
+		return mMax;
+	}
+
+	public int getTotalCount() {
+		return mTotalCount;
+	}
+
+	/**
+	 * Clears all samples, should not be called while another thread is recording
+	 */
+	public void reset() {
+		Arrays.fill(mCounts, 0);
+		mTotalCount = 0;
+		mMax = 0;
+	}
+}
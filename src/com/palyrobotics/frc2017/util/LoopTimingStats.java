@@ -0,0 +1,157 @@
+package com.palyrobotics.frc2017.util;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import java.util.ArrayList;
+
+/**
+ * Timing of a looper: how long each of its loops takes to update, how long a whole tick takes,
+ * the time between ticks, and how many ticks took longer than the loop period <br />
+ * Loops are added when they are registered, after that recording from the looper's thread is allocation free.
+ * Percentiles can be read from any thread.
+ */
+public class LoopTimingStats {
+	private static final double kMicrosPerMilli = 1000.0;
+
+	private final String mName;
+	private final long mPeriodNanos;
+
+	private final ArrayList<String> mLoopNames = new ArrayList<>();
+	private final ArrayList<LatencyHistogram> mLoopDurations = new ArrayList<>();
+	private final LatencyHistogram mTickDuration = new LatencyHistogram();
+	private final LatencyHistogram mPeriod = new LatencyHistogram();
+	private volatile int mOverruns = 0;
+	// Start of the last tick, used for the period
+	private long mLastTickStart = 0;
+	private boolean mStarted = false;
+
+	/**
+	 * @param name prefix for the dashboard keys and the summary
+	 * @param period expected time between ticks in seconds
+	 */
+	public LoopTimingStats(String name, double period) {
+		mName = name;
+		mPeriodNanos = (long) (period * 1e9);
+	}
+
+	/**
+	 * Adds a loop, call when it is registered and never while the looper is running
+	 * @return index to record the loop's duration with
+	 */
+	public int addLoop(String name) {
+		mLoopNames.add(name);
+		mLoopDurations.add(new LatencyHistogram());
+		return mLoopNames.size() - 1;
+	}
+
+	/**
+	 * Clears everything recorded, call when the looper starts and before the first tick
+	 */
+	public void reset() {
+		for (LatencyHistogram histogram : mLoopDurations) {
+			histogram.reset();
+		}
+		mTickDuration.reset();
+		mPeriod.reset();
+		mOverruns = 0;
+		mStarted = false;
+	}
+
+	/**
+	 * @param index from {@link #addLoop(String)}
+	 * @param nanos how long the loop's update took
+	 */
+	public void recordLoop(int index, long nanos) {
+		mLoopDurations.get(index).record(nanos / 1000);
+	}
+
+	/**
+	 * @param startNanos System.nanoTime() when the tick started
+	 * @param endNanos System.nanoTime() when the tick finished
+	 */
+	public void recordTick(long startNanos, long endNanos) {
+		long duration = endNanos - startNanos;
+		mTickDuration.record(duration / 1000);
+		if (duration > mPeriodNanos) {
+			mOverruns++;
+		}
+		if (mStarted) {
+			mPeriod.record((startNanos - mLastTickStart) / 1000);
+		}
+		mLastTickStart = startNanos;
+		mStarted = true;
+	}
+
+	public String getName() {
+		return mName;
+	}
+
+	public int getLoopCount() {
+		return mLoopNames.size();
+	}
+
+	public String getLoopName(int index) {
+		return mLoopNames.get(index);
+	}
+
+	// Microseconds each loop's update took
+	public LatencyHistogram getLoopDuration(int index) {
+		return mLoopDurations.get(index);
+	}
+
+	// Microseconds every loop together took
+	public LatencyHistogram getTickDuration() {
+		return mTickDuration;
+	}
+
+	// Microseconds between the starts of ticks, jitter is how far this spreads from the loop period
+	public LatencyHistogram getPeriod() {
+		return mPeriod;
+	}
+
+	// Ticks that took longer than the loop period
+	public int getOverruns() {
+		return mOverruns;
+	}
+
+	/**
+	 * One line with the percentiles of everything, for the log
+	 */
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder(mName);
+		summary.append(" period ");
+		appendPercentiles(summary, mPeriod);
+		summary.append(", tick ");
+		appendPercentiles(summary, mTickDuration);
+		summary.append(", overruns ").append(mOverruns);
+		for (int i = 0; i < mLoopNames.size(); i++) {
+			summary.append(", ").append(mLoopNames.get(i)).append(' ');
+			appendPercentiles(summary, mLoopDurations.get(i));
+		}
+		return summary.toString();
+	}
+
+	private static void appendPercentiles(StringBuilder builder, LatencyHistogram histogram) {
+		builder.append("p50 ").append(histogram.getValueAtPercentile(50) / kMicrosPerMilli)
+				.append(" p99 ").append(histogram.getValueAtPercentile(99) / kMicrosPerMilli)
+				.append(" max ").append(histogram.getMax() / kMicrosPerMilli).append(" ms");
+	}
+
+	/**
+	 * Publishes p50, p99 and max in milliseconds
+	 */
+	public void outputToSmartDashboard() {
+		outputToSmartDashboard(mName + "_period", mPeriod);
+		outputToSmartDashboard(mName + "_tick", mTickDuration);
+		SmartDashboard.putNumber(mName + "_overruns", mOverruns);
+		for (int i = 0; i < mLoopNames.size(); i++) {
+			outputToSmartDashboard(mName + "_" + mLoopNames.get(i), mLoopDurations.get(i));
+		}
+	}
+
+	private static void outputToSmartDashboard(String key, LatencyHistogram histogram) {
+		SmartDashboard.putNumber(key + "_p50", histogram.getValueAtPercentile(50) / kMicrosPerMilli);
+		SmartDashboard.putNumber(key + "_p99", histogram.getValueAtPercentile(99) / kMicrosPerMilli);
+		SmartDashboard.putNumber(key + "_max", histogram.getMax() / kMicrosPerMilli);
+	}
+}
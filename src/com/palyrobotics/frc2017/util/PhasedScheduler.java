@@ -0,0 +1,288 @@
+package com.palyrobotics.frc2017.util;
+
+import com.palyrobotics.frc2017.robot.team254.lib.util.CrashTrackingRunnable;
+import com.palyrobotics.frc2017.robot.team254.lib.util.Loop;
+
+import edu.wpi.first.wpilibj.Notifier;
+
+import java.util.ArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs all of the robot's loops on one Notifier, in phases <br />
+ * Every tick runs the running phases in order: sensors are read, then subsystems update on them,
+ * then their outputs are written. Within a phase tasks run in the order they were registered. <br />
+ * Each task runs every few ticks depending on its period. When a tick runs over the period,
+ * lower priority tasks are skipped and run on a later tick instead, so they degrade to a lower rate
+ * while critical tasks keep theirs. A task is never skipped more than kMaxConsecutiveSkips ticks in a row,
+ * so even under sustained overruns every task keeps running at some rate. <br />
+ * The tick is the fastest any task can run, periods shorter than it are rejected.
+ */
+public class PhasedScheduler {
+	public enum Phase {
+		SENSE, SUBSYSTEMS, ACTUATE
+	}
+
+	public enum Priority {
+		// Never skipped
+		CRITICAL,
+		// Skipped once the tick has run over the period
+		NORMAL,
+		// Skipped once the tick has used kLowPriorityBudget of the period, or the last tick ran over
+		LOW
+	}
+
+	// Fraction of the period after which low priority tasks are skipped
+	private static final double kLowPriorityBudget = 0.5;
+	// Due ticks in a row a task can be skipped before it runs regardless of the tick's time
+	private static final int kMaxConsecutiveSkips = 5;
+
+	private static class Task {
+		final Phase phase;
+		final Priority priority;
+		final Loop loop;
+		final int periodTicks;
+		// Index in the timing stats
+		final int index;
+		long nextTick = 0;
+		int consecutiveSkips = 0;
+		volatile int skips = 0;
+
+		Task(Phase phase, Priority priority, Loop loop, int periodTicks, int index) {
+			this.phase = phase;
+			this.priority = priority;
+			this.loop = loop;
+			this.periodTicks = periodTicks;
+			this.index = index;
+		}
+	}
+
+	private final double mPeriod;
+	private final long mPeriodNanos;
+	private final LongSupplier mNanoClock;
+
+	// Tasks of each phase in the order they run
+	private final ArrayList<ArrayList<Task>> mPhases = new ArrayList<>();
+	private final ArrayList<Task> mTasks = new ArrayList<>();
+	private final boolean[] mPhaseRunning = new boolean[Phase.values().length];
+	private final Object mTaskRunningLock = new Object();
+	private final LoopTimingStats mTiming;
+	private long mTick = 0;
+	private boolean mLastTickOverran = false;
+
+	private Notifier mNotifier = null;
+	private boolean mStarted = false;
+
+	private final CrashTrackingRunnable mRunnable = new CrashTrackingRunnable() {
+		@Override
+		public void runCrashTracked() {
+			runTick();
+		}
+	};
+
+	/**
+	 * @param name used for the timing stats on the dashboard and in the log
+	 * @param period seconds between ticks, task periods are rounded to a multiple of this
+	 */
+	public PhasedScheduler(String name, double period) {
+		this(name, period, System::nanoTime);
+	}
+
+	/**
+	 * Tests pass a clock to make ticks run over, simulations pass their simulated clock and call {@link #runTick()}
+	 * instead of starting the scheduler
+	 */
+	public PhasedScheduler(String name, double period, LongSupplier nanoClock) {
+		mPeriod = period;
+		mPeriodNanos = (long) (period * 1e9);
+		mNanoClock = nanoClock;
+		mTiming = new LoopTimingStats(name, period);
+		for (int i = 0; i < Phase.values().length; i++) {
+			mPhases.add(new ArrayList<>());
+		}
+	}
+
+	/**
+	 * Adds a task that runs every tick
+	 */
+	public void register(String name, Phase phase, Priority priority, Loop loop) {
+		register(name, phase, priority, mPeriod, loop);
+	}
+
+	/**
+	 * Adds a task after the others in its phase, if the phase is running it is started right away
+	 * @param period seconds between updates, rounded to a multiple of the tick
+	 * @throws IllegalArgumentException if the period is shorter than one tick
+	 */
+	public synchronized void register(String name, Phase phase, Priority priority, double period, Loop loop) {
+		if (period < mPeriod * (1 - 1e-9)) {
+			throw new IllegalArgumentException(name + " period of " + period + " s is faster than the scheduler's tick of "
+					+ mPeriod + " s");
+		}
+		synchronized (mTaskRunningLock) {
+			int periodTicks = (int) Math.round(period / mPeriod);
+			Task task = new Task(phase, priority, loop, periodTicks, mTiming.addLoop(name));
+			mTasks.add(task);
+			mPhases.get(phase.ordinal()).add(task);
+			if (mPhaseRunning[phase.ordinal()]) {
+				loop.onStart();
+				task.nextTick = mTick;
+			}
+		}
+	}
+
+	/**
+	 * Starts ticking, only phases that were started run
+	 */
+	public synchronized void start() {
+		if (!mStarted) {
+			resetTiming();
+			if (mNotifier == null) {
+				mNotifier = new Notifier(mRunnable);
+			}
+			mNotifier.startPeriodic(mPeriod);
+			mStarted = true;
+		}
+	}
+
+	/**
+	 * Clears the timing stats and skip counts, so the next summary only covers what runs after this
+	 */
+	public void resetTiming() {
+		synchronized (mTaskRunningLock) {
+			mTiming.reset();
+			for (Task task : mTasks) {
+				task.skips = 0;
+			}
+			mLastTickOverran = false;
+		}
+	}
+
+	public synchronized void stop() {
+		if (mStarted) {
+			mNotifier.stop();
+			mStarted = false;
+		}
+	}
+
+	/**
+	 * Starts every task in the phase, they first update on the next tick
+	 */
+	public synchronized void startPhase(Phase phase) {
+		synchronized (mTaskRunningLock) {
+			if (mPhaseRunning[phase.ordinal()]) {
+				return;
+			}
+			System.out.println("Starting " + phase + " phase");
+			for (Task task : mPhases.get(phase.ordinal())) {
+				task.loop.onStart();
+				task.nextTick = mTick;
+			}
+			mPhaseRunning[phase.ordinal()] = true;
+		}
+	}
+
+	/**
+	 * Stops every task in the phase, none of them update after this returns
+	 */
+	public synchronized void stopPhase(Phase phase) {
+		synchronized (mTaskRunningLock) {
+			if (!mPhaseRunning[phase.ordinal()]) {
+				return;
+			}
+			System.out.println("Stopping " + phase + " phase");
+			mPhaseRunning[phase.ordinal()] = false;
+			for (Task task : mPhases.get(phase.ordinal())) {
+				task.loop.onStop();
+			}
+		}
+	}
+
+	public boolean isPhaseRunning(Phase phase) {
+		synchronized (mTaskRunningLock) {
+			return mPhaseRunning[phase.ordinal()];
+		}
+	}
+
+	/**
+	 * Runs one tick, called by the Notifier or by a simulation
+	 */
+	public void runTick() {
+		synchronized (mTaskRunningLock) {
+			long tickStart = mNanoClock.getAsLong();
+			long loopStart = tickStart;
+			for (int phase = 0; phase < mPhases.size(); phase++) {
+				if (!mPhaseRunning[phase]) {
+					continue;
+				}
+				ArrayList<Task> tasks = mPhases.get(phase);
+				for (int i = 0; i < tasks.size(); i++) {
+					Task task = tasks.get(i);
+					if (mTick < task.nextTick) {
+						continue;
+					}
+					if (task.consecutiveSkips < kMaxConsecutiveSkips && shouldSkip(task.priority, loopStart - tickStart)) {
+						// Still due, so it runs on the next tick that has time for it
+						task.skips++;
+						task.consecutiveSkips++;
+						continue;
+					}
+					task.consecutiveSkips = 0;
+					task.loop.update();
+					long loopEnd = mNanoClock.getAsLong();
+					mTiming.recordLoop(task.index, loopEnd - loopStart);
+					loopStart = loopEnd;
+					// A late task doesn't catch up, it waits its full period again
+					task.nextTick = mTick + task.periodTicks;
+				}
+			}
+			mTiming.recordTick(tickStart, loopStart);
+			mLastTickOverran = loopStart - tickStart > mPeriodNanos;
+			mTick++;
+		}
+	}
+
+	private boolean shouldSkip(Priority priority, long elapsedNanos) {
+		switch (priority) {
+			case NORMAL:
+				return elapsedNanos > mPeriodNanos;
+			case LOW:
+				return mLastTickOverran || elapsedNanos > kLowPriorityBudget * mPeriodNanos;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Update durations of every task, period and overruns since the scheduler was last started or reset
+	 */
+	public LoopTimingStats getTimingStats() {
+		return mTiming;
+	}
+
+	/**
+	 * @return how many times each task was skipped because a tick ran long, in registration order
+	 */
+	public int getSkips(int task) {
+		return mTasks.get(task).skips;
+	}
+
+	public int getTaskCount() {
+		return mTasks.size();
+	}
+
+	/**
+	 * The timing summary followed by how often each task was skipped, for the log
+	 */
+	public String getSummary() {
+		StringBuilder summary = new StringBuilder(mTiming.getSummary()).append(", skips");
+		for (int i = 0; i < mTasks.size(); i++) {
+			summary.append(' ').append(mTiming.getLoopName(i)).append(' ').append(mTasks.get(i).skips);
+		}
+		return summary.toString();
+	}
+
+	public void outputToSmartDashboard() {
+		mTiming.outputToSmartDashboard();
+	}
+}
@@ -62,18 +62,25 @@ public class Pose {
 	// TODO: Copy and equals methods
 	public Pose copy() {
 		Pose copy = new Pose();
-		copy.leftEnc = this.leftEnc;
-		copy.leftEncVelocity = this.leftEncVelocity;
-		copy.leftSpeed = this.leftSpeed;
-		copy.heading = this.heading;
-		copy.headingVelocity = this.headingVelocity;
-		copy.rightEnc = this.rightEnc;
-		copy.rightEncVelocity = this.rightEncVelocity;
-		copy.rightSpeed = this.rightSpeed;
-		copy.leftError = (this.leftError.isPresent()) ? Optional.of(this.leftError.get()) : Optional.empty();
-		copy.rightError = (this.rightError.isPresent()) ? Optional.of(this.rightError.get()) : Optional.empty();
+		copyInto(copy);
 		return copy;
 	}
+
+	/**
+	 * Overwrites dst with this pose without allocating, the Optionals are immutable so they are shared
+	 */
+	public void copyInto(Pose dst) {
+		dst.leftEnc = this.leftEnc;
+		dst.leftEncVelocity = this.leftEncVelocity;
+		dst.leftSpeed = this.leftSpeed;
+		dst.heading = this.heading;
+		dst.headingVelocity = this.headingVelocity;
+		dst.rightEnc = this.rightEnc;
+		dst.rightEncVelocity = this.rightEncVelocity;
+		dst.rightSpeed = this.rightSpeed;
+		dst.leftError = this.leftError;
+		dst.rightError = this.rightError;
+	}
 	
 	public boolean equals(Pose other) {
 		return this.leftEnc == other.leftEnc &&
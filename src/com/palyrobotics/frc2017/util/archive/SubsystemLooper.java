@@ -4,8 +4,14 @@ import com.palyrobotics.frc2017.config.Commands;
 import com.palyrobotics.frc2017.config.Constants;
 import com.palyrobotics.frc2017.config.RobotState;
 import com.palyrobotics.frc2017.robot.Robot;
+import com.palyrobotics.frc2017.robot.Serializer;
 import com.palyrobotics.frc2017.robot.team254.lib.util.CrashTrackingRunnable;
+import com.palyrobotics.frc2017.robot.team254.lib.util.Loop;
+import com.palyrobotics.frc2017.util.PhasedScheduler;
+import com.palyrobotics.frc2017.util.PhasedScheduler.Phase;
+import com.palyrobotics.frc2017.util.PhasedScheduler.Priority;
 import com.palyrobotics.frc2017.util.logger.Logger;
+import com.palyrobotics.frc2017.util.logger.MatchRecorder;
 
 import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.Timer;
@@ -16,20 +22,26 @@ import java.util.List;
 
 /**
  * Created by Nihar on 12/4/16.
- * Based on Team 254 {@link Looper}
+ * Based on Team 254 {@link Looper} <br />
+ * Runs the subsystems as tasks of the {@link PhasedScheduler}'s subsystem phase.
+ * The first task of the phase reads the RobotState and commands every subsystem updates on,
+ * what they computed is recorded first thing in the actuate phase, before it is written to the hardware.
  */
 public class SubsystemLooper {
 	// Whether to print or not
 	private boolean mAllowPrinting = false;
 	private final List<SubsystemLoop> mLoops;
 
-	// Used for the main loop
-	private boolean mRunning;
-	private final double kPeriod = Constants.kSubsystemLooperDt;
-	private final Notifier mNotifier;
-	private final Object mTaskRunningLock = new Object();
+	private final PhasedScheduler mScheduler;
 	private double mTimeStamp = 0;
 	private double mDt = 0;
+	// This thread's copy of the published RobotState
+	private final RobotState mRobotState = new RobotState();
+	private Commands mCommands = Robot.getCommands();
+	// Whether the subsystems updated since the last recording
+	private boolean mUpdated = false;
+	// Records each tick for replay, null when not recording
+	private volatile Serializer mSerializer = null;
 
 	// Used for secondary printer loop
 	private boolean mPrinting = false;
@@ -39,25 +51,52 @@ public class SubsystemLooper {
 	private double mPrintTimeStamp = 0;
 	private double mPrintDt = 0;
 
-	// Main method that is run at the update rate
-	private final SubsystemRunnable mRunnable = new SubsystemRunnable() {
+	// Reads what every subsystem updates on this tick
+	private final Loop mStateLoop = new Loop() {
 		@Override
-		public void runCrashTracked() {
-			synchronized (mTaskRunningLock) {
-				if (mRunning) {
-					double now = Timer.getFPGATimestamp();
-					Commands commands = Robot.getCommands();
-					RobotState robotState = Robot.getRobotState();
-					for (SubsystemLoop loop : mLoops) {
-						loop.update(commands, robotState);
-						Logger.getInstance().logSubsystemThread(loop.getStatus());
-					}
-					mDt = now - mTimeStamp;
-					mTimeStamp = now;
-				}
+		public void onStart() {
+			mTimeStamp = Timer.getFPGATimestamp();
+		}
+
+		@Override
+		public void update() {
+			double now = Timer.getFPGATimestamp();
+			mCommands = Robot.getCommands();
+			Robot.getRobotStatePublisher().read(mRobotState);
+			mDt = now - mTimeStamp;
+			mTimeStamp = now;
+			mUpdated = true;
+		}
+
+		@Override
+		public void onStop() {
+		}
+	};
+
+	// Records what the subsystems updated on
+	private final Loop mRecordLoop = new Loop() {
+		@Override
+		public void onStart() {
+		}
+
+		@Override
+		public void update() {
+			if (!mUpdated) {
+				return;
+			}
+			mUpdated = false;
+			MatchRecorder.getInstance().record(mTimeStamp, mRobotState, mCommands);
+			Serializer serializer = mSerializer;
+			if (serializer != null) {
+				serializer.recordSubsystemLoop(mTimeStamp, mRobotState, mCommands);
 			}
 		}
+
+		@Override
+		public void onStop() {
+		}
 	};
+
 	// Secondary method that is run at a slower update rate to print to console
 	private final CrashTrackingRunnable mPrinterRunnable = new CrashTrackingRunnable() {
 		@Override
@@ -76,34 +115,66 @@ public class SubsystemLooper {
 	};
 
 
-	public SubsystemLooper() {
+	/**
+	 * Register before the hardware's actuate task so recording happens before the outputs are written
+	 */
+	public SubsystemLooper(PhasedScheduler scheduler) {
 		mLoops = new ArrayList<>();
-		mNotifier = new Notifier(mRunnable);
-		mRunning = false;
+		mScheduler = scheduler;
+		mScheduler.register("subsystem_state", Phase.SUBSYSTEMS, Priority.CRITICAL, mStateLoop);
+		mScheduler.register("subsystem_record", Phase.ACTUATE, Priority.CRITICAL, mRecordLoop);
 
 		mPrintNotifier = new Notifier(mPrinterRunnable);
 		mPrinting = false;
 	}
 
-	public synchronized void register(SubsystemLoop loop) {
-		synchronized (mTaskRunningLock) {
-			System.out.println("Added loop: "+loop.toString());
-			mLoops.add(loop);
-		}
+	/**
+	 * Adds a subsystem that updates every tick
+	 */
+	public void register(SubsystemLoop loop, Priority priority) {
+		register(loop, priority, Constants.kSchedulerDt);
+	}
+
+	/**
+	 * Adds a subsystem after the ones already registered
+	 * @param priority whether it can be skipped when a tick runs long, the subsystem's output stays the same meanwhile
+	 * @param period seconds between updates
+	 */
+	public synchronized void register(SubsystemLoop loop, Priority priority, double period) {
+		System.out.println("Added loop: "+loop.toString());
+		mLoops.add(loop);
+		mScheduler.register(loop.toString(), Phase.SUBSYSTEMS, priority, period, new Loop() {
+			@Override
+			public void onStart() {
+				System.out.println("Starting " + loop.toString());
+				loop.start();
+			}
+
+			@Override
+			public void update() {
+				loop.update(mCommands, mRobotState);
+				Logger.getInstance().logSubsystemThread(loop.getStatus());
+			}
+
+			@Override
+			public void onStop() {
+				System.out.println("Stopping " + loop.toString());
+				loop.stop();
+			}
+		});
 	}
 	
+	/**
+	 * @param serializer records every tick from now on, null to stop
+	 */
+	public void setSerializer(Serializer serializer) {
+		mSerializer = serializer;
+	}
+
 	public synchronized void start() {
-		if (!mRunning) {
+		if (!mScheduler.isPhaseRunning(Phase.SUBSYSTEMS)) {
 			System.out.println("Starting loops");
-			synchronized (mTaskRunningLock) {
-				mTimeStamp = Timer.getFPGATimestamp();
-				for (SubsystemLoop loop : mLoops) {
-					System.out.println("Starting " + loop.toString());
-					loop.start();
-				}
-				mRunning = true;
-			}
-			mNotifier.startPeriodic(kPeriod);
+			mScheduler.startPhase(Phase.SUBSYSTEMS);
 		} else {
 			System.out.println("SubsystemLooper already running");
 		}
@@ -116,16 +187,9 @@ public class SubsystemLooper {
 	}
 
 	public synchronized void stop() {
-		if (mRunning) {
+		if (mScheduler.isPhaseRunning(Phase.SUBSYSTEMS)) {
 			System.out.println("Stopping loops");
-			mNotifier.stop();
-			synchronized (mTaskRunningLock) {
-				mRunning = false;
-				for (SubsystemLoop loop : mLoops) {
-					System.out.println("Stopping " + loop.toString());
-					loop.stop();
-				}
-			}
+			mScheduler.stopPhase(Phase.SUBSYSTEMS);
 		}
 //		if (mPrinting) {
 //			System.out.println("Stopping subsystem printer");
@@ -136,4 +200,4 @@ public class SubsystemLooper {
 	public void outputToSmartDashboard() {
 		SmartDashboard.putNumber("looper_dt", mDt);
 	}
-}
\ No newline at end of file
+}
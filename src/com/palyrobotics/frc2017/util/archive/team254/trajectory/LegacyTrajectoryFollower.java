@@ -25,7 +25,10 @@ public class LegacyTrajectoryFollower {
     
     private double last_calc_velocity_error;
     
-    private String canTableString;
+    // Values from the last calculate(), for the CAN table
+    private final double[] telemetry_ = new double[kTelemetryColumns];
+
+    public static final int kTelemetryColumns = 8;
 
     public LegacyTrajectoryFollower(String name) {
         this.name = name;
@@ -51,35 +54,39 @@ public class LegacyTrajectoryFollower {
     public double calculate(double distance_so_far) {
 
         if (current_segment < profile_.getNumSegments()) {
-            Trajectory.Segment segment = profile_.getSegment(current_segment);
-            double error = segment.pos - distance_so_far;
+            // Read fields directly, getSegment() would allocate every loop
+            int i = current_segment;
+            double segment_pos = profile_.getPos(i);
+            double segment_vel = profile_.getVel(i);
+            double segment_acc = profile_.getAcc(i);
+            double segment_dt = profile_.getDt(i);
+            double error = segment_pos - distance_so_far;
             
             double calc_velocity_error;
-            double speed = Math.abs((error - last_error_)) / segment.dt;
+            double speed = Math.abs((error - last_error_)) / segment_dt;
             double speed_tolerance = 1.0;
             
             if (speed < speed_tolerance) calc_velocity_error = last_calc_velocity_error;
-            else calc_velocity_error = ((error - last_error_)) / segment.dt - segment.vel;
-
-            double output = kp_ * error + kd_ * calc_velocity_error + kv_ * segment.vel + ka_ * segment.acc;
-
-            setCanTableString(new double[] {
-            		output,
-            		segment.pos,
-            		segment.vel,
-            		segment.acc,
-            		distance_so_far,
-            		(Robot.getRobotState().drivePose.leftSpeed/(12.0*Constants.kDriveSpeedUnitConversion)),
-//            		((error - last_error_)) / segment.dt,
-            		error,
-            		segment.vel-(Robot.getRobotState().drivePose.leftSpeed/(12.0*Constants.kDriveSpeedUnitConversion))
-//            		((error - last_error_)) / segment.dt - segment.vel
-            });
+            else calc_velocity_error = ((error - last_error_)) / segment_dt - segment_vel;
+
+            double output = kp_ * error + kd_ * calc_velocity_error + kv_ * segment_vel + ka_ * segment_acc;
+
+            double measured_speed = Robot.getRobotState().drivePose.leftSpeed/(12.0*Constants.kDriveSpeedUnitConversion);
+            telemetry_[0] = output;
+            telemetry_[1] = segment_pos;
+            telemetry_[2] = segment_vel;
+            telemetry_[3] = segment_acc;
+            telemetry_[4] = distance_so_far;
+            telemetry_[5] = measured_speed;
+//            telemetry_[5] = ((error - last_error_)) / segment_dt;
+            telemetry_[6] = error;
+            telemetry_[7] = segment_vel - measured_speed;
+//            telemetry_[7] = ((error - last_error_)) / segment_dt - segment_vel;
             
             last_error_ = error;
             last_calc_velocity_error = calc_velocity_error;
             
-            current_heading = segment.heading;
+            current_heading = profile_.getHeading(i);
             current_segment++;
             return output;
             
@@ -108,15 +115,11 @@ public class LegacyTrajectoryFollower {
         return profile_.getNumSegments();
     }
     
-    private void setCanTableString(double[] a) {
-    	canTableString = "";
-    	for(int i = 0; i < a.length-1; i++) {
-    		canTableString = canTableString + Double.toString(a[i]) + ", ";
-    	}
-    	canTableString = canTableString + Double.toString(a[a.length-1]);
-    }
-    
-    public String getCanTableString() {
-    	return this.canTableString;
+    /**
+     * Copies the last calculate()'s output, segment pos/vel/acc, distance, speed, error and velocity error
+     * into row, kTelemetryColumns of them starting at offset
+     */
+    public void copyTelemetry(double[] row, int offset) {
+        System.arraycopy(telemetry_, 0, row, offset, kTelemetryColumns);
     }
 }
@@ -0,0 +1,295 @@
+package com.palyrobotics.frc2017.util.archive.team254.trajectory;
+
+import com.palyrobotics.frc2017.robot.team254.lib.util.ChezyMath;
+import com.palyrobotics.frc2017.util.LatencyHistogram;
+import com.team254.lib.trajectory.Trajectory;
+
+/**
+ * PID + Feedforward controller for following a Trajectory by time instead of by segment.
+ *
+ * LegacyTrajectoryFollower moves one segment per call, so a late or skipped loop leaves
+ * the profile behind the clock and stretches the path. This follower samples the profile
+ * at the time since the first calculate(), interpolating between segments, so late loops
+ * just sample further along and the path takes as long as it was generated for.
+ * The control loop can run at a different rate than the profile's dt.
+ *
+ * Times are seconds on one clock, normally Timer.getFPGATimestamp().
+ * Nothing is allocated per call except in setTrajectory(), and nothing outside the arguments is read,
+ * so it can run on any thread.
+ */
+public class TimedTrajectoryFollower {
+
+    public static final int kTelemetryColumns = LegacyTrajectoryFollower.kTelemetryColumns;
+    // The FPGA clock's resolution, times this close to a segment's count as reaching it
+    private static final double kTimeEpsilon = 1e-6;
+
+    private double kp_;
+    private double ki_;  // Not currently used, but might be in the future.
+    private double kd_;
+    private double kv_;
+    private double ka_;
+    private double last_error_;
+    private double last_calc_velocity_error;
+
+    private double current_heading = 0;
+    private Trajectory profile_;
+    public String name;
+
+    // Time into the path each segment is the setpoint for, segment 0 at 0
+    private double[] segment_times_ = new double[0];
+    private double duration_;
+    private double start_time_;
+    private double last_time_;
+    private int current_segment;
+    private boolean started_;
+    private boolean finished_;
+
+    // Timing of the calls, in the loop's thread
+    private final long loop_period_micros_;
+    private final LatencyHistogram period_ = new LatencyHistogram();
+    private final LatencyHistogram jitter_ = new LatencyHistogram();
+    private int calls_;
+    private int overruns_;
+    private int segments_skipped_;
+    private double max_abs_error_;
+
+    // Values from the last calculate(), for the CAN table
+    private final double[] telemetry_ = new double[kTelemetryColumns];
+
+    /**
+     * @param loop_period seconds between calls the loop is meant to run at, jitter is measured from this
+     */
+    public TimedTrajectoryFollower(String name, double loop_period) {
+        this.name = name;
+        loop_period_micros_ = (long) (loop_period * 1e6);
+    }
+
+    public void configure(double kp, double ki, double kd, double kv, double ka) {
+        kp_ = kp;
+        ki_ = ki;
+        kd_ = kd;
+        kv_ = kv;
+        ka_ = ka;
+    }
+
+    /**
+     * Starts the profile over, the next calculate() is time 0
+     */
+    public void reset() {
+        last_error_ = 0.0;
+        last_calc_velocity_error = 0.0;
+        max_abs_error_ = 0.0;
+        current_segment = 0;
+        started_ = false;
+        finished_ = profile_ == null || profile_.getNumSegments() == 0;
+        period_.reset();
+        jitter_.reset();
+        calls_ = 0;
+        overruns_ = 0;
+        segments_skipped_ = 0;
+    }
+
+    public void setTrajectory(Trajectory profile) {
+        profile_ = profile;
+        int length = profile.getNumSegments();
+        segment_times_ = new double[length];
+        double time = 0;
+        for (int i = 0; i < length; ++i) {
+            segment_times_[i] = time;
+            time += profile.getDt(i);
+        }
+        duration_ = time;
+        reset();
+    }
+
+    /**
+     * @param distance_so_far distance the wheel has moved, in the profile's units
+     * @param measured_speed speed of this wheel in the profile's units per second, only recorded for telemetry
+     * @param now current time in seconds
+     * @return output for the wheel, 0 once the profile's duration has passed
+     */
+    public double calculate(double distance_so_far, double measured_speed, double now) {
+        if (finished_) {
+            return 0;
+        }
+        double dt;
+        if (!started_) {
+            started_ = true;
+            start_time_ = now;
+            dt = profile_.getDt(0);
+        } else {
+            dt = now - last_time_;
+            recordPeriod(dt);
+        }
+        last_time_ = now;
+        calls_++;
+
+        double elapsed = now - start_time_;
+        if (elapsed + kTimeEpsilon >= duration_) {
+            finished_ = true;
+            return 0;
+        }
+
+        // Segments only move forward, so this is usually zero or one step
+        int previous_segment = current_segment;
+        int last = segment_times_.length - 1;
+        while (current_segment < last && segment_times_[current_segment + 1] <= elapsed + kTimeEpsilon) {
+            current_segment++;
+        }
+        if (calls_ > 1 && current_segment - previous_segment > 1) {
+            segments_skipped_ += current_segment - previous_segment - 1;
+        }
+
+        int i = current_segment;
+        int next = Math.min(i + 1, last);
+        double fraction = 0;
+        if (next != i) {
+            fraction = (elapsed - segment_times_[i]) / (segment_times_[next] - segment_times_[i]);
+            fraction = Math.max(0, Math.min(1, fraction));
+        }
+        double segment_pos = interpolate(profile_.getPos(i), profile_.getPos(next), fraction);
+        double segment_vel = interpolate(profile_.getVel(i), profile_.getVel(next), fraction);
+        double segment_acc = interpolate(profile_.getAcc(i), profile_.getAcc(next), fraction);
+        double heading = profile_.getHeading(i);
+        current_heading = heading + fraction
+                * ChezyMath.getDifferenceInAngleRadians(heading, profile_.getHeading(next));
+
+        double error = segment_pos - distance_so_far;
+
+        // The error's rate of change is over the time that really passed, not the profile's dt
+        double calc_velocity_error;
+        if (dt <= 0) {
+            calc_velocity_error = last_calc_velocity_error;
+        } else {
+            double speed = Math.abs((error - last_error_)) / dt;
+            double speed_tolerance = 1.0;
+
+            if (speed < speed_tolerance) calc_velocity_error = last_calc_velocity_error;
+            else calc_velocity_error = ((error - last_error_)) / dt - segment_vel;
+        }
+
+        double output = kp_ * error + kd_ * calc_velocity_error + kv_ * segment_vel + ka_ * segment_acc;
+
+        telemetry_[0] = output;
+        telemetry_[1] = segment_pos;
+        telemetry_[2] = segment_vel;
+        telemetry_[3] = segment_acc;
+        telemetry_[4] = distance_so_far;
+        telemetry_[5] = measured_speed;
+        telemetry_[6] = error;
+        telemetry_[7] = segment_vel - measured_speed;
+
+        last_error_ = error;
+        max_abs_error_ = Math.max(max_abs_error_, Math.abs(error));
+        last_calc_velocity_error = calc_velocity_error;
+        return output;
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    private void recordPeriod(double seconds) {
+        long micros = (long) (seconds * 1e6);
+        period_.record(micros);
+        jitter_.record(Math.abs(micros - loop_period_micros_));
+        // Late enough that a whole loop was missed
+        if (2 * micros > 3 * loop_period_micros_) {
+            overruns_++;
+        }
+    }
+
+    /**
+     * @return Interpolated heading of the last sample
+     */
+    public double getHeading() {
+        return current_heading;
+    }
+
+    public boolean isFinishedTrajectory() {
+        return finished_;
+    }
+
+    public Trajectory.Segment getCurrentSegment() {
+        return profile_.getSegment(current_segment);
+    }
+
+    public int getCurrentSegmentNumber() {
+        return current_segment;
+    }
+
+    public int getNumSegments() {
+        return profile_.getNumSegments();
+    }
+
+    /**
+     * @return Seconds the whole profile takes
+     */
+    public double getDuration() {
+        return duration_;
+    }
+
+    /**
+     * @return Seconds since the first calculate(), 0 before it
+     */
+    public double getElapsed() {
+        return started_ ? last_time_ - start_time_ : 0;
+    }
+
+    // Microseconds between calls
+    public LatencyHistogram getPeriod() {
+        return period_;
+    }
+
+    // Microseconds each call's period was off the loop period
+    public LatencyHistogram getJitter() {
+        return jitter_;
+    }
+
+    /**
+     * @return Calls that came more than one and a half loop periods after the last
+     */
+    public int getOverruns() {
+        return overruns_;
+    }
+
+    /**
+     * @return Segments passed over between two calls without being sampled
+     */
+    public int getSegmentsSkipped() {
+        return segments_skipped_;
+    }
+
+    /**
+     * @return Distance the wheel was behind the time-indexed setpoint on the last call
+     */
+    public double getTrackingError() {
+        return last_error_;
+    }
+
+    /**
+     * @return Largest distance the wheel has been off the time-indexed setpoint since reset()
+     */
+    public double getMaxTrackingError() {
+        return max_abs_error_;
+    }
+
+    /**
+     * One line with the timing of the calls, for the log
+     */
+    public String getSummary() {
+        return name + " period p50 " + period_.getValueAtPercentile(50) / 1000.0
+                + " max " + period_.getMax() / 1000.0
+                + " ms, jitter p99 " + jitter_.getValueAtPercentile(99) / 1000.0
+                + " ms, overruns " + overruns_ + ", segments skipped " + segments_skipped_
+                + ", tracking error " + last_error_ + " max " + max_abs_error_;
+    }
+
+    /**
+     * Copies the last calculate()'s output, segment pos/vel/acc, distance, speed, error and velocity error
+     * into row, kTelemetryColumns of them starting at offset
+     */
+    public void copyTelemetry(double[] row, int offset) {
+        System.arraycopy(telemetry_, 0, row, offset, kTelemetryColumns);
+    }
+}
@@ -0,0 +1,184 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps a log file open as a FileChannel and batches writes through one reusable direct buffer.
+ *
+ * Buffered text reaches the file when more than flushBytes are waiting, when the oldest buffered text is
+ * older than flushIntervalMs (checked by {@link #flushIfDue(long)}), or when {@link #flush(boolean)} is called.
+ * Once a flush leaves the file past rolloverBytes the next write goes to a new file in the same directory,
+ * log.log continues in log-1.log, log-2.log and so on.
+ *
+ * Not thread safe, only the Logger writer thread uses it.
+ */
+class LogFileWriter {
+	private final File mFirstFile;
+	private final int mFlushBytes;
+	private final long mFlushIntervalMs;
+	private final long mRolloverBytes;
+
+	private final ByteBuffer mBytes;
+	private final CharBuffer mChars;
+	private final CharsetEncoder mEncoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	private FileChannel mChannel;
+	private File mFile;
+	private int mPart = 0;
+	private long mFileBytes = 0;
+	// Time the oldest unflushed text was buffered, or -1 if the buffer is empty
+	private long mBufferedSinceMs = -1;
+
+	LogFileWriter(File file, int bufferBytes, int flushBytes, long flushIntervalMs, long rolloverBytes) {
+		mFirstFile = file;
+		mFlushBytes = Math.min(flushBytes, bufferBytes);
+		mFlushIntervalMs = flushIntervalMs;
+		mRolloverBytes = rolloverBytes;
+		mBytes = ByteBuffer.allocateDirect(bufferBytes);
+		mChars = CharBuffer.allocate(1024);
+	}
+
+	/**
+	 * Opens (or reopens and appends to) the current file
+	 */
+	void open() throws IOException {
+		openFile((mFile != null) ? mFile : mFirstFile);
+	}
+
+	/**
+	 * Appends the text to the buffer, writing the buffer out if it passes the size threshold
+	 */
+	void write(CharSequence text) throws IOException {
+		if (mBufferedSinceMs < 0) {
+			mBufferedSinceMs = System.currentTimeMillis();
+		}
+		int length = text.length();
+		int start = 0;
+		while (start < length) {
+			int end = Math.min(length, start + mChars.remaining());
+			if (text instanceof String) {
+				((String) text).getChars(start, end, mChars.array(), mChars.position());
+			} else if (text instanceof StringBuilder) {
+				((StringBuilder) text).getChars(start, end, mChars.array(), mChars.position());
+			} else {
+				for (int i = start; i < end; i++) {
+					mChars.array()[mChars.position() + i - start] = text.charAt(i);
+				}
+			}
+			mChars.position(mChars.position() + end - start);
+			start = end;
+			encode(false);
+		}
+		if (mBytes.position() >= mFlushBytes || (mRolloverBytes > 0 && mFileBytes >= mRolloverBytes)) {
+			flush(false);
+		}
+	}
+
+	/**
+	 * Writes the buffer out if the oldest buffered text is older than the flush interval
+	 */
+	void flushIfDue(long nowMs) throws IOException {
+		if (mBufferedSinceMs >= 0 && nowMs - mBufferedSinceMs >= mFlushIntervalMs) {
+			flush(false);
+		}
+	}
+
+	/**
+	 * Writes everything buffered to the channel
+	 * @param force also force the file contents to the storage device
+	 */
+	void flush(boolean force) throws IOException {
+		flushBuffer(force);
+		// Only roll over here, between lines, so a line is never split across files
+		if (mRolloverBytes > 0 && mFileBytes >= mRolloverBytes && mChannel != null) {
+			rollover();
+		}
+	}
+
+	/**
+	 * Flushes, forces and closes the file
+	 */
+	void close() throws IOException {
+		flushBuffer(true);
+		if (mChannel != null) {
+			mChannel.close();
+			mChannel = null;
+		}
+	}
+
+	File getFile() {
+		return mFile;
+	}
+
+	private void flushBuffer(boolean force) throws IOException {
+		encode(true);
+		writeBytes();
+		mBufferedSinceMs = -1;
+		if (force && mChannel != null) {
+			mChannel.force(false);
+		}
+	}
+
+	// Moves pending chars into the byte buffer, writing the byte buffer whenever it fills up
+	private void encode(boolean endOfInput) throws IOException {
+		mChars.flip();
+		while (true) {
+			CoderResult result = mEncoder.encode(mChars, mBytes, false);
+			if (result.isOverflow()) {
+				writeBytes();
+			} else {
+				break;
+			}
+		}
+		// A dangling high surrogate stays in mChars until the rest of the pair arrives
+		mChars.compact();
+		if (endOfInput && mChars.position() > 0) {
+			mChars.clear();
+		}
+	}
+
+	private void writeBytes() throws IOException {
+		mBytes.flip();
+		if (mChannel != null) {
+			while (mBytes.hasRemaining()) {
+				mFileBytes += mChannel.write(mBytes);
+			}
+		}
+		mBytes.clear();
+	}
+
+	private void rollover() throws IOException {
+		mChannel.close();
+		String name = mFirstFile.getName();
+		int dot = name.lastIndexOf('.');
+		String base = (dot < 0) ? name : name.substring(0, dot);
+		String extension = (dot < 0) ? "" : name.substring(dot);
+		File next;
+		do {
+			mPart++;
+			next = new File(mFirstFile.getParentFile(), base + "-" + mPart + extension);
+		} while (next.exists());
+		openFile(next);
+	}
+
+	private void openFile(File file) throws IOException {
+		if (mChannel != null) {
+			mChannel.close();
+		}
+		mChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		mFile = file;
+		mFileBytes = mChannel.size();
+	}
+}
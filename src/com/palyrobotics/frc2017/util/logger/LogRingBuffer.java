@@ -0,0 +1,182 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single producer, single consumer ring of preallocated log records.
+ * Each thread that logs owns one of these, so the producer side never takes a lock or allocates.
+ * The Logger writer thread is the only consumer.
+ *
+ * A record is a timestamp, a key id (or kNoKey) and either a primitive value or a slice of chars.
+ * When the ring is full new records are dropped and counted, the producer never waits.
+ * The ring only weakly references the thread that owns it, so the Logger can let go of it once that thread dies.
+ */
+class LogRingBuffer {
+	static final int kNoKey = -1;
+
+	static final byte kTypeChars = 0;
+	static final byte kTypeDouble = 1;
+	static final byte kTypeLong = 2;
+	static final byte kTypeBoolean = 3;
+
+	private final int mCapacity;
+	private final int mMask;
+	private final int mMaxChars;
+	private final String mThreadName;
+	private final WeakReference<Thread> mOwner;
+
+	private final long[] mTimes;
+	private final int[] mKeys;
+	private final byte[] mTypes;
+	private final long[] mValues;
+	private final char[] mChars;
+	private final int[] mLengths;
+
+	// Next slot the producer writes, only advanced by the producer
+	private final AtomicLong mHead = new AtomicLong();
+	// Next slot the consumer reads, only advanced by the consumer
+	private final AtomicLong mTail = new AtomicLong();
+	// Producer side copy of the tail, refreshed only when the ring looks full
+	private long mCachedTail = 0;
+	private volatile long mDropped = 0;
+
+	/**
+	 * @param capacity number of records, rounded up to a power of two
+	 * @param maxChars longest char slice kept per record, longer text is truncated
+	 */
+	LogRingBuffer(int capacity, int maxChars, Thread owner) {
+		mCapacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		mMask = mCapacity - 1;
+		mMaxChars = maxChars;
+		mThreadName = owner.getName();
+		mOwner = new WeakReference<>(owner);
+		mTimes = new long[mCapacity];
+		mKeys = new int[mCapacity];
+		mTypes = new byte[mCapacity];
+		mValues = new long[mCapacity];
+		mChars = new char[mCapacity * maxChars];
+		mLengths = new int[mCapacity];
+	}
+
+	/**
+	 * Claims the next slot, or returns -1 and counts a drop if the ring is full
+	 */
+	private int claim() {
+		long head = mHead.get();
+		if (head - mCachedTail >= mCapacity) {
+			mCachedTail = mTail.get();
+			if (head - mCachedTail >= mCapacity) {
+				mDropped++;
+				return -1;
+			}
+		}
+		return (int) (head & mMask);
+	}
+
+	private void publish() {
+		mHead.lazySet(mHead.get() + 1);
+	}
+
+	boolean add(long time, int key, CharSequence value) {
+		int slot = claim();
+		if (slot < 0) {
+			return false;
+		}
+		int length = Math.min(value.length(), mMaxChars);
+		int offset = slot * mMaxChars;
+		if (value instanceof String) {
+			((String) value).getChars(0, length, mChars, offset);
+		} else {
+			for (int i = 0; i < length; i++) {
+				mChars[offset + i] = value.charAt(i);
+			}
+		}
+		mTimes[slot] = time;
+		mKeys[slot] = key;
+		mTypes[slot] = kTypeChars;
+		mLengths[slot] = length;
+		publish();
+		return true;
+	}
+
+	boolean add(long time, int key, byte type, long value) {
+		int slot = claim();
+		if (slot < 0) {
+			return false;
+		}
+		mTimes[slot] = time;
+		mKeys[slot] = key;
+		mTypes[slot] = type;
+		mValues[slot] = value;
+		publish();
+		return true;
+	}
+
+	/*
+	 * Consumer side, the reads below are only valid for positions between the tail and a head
+	 * read with available()
+	 */
+	long tail() {
+		return mTail.get();
+	}
+
+	long available() {
+		return mHead.get();
+	}
+
+	long timeAt(long position) {
+		return mTimes[(int) (position & mMask)];
+	}
+
+	/**
+	 * Appends the record at this position to the builder as "key: value"
+	 */
+	void appendTo(long position, StringBuilder builder, String[] keyNames) {
+		int slot = (int) (position & mMask);
+		if (mKeys[slot] != kNoKey) {
+			builder.append(keyNames[mKeys[slot]]).append(": ");
+		}
+		switch (mTypes[slot]) {
+			case kTypeChars:
+				builder.append(mChars, slot * mMaxChars, mLengths[slot]);
+				break;
+			case kTypeDouble:
+				builder.append(Double.longBitsToDouble(mValues[slot]));
+				break;
+			case kTypeLong:
+				builder.append(mValues[slot]);
+				break;
+			case kTypeBoolean:
+				builder.append(mValues[slot] != 0);
+				break;
+		}
+	}
+
+	/**
+	 * Releases every slot before this position back to the producer
+	 */
+	void consumeTo(long position) {
+		mTail.lazySet(position);
+	}
+
+	long getDropped() {
+		return mDropped;
+	}
+
+	int getCapacity() {
+		return mCapacity;
+	}
+
+	String getThreadName() {
+		return mThreadName;
+	}
+
+	/**
+	 * Once this is false nothing else will be added, every record is visible to the consumer
+	 */
+	boolean isOwnerAlive() {
+		Thread owner = mOwner.get();
+		return owner != null && owner.isAlive();
+	}
+}
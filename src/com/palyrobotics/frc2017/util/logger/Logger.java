@@ -1,16 +1,14 @@
 package com.palyrobotics.frc2017.util.logger;
 
-import com.google.common.base.Charsets;
 import com.google.common.io.Files;
+import com.palyrobotics.frc2017.config.Constants;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Log is at /home/lvuser/logs/fileName directory
@@ -20,7 +18,12 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  * If log file exists on first start, automatically creates new file
  *
  * If run on roboRIO, will attempt to copy the driverstation console log to this directory to save it
- * No longer uses bufferedwriter, uses Guava Files to append to file
+ * Keeps the log file open and batches writes, see LogFileWriter for the flush and rollover policy
+ *
+ * Every thread that logs gets its own lock-free ring buffer of preallocated records (see LogRingBuffer),
+ * the writer thread merges them in timestamp order and releases a ring once its thread has died and it is drained.
+ * Logging strings and primitives does not allocate,
+ * other objects still pay for their toString(). Records are dropped and counted if a ring fills up.
  *
  * FYI, buffered writer closes the underlying filewriter and flushes the buffer
  */
@@ -34,20 +37,38 @@ public class Logger {
 
 	private boolean isEnabled = false;
 	
-	private ArrayList<TimestampedString> mData;
-	// Separates to prevent concurrent modification exception
-	private ArrayList<TimestampedString> mSubsystemThreadLogs = new ArrayList<>();
-	private ArrayList<TimestampedString> mRobotThreadLogs = new ArrayList<>();
-	private ConcurrentLinkedQueue<TimestampedString> mUnknownThreadLogs = new ConcurrentLinkedQueue<TimestampedString>();
+	// Records per thread ring, and the longest string kept per record
+	private static final int kRingCapacity = 1024;
+	private static final int kMaxRecordChars = 256;
+	// How often the writer thread drains the rings
+	private static final int kWriteIntervalMs = 100;
+
+	// One ring per logging thread, each ring has exactly one producer
+	private final CopyOnWriteArrayList<LogRingBuffer> mRings = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<LogRingBuffer> mThreadRing = ThreadLocal.withInitial(() -> {
+		LogRingBuffer ring = new LogRingBuffer(kRingCapacity, kMaxRecordChars, Thread.currentThread());
+		mRings.add(ring);
+		return ring;
+	});
+
+	// Keys are interned to ids so that records only store an int
+	private final ConcurrentHashMap<String, Integer> mKeyIds = new ConcurrentHashMap<>();
+	private volatile String[] mKeyNames = new String[0];
 
 	// synchronized lock for writing out the latest data
 	private final Object writingLock = new Object();
+	private final StringBuilder mLineBuilder = new StringBuilder(kMaxRecordChars * 2);
+	// Records dropped by rings that have since been released
+	private volatile long mReleasedDropped = 0;
+	private long mReportedDropped = 0;
 	private Thread mWritingThread = null;
+	private volatile boolean mStopRequested = false;
 	// Stores the runnable for the thread to be restarted
 	private Runnable mRunnable;
 
 	private int duplicatePrevent = 0;
 	private File mainLog;
+	private LogFileWriter mWriter;
 
 	// Finds the driver station console output
 	private File rioLog;
@@ -67,7 +88,25 @@ public class Logger {
 	public void start() {
 		// If initialized before, then recreate the buffered writer and re-enable
 		if (mWritingThread != null) {
+			if (mWritingThread.isAlive() && !mStopRequested) {
+				// Already running
+				isEnabled = true;
+				return;
+			}
+			// Let the previous writer thread finish closing the file first
+			try {
+				mWritingThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			try {
+				mWriter.open();
+			} catch (IOException e) {
+				System.err.println("Failed to reopen log at "+mWriter.getFile());
+				e.printStackTrace();
+			}
 			isEnabled = true;
+			mStopRequested = false;
 			mWritingThread = new Thread(mRunnable);
 			mWritingThread.start();
 			return;
@@ -95,11 +134,15 @@ public class Logger {
 			duplicatePrevent++;
 			mainLog = new File(filePath+File.separatorChar+"log"+duplicatePrevent+".log");
 		}
+		mWriter = new LogFileWriter(mainLog, Constants.kLoggerBufferBytes, Constants.kLoggerFlushBytes,
+				Constants.kLoggerFlushIntervalMs, Constants.kLoggerRolloverBytes);
 		try {
 			// File header
 			Files.createParentDirs(mainLog);
-			Files.append("Robot log:"+ "\n", mainLog, Charsets.UTF_8);
-			Files.append(date.toString()+ "\n", mainLog, Charsets.UTF_8);
+			mWriter.open();
+			mWriter.write("Robot log:"+ "\n");
+			mWriter.write(date.toString()+ "\n");
+			mWriter.flush(false);
 			System.out.println("Created new log at " + filePath);
 		} catch (IOException e) {
 			System.err.println("Failed to create log at "+filePath);
@@ -114,14 +157,10 @@ public class Logger {
 
 	/**
 	 * Called on subsystem thread
-	 * @param value
+	 * @param value Strings are copied without allocating, other objects call .toString()
 	 */
 	public void logSubsystemThread(Object value) {
-		try {
-			mSubsystemThreadLogs.add(new TimestampedString(value.toString()));
-		} catch (ConcurrentModificationException e) {
-			System.err.println("Attempted concurrent modification on subsystem logger");
-		}
+		log(LogRingBuffer.kNoKey, value);
 	}
 
 	/**
@@ -130,23 +169,28 @@ public class Logger {
 	 * @param value will call .toString()
 	 */
 	public void logSubsystemThread(String key, Object value) {
-		try {
-			mSubsystemThreadLogs.add(new TimestampedString(key + ": " + value.toString()));
-		} catch (ConcurrentModificationException e) {
-			System.err.println("Attempted concurrent modification on subsystem logger");
-		}
+		log(keyId(key), value);
+	}
+
+	public void logSubsystemThread(String key, double value) {
+		threadRing().add(System.currentTimeMillis(), keyId(key), LogRingBuffer.kTypeDouble,
+				Double.doubleToRawLongBits(value));
+	}
+
+	public void logSubsystemThread(String key, long value) {
+		threadRing().add(System.currentTimeMillis(), keyId(key), LogRingBuffer.kTypeLong, value);
+	}
+
+	public void logSubsystemThread(String key, boolean value) {
+		threadRing().add(System.currentTimeMillis(), keyId(key), LogRingBuffer.kTypeBoolean, value ? 1 : 0);
 	}
 
 	/**
 	 * Called on robot thread
-	 * @param value
+	 * @param value Strings are copied without allocating, other objects call .toString()
 	 */
 	public void logRobotThread(Object value) {
-		try {
-			mRobotThreadLogs.add(new TimestampedString(value.toString()));
-		} catch (ConcurrentModificationException e) {
-			System.err.println("Attempted concurrent modification on robot logger");
-		}
+		log(LogRingBuffer.kNoKey, value);
 	}
 
 	/**
@@ -155,39 +199,137 @@ public class Logger {
 	 * @param value will call .toString()
 	 */
 	public void logRobotThread(String key, Object value) {
-		try {
-			mRobotThreadLogs.add(new TimestampedString(key + ": " + value.toString()));
-		} catch (ConcurrentModificationException e) {
-			System.err.println("Attempted concurrent modification on robot logger");
+		log(keyId(key), value);
+	}
+
+	public void logRobotThread(String key, double value) {
+		logSubsystemThread(key, value);
+	}
+
+	public void logRobotThread(String key, long value) {
+		logSubsystemThread(key, value);
+	}
+
+	public void logRobotThread(String key, boolean value) {
+		logSubsystemThread(key, value);
+	}
+
+	/**
+	 * @return number of records dropped because a thread's ring was full
+	 */
+	public long getDroppedCount() {
+		long dropped = mReleasedDropped;
+		for (LogRingBuffer ring : mRings) {
+			dropped += ring.getDropped();
 		}
+		return dropped;
 	}
-	
+
+	private void log(int key, Object value) {
+		CharSequence chars = (value instanceof CharSequence) ? (CharSequence) value : String.valueOf(value);
+		threadRing().add(System.currentTimeMillis(), key, chars);
+	}
+
+	/**
+	 * @return the calling thread's ring, created on its first record
+	 */
+	LogRingBuffer threadRing() {
+		return mThreadRing.get();
+	}
+
+	private int keyId(String key) {
+		Integer id = mKeyIds.get(key);
+		return (id != null) ? id : registerKey(key);
+	}
+
+	private synchronized int registerKey(String key) {
+		Integer id = mKeyIds.get(key);
+		if (id != null) {
+			return id;
+		}
+		String[] names = Arrays.copyOf(mKeyNames, mKeyNames.length + 1);
+		names[names.length - 1] = key;
+		// Publish the name before the id so the writer can always resolve it
+		mKeyNames = names;
+		mKeyIds.put(key, names.length - 1);
+		return names.length - 1;
+	}
+
+	/**
+	 * Merges everything currently in the rings into one timestamp ordered stream
+	 * Must hold writingLock
+	 */
+	private void drain() throws IOException {
+		List<LogRingBuffer> rings = mRings;
+		int count = rings.size();
+		long[] cursors = new long[count];
+		long[] limits = new long[count];
+		for (int i = 0; i < count; i++) {
+			cursors[i] = rings.get(i).tail();
+			limits[i] = rings.get(i).available();
+		}
+		String[] keyNames = mKeyNames;
+		while (true) {
+			int next = -1;
+			long nextTime = Long.MAX_VALUE;
+			for (int i = 0; i < count; i++) {
+				if (cursors[i] < limits[i]) {
+					long time = rings.get(i).timeAt(cursors[i]);
+					if (time < nextTime) {
+						nextTime = time;
+						next = i;
+					}
+				}
+			}
+			if (next < 0) {
+				break;
+			}
+			mLineBuilder.setLength(0);
+			mLineBuilder.append(nextTime / 1000).append(": ");
+			rings.get(next).appendTo(cursors[next], mLineBuilder, keyNames);
+			mLineBuilder.append('\n');
+			cursors[next]++;
+			write(mLineBuilder);
+		}
+		for (int i = 0; i < count; i++) {
+			LogRingBuffer ring = rings.get(i);
+			ring.consumeTo(cursors[i]);
+			// Check the owner first, a dead thread has published everything it will ever add
+			if (!ring.isOwnerAlive() && ring.available() == cursors[i]) {
+				mReleasedDropped += ring.getDropped();
+				mRings.remove(ring);
+			}
+		}
+		long dropped = getDroppedCount();
+		if (dropped != mReportedDropped) {
+			write("Logger dropped " + (dropped - mReportedDropped) + " records, " + dropped + " total\n");
+			mReportedDropped = dropped;
+		}
+	}
+
+	private void write(CharSequence data) throws IOException {
+		mWriter.write(data);
+	}
+
 	public synchronized void cleanup() {
+		mStopRequested = true;
 		mWritingThread.interrupt();
 	}
 	private Logger() {
-		mData = new ArrayList<>();
 		mRunnable = () -> {
 			while (true) {
-					synchronized (writingLock) {
-						if (isEnabled) {
-							mData = new ArrayList<>(mRobotThreadLogs);
-							mData.addAll(mSubsystemThreadLogs);
-							mData.sort(TimestampedString::compareTo);
-							mSubsystemThreadLogs.clear();
-							mRobotThreadLogs.clear();
-							mData.forEach((TimestampedString c) -> {
-								try {
-									Files.append(c.getTimestampedString(), mainLog, Charsets.UTF_8);
-								} catch (IOException e) {
-									e.printStackTrace();
-								}
-							});
-							mData.clear();
+				synchronized (writingLock) {
+					if (isEnabled) {
+						try {
+							drain();
+							mWriter.flushIfDue(System.currentTimeMillis());
+						} catch (IOException e) {
+							e.printStackTrace();
 						}
 					}
+				}
 				try {
-					Thread.sleep(500);
+					Thread.sleep(kWriteIntervalMs);
 				} catch (InterruptedException e){
 					shutdown();
 					return;
@@ -202,7 +344,9 @@ public class Logger {
 	}
 
 	public String getLogPath() {
-		if (mainLog != null) {
+		if (mWriter != null && mWriter.getFile() != null) {
+			return mWriter.getFile().getAbsolutePath();
+		} else if (mainLog != null) {
 			return mainLog.getAbsolutePath();
 		} else {
 			return "NoLogYet";
@@ -213,22 +357,15 @@ public class Logger {
 	private synchronized void shutdown() {
 		System.out.println("Shutting down");
 		synchronized (writingLock) {
-			mData = new ArrayList<>(mRobotThreadLogs);
-			mData.addAll(mSubsystemThreadLogs);
-			mData.sort(TimestampedString::compareTo);
-			mData.forEach((TimestampedString c) -> {
-				try {
-					Files.append(c.getTimestampedString(), mainLog, Charsets.UTF_8);
-				} catch (IOException e) {
-					System.out.println("Unable to write last strings");
-					e.printStackTrace();
-				}
-			});
-			mRobotThreadLogs.clear();
-			mSubsystemThreadLogs.clear();
-			mData.clear();
 			try {
-				Files.append("Logger stopped \n", mainLog, Charsets.UTF_8);
+				drain();
+			} catch (IOException e) {
+				System.out.println("Unable to write last strings");
+				e.printStackTrace();
+			}
+			try {
+				mWriter.write("Logger stopped \n");
+				mWriter.close();
 			} catch (IOException e) {
 				System.out.println("Unable to write, logger stopped");
 				e.printStackTrace();
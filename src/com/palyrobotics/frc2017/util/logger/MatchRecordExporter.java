@@ -0,0 +1,106 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Converts a match recording to CSV or JSON for the Python graphers
+ *
+ * Usage: MatchRecordExporter recording.rec [csv|json] [output file]
+ * CSV has a header row of field names with time first, enums are written by name and missing values are empty.
+ * JSON is {"schemaVersion": n, "fields": [...], "frames": [[time, ...], ...]} with null for missing values.
+ */
+public class MatchRecordExporter {
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: MatchRecordExporter recording.rec [csv|json] [output file]");
+			System.exit(1);
+		}
+		File input = new File(args[0]);
+		String format = (args.length >= 2) ? args[1] : "csv";
+		String name = input.getName();
+		int dot = name.lastIndexOf('.');
+		File output = (args.length >= 3) ? new File(args[2])
+				: new File(input.getParentFile(), ((dot < 0) ? name : name.substring(0, dot)) + "." + format);
+		try {
+			MatchRecordReader reader = new MatchRecordReader(input);
+			try (Writer writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+				if (format.equals("json")) {
+					writeJson(reader, writer);
+				} else {
+					writeCsv(reader, writer);
+				}
+			}
+			System.out.println("Wrote " + reader.getFrameCount() + " frames to " + output);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	public static void writeCsv(MatchRecordReader reader, Writer writer) throws IOException {
+		List<MatchRecordSchema.RecordedField> fields = reader.getFields();
+		writer.write("time");
+		for (MatchRecordSchema.RecordedField field : fields) {
+			writer.write(",");
+			writer.write(field.name);
+		}
+		writer.write("\n");
+		for (int frame = 0; frame < reader.getFrameCount(); frame++) {
+			writer.write(Double.toString(reader.getTimestamp(frame)));
+			for (int i = 0; i < fields.size(); i++) {
+				writer.write(",");
+				String value = format(fields.get(i), reader.getValue(frame, i));
+				if (value != null) {
+					writer.write(value);
+				}
+			}
+			writer.write("\n");
+		}
+	}
+
+	public static void writeJson(MatchRecordReader reader, Writer writer) throws IOException {
+		List<MatchRecordSchema.RecordedField> fields = reader.getFields();
+		writer.write("{\"schemaVersion\": " + reader.getSchemaVersion() + ", \"fields\": [\"time\"");
+		for (MatchRecordSchema.RecordedField field : fields) {
+			writer.write(", \"" + field.name + "\"");
+		}
+		writer.write("], \"frames\": [");
+		for (int frame = 0; frame < reader.getFrameCount(); frame++) {
+			writer.write((frame == 0) ? "\n[" : ",\n[");
+			writer.write(Double.toString(reader.getTimestamp(frame)));
+			for (int i = 0; i < fields.size(); i++) {
+				String value = format(fields.get(i), reader.getValue(frame, i));
+				writer.write(", ");
+				if (value == null) {
+					writer.write("null");
+				} else if (fields.get(i).type == MatchRecordFormat.kTypeEnum) {
+					writer.write("\"" + value + "\"");
+				} else {
+					writer.write(value);
+				}
+			}
+			writer.write("]");
+		}
+		writer.write("\n]}\n");
+	}
+
+	/**
+	 * @return the value as text, or null if it is missing
+	 */
+	private static String format(MatchRecordSchema.RecordedField field, double value) {
+		switch (field.type) {
+			case MatchRecordFormat.kTypeEnum:
+				int ordinal = (int) value;
+				return (ordinal >= 0 && ordinal < field.enumNames.size()) ? field.enumNames.get(ordinal) : null;
+			case MatchRecordFormat.kTypeBoolean:
+				return (value != 0) ? "true" : "false";
+			default:
+				return Double.isNaN(value) ? null : Double.toString(value);
+		}
+	}
+}
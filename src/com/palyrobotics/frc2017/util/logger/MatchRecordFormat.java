@@ -0,0 +1,347 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import com.ctre.CANTalon;
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.subsystems.Climber;
+import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.subsystems.Intake;
+import com.palyrobotics.frc2017.subsystems.Slider;
+import com.palyrobotics.frc2017.subsystems.Spatula;
+import com.palyrobotics.frc2017.util.CANTalonOutput;
+import com.palyrobotics.frc2017.util.archive.DriveSignal;
+import edu.wpi.first.wpilibj.DoubleSolenoid;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Binary layout of a match recording, see {@link MatchRecorder} and {@link MatchRecordReader}
+ *
+ * File layout (big endian):
+ *   header:  int magic, int header size, int format version, int schema version, int frames per block,
+ *            int frame size, int field count, then per field: byte type, name, and for enums the constant names
+ *            (strings are a short length followed by UTF-8 bytes), zero padded to a multiple of 8
+ *   blocks:  kFramesPerBlock frames followed by one index block, repeated
+ *   tail:    up to kFramesPerBlock - 1 frames without an index block
+ *
+ * A frame is a double FPGA timestamp followed by every field of the schema.
+ * An index block is int marker, int block number, double first timestamp, double last timestamp, int frame count, int padding.
+ * Absent Optionals are stored as NaN.
+ */
+public class MatchRecordFormat {
+	public static final int kMagic = 0x4D524543;	// "MREC"
+	public static final int kFormatVersion = 1;
+	// Bump whenever fields are added, removed or reordered
+	public static final int kSchemaVersion = 1;
+	public static final int kFramesPerBlock = 128;
+	public static final int kIndexMarker = 0x49445830;	// "IDX0"
+	public static final int kIndexBlockSize = 32;
+
+	public static final byte kTypeDouble = 0;
+	public static final byte kTypeEnum = 1;
+	public static final byte kTypeBoolean = 2;
+
+	public interface Getter {
+		double get(RobotState state, Commands commands);
+	}
+
+	public interface Setter {
+		void set(RobotState state, Commands commands, double value);
+	}
+
+	/**
+	 * One recorded value, read out of RobotState and Commands as a double
+	 */
+	public static class Field {
+		public final String name;
+		public final byte type;
+		// Constant names for enum fields, empty otherwise
+		public final List<String> enumNames;
+		final Getter getter;
+		final Setter setter;
+
+		Field(String name, byte type, List<String> enumNames, Getter getter, Setter setter) {
+			this.name = name;
+			this.type = type;
+			this.enumNames = enumNames;
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		public int size() {
+			return (type == kTypeDouble) ? 8 : 1;
+		}
+
+		/**
+		 * @return the value this field would record for the state and commands
+		 */
+		public double valueOf(RobotState state, Commands commands) {
+			return getter.get(state, commands);
+		}
+
+		void put(ByteBuffer buffer, double value) {
+			if (type == kTypeDouble) {
+				buffer.putDouble(value);
+			} else {
+				buffer.put((byte) value);
+			}
+		}
+
+		double get(ByteBuffer buffer, int offset) {
+			return (type == kTypeDouble) ? buffer.getDouble(offset) : buffer.get(offset);
+		}
+	}
+
+	private static final List<Field> sFields = new ArrayList<>();
+
+	private static void addDouble(String name, Getter getter, Setter setter) {
+		sFields.add(new Field(name, kTypeDouble, Collections.emptyList(), getter, setter));
+	}
+
+	private static void addBoolean(String name, Getter getter, Setter setter) {
+		sFields.add(new Field(name, kTypeBoolean, Collections.emptyList(), getter, setter));
+	}
+
+	private static void addEnum(String name, Enum<?>[] constants, Getter getter, Setter setter) {
+		String[] names = new String[constants.length];
+		for (int i = 0; i < constants.length; i++) {
+			names[i] = constants[i].name();
+		}
+		sFields.add(new Field(name, kTypeEnum, Collections.unmodifiableList(Arrays.asList(names)), getter, setter));
+	}
+
+	private static double optional(Optional<? extends Number> value) {
+		return value.isPresent() ? value.get().doubleValue() : Double.NaN;
+	}
+
+	private static final RobotState.GamePeriod[] kGamePeriods = RobotState.GamePeriod.values();
+	private static final CANTalon.TalonControlMode[] kControlModes = CANTalon.TalonControlMode.values();
+	private static final Drive.DriveState[] kDriveStates = Drive.DriveState.values();
+	private static final Slider.SliderState[] kSliderStates = Slider.SliderState.values();
+	private static final Slider.SliderTarget[] kSliderTargets = Slider.SliderTarget.values();
+	private static final Spatula.SpatulaState[] kSpatulaStates = Spatula.SpatulaState.values();
+	private static final Intake.IntakeState[] kIntakeStates = Intake.IntakeState.values();
+	private static final Climber.ClimberState[] kClimberStates = Climber.ClimberState.values();
+	private static final DoubleSolenoid.Value[] kSolenoidValues = DoubleSolenoid.Value.values();
+
+	static {
+		// RobotState
+		addEnum("gamePeriod", kGamePeriods, (s, c) -> s.gamePeriod.ordinal(), (s, c, v) -> s.gamePeriod = kGamePeriods[(int) v]);
+		addEnum("leftControlMode", kControlModes, (s, c) -> s.leftControlMode.ordinal(), (s, c, v) -> s.leftControlMode = kControlModes[(int) v]);
+		addEnum("rightControlMode", kControlModes, (s, c) -> s.rightControlMode.ordinal(), (s, c, v) -> s.rightControlMode = kControlModes[(int) v]);
+		addDouble("leftSetpoint", (s, c) -> s.leftSetpoint, (s, c, v) -> s.leftSetpoint = v);
+		addDouble("rightSetpoint", (s, c) -> s.rightSetpoint, (s, c, v) -> s.rightSetpoint = v);
+		addDouble("totalVoltageDraw", (s, c) -> s.totalVoltageDraw, (s, c, v) -> s.totalVoltageDraw = v);
+		addDouble("drivePose.heading", (s, c) -> s.drivePose.heading, (s, c, v) -> s.drivePose.heading = v);
+		addDouble("drivePose.headingVelocity", (s, c) -> s.drivePose.headingVelocity, (s, c, v) -> s.drivePose.headingVelocity = v);
+		addDouble("drivePose.leftEnc", (s, c) -> s.drivePose.leftEnc, (s, c, v) -> s.drivePose.leftEnc = v);
+		addDouble("drivePose.leftEncVelocity", (s, c) -> s.drivePose.leftEncVelocity, (s, c, v) -> s.drivePose.leftEncVelocity = v);
+		addDouble("drivePose.leftSpeed", (s, c) -> s.drivePose.leftSpeed, (s, c, v) -> s.drivePose.leftSpeed = v);
+		addDouble("drivePose.rightEnc", (s, c) -> s.drivePose.rightEnc, (s, c, v) -> s.drivePose.rightEnc = v);
+		addDouble("drivePose.rightEncVelocity", (s, c) -> s.drivePose.rightEncVelocity, (s, c, v) -> s.drivePose.rightEncVelocity = v);
+		addDouble("drivePose.rightSpeed", (s, c) -> s.drivePose.rightSpeed, (s, c, v) -> s.drivePose.rightSpeed = v);
+		addDouble("drivePose.leftError", (s, c) -> optional(s.drivePose.leftError),
+				(s, c, v) -> s.drivePose.leftError = Double.isNaN(v) ? Optional.empty() : Optional.of(v));
+		addDouble("drivePose.rightError", (s, c) -> optional(s.drivePose.rightError),
+				(s, c, v) -> s.drivePose.rightError = Double.isNaN(v) ? Optional.empty() : Optional.of(v));
+		addDouble("sliderPotentiometer", (s, c) -> s.sliderPotentiometer, (s, c, v) -> s.sliderPotentiometer = v);
+		addDouble("sliderEncoder", (s, c) -> s.sliderEncoder, (s, c, v) -> s.sliderEncoder = v);
+		addDouble("sliderVelocity", (s, c) -> s.sliderVelocity, (s, c, v) -> s.sliderVelocity = v);
+		addDouble("sliderClosedLoopError", (s, c) -> optional(s.sliderClosedLoopError),
+				(s, c, v) -> s.sliderClosedLoopError = Double.isNaN(v) ? Optional.empty() : Optional.of((int) v));
+		addDouble("sliderPosition", (s, c) -> s.sliderPosition, (s, c, v) -> s.sliderPosition = v);
+		addDouble("climberCurrentDraw", (s, c) -> s.climberCurrentDraw, (s, c, v) -> s.climberCurrentDraw = v);
+		addDouble("climberEncoder", (s, c) -> s.climberEncoder, (s, c, v) -> s.climberEncoder = v);
+
+		// Commands
+		addEnum("wantedDriveState", kDriveStates, (s, c) -> c.wantedDriveState.ordinal(), (s, c, v) -> c.wantedDriveState = kDriveStates[(int) v]);
+		addEnum("wantedSliderState", kSliderStates, (s, c) -> c.wantedSliderState.ordinal(), (s, c, v) -> c.wantedSliderState = kSliderStates[(int) v]);
+		addEnum("wantedSpatulaState", kSpatulaStates, (s, c) -> c.wantedSpatulaState.ordinal(), (s, c, v) -> c.wantedSpatulaState = kSpatulaStates[(int) v]);
+		addEnum("wantedIntakeState", kIntakeStates, (s, c) -> c.wantedIntakeState.ordinal(), (s, c, v) -> c.wantedIntakeState = kIntakeStates[(int) v]);
+		addEnum("wantedClimberState", kClimberStates, (s, c) -> c.wantedClimberState.ordinal(), (s, c, v) -> c.wantedClimberState = kClimberStates[(int) v]);
+		addEnum("wantedFlipperSignal.left", kSolenoidValues, (s, c) -> c.wantedFlipperSignal.leftFlipper.ordinal(),
+				(s, c, v) -> c.wantedFlipperSignal.leftFlipper = kSolenoidValues[(int) v]);
+		addEnum("wantedFlipperSignal.right", kSolenoidValues, (s, c) -> c.wantedFlipperSignal.rightFlipper.ordinal(),
+				(s, c, v) -> c.wantedFlipperSignal.rightFlipper = kSolenoidValues[(int) v]);
+		addEnum("sliderSetpoint", kSliderTargets, (s, c) -> c.robotSetpoints.sliderSetpoint.ordinal(),
+				(s, c, v) -> c.robotSetpoints.sliderSetpoint = kSliderTargets[(int) v]);
+		addDouble("sliderCustomSetpoint",
+				(s, c) -> c.robotSetpoints.hasSliderCustomSetpoint ? c.robotSetpoints.sliderCustomSetpoint : Double.NaN,
+				(s, c, v) -> {
+					if (Double.isNaN(v)) {
+						c.robotSetpoints.clearSliderCustomSetpoint();
+					} else {
+						c.robotSetpoints.setSliderCustomSetpoint(v);
+					}
+				});
+		// Drive power setpoint, present flag first so the outputs have somewhere to go when read back
+		addBoolean("drivePowerSetpoint.present", (s, c) -> c.robotSetpoints.hasDrivePowerSetpoint ? 1 : 0,
+				(s, c, v) -> {
+					if (v != 0) {
+						c.robotSetpoints.setDrivePowerSetpoint(DriveSignal.getNeutralSignal());
+					} else {
+						c.robotSetpoints.clearDrivePowerSetpoint();
+					}
+				});
+		addEnum("drivePowerSetpoint.leftMode", kControlModes, (s, c) -> drivePower(c).leftMotor.getControlMode().ordinal(),
+				(s, c, v) -> setTalonOutput(drivePower(c).leftMotor, kControlModes[(int) v], drivePower(c).leftMotor.getSetpoint()));
+		addDouble("drivePowerSetpoint.left", (s, c) -> drivePower(c).leftMotor.getSetpoint(),
+				(s, c, v) -> setTalonOutput(drivePower(c).leftMotor, drivePower(c).leftMotor.getControlMode(), v));
+		addEnum("drivePowerSetpoint.rightMode", kControlModes, (s, c) -> drivePower(c).rightMotor.getControlMode().ordinal(),
+				(s, c, v) -> setTalonOutput(drivePower(c).rightMotor, kControlModes[(int) v], drivePower(c).rightMotor.getSetpoint()));
+		addDouble("drivePowerSetpoint.right", (s, c) -> drivePower(c).rightMotor.getSetpoint(),
+				(s, c, v) -> setTalonOutput(drivePower(c).rightMotor, drivePower(c).rightMotor.getControlMode(), v));
+		addDouble("leftStickInput.x", (s, c) -> c.leftStickInput.x, (s, c, v) -> c.leftStickInput.x = v);
+		addDouble("leftStickInput.y", (s, c) -> c.leftStickInput.y, (s, c, v) -> c.leftStickInput.y = v);
+		addBoolean("leftStickInput.trigger", (s, c) -> c.leftStickInput.triggerPressed ? 1 : 0, (s, c, v) -> c.leftStickInput.triggerPressed = v != 0);
+		addDouble("rightStickInput.x", (s, c) -> c.rightStickInput.x, (s, c, v) -> c.rightStickInput.x = v);
+		addDouble("rightStickInput.y", (s, c) -> c.rightStickInput.y, (s, c, v) -> c.rightStickInput.y = v);
+		addBoolean("rightStickInput.trigger", (s, c) -> c.rightStickInput.triggerPressed ? 1 : 0, (s, c, v) -> c.rightStickInput.triggerPressed = v != 0);
+		addDouble("sliderStickInput.x", (s, c) -> c.sliderStickInput.x, (s, c, v) -> c.sliderStickInput.x = v);
+		addDouble("sliderStickInput.y", (s, c) -> c.sliderStickInput.y, (s, c, v) -> c.sliderStickInput.y = v);
+		addBoolean("sliderStickInput.trigger", (s, c) -> c.sliderStickInput.triggerPressed ? 1 : 0, (s, c, v) -> c.sliderStickInput.triggerPressed = v != 0);
+		addDouble("climberStickInput.x", (s, c) -> c.climberStickInput.x, (s, c, v) -> c.climberStickInput.x = v);
+		addDouble("climberStickInput.y", (s, c) -> c.climberStickInput.y, (s, c, v) -> c.climberStickInput.y = v);
+		addBoolean("climberStickInput.trigger", (s, c) -> c.climberStickInput.triggerPressed ? 1 : 0, (s, c, v) -> c.climberStickInput.triggerPressed = v != 0);
+		addBoolean("cancelCurrentRoutines", (s, c) -> c.cancelCurrentRoutines ? 1 : 0, (s, c, v) -> c.cancelCurrentRoutines = v != 0);
+	}
+
+	private static final DriveSignal kNoDrivePower = DriveSignal.getNeutralSignal();
+	static {
+		kNoDrivePower.leftMotor.setDisabled();
+		kNoDrivePower.rightMotor.setDisabled();
+	}
+
+	private static DriveSignal drivePower(Commands commands) {
+		return commands.robotSetpoints.hasDrivePowerSetpoint ? commands.robotSetpoints.drivePowerSetpoint : kNoDrivePower;
+	}
+
+	// Restores a recorded talon output, gains are not recorded so they are left alone
+	private static void setTalonOutput(CANTalonOutput output, CANTalon.TalonControlMode mode, double setpoint) {
+		if (output == kNoDrivePower.leftMotor || output == kNoDrivePower.rightMotor) {
+			return;
+		}
+		switch (mode) {
+			case Speed:
+				output.setSpeed(setpoint, output.gains);
+				break;
+			case Position:
+				output.setPosition(setpoint, output.gains);
+				break;
+			case Voltage:
+				output.setVoltage(setpoint);
+				break;
+			case Current:
+				output.setCurrent(setpoint);
+				break;
+			case MotionMagic:
+				output.setMotionMagic(setpoint, output.gains, output.cruiseVel, output.accel);
+				break;
+			case Disabled:
+				output.setDisabled();
+				break;
+			default:
+				output.setPercentVBus(setpoint);
+				break;
+		}
+	}
+
+	/**
+	 * @return the fields of the current schema, in recorded order
+	 */
+	public static List<Field> getFields() {
+		return Collections.unmodifiableList(sFields);
+	}
+
+	/**
+	 * @return bytes per frame for the current schema
+	 */
+	public static int getFrameSize() {
+		int size = 8;
+		for (Field field : sFields) {
+			size += field.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the file header for the current schema
+	 */
+	public static ByteBuffer createHeader() {
+		ByteBuffer header = ByteBuffer.allocate(64 * 1024);
+		header.putInt(kMagic);
+		header.putInt(0);	// header size, filled in below
+		header.putInt(kFormatVersion);
+		header.putInt(kSchemaVersion);
+		header.putInt(kFramesPerBlock);
+		header.putInt(getFrameSize());
+		header.putInt(sFields.size());
+		for (Field field : sFields) {
+			header.put(field.type);
+			putString(header, field.name);
+			if (field.type == kTypeEnum) {
+				header.putShort((short) field.enumNames.size());
+				for (String name : field.enumNames) {
+					putString(header, name);
+				}
+			}
+		}
+		while (header.position() % 8 != 0) {
+			header.put((byte) 0);
+		}
+		header.putInt(4, header.position());
+		header.flip();
+		return header;
+	}
+
+	/**
+	 * Appends one frame for the current schema, does not allocate
+	 */
+	public static void putFrame(ByteBuffer buffer, double timestamp, RobotState state, Commands commands) {
+		buffer.putDouble(timestamp);
+		for (int i = 0; i < sFields.size(); i++) {
+			Field field = sFields.get(i);
+			field.put(buffer, field.getter.get(state, commands));
+		}
+	}
+
+	static void putIndexBlock(ByteBuffer buffer, int blockNumber, double firstTimestamp, double lastTimestamp, int frameCount) {
+		buffer.putInt(kIndexMarker);
+		buffer.putInt(blockNumber);
+		buffer.putDouble(firstTimestamp);
+		buffer.putDouble(lastTimestamp);
+		buffer.putInt(frameCount);
+		buffer.putInt(0);
+	}
+
+	public static void putString(ByteBuffer buffer, String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+	public static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Looks up a field of the current schema by name
+	 * @return the field or null if it is not in the current schema
+	 */
+	static Field findField(String name) {
+		for (Field field : sFields) {
+			if (field.name.equals(name)) {
+				return field;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,134 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads a recording written by {@link MatchRecorder}
+ *
+ * The file is memory mapped, frames are located by arithmetic on the fixed frame and block sizes,
+ * and {@link #seek(double)} binary searches the index blocks and then the frames of one block.
+ * Fields are decoded through {@link MatchRecordSchema}.
+ */
+public class MatchRecordReader {
+	private final ByteBuffer mBuffer;
+	private final MatchRecordSchema mSchema;
+	private final int mHeaderSize;
+	private final int mFramesPerBlock;
+	private final int mFrameSize;
+	private final int mBlockSize;
+	private final int mFullBlocks;
+	private final int mFrameCount;
+
+	public MatchRecordReader(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try {
+			mSchema = MatchRecordSchema.read(mBuffer.duplicate());
+		} catch (IOException e) {
+			throw new IOException(file + ": " + e.getMessage(), e);
+		}
+		mHeaderSize = mSchema.getHeaderSize();
+		mFramesPerBlock = mSchema.getFramesPerBlock();
+		mFrameSize = mSchema.getFrameSize();
+
+		mBlockSize = mFramesPerBlock * mFrameSize + MatchRecordFormat.kIndexBlockSize;
+		long dataBytes = mBuffer.capacity() - mHeaderSize;
+		mFullBlocks = (int) (dataBytes / mBlockSize);
+		int tailFrames = (int) Math.min((dataBytes % mBlockSize) / mFrameSize, mFramesPerBlock);
+		mFrameCount = mFullBlocks * mFramesPerBlock + tailFrames;
+	}
+
+	public int getFrameCount() {
+		return mFrameCount;
+	}
+
+	public int getSchemaVersion() {
+		return mSchema.getSchemaVersion();
+	}
+
+	public List<MatchRecordSchema.RecordedField> getFields() {
+		return mSchema.getFields();
+	}
+
+	/**
+	 * @return FPGA timestamp of the frame in seconds
+	 */
+	public double getTimestamp(int frame) {
+		return mBuffer.getDouble(frameOffset(frame));
+	}
+
+	/**
+	 * Raw value of a field, enums are the recorded ordinal and booleans are 0 or 1
+	 */
+	public double getValue(int frame, int field) {
+		return mSchema.getValue(mBuffer, frameOffset(frame), field);
+	}
+
+	/**
+	 * Finds the last frame at or before the timestamp in O(log n)
+	 * @return frame index, 0 if the timestamp is before the recording, -1 if there are no frames
+	 */
+	public int seek(double timestamp) {
+		if (mFrameCount == 0) {
+			return -1;
+		}
+		// Last block whose first frame is at or before the timestamp, the tail counts as one more block
+		int blockCount = (mFrameCount + mFramesPerBlock - 1) / mFramesPerBlock;
+		int low = 0;
+		int high = blockCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (blockFirstTimestamp(mid) <= timestamp) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		int first = low * mFramesPerBlock;
+		int last = Math.min(first + mFramesPerBlock, mFrameCount) - 1;
+		while (first < last) {
+			int mid = (first + last + 1) >>> 1;
+			if (getTimestamp(mid) <= timestamp) {
+				first = mid;
+			} else {
+				last = mid - 1;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Loads a frame into RobotState and Commands, fields missing from the current schema are skipped
+	 * @return the frame's timestamp
+	 */
+	public double readFrame(int frame, RobotState state, Commands commands) {
+		return mSchema.readFrame(mBuffer, frameOffset(frame), state, commands);
+	}
+
+	private double blockFirstTimestamp(int block) {
+		if (block < mFullBlocks) {
+			int index = mHeaderSize + block * mBlockSize + mFramesPerBlock * mFrameSize;
+			if (mBuffer.getInt(index) == MatchRecordFormat.kIndexMarker) {
+				return mBuffer.getDouble(index + 8);
+			}
+		}
+		// Tail block, or a damaged index block
+		return getTimestamp(block * mFramesPerBlock);
+	}
+
+	private int frameOffset(int frame) {
+		if (frame < 0 || frame >= mFrameCount) {
+			throw new IndexOutOfBoundsException("Frame " + frame + " of " + mFrameCount);
+		}
+		return mHeaderSize + (frame / mFramesPerBlock) * mBlockSize + (frame % mFramesPerBlock) * mFrameSize;
+	}
+}
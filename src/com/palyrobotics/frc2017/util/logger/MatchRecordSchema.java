@@ -0,0 +1,166 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Schema of a recording as described by its header, see {@link MatchRecordFormat}
+ *
+ * Decodes frames from any buffer holding them, so both {@link MatchRecordReader}
+ * and the replay files written by {@link com.palyrobotics.frc2017.robot.Serializer} share one decoder.
+ * Fields are matched to the current schema by name, so older recordings still load into RobotState and Commands.
+ */
+public class MatchRecordSchema {
+	/**
+	 * A field as described by the file header
+	 */
+	public static class RecordedField {
+		public final String name;
+		public final byte type;
+		public final List<String> enumNames;
+		final int offset;
+		// Field of the current schema with the same name, or null
+		final MatchRecordFormat.Field current;
+		// Maps recorded enum ordinals to ordinals of the current schema, -1 if the constant no longer exists
+		final int[] enumOrdinals;
+
+		RecordedField(String name, byte type, List<String> enumNames, int offset) {
+			this.name = name;
+			this.type = type;
+			this.enumNames = enumNames;
+			this.offset = offset;
+			MatchRecordFormat.Field field = MatchRecordFormat.findField(name);
+			this.current = (field != null && field.type == type) ? field : null;
+			this.enumOrdinals = new int[enumNames.size()];
+			for (int i = 0; i < enumNames.size(); i++) {
+				enumOrdinals[i] = (current == null) ? -1 : current.enumNames.indexOf(enumNames.get(i));
+			}
+		}
+
+		int size() {
+			return (type == MatchRecordFormat.kTypeDouble) ? 8 : 1;
+		}
+	}
+
+	private final int mHeaderSize;
+	private final int mSchemaVersion;
+	private final int mFramesPerBlock;
+	private final int mFrameSize;
+	private final List<RecordedField> mFields;
+
+	private MatchRecordSchema(int headerSize, int schemaVersion, int framesPerBlock, int frameSize, List<RecordedField> fields) {
+		mHeaderSize = headerSize;
+		mSchemaVersion = schemaVersion;
+		mFramesPerBlock = framesPerBlock;
+		mFrameSize = frameSize;
+		mFields = Collections.unmodifiableList(fields);
+	}
+
+	/**
+	 * Parses a header written by {@link MatchRecordFormat#createHeader()}
+	 * @param buffer positioned at the start of the header, left positioned after it
+	 */
+	public static MatchRecordSchema read(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		if (buffer.remaining() < 28 || buffer.getInt(start) != MatchRecordFormat.kMagic) {
+			throw new IOException("Not a match recording");
+		}
+		int headerSize = buffer.getInt(start + 4);
+		int formatVersion = buffer.getInt(start + 8);
+		if (formatVersion != MatchRecordFormat.kFormatVersion) {
+			throw new IOException("Unsupported match recording format " + formatVersion);
+		}
+		if (headerSize < 28 || headerSize > buffer.remaining()) {
+			throw new IOException("Truncated match recording header");
+		}
+		int schemaVersion = buffer.getInt(start + 12);
+		int framesPerBlock = buffer.getInt(start + 16);
+		int frameSize = buffer.getInt(start + 20);
+		int fieldCount = buffer.getInt(start + 24);
+
+		ByteBuffer header = buffer.duplicate();
+		header.position(start + 28);
+		header.limit(start + headerSize);
+		List<RecordedField> fields = new ArrayList<>();
+		int offset = 8;
+		for (int i = 0; i < fieldCount; i++) {
+			byte type = header.get();
+			String name = MatchRecordFormat.getString(header);
+			List<String> enumNames = new ArrayList<>();
+			if (type == MatchRecordFormat.kTypeEnum) {
+				int count = header.getShort();
+				for (int j = 0; j < count; j++) {
+					enumNames.add(MatchRecordFormat.getString(header));
+				}
+			}
+			RecordedField field = new RecordedField(name, type, Collections.unmodifiableList(enumNames), offset);
+			fields.add(field);
+			offset += field.size();
+		}
+		if (offset != frameSize) {
+			throw new IOException("Match recording header does not match its frame size");
+		}
+		buffer.position(start + headerSize);
+		return new MatchRecordSchema(headerSize, schemaVersion, framesPerBlock, frameSize, fields);
+	}
+
+	public int getHeaderSize() {
+		return mHeaderSize;
+	}
+
+	public int getSchemaVersion() {
+		return mSchemaVersion;
+	}
+
+	public int getFramesPerBlock() {
+		return mFramesPerBlock;
+	}
+
+	public int getFrameSize() {
+		return mFrameSize;
+	}
+
+	public List<RecordedField> getFields() {
+		return mFields;
+	}
+
+	/**
+	 * Raw value of a field, enums are the recorded ordinal and booleans are 0 or 1
+	 * @param base offset of the frame in the buffer
+	 */
+	public double getValue(ByteBuffer buffer, int base, int field) {
+		RecordedField recorded = mFields.get(field);
+		int offset = base + recorded.offset;
+		return (recorded.type == MatchRecordFormat.kTypeDouble) ? buffer.getDouble(offset) : buffer.get(offset);
+	}
+
+	/**
+	 * Loads a frame into RobotState and Commands, fields missing from the current schema are skipped
+	 * @param base offset of the frame in the buffer
+	 * @return the frame's timestamp
+	 */
+	public double readFrame(ByteBuffer buffer, int base, RobotState state, Commands commands) {
+		for (RecordedField field : mFields) {
+			if (field.current == null) {
+				continue;
+			}
+			double value = (field.type == MatchRecordFormat.kTypeDouble)
+					? buffer.getDouble(base + field.offset) : buffer.get(base + field.offset);
+			if (field.type == MatchRecordFormat.kTypeEnum) {
+				int ordinal = (int) value;
+				if (ordinal < 0 || ordinal >= field.enumOrdinals.length || field.enumOrdinals[ordinal] < 0) {
+					continue;
+				}
+				value = field.enumOrdinals[ordinal];
+			}
+			field.current.setter.set(state, commands, value);
+		}
+		return buffer.getDouble(base);
+	}
+}
@@ -0,0 +1,151 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records RobotState and Commands as one binary frame per subsystem loop tick, see {@link MatchRecordFormat}
+ *
+ * Frames are encoded into a preallocated block buffer on the calling thread,
+ * full blocks are handed to a {@link PooledChannelWriter} so the control loop never waits on the file.
+ * If the writer falls behind by more than the buffer pool, frames are dropped and counted until a buffer frees up.
+ */
+public class MatchRecorder {
+	private static MatchRecorder instance = new MatchRecorder();
+	public static MatchRecorder getInstance() {
+		return instance;
+	}
+
+	private static final int kBufferPoolSize = 8;
+
+	private final int mFrameSize = MatchRecordFormat.getFrameSize();
+	private final int mBlockSize = MatchRecordFormat.kFramesPerBlock * mFrameSize + MatchRecordFormat.kIndexBlockSize;
+	private final PooledChannelWriter mWriter = new PooledChannelWriter("MatchRecorder", mBlockSize, kBufferPoolSize);
+
+	private ByteBuffer mBlock;
+	private int mBlockNumber;
+	private int mBlockFrames;
+	private double mBlockFirstTimestamp;
+	private double mLastTimestamp;
+	private long mDroppedFrames = 0;
+
+	private File mFile = null;
+	private boolean mRecording = false;
+
+	private MatchRecorder() {
+	}
+
+	/**
+	 * Starts a new recording, named like the file but never overwriting an existing one
+	 * @param file for example match.rec next to the log, becomes match1.rec if that exists
+	 * @return false if the file could not be created
+	 */
+	public synchronized boolean start(File file) {
+		if (mRecording) {
+			// Already recording, keep the match in one file
+			return true;
+		}
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		String base = (dot < 0) ? name : name.substring(0, dot);
+		String extension = (dot < 0) ? "" : name.substring(dot);
+		int duplicatePrevent = 0;
+		while (file.exists()) {
+			duplicatePrevent++;
+			file = new File(file.getParentFile(), base + duplicatePrevent + extension);
+		}
+		final FileChannel channel;
+		try {
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			ByteBuffer header = MatchRecordFormat.createHeader();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to create match recording at " + file);
+			e.printStackTrace();
+			return false;
+		}
+		mFile = file;
+		mDroppedFrames = 0;
+		mBlockNumber = 0;
+		mBlockFrames = 0;
+		mBlock = mWriter.acquire();
+		mWriter.start(channel);
+		mRecording = true;
+		System.out.println("Recording match to " + file);
+		return true;
+	}
+
+	/**
+	 * Records one frame, called from the subsystem loop
+	 * @param timestamp FPGA time in seconds
+	 */
+	public synchronized void record(double timestamp, RobotState state, Commands commands) {
+		if (!mRecording) {
+			return;
+		}
+		if (mBlock == null) {
+			// Previous block was handed off but no buffer was free, try again
+			mBlock = mWriter.acquire();
+			if (mBlock == null) {
+				mDroppedFrames++;
+				return;
+			}
+		}
+		if (mBlockFrames == 0) {
+			mBlockFirstTimestamp = timestamp;
+		}
+		MatchRecordFormat.putFrame(mBlock, timestamp, state, commands);
+		mLastTimestamp = timestamp;
+		mBlockFrames++;
+		if (mBlockFrames == MatchRecordFormat.kFramesPerBlock) {
+			MatchRecordFormat.putIndexBlock(mBlock, mBlockNumber, mBlockFirstTimestamp, mLastTimestamp, mBlockFrames);
+			mBlockNumber++;
+			mBlockFrames = 0;
+			mWriter.handOff(mBlock);
+			// Null if every buffer is waiting on the disk, the next frames are dropped rather than block the loop
+			mBlock = mWriter.acquire();
+		}
+	}
+
+	/**
+	 * Writes the partial last block and closes the file
+	 */
+	public synchronized void stop() {
+		if (!mRecording) {
+			return;
+		}
+		if (mBlock != null && mBlockFrames > 0) {
+			// Tail frames are written without an index block
+			mWriter.handOff(mBlock);
+			mBlock = null;
+		} else if (mBlock != null) {
+			mWriter.release(mBlock);
+			mBlock = null;
+		}
+		mWriter.stop();
+		mRecording = false;
+		if (mDroppedFrames > 0) {
+			System.err.println("Match recorder dropped " + mDroppedFrames + " frames");
+		}
+		System.out.println("Match recording saved to " + mFile);
+	}
+
+	public long getDroppedFrames() {
+		return mDroppedFrames;
+	}
+
+	public File getFile() {
+		return mFile;
+	}
+}
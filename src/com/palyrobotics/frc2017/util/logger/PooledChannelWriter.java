@@ -0,0 +1,123 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes buffers to a FileChannel on its own thread, from a fixed pool of preallocated buffers
+ *
+ * The recording thread takes a free buffer with {@link #acquire()}, fills it and hands it over with {@link #handOff(ByteBuffer)}.
+ * The writer thread writes it out and puts it back in the pool. Nothing here blocks the caller except {@link #stop()},
+ * if every buffer is waiting on the disk acquire() returns null and the caller drops what it was going to record.
+ * Used by {@link MatchRecorder} and {@link com.palyrobotics.frc2017.robot.Serializer}.
+ */
+public class PooledChannelWriter {
+	private final String mName;
+	private final BlockingQueue<ByteBuffer> mFreeBuffers;
+	private final BlockingQueue<ByteBuffer> mFullBuffers;
+	// Tells the writer thread to close the file
+	private final ByteBuffer mEndOfRecording = ByteBuffer.allocate(0);
+
+	private Thread mWritingThread = null;
+
+	/**
+	 * @param name name of the writer thread
+	 * @param bufferSize bytes in each buffer
+	 * @param poolSize number of buffers, how far the disk can fall behind before records are dropped
+	 */
+	public PooledChannelWriter(String name, int bufferSize, int poolSize) {
+		mName = name;
+		mFreeBuffers = new ArrayBlockingQueue<>(poolSize);
+		// One more slot than buffers for the end of recording, so handing off never fails
+		mFullBuffers = new ArrayBlockingQueue<>(poolSize + 1);
+		for (int i = 0; i < poolSize; i++) {
+			mFreeBuffers.add(ByteBuffer.allocate(bufferSize));
+		}
+	}
+
+	/**
+	 * Starts the writer thread, which closes the channel once stopped
+	 * @return false if already writing, the channel is left alone
+	 */
+	public synchronized boolean start(FileChannel channel) {
+		if (mWritingThread != null) {
+			return false;
+		}
+		mWritingThread = new Thread(() -> writeBuffers(channel), mName);
+		mWritingThread.start();
+		return true;
+	}
+
+	public synchronized boolean isRunning() {
+		return mWritingThread != null;
+	}
+
+	/**
+	 * @return an empty buffer, null if every buffer is waiting on the disk
+	 */
+	public ByteBuffer acquire() {
+		return mFreeBuffers.poll();
+	}
+
+	/**
+	 * Queues everything put in the buffer to be written, the caller must not touch it afterwards
+	 */
+	public void handOff(ByteBuffer buffer) {
+		buffer.flip();
+		mFullBuffers.offer(buffer);
+	}
+
+	/**
+	 * Puts back a buffer that was acquired but has nothing to write
+	 */
+	public void release(ByteBuffer buffer) {
+		buffer.clear();
+		mFreeBuffers.offer(buffer);
+	}
+
+	/**
+	 * Waits for every handed off buffer to be written and closes the channel
+	 */
+	public synchronized void stop() {
+		if (mWritingThread == null) {
+			return;
+		}
+		try {
+			mFullBuffers.put(mEndOfRecording);
+			mWritingThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		mWritingThread = null;
+	}
+
+	private void writeBuffers(FileChannel channel) {
+		try {
+			while (true) {
+				ByteBuffer buffer = mFullBuffers.take();
+				if (buffer == mEndOfRecording) {
+					break;
+				}
+				try {
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				release(buffer);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
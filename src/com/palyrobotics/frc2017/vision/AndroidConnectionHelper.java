@@ -1,5 +1,6 @@
 package com.palyrobotics.frc2017.vision;
 
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.networktables.NetworkTable;
 import org.json.simple.parser.ParseException;
 import org.spectrum3847.RIOdroid.RIOdroid;
@@ -31,6 +32,8 @@ import org.json.simple.parser.JSONParser;
  * 				<li>{@link AndroidConnectionHelper#m_running}: Private boolean representing whether the thread is running</li>
  * 				<li>{@link AndroidConnectionHelper#mTesting}: Private boolean representing whether program is testing on a pc with
  * 																adb installed and included in the path	</li>
+ * 				<li>{@link AndroidConnectionHelper#m_visionRecords}: Latest {@link VisionRecord} pushed over the vision socket (private)</li>
+ * 				<li>{@link AndroidConnectionHelper#m_visionSamples}: Recent vision records with their capture times (private)</li>
  * 			</ul>
  * 		</li>
  * 	</ul>
@@ -47,6 +50,8 @@ import org.json.simple.parser.JSONParser;
  * 	<ul>
  * 		<li>{@link AndroidConnectionHelper#start()}</li>
  * 		<li>{@link AndroidConnectionHelper#StartVisionApp()}</li>
+ * 		<li>{@link AndroidConnectionHelper#getXDist()}: From the latest vision record, or from data.json polled over adb
+ * 															if no record arrived within {@link Constants#kVisionRecordTimeout}</li>
  * 	</ul>
  *
  * 	<h1><b>Internal Functions</b>
@@ -106,6 +111,8 @@ public class AndroidConnectionHelper implements Runnable{
 	private double m_x_dist = 0;
 	private String m_androidState = "NONE";
 	private Object m_android_lock = new Object();
+	private final VisionRecordHolder m_visionRecords = new VisionRecordHolder();
+	private final VisionSampleHistory m_visionSamples = new VisionSampleHistory(Constants.kVisionSampleHistorySize);
 
 
 	/**
@@ -355,6 +362,10 @@ public class AndroidConnectionHelper implements Runnable{
 						+ "streaming in IDLE state, nothing streaming");
 				break;
 			case JSON:
+				// The socket is pushing records, no need to poll over adb
+				if(this.getFreshVisionRecord() != null){
+					break;
+				}
 				this.extractData(this.StreamJSON());
 				break;
 		}
@@ -432,7 +443,32 @@ public class AndroidConnectionHelper implements Runnable{
 		}
 	}
 
+	/**
+	 * @return Records received over the vision socket, the latest can be read from any thread
+	 */
+	public VisionRecordHolder getVisionRecords(){
+		return m_visionRecords;
+	}
+
+	/**
+	 * @return The latest vision record, or null if none arrived within {@link Constants#kVisionRecordTimeout}
+	 */
+	public VisionRecord getFreshVisionRecord(){
+		return m_visionRecords.getFresh(Timer.getFPGATimestamp(), Constants.kVisionRecordTimeout);
+	}
+
+	/**
+	 * @return Recent vision records with the roboRIO time their images were captured
+	 */
+	public VisionSampleHistory getVisionSamples(){
+		return m_visionSamples;
+	}
+
 	public double getXDist(){
+		VisionRecord record = this.getFreshVisionRecord();
+		if(record != null && record.state == VisionRecord.State.STREAMING){
+			return record.xDisplacement;
+		}
 		if(!m_visionRunning) {
 //			System.out.println("Error in AndroidConnectionHelper.getXDist(), " +
 //					"no connection to vision app, returning default/last valid value");
@@ -453,6 +489,11 @@ public class AndroidConnectionHelper implements Runnable{
 	}
 
 	public boolean isAppStarted(){
+		VisionRecord record = this.getFreshVisionRecord();
+		if(record != null){
+			return record.state == VisionRecord.State.STREAMING;
+		}
+
 		JSONObject json = this.StreamJSON();
 
 		if (json != null) {
@@ -3,15 +3,25 @@ package com.palyrobotics.frc2017.vision;
 import com.google.common.io.ByteStreams;
 import com.palyrobotics.frc2017.config.Constants;
 
+import edu.wpi.first.wpilibj.Timer;
+
 import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * Supplies wrapper methods for using adb to control the Android
  *
+ * <h1><b>Ingestion</b></h1>
+ * 	<br><BLOCKQUOTE>Messages are read with blocking reads on the client's channel, the thread waits on the socket
+ * 	rather than sleeping between polls. Images are read straight into frames from {@link AndroidServerSocket#m_framePool},
+ * 	so once running nothing is allocated per image. If every frame is still held by consumers the image is skipped.
+ * 	Consumers get the latest image with {@link AndroidServerSocket#getLatestFrame()}, every image is also handed to
+ * 	the {@link VisionFrameRecorder}.</BLOCKQUOTE>
+ *
  * <h1><b>Fields</b></h1>
  * 	<ul>
  * 		<li>Instance and State variables:
@@ -27,6 +37,10 @@ import java.util.zip.GZIPOutputStream;
  * 				<li>{@link AndroidServerSocket#m_port}: Port that the ServerSocket listens on (private)</li>
  * 				<li>{@link AndroidServerSocket#m_running}: Private boolean representing whether the thread is running</li>
  * 				<li>{@link AndroidServerSocket#m_server}: Server Socket object that listens for android client and receives data (private)</li>
+ * 				<li>{@link AndroidServerSocket#m_framePool}: Frames images are read into (private)</li>
+ * 				<li>{@link AndroidServerSocket#m_latestFrame}: Latest image received, guarded by m_latestLock (private)</li>
+ * 				<li>{@link AndroidServerSocket#m_visionRecords}: Holds the latest {@link VisionRecord} received (private)</li>
+ * 				<li>{@link AndroidServerSocket#m_visionSamples}: Every recent {@link VisionRecord} received, with capture times (private)</li>
  * 			</ul>
  * 		</li>
  * 	</ul>
@@ -35,6 +49,7 @@ import java.util.zip.GZIPOutputStream;
  * 	<ul>
  * 		<li>{@link AndroidConnectionHelper#getInstance()}</li>
  * 		<li>{@link AndroidServerSocket#SetState(AndroidServerState)}</li>
+ * 		<li>{@link AndroidServerSocket#getLatestFrame()}</li>
  * 	</ul>
  *
  * <h1><b>External Access Functions</b>
@@ -82,18 +97,31 @@ public class AndroidServerSocket implements Runnable{
 	private int m_port;
 	private boolean m_running = false;
 	private boolean m_testing = false;
-	private ServerSocket m_server;
-	private Socket m_client;
-	private byte[] frame;
-	private Object lock = new Object();
+	private ServerSocketChannel m_server;
+	private SocketChannel m_client;
+	private final VisionFramePool m_framePool = new VisionFramePool(Constants.kVisionFramePoolSize, Constants.kVisionFrameMaxBytes);
+	private final Object m_latestLock = new Object();
+	private VisionFrame m_latestFrame;
+	private long m_framesReceived = 0;
+	private long m_framesDropped = 0;
+	// Reused for every message
+	private final ByteBuffer m_lengthBuffer = ByteBuffer.allocateDirect(4);
+	private final ByteBuffer m_recordBuffer = ByteBuffer.allocateDirect(VisionRecord.kBytes);
+	private final ByteBuffer m_skipBuffer = ByteBuffer.allocateDirect(4096);
+	private final VisionRecordHolder m_visionRecords;
+	private final VisionSampleHistory m_visionSamples;
 
 	/**
 	 * Creates a AndroidServerSocket instance
 	 * Cannot be called outside as a Singleton
+	 * @param visionRecords Where records sent between images are put as soon as they arrive
+	 * @param visionSamples History the records are also added to
 	 */
-	public AndroidServerSocket(boolean testing, int port){
+	public AndroidServerSocket(boolean testing, int port, VisionRecordHolder visionRecords, VisionSampleHistory visionSamples){
 		m_testing = testing;
 		m_port = port;
+		m_visionRecords = visionRecords;
+		m_visionSamples = visionSamples;
 	}
 
 	/**
@@ -131,8 +159,9 @@ public class AndroidServerSocket implements Runnable{
 		}
 
 		try {
-			m_server = new ServerSocket(m_port);
-			m_server.setReuseAddress(true);
+			m_server = ServerSocketChannel.open();
+			m_server.socket().setReuseAddress(true);
+			m_server.bind(new InetSocketAddress(m_port));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -144,42 +173,32 @@ public class AndroidServerSocket implements Runnable{
 		(new Thread(this, "AndroidServerSocket")).start();
 	}
 
-	private byte[] readBytes(){
-		if(m_client == null || m_client.isClosed() || !m_client.isConnected()){
-			this.SetConnectionState(SocketConnectionState.CLOSED);
-		}
-
-		if(m_socketConnectionState.equals(SocketConnectionState.CLOSED)){
-//			System.out.println("Error: in AndroidServerSocket.readBytes(), " +
-//					"socket is closed");
-			return null;
+	/**
+	 * Reads until buffer is full, blocking on the socket
+	 * @return False if the Nexus closed the connection
+	 */
+	private boolean readFully(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()){
+			if(m_client.read(buffer) < 0){
+				return false;
+			}
 		}
+		return true;
+	}
 
-		try {
-			// Initialize client inputs
-			DataInputStream dis = new DataInputStream(m_client.getInputStream());
-
-			// Get byte data
-			int len = dis.readInt();
-			byte[] data = new byte[len];
-			if(len > 0){
-				dis.readFully(data);
+	/**
+	 * Reads and throws away the rest of a message
+	 */
+	private boolean skip(int length) throws IOException {
+		while(length > 0){
+			m_skipBuffer.clear();
+			m_skipBuffer.limit(Math.min(length, m_skipBuffer.capacity()));
+			if(!this.readFully(m_skipBuffer)){
+				return false;
 			}
-
-//			return compressGZIP(data);
-			return data;
-		} catch (SocketException e) {
-			System.out.println("Error VisionServerThread.readBytes(), " +
-					"Broken connection, attempting to reconnect: " + e.getStackTrace().toString());
-			this.SetConnectionState(SocketConnectionState.CLOSED);
-			return null;
-		} catch (EOFException e) {
-			return null;
-		} catch (IOException e) {
-			e.printStackTrace();
-			this.SetConnectionState(SocketConnectionState.CLOSED);
-			return null;
+			length -= m_skipBuffer.limit();
 		}
+		return true;
 	}
 
 	private byte[] compressGZIP(byte[] data){
@@ -204,18 +223,120 @@ public class AndroidServerSocket implements Runnable{
 		return out.toByteArray();
 	}
 
-	private void updateData() {
-		synchronized (lock) {
-			byte[] data = readBytes();
+	/**
+	 * Reads one message, either a vision record or an image
+	 * @return Whether a message was received
+	 */
+	private boolean updateData() {
+		if(m_client == null || !m_client.isOpen() || !m_client.isConnected()){
+			this.SetConnectionState(SocketConnectionState.CLOSED);
+		}
 
-			if(!(null == data || data.length == 0)){
-				frame = data;
+		if(m_socketConnectionState.equals(SocketConnectionState.CLOSED)){
+			return false;
+		}
+
+		try {
+			m_lengthBuffer.clear();
+			if(!this.readFully(m_lengthBuffer)){
+				this.CloseClient();
+				return false;
+			}
+			int length = m_lengthBuffer.getInt(0);
+			if(length <= 0){
+				// Nothing after this can be framed, start over with a new connection
+				System.out.println("Error AndroidServerSocket.updateData(), " +
+						"Bad length " + length + ", attempting to reconnect");
+				this.CloseClient();
+				return false;
 			}
+
+			// Records are read on their own, so they still come through when every frame is in use
+			if(length == VisionRecord.kBytes){
+				m_recordBuffer.clear();
+				if(!this.readFully(m_recordBuffer)){
+					this.CloseClient();
+					return false;
+				}
+				m_recordBuffer.flip();
+				VisionRecord record = VisionRecord.decode(m_recordBuffer, Timer.getFPGATimestamp());
+				if(record != null){
+					m_visionRecords.set(record);
+					m_visionSamples.add(record);
+				}
+				return true;
+			}
+
+			VisionFrame frame = length <= m_framePool.getFrameCapacity() ? m_framePool.acquire() : null;
+			if(frame == null){
+				m_framesDropped++;
+				if(!this.skip(length)){
+					this.CloseClient();
+					return false;
+				}
+				return true;
+			}
+
+			ByteBuffer buffer = frame.getBufferForWriting();
+			buffer.limit(length);
+			if(!this.readFully(buffer)){
+				frame.release();
+				this.CloseClient();
+				return false;
+			}
+			frame.setFilled(length, Timer.getFPGATimestamp(), ++m_framesReceived);
+
+			VisionFrame previous;
+			synchronized (m_latestLock) {
+				previous = m_latestFrame;
+				m_latestFrame = frame;
+			}
+			if(previous != null){
+				previous.release();
+			}
+			VisionFrameRecorder.getInstance().record(frame);
+			return true;
+		} catch (IOException e) {
+			System.out.println("Error AndroidServerSocket.updateData(), " +
+					"Broken connection, attempting to reconnect: " + e.getMessage());
+			this.CloseClient();
+			return false;
+		}
+	}
+
+	/**
+	 * @return The latest image with a reference the caller must release, null if none has arrived
+	 */
+	public VisionFrame getLatestFrame() {
+		synchronized (m_latestLock) {
+			return m_latestFrame == null ? null : m_latestFrame.retain();
 		}
 	}
 
-	public byte[] getData() {
-		return frame;
+	/**
+	 * @return Images skipped because they were too big or no frame was free
+	 */
+	public long getFramesDropped() {
+		return m_framesDropped;
+	}
+
+	public long getFramesReceived() {
+		return m_framesReceived;
+	}
+
+	public VisionFramePool getFramePool() {
+		return m_framePool;
+	}
+
+	private void CloseClient() {
+		this.SetConnectionState(SocketConnectionState.CLOSED);
+		try {
+			if(m_client != null){
+				m_client.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 
 	private AndroidServerState CheckConnection() {
@@ -240,7 +361,7 @@ public class AndroidServerSocket implements Runnable{
 			// Accept client
 			System.out.println("Trying to connect to client");
 			m_client = m_server.accept();
-			System.out.println("Connected to client: " + m_client.getPort());
+			System.out.println("Connected to client: " + m_client.socket().getPort());
 
 			this.SetConnectionState(SocketConnectionState.ALIVE);
 		} catch (IOException e) {
@@ -257,6 +378,7 @@ public class AndroidServerSocket implements Runnable{
 	public void run() {
 		while(m_running){
 			AndroidServerState initState = m_androidServerState;
+			boolean received = false;
 			switch (m_androidServerState){
 
 				case PREINIT:   // This should never happen
@@ -266,7 +388,7 @@ public class AndroidServerSocket implements Runnable{
 
 				case RECEIVING:
 					this.SetState(this.CheckConnection());
-					this.updateData();
+					received = this.updateData();
 					break;
 
 				case CONNECTING:
@@ -279,6 +401,11 @@ public class AndroidServerSocket implements Runnable{
 				m_stateAliveTime = m_secondsAlive;
 			}
 
+			// Read the next message right away, the read blocks until it arrives
+			if(received){
+				continue;
+			}
+
 			// Handle thread sleeping, sleep for set constant update delay
 			try {
 				Thread.sleep(Constants.kAndroidVisionSocketUpdateRate);
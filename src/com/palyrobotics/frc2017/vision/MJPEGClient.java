@@ -0,0 +1,189 @@
+package com.palyrobotics.frc2017.vision;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * One dashboard connected to the {@link MJPEGServerSocket}
+ *
+ * <h1><b>Frames</b></h1>
+ * 	<br><BLOCKQUOTE>Every client is handed the same frame buffers, it keeps duplicates so only its own positions move.
+ * 	A client is only given a new frame once the last one has been written, frames that arrive while a slow client
+ * 	is still writing are dropped for that client alone. The client holds a reference to the frame it is writing
+ * 	until it is written or the client is closed.</BLOCKQUOTE>
+ *
+ * Only used from the server's thread, except {@link MJPEGClient#getStats()}.
+ */
+class MJPEGClient {
+	// Longest request read before giving up on finding the end of its headers
+	private static final int kMaxRequestLength = 8192;
+
+	private final GatheringByteChannel m_channel;
+	private final String m_address;
+	private final StringBuilder m_request = new StringBuilder();
+	private boolean m_streaming = false;
+
+	// Left to write, the response header goes before the first frame
+	private ByteBuffer m_response;
+	private ByteBuffer[] m_frame;
+	private VisionFrame m_frameReference;
+
+	private long m_framesSent = 0;
+	private long m_framesDropped = 0;
+	private long m_bytesSent = 0;
+
+	// Rates over the last stats period
+	private long m_rateStartTime;
+	private long m_rateStartFrames = 0;
+	private long m_rateStartBytes = 0;
+	private volatile MJPEGServerSocket.ClientStats m_stats;
+
+	/**
+	 * @param now System.nanoTime() when the client connected
+	 */
+	MJPEGClient(GatheringByteChannel channel, String address, long now) {
+		m_channel = channel;
+		m_address = address;
+		m_rateStartTime = now;
+		m_stats = new MJPEGServerSocket.ClientStats(address, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Adds bytes of the HTTP request
+	 * @param data read from the socket, consumed
+	 * @return Whether the request's headers are complete
+	 */
+	boolean readRequest(ByteBuffer data) {
+		while (data.hasRemaining()) {
+			m_request.append((char) (data.get() & 0xFF));
+		}
+		int length = m_request.length();
+		return length >= kMaxRequestLength || m_request.indexOf("\r\n\r\n") >= 0 || m_request.indexOf("\n\n") >= 0;
+	}
+
+	/**
+	 * @return The route requested after "GET /", null if this is not a GET
+	 */
+	String getRoute() {
+		if (m_request.indexOf("GET /") != 0) {
+			return null;
+		}
+		int end = m_request.indexOf(" ", 5);
+		return end < 0 ? null : m_request.substring(5, end);
+	}
+
+	/**
+	 * @param response Shared response header, written before any frame
+	 */
+	void startStreaming(ByteBuffer response) {
+		m_response = response.duplicate();
+		m_streaming = true;
+	}
+
+	boolean isStreaming() {
+		return m_streaming;
+	}
+
+	/**
+	 * Hands the client a frame if it has finished writing the last one
+	 * @param frame Shared buffers of the frame, their positions are left alone
+	 * @param reference Frame the buffers view, retained until written, null if they aren't pooled
+	 * @return Whether the client took the frame, false if it was dropped
+	 */
+	boolean offer(ByteBuffer[] frame, VisionFrame reference) {
+		if (!m_streaming) {
+			return false;
+		}
+		if (m_frame != null) {
+			m_framesDropped++;
+			return false;
+		}
+		m_frame = new ByteBuffer[frame.length];
+		for (int i = 0; i < frame.length; i++) {
+			m_frame[i] = frame[i].duplicate();
+		}
+		m_frameReference = reference == null ? null : reference.retain();
+		return true;
+	}
+
+	boolean hasPending() {
+		return m_response != null || m_frame != null;
+	}
+
+	/**
+	 * Writes as much as the socket takes without blocking
+	 * @return Whether everything pending was written
+	 */
+	boolean write() throws IOException {
+		if (m_response != null) {
+			m_bytesSent += m_channel.write(m_response);
+			if (m_response.hasRemaining()) {
+				return false;
+			}
+			m_response = null;
+		}
+		if (m_frame != null) {
+			m_bytesSent += m_channel.write(m_frame);
+			if (m_frame[m_frame.length - 1].hasRemaining()) {
+				return false;
+			}
+			m_frame = null;
+			m_framesSent++;
+			this.releaseFrame();
+		}
+		return true;
+	}
+
+	/**
+	 * Gives up the frame being written, call when the connection closes
+	 */
+	void close() {
+		m_frame = null;
+		m_response = null;
+		this.releaseFrame();
+	}
+
+	private void releaseFrame() {
+		if (m_frameReference != null) {
+			m_frameReference.release();
+			m_frameReference = null;
+		}
+	}
+
+	/**
+	 * Recomputes the rates since the last update
+	 * @param now System.nanoTime()
+	 */
+	void updateStats(long now) {
+		double seconds = (now - m_rateStartTime) / 1.0e9;
+		if (seconds <= 0) {
+			return;
+		}
+		m_stats = new MJPEGServerSocket.ClientStats(m_address,
+				(m_framesSent - m_rateStartFrames) / seconds, (m_bytesSent - m_rateStartBytes) / seconds,
+				m_framesSent, m_framesDropped);
+		m_rateStartTime = now;
+		m_rateStartFrames = m_framesSent;
+		m_rateStartBytes = m_bytesSent;
+	}
+
+	/**
+	 * @return Rates as of the last {@link MJPEGClient#updateStats(long)}, safe to call from any thread
+	 */
+	MJPEGServerSocket.ClientStats getStats() {
+		return m_stats;
+	}
+
+	long getFramesSent() {
+		return m_framesSent;
+	}
+
+	long getFramesDropped() {
+		return m_framesDropped;
+	}
+
+	long getBytesSent() {
+		return m_bytesSent;
+	}
+}
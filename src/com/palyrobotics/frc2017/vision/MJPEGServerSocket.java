@@ -2,15 +2,30 @@ package com.palyrobotics.frc2017.vision;
 
 import com.palyrobotics.frc2017.config.Constants;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Supplies wrapper methods for using adb to control the Android
+ * Streams the latest image from the Nexus to dashboards as MJPEG
+ *
+ * <h1><b>Streaming</b></h1>
+ * 	<br><BLOCKQUOTE>One thread serves every client with a selector, nothing blocks on a socket.
+ * 	Connections are kept open with a multipart/x-mixed-replace response and each new image is sent as a part.
+ * 	Frames are published by {@link MJPEGServerSocket#publish(VisionFrame)} and never copied, every client writes from
+ * 	views of the same pooled buffer. A client still writing the last image skips the new one, see {@link MJPEGClient}.
+ * 	The server and each client writing a frame hold a reference to it, so it isn't recycled while in use.</BLOCKQUOTE>
  *
  * <h1><b>Fields</b></h1>
  * 	<ul>
@@ -22,31 +37,36 @@ import java.net.SocketException;
  * 		</li>
  * 		<li>Utility variables:
  * 			<ul>
- * 				<li>{@link MJPEGServerSocket#m_secondsAlive}: Private count of seconds the program has run for</li>
- * 				<li>{@link MJPEGServerSocket#m_stateAliveTime}: Private count of seconds the state has run for</li>
- * 				<li>{@link MJPEGServerSocket#m_port}: Port that the ServerSocket listens on (private)</li>
+ * 				<li>{@link MJPEGServerSocket#m_port}: Port that the server listens on (private)</li>
  * 				<li>{@link MJPEGServerSocket#m_running}: Private boolean representing whether the thread is running</li>
- * 				<li>{@link MJPEGServerSocket#m_server}: Server Socket object that listens for android client and receives data (private)</li>
+ * 				<li>{@link MJPEGServerSocket#m_server}: Channel that accepts dashboards (private)</li>
+ * 				<li>{@link MJPEGServerSocket#m_selector}: Selector for the server and every client (private)</li>
+ * 				<li>{@link MJPEGServerSocket#m_pendingFrame}: Latest frame published, not yet sent (private)</li>
+ * 				<li>{@link MJPEGServerSocket#m_clientStats}: Rates of each client, updated every second (private)</li>
  * 			</ul>
  * 		</li>
  * 	</ul>
  *
  * <h1><b>Accessors and Mutators</b></h1>
  * 	<ul>
- * 		<li>{@link AndroidConnectionHelper#getInstance()}</li>
+ * 		<li>{@link MJPEGServerSocket#getPort()}</li>
+ * 		<li>{@link MJPEGServerSocket#getClientStats()}</li>
  * 		<li>{@link MJPEGServerSocket#SetState(MJPEGServerState)}</li>
  * 	</ul>
  *
  * <h1><b>External Access Functions</b>
- * 	<br><BLOCKQUOTE>For using as a wrapper for RIOdroid</BLOCKQUOTE></h1>
+ * 	<br><BLOCKQUOTE>For the vision server thread</BLOCKQUOTE></h1>
  * 	<ul>
  * 		<li>{@link MJPEGServerSocket#start()}</li>
+ * 		<li>{@link MJPEGServerSocket#publish(VisionFrame)}</li>
+ * 		<li>{@link MJPEGServerSocket#stop()}</li>
  * 	</ul>
  *
  * 	<h1><b>Internal Functions</b>
  * 	 <br><BLOCKQUOTE>Paired with external access functions. These compute the actual function for the external access</BLOCKQUOTE></h1>
  * 	 <ul>
  * 	     <li>{@link MJPEGServerSocket#AcceptConnection()}</li>
+ * 	     <li>{@link MJPEGServerSocket#SendFrame(ByteBuffer[], VisionFrame)}</li>
  * 	 </ul>
  *
  * @see MJPEGServerState
@@ -56,96 +76,140 @@ import java.net.SocketException;
 public class MJPEGServerSocket implements Runnable{
 
 	/**
-	 * State of connection between the roboRIO and nexus
+	 * State of the stream
 	 *
 	 * <ul>
 	 *     <li>{@link MJPEGServerState#PREINIT}</li>
-	 *     <li>{@link MJPEGServerState#RECEIVING}</li>
-	 *     <li>{@link MJPEGServerState#CONNECTING}</li>
+	 *     <li>{@link MJPEGServerState#CONNECTING}: No dashboards are connected</li>
+	 *     <li>{@link MJPEGServerState#STREAMING}</li>
 	 * </ul>
 	 */
 	public enum MJPEGServerState {
-		PREINIT, CONNECTING, RECEIVING
+		PREINIT, CONNECTING, STREAMING
 	}
 
-	public enum SocketConnectionState {
-		ALIVE, CLOSED
+	/**
+	 * Rates of one client over the last second
+	 */
+	public static class ClientStats {
+		public final String address;
+		public final double framesPerSecond;
+		public final double bytesPerSecond;
+		public final long framesSent;
+		public final long framesDropped;
+
+		public ClientStats(String address, double framesPerSecond, double bytesPerSecond, long framesSent, long framesDropped) {
+			this.address = address;
+			this.framesPerSecond = framesPerSecond;
+			this.bytesPerSecond = bytesPerSecond;
+			this.framesSent = framesSent;
+			this.framesDropped = framesDropped;
+		}
+
+		@Override
+		public String toString() {
+			return address + " " + String.format("%.1f", framesPerSecond) + " fps " +
+					String.format("%.0f", bytesPerSecond) + " B/s, " + framesDropped + " dropped";
+		}
 	}
 
+	private static final String kBoundary = "team8robotics";
+	private static final ByteBuffer kResponse = ascii("HTTP/1.0 200 OK\r\n" +
+			"Server: Team8NexusVision\r\n" +
+			"Connection: close\r\n" +
+			"Cache-Control: no-cache, private\r\n" +
+			"Pragma: no-cache\r\n" +
+			"Content-Type: multipart/x-mixed-replace; boundary=" + kBoundary + "\r\n" +
+			"\r\n");
+	private static final ByteBuffer kServerError = ascii("HTTP/1.0 500 Internal Server Error\r\n\r\n");
+	private static final ByteBuffer kPartEnd = ascii("\r\n");
+	private static final long kStatsPeriod = 1000000000L;
+
 	// Instance and state variables
-	private MJPEGServerState m_MJPEGServerState = MJPEGServerState.PREINIT;
-	private SocketConnectionState m_socketConnectionState = SocketConnectionState.CLOSED;
+	private volatile MJPEGServerState m_MJPEGServerState = MJPEGServerState.PREINIT;
 
 	// Utility variables
-	private double m_secondsAlive = 0;
-	private double m_stateAliveTime = 0;
 	private int m_port;
-	private boolean m_running = false;
-	private byte[] m_defaultImage;
-	private ServerSocket m_server;
-	private Socket m_client;
-	private String m_boundary = "team8robotics";
+	private volatile boolean m_running = false;
+	private ServerSocketChannel m_server;
+	private Selector m_selector;
+	private final ByteBuffer m_readBuffer = ByteBuffer.allocate(1024);
+	private final AtomicReference<VisionFrame> m_pendingFrame = new AtomicReference<>();
+	// Only touched by the thread publishing
+	private long m_publishedSequence = -1;
+	// Last frame handed to clients and its part buffers, only touched by the server thread
+	private VisionFrame m_sentFrame;
+	private ByteBuffer[] m_sentBuffers;
+	private long m_lastStatsTime;
+	private volatile List<ClientStats> m_clientStats = Collections.emptyList();
 
 	/**
-	 * Creates a DataServerThread instance
-	 * Cannot be called outside as a Singleton
+	 * Creates a MJPEGServerSocket instance
+	 * @param port Port to listen on, 0 for any free port
+	 * @param path Image shown before the Nexus sends one (unused)
 	 */
 	public MJPEGServerSocket(int port, String path){
 		m_port = port;
+	}
 
-//		try {
-//			BufferedImage img = ImageIO.read(new File(path));
-//			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-//			ImageIO.write(img, "JPEG", baos);
-//			baos.close();
-//
-//			m_defaultImage = baos.toByteArray();
-//		} catch (IOException e) {
-//			e.printStackTrace();
-//		}
+	private static ByteBuffer ascii(String text){
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
 	}
 
 	/**
-	 * Sets the state of socket connection
+	 * Sets the state of the stream
 	 * @param state State to switch to
 	 */
 	private void SetState(MJPEGServerState state){
 		m_MJPEGServerState = state;
 	}
 
-	private void SetConnectionState(SocketConnectionState state){
-		m_socketConnectionState = state;
+	public MJPEGServerState getState(){
+		return m_MJPEGServerState;
+	}
+
+	/**
+	 * @return Port the server is listening on, set after {@link MJPEGServerSocket#start()}
+	 */
+	public int getPort(){
+		return m_port;
 	}
 
 	/**
-	 * (DEBUG) Logs the Socket state
+	 * @return Rates of every connected client, updated once a second
 	 */
-	private void logSocketState(){
-		System.out.println("Debug: DataServerThread AndroidServerState - "+ m_MJPEGServerState);
+	public List<ClientStats> getClientStats(){
+		return m_clientStats;
 	}
 
 	/**
-	 * Starts the DataServerThread thread
-	 * <br>Created server socket opens on given port
+	 * Starts the MJPEGServerThread thread
+	 * <br>Opens the server on the given port
 	 */
 	public void start(){
 
 		if(!m_MJPEGServerState.equals(MJPEGServerState.PREINIT)){ // This should never happen
-			System.out.println("Error: in DataServerThread.start(), " +
+			System.out.println("Error: in MJPEGServerSocket.start(), " +
 					"socket is already initialized");
 		}
 
 		if(m_running){  // This should never happen
-			System.out.println("Error: in DataServerThread.start(), " +
+			System.out.println("Error: in MJPEGServerSocket.start(), " +
 					"thread is already running");
 		}
 
 		try {
-			m_server = new ServerSocket(m_port);
-			m_server.setReuseAddress(true);
+			m_selector = Selector.open();
+			m_server = ServerSocketChannel.open();
+			m_server.socket().setReuseAddress(true);
+			m_server.bind(new InetSocketAddress(m_port));
+			m_server.configureBlocking(false);
+			m_server.register(m_selector, SelectionKey.OP_ACCEPT);
+			m_port = m_server.socket().getLocalPort();
 			System.out.println("Vision stream server started");
 		} catch (IOException e) {
 			e.printStackTrace();
+			return;
 		}
 
 		this.SetState(MJPEGServerState.CONNECTING);
@@ -156,221 +220,229 @@ public class MJPEGServerSocket implements Runnable{
 	}
 
 	/**
-	 * Respond to a request from a client.
-	 *
-	 * @throws IOException
+	 * Closes the server and every client
 	 */
-	public void handle(byte[] data) throws IOException {
-		m_client = m_server.accept();
-//		System.out.println("Connected to image socket on port: "+m_client.getPort());
+	public void stop(){
+		m_running = false;
+		if(m_selector != null){
+			m_selector.wakeup();
+		}
+	}
 
-		if(m_client == null){
-//			System.out.println("Warning: in MJPEGServerSocket.handle(), " +
-//					"socket not connected");
+	/**
+	 * Sends an image to every client that is ready for it, without waiting for any of them
+	 * <br>The server takes its own reference, the caller keeps theirs
+	 * @param frame JPEG, ignored if it was already published
+	 */
+	public void publish(VisionFrame frame){
+		if(frame == null || frame.getLength() == 0 || frame.getSequence() == m_publishedSequence){
 			return;
 		}
-
-		BufferedReader reader = null;
-		PrintStream output = null;
-		try {
-			String route = null;
-
-			// Read HTTP headers and parse out the route.
-			reader = new BufferedReader(new InputStreamReader(m_client.getInputStream()));
-			String line;
-			while (!(line = reader.readLine()).isEmpty()) {
-//				System.out.println(line);
-				if (line.startsWith("GET /")) {
-					int start = line.indexOf('/') + 1;
-					int end = line.indexOf(' ', start);
-					route = line.substring(start, end);
-					break;
-				}
-			}
-
-			// Output stream that we send the response to
-			output = new PrintStream(m_client.getOutputStream());
-
-			// Prepare the content to send.
-			if (null == route) {
-				writeServerError(output);
-				return;
-			}
-			if (null == data) {
-				writeServerError(output);
-				return;
-			}
-
-//			System.out.println("Solid: "+data.length);
-
-			// Send out the content.
-			output.println("HTTP/1.1 200 OK");
-			output.println("Cache-Control: no-cache");
-//			output.println("Content-Encoding: gzip");
-			output.println("Content-Type: image/jpeg"   );
-			output.println("Content-Length: " + data.length);
-			output.println();
-			output.write(data);
-			output.flush();
-
-//			output.println("<p>Hello</p>");
-//			output.println("<p>"+data.length+"</p>");
-//			output.flush();
-			
-		} catch (SocketException e) {
-//			System.out.println("Error: in MJPEGServerSocket.handle(), " +
-//					"socket connection broken");
-//			m_client.close();
-//			this.SetConnectionState(SocketConnectionState.CLOSED);
-		} catch (NullPointerException e) {
-			e.printStackTrace();
-		} finally {
-			if (null != output) {
-				output.close();
-			}
-			if (null != reader) {
-				reader.close();
-			}
-
-			m_client.close();
+		m_publishedSequence = frame.getSequence();
+		// Only the newest frame matters, one the server hasn't picked up yet is replaced
+		VisionFrame skipped = m_pendingFrame.getAndSet(frame.retain());
+		if(skipped != null){
+			skipped.release();
+		}
+		if(m_selector != null){
+			m_selector.wakeup();
 		}
 	}
 
 	/**
-	 * Writes a server error response (HTTP/1.0 500) to the given output stream.
-	 *
-	 * @param output The output stream.
+	 * Makes the frame the one handed to clients, with a multipart header in front of it
 	 */
-	private void writeServerError(PrintStream output) {
-		output.println("HTTP/1.0 500 Internal Server Error");
-		output.flush();
+	private void SetSentFrame(VisionFrame frame){
+		if(m_sentFrame != null){
+			m_sentFrame.release();
+		}
+		m_sentFrame = frame;
+		ByteBuffer header = ascii("--" + kBoundary + "\r\n" +
+				"Content-Type: image/jpeg\r\n" +
+				"Content-Length: " + frame.getLength() + "\r\n" +
+				"\r\n");
+		m_sentBuffers = new ByteBuffer[]{header, frame.getData(), kPartEnd};
 	}
 
 	/**
-	 * Detects the MIME type from the {@code fileName}.
-	 *
-	 * @param fileName The name of the file.
-	 * @return A MIME type.
+	 * Accept connection from a client
 	 */
-	private String detectMimeType(String fileName) {
-		if ((fileName).isEmpty()) {
-			return null;
-		} else if (fileName.endsWith(".html")) {
-			return "text/html";
-		} else if (fileName.endsWith(".js")) {
-			return "application/javascript";
-		} else if (fileName.endsWith(".css")) {
-			return "text/css";
-		} else {
-			return "application/octet-stream";
+	private void AcceptConnection() throws IOException {
+		SocketChannel channel = m_server.accept();
+		if(channel == null){
+			return;
+		}
+		if(this.getClientCount() >= Constants.kMJPEGMaxClients){
+			System.out.println("Warning: in MJPEGServerSocket.AcceptConnection(), " +
+					"too many clients, closing " + channel.socket().getRemoteSocketAddress());
+			channel.close();
+			return;
 		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		String address = String.valueOf(channel.socket().getRemoteSocketAddress());
+		channel.register(m_selector, SelectionKey.OP_READ, new MJPEGClient(channel, address, System.nanoTime()));
+		System.out.println("Connected to stream client: " + address);
 	}
 
-	public void WriteImage(byte[] data) throws IOException{
-		PrintStream writer = null;
-		try{
-			writer = new PrintStream(m_client.getOutputStream());
-
-			writer.println();
-			writer.println("--" + m_boundary);
-			writer.println("Content-Type: image/jpeg");
-			writer.println("Content-Length: " + data.length);
-			writer.println();
-			writer.write(data);
-			writer.println();
-			writer.println();
-
-			writer.flush();
-		} catch (SocketException e) {
-//			System.out.println("Error: in MJPEGServerSocket.WriteImage(), " +
-//					"socket connection broken");
-//			m_client.close();
-//			this.SetConnectionState(SocketConnectionState.CLOSED);
-			e.printStackTrace();
-		} catch (NullPointerException e) {
-//			e.printStackTrace();
-		} finally {
-			if (null != writer) {
-				writer.close();
+	private int getClientCount(){
+		int count = 0;
+		for(SelectionKey key : m_selector.keys()){
+			if(key.attachment() instanceof MJPEGClient){
+				count++;
 			}
 		}
+		return count;
 	}
 
-	private MJPEGServerState CheckConnection() {
-		if(m_socketConnectionState.equals(SocketConnectionState.CLOSED)){
-			return MJPEGServerState.CONNECTING;
+	/**
+	 * Reads the client's request, then starts streaming to it
+	 * <br>After the request clients send nothing, reads only notice them closing
+	 */
+	private void ReadRequest(SelectionKey key, MJPEGClient client) throws IOException {
+		m_readBuffer.clear();
+		int read = ((SocketChannel) key.channel()).read(m_readBuffer);
+		if(read < 0){
+			this.CloseClient(key);
+			return;
 		}
-		return m_MJPEGServerState;
+		m_readBuffer.flip();
+		if(client.isStreaming() || !client.readRequest(m_readBuffer)){
+			return;
+		}
+		if(client.getRoute() == null){
+			((SocketChannel) key.channel()).write(kServerError.duplicate());
+			this.CloseClient(key);
+			return;
+		}
+		client.startStreaming(kResponse);
+		if(m_sentFrame != null){
+			client.offer(m_sentBuffers, m_sentFrame);
+		}
+		this.Flush(key, client);
 	}
 
 	/**
-	 * Accept connection from a client
-	 * @return The state after execution
+	 * Writes what the client has pending, and waits for the socket to be writable if it did not all fit
+	 */
+	private void Flush(SelectionKey key, MJPEGClient client) throws IOException {
+		boolean done = client.write();
+		key.interestOps(done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+	}
+
+	/**
+	 * Hands a new frame to every streaming client, those still writing the last frame drop it
 	 */
-	private MJPEGServerState AcceptConnection(){
-		if(m_socketConnectionState.equals(SocketConnectionState.ALIVE)){
-			System.out.println("Error in VisionServerThread.AcceptConnection(), " +
-					"Socket connection is already Alive");
-			return MJPEGServerState.RECEIVING;
+	private void SendFrame(ByteBuffer[] frame, VisionFrame reference){
+		for(SelectionKey key : m_selector.keys()){
+			if(!key.isValid() || !(key.attachment() instanceof MJPEGClient)){
+				continue;
+			}
+			MJPEGClient client = (MJPEGClient) key.attachment();
+			if(client.offer(frame, reference)){
+				try {
+					this.Flush(key, client);
+				} catch (IOException e) {
+					this.CloseClient(key);
+				}
+			}
 		}
+	}
 
+	private void CloseClient(SelectionKey key){
+		key.cancel();
+		if(key.attachment() instanceof MJPEGClient){
+			((MJPEGClient) key.attachment()).close();
+		}
 		try {
-			// Accept client
-//			System.out.println("Trying to connect to client");
-			m_client = m_server.accept();
-			System.out.println("Connected to client: " + m_client.getPort());
-
-			PrintStream writer = new PrintStream(m_client.getOutputStream());
-			writer.println("HTTP/1.0 200 OK");
-			writer.println("Server: Team8NexusVision");
-			writer.println("Connection: close");
-			writer.println("Cache-Control: no cache, private");
-			writer.println("Pragma: no-cache");
-			writer.println("Content-Type: multipart/x-mixed-replace;boundary=--" + m_boundary);
-
-			this.SetConnectionState(SocketConnectionState.ALIVE);
+			key.channel().close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+	}
 
-		return MJPEGServerState.RECEIVING;
+	private void UpdateStats(long now){
+		List<ClientStats> stats = new ArrayList<>();
+		for(SelectionKey key : m_selector.keys()){
+			if(key.isValid() && key.attachment() instanceof MJPEGClient){
+				MJPEGClient client = (MJPEGClient) key.attachment();
+				client.updateStats(now);
+				stats.add(client.getStats());
+			}
+		}
+		m_clientStats = Collections.unmodifiableList(stats);
+		this.SetState(stats.isEmpty() ? MJPEGServerState.CONNECTING : MJPEGServerState.STREAMING);
+		m_lastStatsTime = now;
 	}
 
 	/**
-	 * Updates the thread at {@link Constants#kAndroidConnectionUpdateRate} ms
+	 * Serves clients until stopped, waking for socket events and new frames
 	 */
 	@Override
 	public void run() {
+		m_lastStatsTime = System.nanoTime();
 		while(m_running){
-			MJPEGServerState initState = m_MJPEGServerState;
-			switch (m_MJPEGServerState){
-
-				case PREINIT:   // This should never happen
-					System.out.println("Error: in DataServerThread.run(), " +
-							"thread running on preinit state");
-					break;
-
-				case RECEIVING:
-//					this.SetState(this.CheckConnection());
-					break;
+			try {
+				m_selector.select(Constants.kMJPEGVisionSocketUpdateRate * 10);
+			} catch (IOException | ClosedSelectorException e) {
+				e.printStackTrace();
+				break;
+			}
 
-				case CONNECTING:
-//					this.SetState(this.AcceptConnection());
-					break;
+			Iterator<SelectionKey> keys = m_selector.selectedKeys().iterator();
+			while(keys.hasNext()){
+				SelectionKey key = keys.next();
+				keys.remove();
+				try {
+					if(!key.isValid()){
+						continue;
+					}
+					if(key.isAcceptable()){
+						this.AcceptConnection();
+						continue;
+					}
+					MJPEGClient client = (MJPEGClient) key.attachment();
+					if(key.isReadable()){
+						this.ReadRequest(key, client);
+					}
+					if(key.isValid() && key.isWritable()){
+						this.Flush(key, client);
+					}
+				} catch (IOException e) {
+					// Dashboard went away
+					this.CloseClient(key);
+				}
 			}
 
-			// Reset state start time if state changed
-			if(!initState.equals(m_MJPEGServerState)){
-				m_stateAliveTime = m_secondsAlive;
+			VisionFrame frame = m_pendingFrame.getAndSet(null);
+			if(frame != null){
+				this.SetSentFrame(frame);
+				this.SendFrame(m_sentBuffers, m_sentFrame);
 			}
 
-			// Handle thread sleeping, sleep for set constant update delay
-			try {
-				Thread.sleep(Constants.kAndroidDataSocketUpdateRate);
-				m_secondsAlive += Constants.kAndroidDataSocketUpdateRate /1000.0;
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+			long now = System.nanoTime();
+			if(now - m_lastStatsTime >= kStatsPeriod){
+				this.UpdateStats(now);
 			}
 		}
+
+		for(SelectionKey key : m_selector.keys()){
+			this.CloseClient(key);
+		}
+		try {
+			m_selector.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		VisionFrame pending = m_pendingFrame.getAndSet(null);
+		if(pending != null){
+			pending.release();
+		}
+		if(m_sentFrame != null){
+			m_sentFrame.release();
+			m_sentFrame = null;
+		}
+		m_clientStats = Collections.emptyList();
+		this.SetState(MJPEGServerState.PREINIT);
 	}
 }
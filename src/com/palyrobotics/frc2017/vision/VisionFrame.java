@@ -0,0 +1,105 @@
+package com.palyrobotics.frc2017.vision;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One image from the Nexus, held in a buffer borrowed from a {@link VisionFramePool}
+ *
+ * <h1><b>References</b></h1>
+ * 	<br><BLOCKQUOTE>A frame goes back to its pool once every holder has released it.
+ * 	Whoever is handed a frame owns one reference and must {@link VisionFrame#release()} it, anyone keeping it
+ * 	longer (like a dashboard still being written to) takes its own with {@link VisionFrame#retain()}.
+ * 	Once filled the bytes never change until the frame is recycled, so holders can read it from any thread.</BLOCKQUOTE>
+ */
+public class VisionFrame {
+	private final VisionFramePool m_pool;
+	private final ByteBuffer m_buffer;
+	private final ByteBuffer m_readOnly;
+	private final AtomicInteger m_references = new AtomicInteger(0);
+	private volatile int m_length = 0;
+	private volatile double m_receivedTime = 0;
+	private volatile long m_sequence = 0;
+
+	VisionFrame(VisionFramePool pool, int capacity) {
+		m_pool = pool;
+		m_buffer = ByteBuffer.allocateDirect(capacity);
+		m_readOnly = m_buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Called by the pool when the frame is handed out
+	 */
+	void acquired() {
+		m_references.set(1);
+		m_length = 0;
+	}
+
+	/**
+	 * @return The whole buffer, cleared, for the socket to read an image into
+	 */
+	ByteBuffer getBufferForWriting() {
+		m_buffer.clear();
+		return m_buffer;
+	}
+
+	/**
+	 * Marks the image as read, after this the bytes must not change
+	 * @param length bytes of the image
+	 * @param receivedTime roboRIO time the image arrived
+	 * @param sequence count of images received, to tell frames apart
+	 */
+	void setFilled(int length, double receivedTime, long sequence) {
+		m_receivedTime = receivedTime;
+		m_sequence = sequence;
+		m_length = length;
+	}
+
+	/**
+	 * @return A read only view of the image, with its own position and limit
+	 */
+	public ByteBuffer getData() {
+		ByteBuffer view = m_readOnly.duplicate();
+		view.position(0).limit(m_length);
+		return view;
+	}
+
+	public int getLength() {
+		return m_length;
+	}
+
+	public double getReceivedTime() {
+		return m_receivedTime;
+	}
+
+	public long getSequence() {
+		return m_sequence;
+	}
+
+	public int getReferenceCount() {
+		return m_references.get();
+	}
+
+	/**
+	 * Takes another reference, only valid while the caller already holds one
+	 * @return This frame
+	 */
+	public VisionFrame retain() {
+		if (m_references.getAndIncrement() <= 0) {
+			throw new IllegalStateException("Retained a frame that was already released");
+		}
+		return this;
+	}
+
+	/**
+	 * Gives up a reference, the last one returns the frame to its pool
+	 */
+	public void release() {
+		int references = m_references.decrementAndGet();
+		if (references == 0) {
+			m_pool.recycle(this);
+		} else if (references < 0) {
+			throw new IllegalStateException("Released a frame more times than it was retained");
+		}
+	}
+}
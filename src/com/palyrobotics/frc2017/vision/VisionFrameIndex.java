@@ -0,0 +1,51 @@
+package com.palyrobotics.frc2017.vision;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the index written by {@link VisionFrameRecorder}
+ *
+ * <h1><b>Format</b></h1>
+ * 	<br><BLOCKQUOTE>Big endian. A {@link VisionFrameIndex#kHeaderSize} byte header, then one
+ * 	{@link VisionFrameIndex#kEntrySize} byte entry per frame in the order they were received.</BLOCKQUOTE>
+ * 	<ul>
+ * 		<li>Header: int magic {@link VisionFrameIndex#kMagic}, int version, int entry size, int reserved</li>
+ * 		<li>Entry: double time, seconds on the roboRIO's clock when the image arrived, like the match recording</li>
+ * 		<li>Entry: long sequence, images received by the socket so far, gaps are images that were dropped</li>
+ * 		<li>Entry: long offset of the JPEG in its segment</li>
+ * 		<li>Entry: int segment number, int length of the JPEG</li>
+ * 	</ul>
+ */
+public class VisionFrameIndex {
+	// "VIDX"
+	public static final int kMagic = 0x56494458;
+	public static final int kVersion = 1;
+	public static final int kHeaderSize = 16;
+	public static final int kEntrySize = 32;
+	public static final String kSegmentExtension = ".mjpg";
+
+	private VisionFrameIndex() {
+	}
+
+	public static ByteBuffer createHeader() {
+		ByteBuffer header = ByteBuffer.allocate(kHeaderSize);
+		header.putInt(kMagic).putInt(kVersion).putInt(kEntrySize).putInt(0);
+		header.flip();
+		return header;
+	}
+
+	public static void putEntry(ByteBuffer buffer, double time, long sequence, long offset, int segment, int length) {
+		buffer.putDouble(time).putLong(sequence).putLong(offset).putInt(segment).putInt(length);
+	}
+
+	/**
+	 * @return Segment next to the index, match.vindex has match-0.mjpg, match-1.mjpg...
+	 */
+	public static File getSegmentFile(File indexFile, int segment) {
+		String name = indexFile.getName();
+		int dot = name.lastIndexOf('.');
+		String base = (dot < 0) ? name : name.substring(0, dot);
+		return new File(indexFile.getAbsoluteFile().getParentFile(), base + "-" + segment + kSegmentExtension);
+	}
+}
@@ -0,0 +1,64 @@
+package com.palyrobotics.frc2017.vision;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Fixed set of {@link VisionFrame}s that images from the Nexus are read into <br />
+ * Every buffer is allocated up front, direct so the socket reads straight into it, and reused once released.
+ * When all of them are in use new images are dropped rather than allocating more.
+ */
+public class VisionFramePool {
+	private final ArrayBlockingQueue<VisionFrame> m_free;
+	private final int m_frameCapacity;
+	private final int m_size;
+	private volatile long m_misses = 0;
+
+	/**
+	 * @param frames number of frames
+	 * @param frameCapacity largest image in bytes
+	 */
+	public VisionFramePool(int frames, int frameCapacity) {
+		m_free = new ArrayBlockingQueue<>(frames);
+		m_frameCapacity = frameCapacity;
+		m_size = frames;
+		for (int i = 0; i < frames; i++) {
+			m_free.add(new VisionFrame(this, frameCapacity));
+		}
+	}
+
+	/**
+	 * @return A free frame holding one reference, or null if every frame is in use
+	 */
+	public VisionFrame acquire() {
+		VisionFrame frame = m_free.poll();
+		if (frame == null) {
+			m_misses++;
+			return null;
+		}
+		frame.acquired();
+		return frame;
+	}
+
+	void recycle(VisionFrame frame) {
+		m_free.offer(frame);
+	}
+
+	public int getFrameCapacity() {
+		return m_frameCapacity;
+	}
+
+	public int getSize() {
+		return m_size;
+	}
+
+	public int getFreeCount() {
+		return m_free.size();
+	}
+
+	/**
+	 * @return Times a frame was wanted but none were free
+	 */
+	public long getMisses() {
+		return m_misses;
+	}
+}
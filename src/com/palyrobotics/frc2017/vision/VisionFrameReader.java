@@ -0,0 +1,154 @@
+package com.palyrobotics.frc2017.vision;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a recording written by {@link VisionFrameRecorder}, for looking at what the Nexus saw after a match
+ *
+ * <h1><b>Reading</b></h1>
+ * 	<br><BLOCKQUOTE>The index is memory mapped and {@link VisionFrameReader#seek(double)} binary searches it.
+ * 	Frames are read from their segment at the offset in the index, clips are copied from segment to file
+ * 	with FileChannel.transferTo so they never pass through the heap. A partial last entry, from a recording
+ * 	that was cut off, is ignored.</BLOCKQUOTE>
+ *
+ * Close the reader to close the segments it opened.
+ */
+public class VisionFrameReader implements AutoCloseable {
+	private final File m_indexFile;
+	private final ByteBuffer m_index;
+	private final int m_frameCount;
+	private final Map<Integer, FileChannel> m_segments = new HashMap<>();
+
+	public VisionFrameReader(File indexFile) throws IOException {
+		m_indexFile = indexFile;
+		try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+			m_index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (m_index.capacity() < VisionFrameIndex.kHeaderSize || m_index.getInt(0) != VisionFrameIndex.kMagic) {
+			throw new IOException(indexFile + ": not a vision frame index");
+		}
+		if (m_index.getInt(4) != VisionFrameIndex.kVersion || m_index.getInt(8) != VisionFrameIndex.kEntrySize) {
+			throw new IOException(indexFile + ": unsupported index version " + m_index.getInt(4));
+		}
+		m_frameCount = (m_index.capacity() - VisionFrameIndex.kHeaderSize) / VisionFrameIndex.kEntrySize;
+	}
+
+	public int getFrameCount() {
+		return m_frameCount;
+	}
+
+	/**
+	 * @return roboRIO time in seconds the frame arrived
+	 */
+	public double getTime(int frame) {
+		return m_index.getDouble(entry(frame));
+	}
+
+	public long getSequence(int frame) {
+		return m_index.getLong(entry(frame) + 8);
+	}
+
+	public int getLength(int frame) {
+		return m_index.getInt(entry(frame) + 28);
+	}
+
+	/**
+	 * Finds the last frame at or before the time in O(log n)
+	 * @return frame index, 0 if the time is before the recording, -1 if there are no frames
+	 */
+	public int seek(double time) {
+		if (m_frameCount == 0) {
+			return -1;
+		}
+		int low = 0;
+		int high = m_frameCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (getTime(mid) <= time) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the frame's JPEG
+	 */
+	public byte[] readFrame(int frame) throws IOException {
+		byte[] image = new byte[getLength(frame)];
+		ByteBuffer buffer = ByteBuffer.wrap(image);
+		FileChannel segment = segment(frame);
+		long offset = m_index.getLong(entry(frame) + 16);
+		while (buffer.hasRemaining()) {
+			if (segment.read(buffer, offset + buffer.position()) < 0) {
+				throw new IOException("Frame " + frame + " is past the end of its segment");
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Writes the frames between two times as one MJPEG file, which most video players open
+	 * @param start roboRIO time, the frame showing at start is included
+	 * @param end roboRIO time, inclusive
+	 * @return number of frames written
+	 */
+	public int writeClip(double start, double end, File output) throws IOException {
+		int first = seek(start);
+		if (first < 0) {
+			return 0;
+		}
+		int count = 0;
+		try (FileChannel out = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (int frame = first; frame < m_frameCount && getTime(frame) <= end; frame++) {
+				FileChannel segment = segment(frame);
+				long offset = m_index.getLong(entry(frame) + 16);
+				long length = getLength(frame);
+				long written = 0;
+				while (written < length) {
+					long transferred = segment.transferTo(offset + written, length - written, out);
+					if (transferred <= 0) {
+						throw new IOException("Frame " + frame + " is past the end of its segment");
+					}
+					written += transferred;
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (FileChannel segment : m_segments.values()) {
+			segment.close();
+		}
+		m_segments.clear();
+	}
+
+	private FileChannel segment(int frame) throws IOException {
+		int number = m_index.getInt(entry(frame) + 24);
+		FileChannel segment = m_segments.get(number);
+		if (segment == null) {
+			segment = FileChannel.open(VisionFrameIndex.getSegmentFile(m_indexFile, number).toPath(), StandardOpenOption.READ);
+			m_segments.put(number, segment);
+		}
+		return segment;
+	}
+
+	private int entry(int frame) {
+		if (frame < 0 || frame >= m_frameCount) {
+			throw new IndexOutOfBoundsException("Frame " + frame + " of " + m_frameCount);
+		}
+		return VisionFrameIndex.kHeaderSize + frame * VisionFrameIndex.kEntrySize;
+	}
+}
@@ -0,0 +1,243 @@
+package com.palyrobotics.frc2017.vision;
+
+import com.palyrobotics.frc2017.config.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records every image from the Nexus during a match, to review what it saw next to the match recording
+ *
+ * <h1><b>Files</b></h1>
+ * 	<br><BLOCKQUOTE>Images are appended to segments, match-0.mjpg, match-1.mjpg and so on. A segment is only the JPEGs
+ * 	back to back, so it also plays as MJPEG. The index, match.vindex, locates each frame, see {@link VisionFrameIndex}.
+ * 	Read them back with {@link VisionFrameReader}.</BLOCKQUOTE>
+ *
+ * <h1><b>Writing</b></h1>
+ * 	<br><BLOCKQUOTE>{@link VisionFrameRecorder#record(VisionFrame)} retains the frame and queues it for a writer thread,
+ * 	so the socket thread never waits on the USB stick. If the queue is full the oldest frame is dropped.
+ * 	Each frame is written before its index entry, so the index never points past the data.</BLOCKQUOTE>
+ */
+public class VisionFrameRecorder {
+	private static VisionFrameRecorder s_instance = new VisionFrameRecorder();
+	public static VisionFrameRecorder getInstance() {
+		return s_instance;
+	}
+
+	private final BlockingQueue<VisionFrame> m_queue = new ArrayBlockingQueue<>(Constants.kVisionRecorderQueueSize);
+	// Tells the writer thread to close the files
+	private final VisionFrame m_endOfRecording = new VisionFrame(null, 0);
+	private final ByteBuffer m_entry = ByteBuffer.allocate(VisionFrameIndex.kEntrySize);
+	// Held while queueing, so no frame is queued after the end of a recording
+	private final Object m_queueLock = new Object();
+
+	private volatile boolean m_recording = false;
+	private volatile long m_framesWritten = 0;
+	private volatile long m_framesDropped = 0;
+	private File m_indexFile = null;
+	private Thread m_writingThread = null;
+	// Writer of the last recording, may still be writing if stop() timed out
+	private Thread m_stoppedThread = null;
+
+	private VisionFrameRecorder() {
+	}
+
+	/**
+	 * Starts a recording with segments of {@link Constants#kVisionRecordingSegmentBytes}
+	 * @see VisionFrameRecorder#start(File, long)
+	 */
+	public boolean start(File indexFile) {
+		return this.start(indexFile, Constants.kVisionRecordingSegmentBytes);
+	}
+
+	/**
+	 * Starts a new recording, named like the index file but never overwriting an existing one
+	 * @param indexFile for example match.vindex, becomes match1.vindex if that exists
+	 * @param segmentBytes a new segment is started once one passes this size
+	 * @return false if the directory doesn't exist (no USB stick) or the files could not be created
+	 */
+	public synchronized boolean start(File indexFile, long segmentBytes) {
+		if (m_writingThread != null) {
+			// Already recording, keep the match in one recording
+			return true;
+		}
+		if (m_stoppedThread != null && m_stoppedThread.isAlive()) {
+			// It shares the queue, wait for it to take its end of recording
+			System.out.println("Warning: in VisionFrameRecorder.start(), still writing " + m_indexFile + ", not recording vision");
+			return false;
+		}
+		File directory = indexFile.getAbsoluteFile().getParentFile();
+		if (!directory.isDirectory()) {
+			System.out.println("Warning: in VisionFrameRecorder.start(), " + directory + " does not exist, not recording vision");
+			return false;
+		}
+		String name = indexFile.getName();
+		int dot = name.lastIndexOf('.');
+		String base = (dot < 0) ? name : name.substring(0, dot);
+		String extension = (dot < 0) ? "" : name.substring(dot);
+		int duplicatePrevent = 0;
+		while (indexFile.exists()) {
+			duplicatePrevent++;
+			indexFile = new File(indexFile.getParentFile(), base + duplicatePrevent + extension);
+		}
+		final FileChannel index;
+		try {
+			index = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			ByteBuffer header = VisionFrameIndex.createHeader();
+			while (header.hasRemaining()) {
+				index.write(header);
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to create vision recording at " + indexFile);
+			e.printStackTrace();
+			return false;
+		}
+		m_indexFile = indexFile;
+		m_framesWritten = 0;
+		m_framesDropped = 0;
+		final File segmentBase = indexFile;
+		m_writingThread = new Thread(() -> this.writeFrames(index, segmentBase, segmentBytes), "VisionFrameRecorder");
+		m_writingThread.start();
+		m_recording = true;
+		System.out.println("Recording vision to " + indexFile);
+		return true;
+	}
+
+	/**
+	 * Queues a frame to be written, called by the thread receiving images, never blocks
+	 * @param frame the caller keeps its reference, the recorder takes its own
+	 */
+	public void record(VisionFrame frame) {
+		if (!m_recording || frame == null) {
+			return;
+		}
+		synchronized (m_queueLock) {
+			if (!m_recording) {
+				return;
+			}
+			frame.retain();
+			this.enqueue(frame);
+		}
+	}
+
+	// Drops the oldest frames until there is room, call holding m_queueLock
+	private void enqueue(VisionFrame frame) {
+		while (!m_queue.offer(frame)) {
+			VisionFrame oldest = m_queue.poll();
+			if (oldest != null) {
+				oldest.release();
+				m_framesDropped++;
+			}
+		}
+	}
+
+	/**
+	 * Writes the frames still queued and closes the files <br />
+	 * Queueing the end of the recording never blocks, if the queue is full the oldest frame is dropped for it.
+	 * Waits at most {@link Constants#kVisionRecorderStopTimeoutMs} for the writer, after that it finishes on its own.
+	 */
+	public void stop() {
+		Thread writingThread;
+		synchronized (this) {
+			if (m_writingThread == null) {
+				return;
+			}
+			synchronized (m_queueLock) {
+				m_recording = false;
+				this.enqueue(m_endOfRecording);
+			}
+			writingThread = m_writingThread;
+			m_writingThread = null;
+			m_stoppedThread = writingThread;
+		}
+		try {
+			writingThread.join(Constants.kVisionRecorderStopTimeoutMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (writingThread.isAlive()) {
+			System.err.println("Vision recorder still writing to " + m_indexFile + " after "
+					+ Constants.kVisionRecorderStopTimeoutMs + " ms");
+			return;
+		}
+		if (m_framesDropped > 0) {
+			System.err.println("Vision recorder dropped " + m_framesDropped + " frames");
+		}
+		System.out.println("Vision recording saved to " + m_indexFile);
+	}
+
+	public boolean isRecording() {
+		return m_recording;
+	}
+
+	public long getFramesWritten() {
+		return m_framesWritten;
+	}
+
+	/**
+	 * @return Frames dropped because the queue was full
+	 */
+	public long getFramesDropped() {
+		return m_framesDropped;
+	}
+
+	public File getIndexFile() {
+		return m_indexFile;
+	}
+
+	private void writeFrames(FileChannel index, File indexFile, long segmentBytes) {
+		FileChannel segment = null;
+		int segmentNumber = -1;
+		try {
+			while (true) {
+				VisionFrame frame = m_queue.take();
+				if (frame == m_endOfRecording) {
+					break;
+				}
+				try {
+					if (segment == null || segment.position() >= segmentBytes) {
+						if (segment != null) {
+							segment.close();
+						}
+						segmentNumber++;
+						segment = FileChannel.open(VisionFrameIndex.getSegmentFile(indexFile, segmentNumber).toPath(),
+								StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+					}
+					long offset = segment.position();
+					ByteBuffer data = frame.getData();
+					while (data.hasRemaining()) {
+						segment.write(data);
+					}
+					VisionFrameIndex.putEntry(m_entry, frame.getReceivedTime(), frame.getSequence(), offset,
+							segmentNumber, frame.getLength());
+					m_entry.flip();
+					while (m_entry.hasRemaining()) {
+						index.write(m_entry);
+					}
+					m_entry.clear();
+					m_framesWritten++;
+				} catch (IOException e) {
+					e.printStackTrace();
+				} finally {
+					frame.release();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				if (segment != null) {
+					segment.close();
+				}
+				index.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
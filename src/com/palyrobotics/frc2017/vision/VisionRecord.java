@@ -0,0 +1,117 @@
+package com.palyrobotics.frc2017.vision;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One sample of vision data from the Nexus, sent over the vision socket instead of polled from data.json
+ *
+ * <h1><b>Format</b></h1>
+ * 	<br><BLOCKQUOTE>Sent with the same framing as images, an int length followed by the bytes.
+ * 	The payload is {@link VisionRecord#kBytes} bytes, big endian (as written by DataOutputStream)</BLOCKQUOTE>
+ * 	<ul>
+ * 		<li>int magic, {@link VisionRecord#kMagic}, so records can't be mistaken for a JPEG</li>
+ * 		<li>long timestamp, milliseconds on the Nexus' clock when the image was captured</li>
+ * 		<li>int state, see {@link State}</li>
+ * 		<li>double x_displacement, same as in data.json</li>
+ * 		<li>double confidence, 0 to 1</li>
+ * 	</ul>
+ *
+ * Records are immutable so they can be handed between threads without locking.
+ */
+public class VisionRecord {
+
+	/**
+	 * State of the vision app, sent as its code
+	 */
+	public enum State {
+		NONE(0), STREAMING(1);
+
+		public final int code;
+
+		State(int code) {
+			this.code = code;
+		}
+
+		/**
+		 * @return NONE for codes this version doesn't know about
+		 */
+		public static State fromCode(int code) {
+			for (State state : values()) {
+				if (state.code == code) {
+					return state;
+				}
+			}
+			return NONE;
+		}
+	}
+
+	// "VREC"
+	public static final int kMagic = 0x56524543;
+	public static final int kBytes = 32;
+
+	public final long timestamp;
+	public final State state;
+	public final double xDisplacement;
+	public final double confidence;
+	// Seconds on the roboRIO's clock when the record arrived
+	public final double receivedTime;
+
+	public VisionRecord(long timestamp, State state, double xDisplacement, double confidence, double receivedTime) {
+		this.timestamp = timestamp;
+		this.state = state;
+		this.xDisplacement = xDisplacement;
+		this.confidence = confidence;
+		this.receivedTime = receivedTime;
+	}
+
+	/**
+	 * @param data payload of one message from the socket
+	 * @param length bytes of data that were read
+	 * @param receivedTime roboRIO time the message arrived
+	 * @return the record, or null if the message is not a record (like an image)
+	 */
+	public static VisionRecord decode(byte[] data, int length, double receivedTime) {
+		if (data == null || length != kBytes) {
+			return null;
+		}
+		return decode(ByteBuffer.wrap(data, 0, length), receivedTime);
+	}
+
+	/**
+	 * @param data payload of one message, from its position to its limit, the position is left alone
+	 * @param receivedTime roboRIO time the message arrived
+	 * @return the record, or null if the message is not a record
+	 */
+	public static VisionRecord decode(ByteBuffer data, double receivedTime) {
+		if (data == null || data.remaining() != kBytes) {
+			return null;
+		}
+		int start = data.position();
+		if (data.getInt(start) != kMagic) {
+			return null;
+		}
+		long timestamp = data.getLong(start + 4);
+		State state = State.fromCode(data.getInt(start + 12));
+		double xDisplacement = data.getDouble(start + 16);
+		double confidence = data.getDouble(start + 24);
+		return new VisionRecord(timestamp, state, xDisplacement, confidence, receivedTime);
+	}
+
+	/**
+	 * Writes the payload the Nexus sends for this record, without the length
+	 */
+	public byte[] encode() {
+		ByteBuffer buffer = ByteBuffer.allocate(kBytes);
+		buffer.putInt(kMagic);
+		buffer.putLong(timestamp);
+		buffer.putInt(state.code);
+		buffer.putDouble(xDisplacement);
+		buffer.putDouble(confidence);
+		return buffer.array();
+	}
+
+	@Override
+	public String toString() {
+		return "VisionRecord " + state + " x " + xDisplacement + " confidence " + confidence + " at " + timestamp;
+	}
+}
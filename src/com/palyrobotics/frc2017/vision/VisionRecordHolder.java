@@ -0,0 +1,47 @@
+package com.palyrobotics.frc2017.vision;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latest {@link VisionRecord} from the Nexus <br />
+ * The socket thread sets each record as it arrives, routines read the latest one without locking.
+ */
+public class VisionRecordHolder {
+	private final AtomicReference<VisionRecord> m_latest = new AtomicReference<>();
+	private volatile long m_count = 0;
+
+	/**
+	 * Called by the one thread receiving records
+	 */
+	public void set(VisionRecord record) {
+		m_latest.set(record);
+		m_count++;
+	}
+
+	/**
+	 * @return the latest record, null if none has arrived
+	 */
+	public VisionRecord get() {
+		return m_latest.get();
+	}
+
+	/**
+	 * @param now roboRIO time in seconds
+	 * @param timeout seconds after which a record is too old to use
+	 * @return the latest record if it arrived within timeout, otherwise null
+	 */
+	public VisionRecord getFresh(double now, double timeout) {
+		VisionRecord record = m_latest.get();
+		if (record == null || now - record.receivedTime > timeout) {
+			return null;
+		}
+		return record;
+	}
+
+	/**
+	 * Number of records received so far
+	 */
+	public long getCount() {
+		return m_count;
+	}
+}
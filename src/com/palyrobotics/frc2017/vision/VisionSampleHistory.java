@@ -0,0 +1,144 @@
+package com.palyrobotics.frc2017.vision;
+
+import com.palyrobotics.frc2017.config.RobotStateHistory;
+
+/**
+ * Recent vision records with when their images were captured on the roboRIO's clock
+ *
+ * <h1><b>Capture time</b></h1>
+ * 	<br><BLOCKQUOTE>Records are stamped with the Nexus' clock. The offset to the roboRIO's clock is estimated as
+ * 	the smallest difference between when a record arrived and when it was captured, over the samples kept.
+ * 	That is the offset plus the fastest delivery, so capture times are late by at most a few milliseconds.</BLOCKQUOTE>
+ *
+ * <h1><b>Latency compensation</b></h1>
+ * 	<br><BLOCKQUOTE>The x displacement is where the peg is relative to the robot, the routines send it straight to
+ * 	the slider as a position, so it doesn't change when the slider moves and isn't corrected for it.
+ * 	Drivetrain motion is not corrected either, the distance to the target isn't known; use the capture time to
+ * 	wait for an image taken after a move, and {@link RobotStateHistory#getPoseAt} to check the robot didn't turn.</BLOCKQUOTE>
+ *
+ * A fixed size ring, allocated up front. The socket thread adds, routines read, each call locks briefly.
+ */
+public class VisionSampleHistory {
+	private final double[] m_captureTimes;
+	private final double[] m_receivedTimes;
+	// Nexus capture time in seconds, the offset is estimated from these
+	private final double[] m_timestamps;
+	private final double[] m_xDisplacements;
+	private final double[] m_confidences;
+	private final boolean[] m_streaming;
+	private int m_next = 0;
+	private int m_size = 0;
+	private double m_clockOffset = 0;
+
+	/**
+	 * @param capacity records kept
+	 */
+	public VisionSampleHistory(int capacity){
+		m_captureTimes = new double[capacity];
+		m_receivedTimes = new double[capacity];
+		m_timestamps = new double[capacity];
+		m_xDisplacements = new double[capacity];
+		m_confidences = new double[capacity];
+		m_streaming = new boolean[capacity];
+	}
+
+	/**
+	 * Adds a record as it arrives
+	 */
+	public synchronized void add(VisionRecord record){
+		m_timestamps[m_next] = record.timestamp / 1000.0;
+		m_receivedTimes[m_next] = record.receivedTime;
+		m_xDisplacements[m_next] = record.xDisplacement;
+		m_confidences[m_next] = record.confidence;
+		m_streaming[m_next] = record.state == VisionRecord.State.STREAMING;
+		m_next = (m_next + 1) % m_captureTimes.length;
+		if(m_size < m_captureTimes.length){
+			m_size++;
+		}
+		this.updateClockOffset();
+	}
+
+	private void updateClockOffset(){
+		double offset = Double.POSITIVE_INFINITY;
+		for(int i = 0; i < m_size; i++){
+			offset = Math.min(offset, m_receivedTimes[i] - m_timestamps[i]);
+		}
+		m_clockOffset = offset;
+		for(int i = 0; i < m_size; i++){
+			m_captureTimes[i] = m_timestamps[i] + offset;
+		}
+	}
+
+	public synchronized void clear(){
+		m_next = 0;
+		m_size = 0;
+	}
+
+	public synchronized int size(){
+		return m_size;
+	}
+
+	// i = 0 is the newest sample
+	private int index(int i){
+		return (m_next - 1 - i + 2 * m_captureTimes.length) % m_captureTimes.length;
+	}
+
+	/**
+	 * @param i 0 for the newest sample
+	 * @return roboRIO time the sample's image was captured
+	 */
+	public synchronized double getCaptureTime(int i){
+		return m_captureTimes[this.index(i)];
+	}
+
+	public synchronized double getXDisplacement(int i){
+		return m_xDisplacements[this.index(i)];
+	}
+
+	public synchronized double getConfidence(int i){
+		return m_confidences[this.index(i)];
+	}
+
+	public synchronized boolean isStreaming(int i){
+		return m_streaming[this.index(i)];
+	}
+
+	/**
+	 * @return Seconds to add to the Nexus' clock to get the roboRIO's
+	 */
+	public synchronized double getClockOffset(){
+		return m_clockOffset;
+	}
+
+	/**
+	 * @return Capture time of the newest streaming sample that arrived within timeout, NaN if there is none
+	 */
+	public synchronized double getLatestCaptureTime(double now, double timeout){
+		int newest = this.getNewestStreaming(now, timeout);
+		return newest < 0 ? Double.NaN : m_captureTimes[newest];
+	}
+
+	/**
+	 * X displacement of the same sample as {@link VisionSampleHistory#getLatestCaptureTime}
+	 * @param now roboRIO time
+	 * @param timeout samples that arrived longer ago than this are not used
+	 * @return inches, NaN if there is no fresh sample
+	 */
+	public synchronized double getLatestXDisplacement(double now, double timeout){
+		int newest = this.getNewestStreaming(now, timeout);
+		return newest < 0 ? Double.NaN : m_xDisplacements[newest];
+	}
+
+	private int getNewestStreaming(double now, double timeout){
+		for(int i = 0; i < m_size; i++){
+			int sample = this.index(i);
+			if(now - m_receivedTimes[sample] > timeout){
+				return -1;
+			}
+			if(m_streaming[sample]){
+				return sample;
+			}
+		}
+		return -1;
+	}
+}
@@ -2,12 +2,8 @@ package com.palyrobotics.frc2017.vision;
 
 import com.palyrobotics.frc2017.config.Constants;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Supplies wrapper methods for using adb to control the Android
@@ -77,7 +73,7 @@ public class VisionServerThread implements Runnable{
 	private boolean m_testing = false;
 	private String m_defaultJPEGPath;
 	private AndroidServerSocket m_androidServer;
-	private MJPEGServerSocket m_mjpegServer;
+	private volatile MJPEGServerSocket m_mjpegServer;
 
 	/**
 	 * Creates a VisionServerThread instance
@@ -142,7 +138,9 @@ public class VisionServerThread implements Runnable{
 	}
 
 	private VisionServerState InitializeConnections() {
-		m_androidServer = new AndroidServerSocket(m_testing, Constants.kAndroidVisionSocketPort);
+		m_androidServer = new AndroidServerSocket(m_testing, Constants.kAndroidVisionSocketPort,
+				AndroidConnectionHelper.getInstance().getVisionRecords(),
+				AndroidConnectionHelper.getInstance().getVisionSamples());
 		m_mjpegServer = new MJPEGServerSocket(Constants.kMJPEGServerSocketPort, m_defaultJPEGPath);
 
 		m_androidServer.start();
@@ -152,20 +150,26 @@ public class VisionServerThread implements Runnable{
 	}
 
 	private VisionServerState WriteJPEG(){
-		// Initialize data
-		byte[] data = m_androidServer.getData();
-
-		// Write Image to JPEG stream
-		try {
-			m_mjpegServer.handle(data);
-
-		} catch (IOException e) {
-			e.printStackTrace();
+		// Hand the latest image to the stream, it is only sent if it is new
+		VisionFrame frame = m_androidServer.getLatestFrame();
+		if(frame != null){
+			m_mjpegServer.publish(frame);
+			frame.release();
 		}
 
 		return m_visionServerState;
 	}
 
+	/**
+	 * @return Rates of each dashboard streaming the camera, empty before the stream starts
+	 */
+	public List<MJPEGServerSocket.ClientStats> getStreamClientStats(){
+		if(m_mjpegServer == null){
+			return Collections.emptyList();
+		}
+		return m_mjpegServer.getClientStats();
+	}
+
 	/**
 	 * Updates the thread at {@link Constants#kAndroidConnectionUpdateRate} ms
 	 */
@@ -1,19 +1,22 @@
 package com.team254.lib.trajectory;
 
+import com.palyrobotics.frc2017.config.AutoDistances;
 import com.palyrobotics.frc2017.config.Constants;
 import com.palyrobotics.frc2017.config.Gains;
-import com.team254.lib.trajectory.io.TextFileSerializer;
+import com.team254.lib.trajectory.io.PathDefinitionReader;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-
-import static com.palyrobotics.frc2017.config.AutoDistances.*;
+import java.util.List;
 
 /**
  * @author Jared341
  * Auto paths configured for Team 8 2017 by Nihar Mitra
+ *
+ * Paths are defined in paths/definitions.cfg and generated in parallel, each one is written to the output
+ * directory as it finishes. Run TextToBinaryConverter afterwards to refresh the .bin copies the robot loads.
+ *
+ * Usage: Main [directory] [definitions], defaults to paths and paths/definitions.cfg
  */
 public class Main {
 	// default values
@@ -35,370 +38,67 @@ public class Main {
 	public static WaypointSequence.Waypoint getWaypoint(double x, double y, double angle) {
 		return new WaypointSequence.Waypoint(y, x, angle);
 	}
-	
-	
+
+	/**
+	 * Constants the definitions file can use, AutoDistances and the velocity and acceleration limits above
+	 */
+	public static PathDefinitionReader createDefinitionReader() {
+		PathDefinitionReader reader = new PathDefinitionReader();
+		reader.defineConstants(AutoDistances.class);
+		reader.defineConstant("kMaxVel", kMaxVel);
+		reader.defineConstant("kMaxAcc", kMaxAcc);
+		reader.defineConstant("kMaxJerk", kMaxJerk);
+		reader.defineConstant("kDt", kDt);
+		reader.defineConstant("kShortVel", kShortVel);
+		reader.defineConstant("kShortAccel", kShortAccel);
+		reader.defineConstant("kLongVel", kLongVel);
+		reader.defineConstant("kLongAccel", kLongAccel);
+		reader.defineConstant("kTurnAngle", kTurnAngle);
+		return reader;
+	}
+
 	public static void main(String[] args) {
 		String directory = "paths";
 		if (args.length >= 1) {
 			directory = args[0];
 		}
-
-		TrajectoryGenerator.Config config = new TrajectoryGenerator.Config();
-
-		// 100 Hz is 0.01, 200 Hz currently in SubsystemLooper
-		config.dt = kDt;
-		// feet/s/s feet/s/s/s
-		config.max_acc = kMaxAcc;
-		config.max_jerk = kMaxJerk;
-		// 180 inches per second
-		config.max_vel = kMaxVel;
-
-		// from Steik CAD, 26.375 inches roughly
-		final double kWheelbaseWidth = 26.375 / 12;
-
-		/*
-			RED AUTONOMOUS PATHS
-		 */
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "RedLoading";
-			// turn right
-
-			// Description of this auto mode path.
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
-//			p.addWaypoint(new WaypointSequence.Waypoint(50.0/12, 0, 0));
-			p.addWaypoint(new WaypointSequence.Waypoint(
-					kRedLoadingPegX/12.0,
-					-kRedLoadingPegY/12.0, -kTurnAngle));
-
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-//			System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
+		String definitions = joinPath("paths", "definitions.cfg");
+		if (args.length >= 2) {
+			definitions = args[1];
 		}
-		
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "CenterGoToNeutral";
-			// turn right
-	
-			// Description of this auto mode path.
-			WaypointSequence p = new WaypointSequence(10);
-
-		    p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
-		    p.addWaypoint(getWaypoint(8, -6, Math.PI/3));
-		    p.addWaypoint(getWaypoint(10, -3,0));
-		    p.addWaypoint(getWaypoint(10, 10, 0));
-//		    p.addWaypoint(getWaypoint(6,17, 0));
-//			p.addWaypoint(new WaypointSequence.Waypoint(7, 15, 0));
-	
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-	
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-	//		System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
-		}
-
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "RedBoiler";
-
-			// Description of this auto mode path.
-			// turn left
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
-			p.addWaypoint(new WaypointSequence.Waypoint(
-					kRedBoilerPegX/12.0,
-					kRedBoilerPegY/12.0, kTurnAngle));
-
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-			//System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
-		}
-
-
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "RedCenter";
-
-			// Description of this auto mode path.
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
-			p.addWaypoint(new WaypointSequence.Waypoint(kRedCenter, 0, 0));
-
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-			//System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!1");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
-		}
-
-		/*
-			BLUE AUTONOMOUS PATHS
-		 */
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongAccel;
-			// Path name must be a valid Java class name.
-			final String path_name = "BlueLoading";
-			// Description of this auto mode path.
-			// turn left
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
-			p.addWaypoint(new WaypointSequence.Waypoint(kBlueLoadingPegX/12.0,
-					kBlueLoadingPegY/12.0, kTurnAngle));
-
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-//			System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
-		}
-
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "BlueBoiler";
 
-			// Description of this auto mode path.
-			// turn right
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
-			p.addWaypoint(new WaypointSequence.Waypoint(kBlueBoilerPegX/12.0,
-					-kBlueBoilerPegY/12.0, -kTurnAngle));
-
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-			//System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
-		}
-
-
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "BlueCenter";
-
-			// Description of this auto mode path.
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
-			p.addWaypoint(new WaypointSequence.Waypoint(kBlueCenter, 0, 0));
-
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-			//System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!1");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
-		}
-
-		/*
-			OTHER PATHS
-		 */
-
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "RightSideDriveToNeutral";
-
-			// Description of this auto mode path.
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0,0,0));
-			p.addWaypoint(new WaypointSequence.Waypoint(6,-8,-Math.PI/3));
-			p.addWaypoint(new WaypointSequence.Waypoint(8,-14,-Math.PI/2));
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-			//System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!1");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
+		List<PathBatchGenerator.Job> jobs;
+		try {
+			jobs = createDefinitionReader().read(new File(definitions));
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(definitions + " could not be read: " + e.getMessage());
+			System.exit(1);
+			return;
 		}
 
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "LeftSideDriveToNeutral";
-
-			// Description of this auto mode path.
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0+Math.PI/3));
-//			p.addWaypoint(new WaypointSequence.Waypoint(-50*Math.sin(Math.PI/6), 50*Math.cos(Math.PI/6), 0));
-//			p.addWaypoint(new WaypointSequence.Waypoint(20/12, 20/12, 5*Math.PI/12));
-			p.addWaypoint(new WaypointSequence.Waypoint(100/12, 40/12, Math.PI/3-Math.PI/3));
-			p.addWaypoint(new WaypointSequence.Waypoint(200/12, 40/12, Math.PI/3-Math.PI/3));
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-			//System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!1");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
+		PathBatchGenerator generator = new PathBatchGenerator();
+		long start = System.nanoTime();
+		List<PathBatchGenerator.Result> results = generator.generateToDirectory(jobs, new File(directory));
+		long wall_nanos = System.nanoTime() - start;
+
+		long work_nanos = 0;
+		boolean failed = false;
+		for (PathBatchGenerator.Result result : results) {
+			System.out.println(result);
+			work_nanos += result.generate_nanos + result.write_nanos;
+			failed |= !result.succeeded();
 		}
-
-		{
-			config.dt = kDt;
-			config.max_acc = kLongAccel;
-			config.max_jerk = 50.0;
-			config.max_vel = kLongVel;
-			// Path name must be a valid Java class name.
-			final String path_name = "Baseline";
-
-			// Description of this auto mode path.
-			WaypointSequence p = new WaypointSequence(10);
-			p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
-			p.addWaypoint(new WaypointSequence.Waypoint(100.0/12, 0, 0));
-
-			Path path = PathGenerator.makePath(p, config,
-					kWheelbaseWidth, path_name);
-
-			// Outputs to the directory supplied as the first argument.
-			TextFileSerializer js = new TextFileSerializer();
-			String serialized = js.serialize(path);
-			//System.out.print(serialized);
-			String fullpath = joinPath(directory, path_name + ".txt");
-			if (!writeFile(fullpath, serialized)) {
-				System.err.println(fullpath + " could not be written!!!!1");
-				System.exit(1);
-			} else {
-				System.out.println("Wrote " + fullpath);
-			}
+		System.out.printf("Generated %d paths in %.1f ms, %.1f ms of work on %d threads%n",
+				results.size(), wall_nanos / 1e6, work_nanos / 1e6, generator.getParallelism());
+		if (failed) {
+			System.err.println("Some paths could not be written!!!!");
+			System.exit(1);
 		}
 	}
+
 	public static String joinPath(String path1, String path2) {
 		File file1 = new File(path1);
 		File file2 = new File(file1, path2);
 		return file2.getPath();
 	}
-
-	private static boolean writeFile(String path, String data) {
-		try {
-			File file = new File(path);
-
-			// if file doesnt exists, then create it
-			if (!file.exists()) {
-				file.createNewFile();
-			}
-
-			FileWriter fw = new FileWriter(file.getAbsoluteFile());
-			BufferedWriter bw = new BufferedWriter(fw);
-			bw.write(data);
-			bw.close();
-		} catch (IOException e) {
-			return false;
-		}
-
-		return true;
-	}
 }
@@ -0,0 +1,152 @@
+package com.team254.lib.trajectory;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Read only Trajectory backed by packed doubles, normally a view over a memory
+ * mapped path file (see io.BinaryFileDeserializer). The accessors read the
+ * buffer directly, Segments are only built when asked for.
+ */
+public class MappedTrajectory extends Trajectory {
+
+  private static final int kDoublesPerSegment = 8;
+
+  private final DoubleBuffer data_;
+  private final int num_segments_;
+
+  public MappedTrajectory(DoubleBuffer data, int num_segments) {
+    super(0);
+    data_ = data;
+    num_segments_ = num_segments;
+  }
+
+  @Override
+  public int getNumSegments() {
+    return num_segments_;
+  }
+
+  private double read(int index, int field) {
+    if (index < 0 || index >= num_segments_) {
+      throw new IndexOutOfBoundsException("Segment " + index + " of "
+              + num_segments_);
+    }
+    return data_.get(index * kDoublesPerSegment + field);
+  }
+
+  @Override
+  public double getPos(int index) {
+    return read(index, 0);
+  }
+
+  @Override
+  public double getVel(int index) {
+    return read(index, 1);
+  }
+
+  @Override
+  public double getAcc(int index) {
+    return read(index, 2);
+  }
+
+  @Override
+  public double getJerk(int index) {
+    return read(index, 3);
+  }
+
+  @Override
+  public double getHeading(int index) {
+    double heading = read(index, 4);
+    return inverted_y_ ? -heading : heading;
+  }
+
+  @Override
+  public double getDt(int index) {
+    return read(index, 5);
+  }
+
+  @Override
+  public double getX(int index) {
+    return read(index, 6);
+  }
+
+  @Override
+  public double getY(int index) {
+    double y = read(index, 7);
+    return inverted_y_ ? -y : y;
+  }
+
+  @Override
+  public void setPos(int index, double pos) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void setVel(int index, double vel) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void setAcc(int index, double acc) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void setJerk(int index, double jerk) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void setHeading(int index, double heading) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void setDt(int index, double dt) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void setX(int index, double x) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void setY(int index, double y) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void setSegment(int index, Segment segment) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void scale(double scaling_factor) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  @Override
+  public void append(Trajectory to_append) {
+    throw new UnsupportedOperationException("MappedTrajectory is read only");
+  }
+
+  /**
+   * @return a heap backed copy that can be modified.
+   */
+  @Override
+  public Trajectory copy() {
+    Trajectory copied = new Trajectory(num_segments_);
+    for (int i = 0; i < num_segments_; ++i) {
+      int offset = i * kDoublesPerSegment;
+      copied.pos_[i] = data_.get(offset);
+      copied.vel_[i] = data_.get(offset + 1);
+      copied.acc_[i] = data_.get(offset + 2);
+      copied.jerk_[i] = data_.get(offset + 3);
+      copied.heading_[i] = data_.get(offset + 4);
+      copied.dt_[i] = data_.get(offset + 5);
+      copied.x_[i] = data_.get(offset + 6);
+      copied.y_[i] = data_.get(offset + 7);
+    }
+    return copied;
+  }
+}
@@ -50,7 +50,6 @@ public class Path {
 
   public double getEndHeading() {
     int numSegments = getLeftWheelTrajectory().getNumSegments();
-    Trajectory.Segment lastSegment = getLeftWheelTrajectory().getSegment(numSegments - 1);
-    return lastSegment.heading;
+    return getLeftWheelTrajectory().getHeading(numSegments - 1);
   }
 }
@@ -0,0 +1,166 @@
+package com.team254.lib.trajectory;
+
+import com.team254.lib.trajectory.io.BinaryFileSerializer;
+import com.team254.lib.trajectory.io.TextFileSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Generates a batch of paths in parallel.
+ *
+ * Every path is independent, so each job runs PathGenerator.makePath on its
+ * own worker of a ForkJoinPool and, when writing to a directory, serializes
+ * and writes its file from that worker as soon as it is done. Results come
+ * back in the order of the jobs along with how long each step took.
+ */
+public class PathBatchGenerator {
+
+  /**
+   * One path to generate. Each job needs its own Config, they are not copied.
+   */
+  public static class Job {
+    public final String name;
+    public final WaypointSequence waypoints;
+    public final TrajectoryGenerator.Config config;
+    public final double wheelbase_width;
+
+    public Job(String name, WaypointSequence waypoints,
+            TrajectoryGenerator.Config config, double wheelbase_width) {
+      this.name = name;
+      this.waypoints = waypoints;
+      this.config = config;
+      this.wheelbase_width = wheelbase_width;
+    }
+  }
+
+  public static class Result {
+    public final Job job;
+    // Null if generating failed
+    public final Path path;
+    // Null unless generating or writing failed
+    public final String error;
+    public final long generate_nanos;
+    public final long write_nanos;
+
+    Result(Job job, Path path, String error, long generate_nanos,
+            long write_nanos) {
+      this.job = job;
+      this.path = path;
+      this.error = error;
+      this.generate_nanos = generate_nanos;
+      this.write_nanos = write_nanos;
+    }
+
+    public boolean succeeded() {
+      return error == null;
+    }
+
+    public String toString() {
+      String stats = String.format("%-24s %8.1f ms generate %8.1f ms write",
+              job.name, generate_nanos / 1e6, write_nanos / 1e6);
+      return succeeded() ? stats : stats + "  FAILED: " + error;
+    }
+  }
+
+  private final int parallelism_;
+
+  public PathBatchGenerator() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param parallelism Number of paths to generate at once.
+   */
+  public PathBatchGenerator(int parallelism) {
+    parallelism_ = Math.max(1, parallelism);
+  }
+
+  public int getParallelism() {
+    return parallelism_;
+  }
+
+  /**
+   * Generate every path without writing anything.
+   */
+  public List<Result> generate(List<Job> jobs) {
+    return run(jobs, null);
+  }
+
+  /**
+   * Generate every path and write it to directory/name.txt with a
+   * TextFileSerializer, and to directory/name.bin with a BinaryFileSerializer
+   * so AutoPathLoader never maps a binary older than its text.
+   */
+  public List<Result> generateToDirectory(List<Job> jobs, File directory) {
+    directory.mkdirs();
+    return run(jobs, directory);
+  }
+
+  private List<Result> run(List<Job> jobs, File directory) {
+    List<Callable<Result>> tasks = new ArrayList<>(jobs.size());
+    for (Job job : jobs) {
+      tasks.add(() -> runJob(job, directory));
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism_);
+    try {
+      List<Result> results = new ArrayList<>(jobs.size());
+      for (Future<Result> future : pool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted generating paths", e);
+    } catch (ExecutionException e) {
+      // runJob catches everything, so this is a bug
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static Result runJob(Job job, File directory) {
+    long start = System.nanoTime();
+    Path path;
+    try {
+      if (job.waypoints.getNumWaypoints() < 2) {
+        return new Result(job, null, "Not enough waypoints",
+                System.nanoTime() - start, 0);
+      }
+      path = PathGenerator.makePath(job.waypoints, job.config,
+              job.wheelbase_width, job.name);
+    } catch (RuntimeException e) {
+      return new Result(job, null, e.toString(), System.nanoTime() - start, 0);
+    }
+    long generate_nanos = System.nanoTime() - start;
+    if (directory == null) {
+      return new Result(job, path, null, generate_nanos, 0);
+    }
+
+    start = System.nanoTime();
+    File file = new File(directory, job.name + ".txt");
+    File binary_file = new File(directory,
+            job.name + BinaryFileSerializer.kFileExtension);
+    String error = null;
+    try {
+      String serialized = new TextFileSerializer().serialize(path);
+      Files.write(file.toPath(), serialized.getBytes(StandardCharsets.UTF_8));
+      if (!new BinaryFileSerializer().serializeToFile(path, binary_file)) {
+        error = binary_file + " could not be written";
+      }
+    } catch (IOException e) {
+      error = file + " could not be written: " + e;
+    }
+    return new Result(job, path, error, generate_nanos,
+            System.nanoTime() - start);
+  }
+}
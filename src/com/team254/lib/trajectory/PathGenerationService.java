@@ -0,0 +1,265 @@
+package com.team254.lib.trajectory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates paths on the robot, on one low priority worker thread.
+ *
+ * submit() returns a Request straight away, which the caller polls or waits
+ * on, so a routine can ask for a path to where vision says the peg is without
+ * blocking its loop. Splines are integrated over
+ * PathGenerator.kFastArcLengthSamples, which takes about a fifteenth of the
+ * time of the default used for the deployed paths. Each request records how
+ * long it waited and how long it took to generate, and the service keeps
+ * totals for getSummary().
+ */
+public class PathGenerationService {
+
+  /**
+   * A path being generated, like a Future that never throws.
+   */
+  public static class Request {
+    public final String name;
+    public final WaypointSequence waypoints;
+    public final TrajectoryGenerator.Config config;
+    public final double wheelbase_width;
+
+    private final long submit_nanos_ = System.nanoTime();
+    private volatile long start_nanos_;
+    private volatile long end_nanos_;
+    private volatile Path path_;
+    private volatile String error_;
+    private volatile boolean cancelled_;
+    private final CountDownLatch done_ = new CountDownLatch(1);
+    private volatile PathGenerationService service_;
+
+    Request(String name, WaypointSequence waypoints,
+            TrajectoryGenerator.Config config, double wheelbase_width) {
+      this.name = name;
+      this.waypoints = waypoints;
+      this.config = config;
+      this.wheelbase_width = wheelbase_width;
+    }
+
+    public boolean isDone() {
+      return done_.getCount() == 0;
+    }
+
+    /**
+     * @return Whether it is done and the path was generated.
+     */
+    public boolean succeeded() {
+      return isDone() && path_ != null;
+    }
+
+    /**
+     * @return The path, null until it is done or if generating failed.
+     */
+    public Path getPath() {
+      return path_;
+    }
+
+    /**
+     * @return Why there is no path, null if there is one or it isn't done.
+     */
+    public String getError() {
+      return error_;
+    }
+
+    /**
+     * Waits for the path, never call from a control loop.
+     *
+     * @return The path, null if it failed or isn't done within the timeout.
+     */
+    public Path await(long timeout_ms) throws InterruptedException {
+      done_.await(timeout_ms, TimeUnit.MILLISECONDS);
+      return path_;
+    }
+
+    /**
+     * Gives up on the path if it hasn't started generating.
+     *
+     * @return Whether it was cancelled.
+     */
+    public synchronized boolean cancel() {
+      if (isDone() || start_nanos_ != 0) {
+        return false;
+      }
+      cancelled_ = true;
+      finish(null, "Cancelled");
+      return true;
+    }
+
+    // The worker calls this, false if it was cancelled first
+    synchronized boolean begin() {
+      if (cancelled_) {
+        return false;
+      }
+      start_nanos_ = System.nanoTime();
+      return true;
+    }
+
+    void finish(Path path, String error) {
+      finish(path, error, System.nanoTime());
+    }
+
+    void finish(Path path, String error, long end_nanos) {
+      end_nanos_ = end_nanos;
+      path_ = path;
+      error_ = error;
+      done_.countDown();
+    }
+
+    /**
+     * @return The service it was submitted to, null if it wasn't.
+     */
+    public PathGenerationService getService() {
+      return service_;
+    }
+
+    /**
+     * @return Milliseconds from submit until the worker started on it.
+     */
+    public double getQueueMillis() {
+      return start_nanos_ == 0 ? 0 : (start_nanos_ - submit_nanos_) / 1e6;
+    }
+
+    /**
+     * @return Milliseconds generating took, 0 if it didn't run.
+     */
+    public double getGenerateMillis() {
+      return start_nanos_ == 0 || !isDone() ? 0
+              : (end_nanos_ - start_nanos_) / 1e6;
+    }
+
+    public String toString() {
+      String stats = String.format("%-24s %6.1f ms queued %6.1f ms generate",
+              name, getQueueMillis(), getGenerateMillis());
+      if (!isDone()) {
+        return stats + "  PENDING";
+      }
+      return succeeded() ? stats : stats + "  FAILED: " + error_;
+    }
+  }
+
+  private final BlockingQueue<Request> queue_;
+  private Thread worker_;
+
+  private volatile int generated_;
+  // Also counted by submit() when the queue is full
+  private final AtomicInteger failed_ = new AtomicInteger();
+  private volatile long max_generate_nanos_;
+  private volatile long total_generate_nanos_;
+
+  /**
+   * @param queue_size Requests waiting at once, more are failed straight away.
+   */
+  public PathGenerationService(int queue_size) {
+    queue_ = new ArrayBlockingQueue<>(Math.max(1, queue_size));
+  }
+
+  /**
+   * Queues a path to be generated, never blocks.
+   *
+   * @param config Not copied, don't change it until the request is done.
+   */
+  public Request submit(String name, WaypointSequence waypoints,
+          TrajectoryGenerator.Config config, double wheelbase_width) {
+    Request request = new Request(name, waypoints, config, wheelbase_width);
+    request.service_ = this;
+    startWorker();
+    if (!queue_.offer(request)) {
+      failed_.incrementAndGet();
+      request.finish(null, "Queue full");
+    }
+    return request;
+  }
+
+  private synchronized void startWorker() {
+    if (worker_ != null) {
+      return;
+    }
+    worker_ = new Thread(this::work, "PathGenerationService");
+    worker_.setDaemon(true);
+    // Below the control loops, generating should only use idle time
+    worker_.setPriority(Thread.MIN_PRIORITY);
+    worker_.start();
+  }
+
+  private void work() {
+    while (true) {
+      Request request;
+      try {
+        request = queue_.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (!request.begin()) {
+        continue;
+      }
+      generate(request);
+    }
+  }
+
+  private void generate(Request request) {
+    Path path = null;
+    String error = null;
+    try {
+      if (request.waypoints.getNumWaypoints() < 2) {
+        error = "Not enough waypoints";
+      } else {
+        path = PathGenerator.makePath(request.waypoints, request.config,
+                request.wheelbase_width, request.name,
+                PathGenerator.kFastArcLengthSamples);
+        if (path == null) {
+          error = "Splines could not be fit to the waypoints";
+        }
+      }
+    } catch (RuntimeException e) {
+      path = null;
+      error = e.toString();
+    }
+    long end = System.nanoTime();
+    long nanos = end - request.start_nanos_;
+    // Counted before the request is done, so whoever waits on it sees them
+    if (path == null) {
+      failed_.incrementAndGet();
+    } else {
+      generated_++;
+      total_generate_nanos_ += nanos;
+      if (nanos > max_generate_nanos_) {
+        max_generate_nanos_ = nanos;
+      }
+    }
+    request.finish(path, error, end);
+  }
+
+  public int getGenerated() {
+    return generated_;
+  }
+
+  public int getFailed() {
+    return failed_.get();
+  }
+
+  public double getMaxGenerateMillis() {
+    return max_generate_nanos_ / 1e6;
+  }
+
+  public double getMeanGenerateMillis() {
+    int generated = generated_;
+    return generated == 0 ? 0 : total_generate_nanos_ / 1e6 / generated;
+  }
+
+  /**
+   * One line with the generation times, for the log
+   */
+  public String getSummary() {
+    return String.format("paths generated %d, failed %d, mean %.1f ms, max %.1f ms",
+            generated_, failed_.get(), getMeanGenerateMillis(), getMaxGenerateMillis());
+  }
+}
@@ -8,6 +8,12 @@ package com.team254.lib.trajectory;
  * @author Jared341
  */
 public class PathGenerator {
+  /**
+   * Arc length samples per spline for paths generated on the robot, see
+   * Spline.setArcLengthSamples.
+   */
+  public static final int kFastArcLengthSamples = 2048;
+
   /**
    * Generate a path for autonomous driving. 
    * 
@@ -25,6 +31,26 @@ public class PathGenerator {
             generateLeftAndRightFromSeq(waypoints, config, wheelbase_width));
   }
 
+  /**
+   * Generate a path, integrating spline lengths over fewer samples so it is
+   * fast enough to do on the robot.
+   *
+   * @param arc_length_samples Samples per spline, kFastArcLengthSamples
+   * unless there is a reason not to.
+   * @return The path, null if it could not be generated.
+   */
+  public static Path makePath(WaypointSequence waypoints,
+          TrajectoryGenerator.Config config, double wheelbase_width,
+          String name, int arc_length_samples) {
+    Trajectory reference = generateFromPath(waypoints, config,
+            arc_length_samples);
+    if (reference == null) {
+      return null;
+    }
+    return new Path(name,
+            makeLeftAndRightTrajectories(reference, wheelbase_width));
+  }
+
   static Trajectory.Pair generateLeftAndRightFromSeq(WaypointSequence path,
           TrajectoryGenerator.Config config, double wheelbase_width) {
     return makeLeftAndRightTrajectories(generateFromPath(path, config),
@@ -33,6 +59,12 @@ public class PathGenerator {
 
   static Trajectory generateFromPath(WaypointSequence path,
           TrajectoryGenerator.Config config) {
+    return generateFromPath(path, config, 0);
+  }
+
+  // arc_length_samples of 0 keeps the splines' default
+  static Trajectory generateFromPath(WaypointSequence path,
+          TrajectoryGenerator.Config config, int arc_length_samples) {
     if (path.getNumWaypoints() < 2) {
       System.err.println("Not enough waypoints!");
       return null;
@@ -49,6 +81,9 @@ public class PathGenerator {
               path.getWaypoint(i + 1), splines[i], Spline.QuinticHermite)) {
         return null;
       }
+      if (arc_length_samples > 0) {
+        splines[i].setArcLengthSamples(arc_length_samples);
+      }
       spline_lengths[i] = splines[i].calculateLength();
       total_distance += spline_lengths[i];
     }
@@ -63,7 +98,7 @@ public class PathGenerator {
     double cur_spline_start_pos = 0;
     double length_of_splines_finished = 0;
     for (int i = 0; i < traj.getNumSegments(); ++i) {
-      double cur_pos = traj.getSegment(i).pos;
+      double cur_pos = traj.getPos(i);
 
       boolean found_spline = false;
       while (!found_spline) {
@@ -71,20 +106,20 @@ public class PathGenerator {
         if (cur_pos_relative <= spline_lengths[cur_spline]) {
           double percentage = splines[cur_spline].getPercentageForDistance(
                   cur_pos_relative);
-          traj.getSegment(i).heading = splines[cur_spline].angleAt(percentage);
+          traj.setHeading(i, splines[cur_spline].angleAt(percentage));
           double[] coords = splines[cur_spline].getXandY(percentage);
-          traj.getSegment(i).x = coords[0];
-          traj.getSegment(i).y = coords[1];
+          traj.setX(i, coords[0]);
+          traj.setY(i, coords[1]);
           found_spline = true;
         } else if (cur_spline < splines.length - 1) {
           length_of_splines_finished += spline_lengths[cur_spline];
           cur_spline_start_pos = length_of_splines_finished;
           ++cur_spline;
         } else {
-          traj.getSegment(i).heading = splines[splines.length - 1].angleAt(1.0);
+          traj.setHeading(i, splines[splines.length - 1].angleAt(1.0));
           double[] coords = splines[splines.length - 1].getXandY(1.0);
-          traj.getSegment(i).x = coords[0];
-          traj.getSegment(i).y = coords[1];
+          traj.setX(i, coords[0]);
+          traj.setY(i, coords[1]);
           found_spline = true;
         }
       }
@@ -104,48 +139,45 @@ public class PathGenerator {
   static Trajectory.Pair makeLeftAndRightTrajectories(Trajectory input,
           double wheelbase_width) {
     Trajectory[] output = new Trajectory[2];
-    System.out.println("Input traj: "+input);
     output[0] = input.copy();
     output[1] = input.copy();
     Trajectory left = output[0];
     Trajectory right = output[1];
 
     for (int i = 0; i < input.getNumSegments(); ++i) {
-      Trajectory.Segment current = input.getSegment(i);
-      double cos_angle = Math.cos(current.heading);
-      double sin_angle = Math.sin(current.heading);
-
-      Trajectory.Segment s_left = left.getSegment(i);
-      s_left.x = current.x - wheelbase_width / 2 * sin_angle;
-      s_left.y = current.y + wheelbase_width / 2 * cos_angle;
-      if (i > 0) {
-        // Get distance between current and last segment
-        double dist = Math.sqrt((s_left.x - left.getSegment(i - 1).x)
-                * (s_left.x - left.getSegment(i - 1).x)
-                + (s_left.y - left.getSegment(i - 1).y)
-                * (s_left.y - left.getSegment(i - 1).y));
-        s_left.pos = left.getSegment(i - 1).pos + dist;
-        s_left.vel = dist / s_left.dt;
-        s_left.acc = (s_left.vel - left.getSegment(i - 1).vel) / s_left.dt;
-        s_left.jerk = (s_left.acc - left.getSegment(i - 1).acc) / s_left.dt;
-      }
+      double heading = input.getHeading(i);
+      double cos_angle = Math.cos(heading);
+      double sin_angle = Math.sin(heading);
 
-      Trajectory.Segment s_right = right.getSegment(i);
-      s_right.x = current.x + wheelbase_width / 2 * sin_angle;
-      s_right.y = current.y - wheelbase_width / 2 * cos_angle;
-      if (i > 0) {
-        // Get distance between current and last segment
-        double dist = Math.sqrt((s_right.x - right.getSegment(i - 1).x)
-                * (s_right.x - right.getSegment(i - 1).x)
-                + (s_right.y - right.getSegment(i - 1).y)
-                * (s_right.y - right.getSegment(i - 1).y));
-        s_right.pos = right.getSegment(i - 1).pos + dist;
-        s_right.vel = dist / s_right.dt;
-        s_right.acc = (s_right.vel - right.getSegment(i - 1).vel) / s_right.dt;
-        s_right.jerk = (s_right.acc - right.getSegment(i - 1).acc) / s_right.dt;
-      }
+      offsetSegment(left, i, input.getX(i) - wheelbase_width / 2 * sin_angle,
+              input.getY(i) + wheelbase_width / 2 * cos_angle);
+      offsetSegment(right, i, input.getX(i) + wheelbase_width / 2 * sin_angle,
+              input.getY(i) - wheelbase_width / 2 * cos_angle);
     }
 
     return new Trajectory.Pair(output[0], output[1]);
   }
+
+  /**
+   * Moves segment i of a wheel's trajectory to (x, y), and recomputes its
+   * profile from the distance to segment i - 1.
+   */
+  private static void offsetSegment(Trajectory side, int i, double x,
+          double y) {
+    side.setX(i, x);
+    side.setY(i, y);
+    if (i > 0) {
+      // Get distance between current and last segment
+      double dx = x - side.getX(i - 1);
+      double dy = y - side.getY(i - 1);
+      double dist = Math.sqrt(dx * dx + dy * dy);
+      double dt = side.getDt(i);
+      double vel = dist / dt;
+      double acc = (vel - side.getVel(i - 1)) / dt;
+      side.setPos(i, side.getPos(i - 1) + dist);
+      side.setVel(i, vel);
+      side.setAcc(i, acc);
+      side.setJerk(i, (acc - side.getAcc(i - 1)) / dt);
+    }
+  }
 }
@@ -31,6 +31,9 @@ public class Spline {
   // will be met, and all second derivatives at knots = 0.
   public static final Type QuinticHermite = new Type("QuinticHermite");
 
+  // Samples used to integrate arc length
+  private static final int kNumSamples = 100000;
+
   Type type_;
   double a_;  // ax^5
   double b_;  // + bx^4
@@ -46,6 +49,8 @@ public class Spline {
   double knot_distance_;
   double theta_offset_;
   double arc_length_;
+  double[] arc_length_table_;
+  int num_samples_ = kNumSamples;
 
   Spline() {
     // All splines should be made via the static interface
@@ -116,53 +121,80 @@ public class Spline {
     return true;
   }
 
+  /**
+   * Sets how many samples the arc length is integrated over, the default is
+   * accurate to far less than the robot can drive. A few thousand samples are
+   * still accurate to well under a millimeter and take a fraction of the
+   * time, for paths generated on the robot.
+   */
+  void setArcLengthSamples(int num_samples) {
+    num_samples_ = Math.max(1, num_samples);
+    arc_length_ = -1;
+    arc_length_table_ = null;
+  }
+
   public double calculateLength() {
     if (arc_length_ >= 0) {
       return arc_length_;
     }
+    double[] table = getArcLengthTable();
+    arc_length_ = knot_distance_ * table[table.length - 1];
+    return arc_length_;
+  }
 
-    final int kNumSamples = 100000;
+  // Cumulative arc length at each sample, divided by knot_distance_.  Built
+  // once with the same trapezoidal integration that used to run on every
+  // lookup, so lookups give exactly the same answers.
+  private double[] getArcLengthTable() {
+    if (arc_length_table_ != null) {
+      return arc_length_table_;
+    }
+    int num_samples = num_samples_;
+    double[] table = new double[num_samples + 1];
     double arc_length = 0;
     double t, dydt;
     double integrand, last_integrand
-            = Math.sqrt(1 + derivativeAt(0) * derivativeAt(0)) / kNumSamples;
-    for (int i = 1; i <= kNumSamples; ++i) {
-      t = ((double) i) / kNumSamples;
+            = Math.sqrt(1 + derivativeAt(0) * derivativeAt(0)) / num_samples;
+    for (int i = 1; i <= num_samples; ++i) {
+      t = ((double) i) / num_samples;
       dydt = derivativeAt(t);
-      integrand = Math.sqrt(1 + dydt * dydt) / kNumSamples;
+      integrand = Math.sqrt(1 + dydt * dydt) / num_samples;
       arc_length += (integrand + last_integrand) / 2;
+      table[i] = arc_length;
       last_integrand = integrand;
     }
-    arc_length_ = knot_distance_ * arc_length;
-    return arc_length_;
+    arc_length_table_ = table;
+    return table;
   }
 
   public double getPercentageForDistance(double distance) {
-    final int kNumSamples = 100000;
-    double arc_length = 0;
-    double t = 0;
-    double last_arc_length = 0;
-    double dydt;
-    double integrand, last_integrand
-            = Math.sqrt(1 + derivativeAt(0) * derivativeAt(0)) / kNumSamples;
+    double[] table = getArcLengthTable();
     distance /= knot_distance_;
-    for (int i = 1; i <= kNumSamples; ++i) {
-      t = ((double) i) / kNumSamples;
-      dydt = derivativeAt(t);
-      integrand = Math.sqrt(1 + dydt * dydt) / kNumSamples;
-      arc_length += (integrand + last_integrand) / 2;
-      if (arc_length > distance) {
-        break;
+
+    // Binary search for the first sample past the distance
+    int low = 1;
+    int high = num_samples_;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (table[mid] > distance) {
+        high = mid;
+      } else {
+        low = mid + 1;
       }
-      last_integrand = integrand;
-      last_arc_length = arc_length;
+    }
+    if (table[low] <= distance) {
+      // Past the end of the spline
+      return 1.0;
     }
 
     // Interpolate between samples.
+    double t = ((double) low) / num_samples_;
+    double arc_length = table[low];
+    double last_arc_length = table[low - 1];
     double interpolated = t;
     if (arc_length != last_arc_length) {
       interpolated += ((distance - last_arc_length)
-              / (arc_length - last_arc_length) - 1) / (double) kNumSamples;
+              / (arc_length - last_arc_length) - 1) / (double) num_samples_;
     }
     return interpolated;
   }
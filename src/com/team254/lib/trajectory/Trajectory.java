@@ -2,9 +2,13 @@ package com.team254.lib.trajectory;
 
 import com.team254.lib.util.ChezyMath;
 
+import java.util.Arrays;
+
 /**
  * Implementation of a Trajectory using arrays as the underlying storage
- * mechanism.
+ * mechanism, one primitive array per field. Use the per field accessors, or
+ * getSegment(int, Segment) with a reused Segment, to read without allocating.
+ * Segment is kept for callers that want a whole segment as an object.
  *
  * @author Jared341
  */
@@ -56,18 +60,34 @@ public class Trajectory {
     }
   }
 
-  Segment[] segments_ = null;
+  // One array per field, segment i is index i of each. The heading and y
+  // stored are never inverted, inverted_y_ is applied when they are read.
+  double[] pos_;
+  double[] vel_;
+  double[] acc_;
+  double[] jerk_;
+  double[] heading_;
+  double[] dt_;
+  double[] x_;
+  double[] y_;
   boolean inverted_y_ = false;
 
   public Trajectory(int length) {
-    segments_ = new Segment[length];
-    for (int i = 0; i < length; ++i) {
-      segments_[i] = new Segment();
-    }
+    pos_ = new double[length];
+    vel_ = new double[length];
+    acc_ = new double[length];
+    jerk_ = new double[length];
+    heading_ = new double[length];
+    dt_ = new double[length];
+    x_ = new double[length];
+    y_ = new double[length];
   }
   
   public Trajectory(Segment[] segments) {
-    segments_ = segments;
+    this(segments.length);
+    for (int i = 0; i < segments.length; ++i) {
+      setSegment(i, segments[i]);
+    }
   }
   
   public void setInvertedY(boolean inverted) {
@@ -75,67 +95,166 @@ public class Trajectory {
   }
 
   public int getNumSegments() {
-    return segments_.length;
+    return pos_.length;
   }
 
-  public Segment getSegment(int index) {
+  // Zero allocation accessors for the follow loop, index must be in range.
+  // getHeading and getY apply setInvertedY.
+
+  public double getPos(int index) {
+    return pos_[index];
+  }
+
+  public double getVel(int index) {
+    return vel_[index];
+  }
+
+  public double getAcc(int index) {
+    return acc_[index];
+  }
+
+  public double getJerk(int index) {
+    return jerk_[index];
+  }
+
+  public double getHeading(int index) {
+    return inverted_y_ ? -heading_[index] : heading_[index];
+  }
+
+  public double getDt(int index) {
+    return dt_[index];
+  }
+
+  public double getX(int index) {
+    return x_[index];
+  }
+
+  public double getY(int index) {
+    return inverted_y_ ? -y_[index] : y_[index];
+  }
+
+  // Setters store values as given, whether or not the trajectory is inverted.
+
+  public void setPos(int index, double pos) {
+    pos_[index] = pos;
+  }
+
+  public void setVel(int index, double vel) {
+    vel_[index] = vel;
+  }
+
+  public void setAcc(int index, double acc) {
+    acc_[index] = acc;
+  }
+
+  public void setJerk(int index, double jerk) {
+    jerk_[index] = jerk;
+  }
+
+  public void setHeading(int index, double heading) {
+    heading_[index] = heading;
+  }
+
+  public void setDt(int index, double dt) {
+    dt_[index] = dt;
+  }
+
+  public void setX(int index, double x) {
+    x_[index] = x;
+  }
+
+  public void setY(int index, double y) {
+    y_[index] = y;
+  }
+
+  /**
+   * Copies a segment into out, so a caller can reuse one Segment.
+   * Past the end out is zeroed.
+   *
+   * @return out
+   */
+  public Segment getSegment(int index, Segment out) {
     if (index < getNumSegments()) {
-      if (!inverted_y_) {
-        return segments_[index];
-      } else {
-        Segment segment = new Segment(segments_[index]);
-        segment.y *= -1.0;
-        segment.heading *= -1.0;
-        return segment;
-      }
+      out.pos = getPos(index);
+      out.vel = getVel(index);
+      out.acc = getAcc(index);
+      out.jerk = getJerk(index);
+      out.heading = getHeading(index);
+      out.dt = getDt(index);
+      out.x = getX(index);
+      out.y = getY(index);
     } else {
-      return new Segment();
+      out.pos = out.vel = out.acc = out.jerk = 0;
+      out.heading = out.dt = out.x = out.y = 0;
     }
+    return out;
+  }
+
+  /**
+   * @return a new copy of the segment, changing it does not change the
+   * trajectory (use the setters or setSegment).
+   */
+  public Segment getSegment(int index) {
+    return getSegment(index, new Segment());
   }
   
   public void setSegment(int index, Segment segment) {
     if (index < getNumSegments()) {
-      segments_[index] = segment;
+      pos_[index] = segment.pos;
+      vel_[index] = segment.vel;
+      acc_[index] = segment.acc;
+      jerk_[index] = segment.jerk;
+      heading_[index] = segment.heading;
+      dt_[index] = segment.dt;
+      x_[index] = segment.x;
+      y_[index] = segment.y;
     }
   }
 
   public void scale(double scaling_factor) {
     for (int i = 0; i < getNumSegments(); ++i) {
-      segments_[i].pos *= scaling_factor;
-      segments_[i].vel *= scaling_factor;
-      segments_[i].acc *= scaling_factor;
-      segments_[i].jerk *= scaling_factor;
+      pos_[i] *= scaling_factor;
+      vel_[i] *= scaling_factor;
+      acc_[i] *= scaling_factor;
+      jerk_[i] *= scaling_factor;
     }
   }
 
   public void append(Trajectory to_append) {
-    Segment[] temp = new Segment[getNumSegments()
-            + to_append.getNumSegments()];
-
-    for (int i = 0; i < getNumSegments(); ++i) {
-      temp[i] = new Segment(segments_[i]);
-    }
+    int length = getNumSegments();
+    int total = length + to_append.getNumSegments();
+    pos_ = Arrays.copyOf(pos_, total);
+    vel_ = Arrays.copyOf(vel_, total);
+    acc_ = Arrays.copyOf(acc_, total);
+    jerk_ = Arrays.copyOf(jerk_, total);
+    heading_ = Arrays.copyOf(heading_, total);
+    dt_ = Arrays.copyOf(dt_, total);
+    x_ = Arrays.copyOf(x_, total);
+    y_ = Arrays.copyOf(y_, total);
     for (int i = 0; i < to_append.getNumSegments(); ++i) {
-      temp[i + getNumSegments()] = new Segment(to_append.getSegment(i));
+      pos_[length + i] = to_append.getPos(i);
+      vel_[length + i] = to_append.getVel(i);
+      acc_[length + i] = to_append.getAcc(i);
+      jerk_[length + i] = to_append.getJerk(i);
+      heading_[length + i] = to_append.getHeading(i);
+      dt_[length + i] = to_append.getDt(i);
+      x_[length + i] = to_append.getX(i);
+      y_[length + i] = to_append.getY(i);
     }
-
-    this.segments_ = temp;
   }
 
   public Trajectory copy() {
-    Trajectory cloned
-            = new Trajectory(getNumSegments());
-    cloned.segments_ = copySegments(this.segments_);
+    Trajectory cloned = new Trajectory(0);
+    cloned.pos_ = pos_.clone();
+    cloned.vel_ = vel_.clone();
+    cloned.acc_ = acc_.clone();
+    cloned.jerk_ = jerk_.clone();
+    cloned.heading_ = heading_.clone();
+    cloned.dt_ = dt_.clone();
+    cloned.x_ = x_.clone();
+    cloned.y_ = y_.clone();
     return cloned;
   }
-  
-  private Segment[] copySegments(Segment[] tocopy) {
-    Segment[] copied = new Segment[tocopy.length];
-    for (int i = 0; i < tocopy.length; ++i) {
-      copied[i] = new Segment(tocopy[i]);
-    }
-    return copied;
-  }
 
   public String toString() {
     String str = "Segment\tPos\tVel\tAcc\tJerk\tHeading\n";
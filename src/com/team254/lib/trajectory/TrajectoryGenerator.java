@@ -167,10 +167,10 @@ public class TrajectoryGenerator {
     // Now assign headings by interpolating along the path.
     // Don't do any wrapping because we don't know units.
     double total_heading_change = goal_heading - start_heading;
+    double final_pos = traj.pos_[traj.getNumSegments() - 1];
     for (int i = 0; i < traj.getNumSegments(); ++i) {
-      traj.segments_[i].heading = start_heading + total_heading_change
-              * (traj.segments_[i].pos)
-              / traj.segments_[traj.getNumSegments() - 1].pos;
+      traj.heading_[i] = start_heading + total_heading_change
+              * (traj.pos_[i]) / final_pos;
     }
 
     return traj;
@@ -190,13 +190,10 @@ public class TrajectoryGenerator {
     }
     Trajectory traj = new Trajectory(length);
 
-    Trajectory.Segment last = new Trajectory.Segment();
     // First segment is easy
-    last.pos = 0;
-    last.vel = start_vel;
-    last.acc = 0;
-    last.jerk = 0;
-    last.dt = dt;
+    double last_pos = 0;
+    double last_vel = start_vel;
+    double last_acc = 0;
 
     // f2 is the average of the last f2_length samples from f1, so while we
     // can recursively compute f2's sum, we need to keep a buffer for f1.
@@ -235,24 +232,29 @@ public class TrajectoryGenerator {
       f2 = f2 / f1_length;
 
       // Velocity is the normalized sum of f2 * the max velocity
-      traj.segments_[i].vel = f2 / f2_length * max_vel;
+      double vel = f2 / f2_length * max_vel;
+      traj.vel_[i] = vel;
 
+      double pos = 0;
       if (integration == RectangularIntegration) {
-        traj.segments_[i].pos = traj.segments_[i].vel * dt + last.pos;
+        pos = vel * dt + last_pos;
       } else if (integration == TrapezoidalIntegration) {
-        traj.segments_[i].pos = (last.vel
-                + traj.segments_[i].vel) / 2.0 * dt + last.pos;
+        pos = (last_vel + vel) / 2.0 * dt + last_pos;
       }
-      traj.segments_[i].x = traj.segments_[i].pos;
-      traj.segments_[i].y = 0;
+      traj.pos_[i] = pos;
+      traj.x_[i] = pos;
+      traj.y_[i] = 0;
 
       // Acceleration and jerk are the differences in velocity and
       // acceleration, respectively.
-      traj.segments_[i].acc = (traj.segments_[i].vel - last.vel) / dt;
-      traj.segments_[i].jerk = (traj.segments_[i].acc - last.acc) / dt;
-      traj.segments_[i].dt = dt;
-
-      last = traj.segments_[i];
+      double acc = (vel - last_vel) / dt;
+      traj.acc_[i] = acc;
+      traj.jerk_[i] = (acc - last_acc) / dt;
+      traj.dt_[i] = dt;
+
+      last_pos = pos;
+      last_vel = vel;
+      last_acc = acc;
     }
 
     return traj;
@@ -0,0 +1,90 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.MappedTrajectory;
+import com.team254.lib.trajectory.Path;
+import com.team254.lib.trajectory.Trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Deserializes a Path written by {@link BinaryFileSerializer}.
+ *
+ * No segments are built: the returned trajectories read their values straight
+ * out of the buffer, so a memory mapped file is only paged in as it is used.
+ */
+public class BinaryFileDeserializer implements IBinaryPathDeserializer {
+
+  /**
+   * @return the path, or null if the buffer does not hold a binary path.
+   */
+  public Path deserialize(ByteBuffer serialized) {
+    ByteBuffer buffer = serialized.duplicate();
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    int start = buffer.position();
+
+    if (buffer.remaining() < 12 || buffer.getInt() != BinaryFileSerializer.kMagic) {
+      System.err.println("BinaryFileDeserializer: not a binary path");
+      return null;
+    }
+    int version = buffer.getInt();
+    if (version != BinaryFileSerializer.kVersion) {
+      System.err.println("BinaryFileDeserializer: unsupported version " + version);
+      return null;
+    }
+    int name_length = buffer.getInt();
+    byte[] name_bytes = new byte[name_length];
+    buffer.get(name_bytes);
+    String name = new String(name_bytes, StandardCharsets.UTF_8);
+    buffer.position(start + BinaryFileSerializer.headerSize(name_length));
+
+    Trajectory left = readTrajectory(buffer);
+    Trajectory right = (left == null) ? null : readTrajectory(buffer);
+    if (right == null) {
+      System.err.println("BinaryFileDeserializer: truncated path " + name);
+      return null;
+    }
+    return new Path(name, new Trajectory.Pair(left, right));
+  }
+
+  /**
+   * Memory maps the file and deserializes the path out of it.
+   *
+   * @return the path, or null if the file could not be read.
+   */
+  public Path deserializeFile(File file) {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      // The mapping stays valid after the channel is closed
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return deserialize(mapped);
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.err.println("BinaryFileDeserializer could not map " + file);
+      return null;
+    }
+  }
+
+  private Trajectory readTrajectory(ByteBuffer buffer) {
+    if (buffer.remaining() < 8) {
+      return null;
+    }
+    int num_segments = buffer.getInt();
+    int doubles_per_segment = buffer.getInt();
+    int length = num_segments * BinaryFileSerializer.kBytesPerSegment;
+    if (doubles_per_segment != BinaryFileSerializer.kDoublesPerSegment
+            || num_segments < 0 || buffer.remaining() < length) {
+      return null;
+    }
+    ByteBuffer data = buffer.slice();
+    data.limit(length);
+    data.order(buffer.order());
+    buffer.position(buffer.position() + length);
+    return new MappedTrajectory(data.asDoubleBuffer(), num_segments);
+  }
+}
@@ -0,0 +1,111 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.Path;
+import com.team254.lib.trajectory.Trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes a Path to a fixed width binary file that can be memory mapped
+ * back in without any parsing.
+ */
+public class BinaryFileSerializer implements IBinaryPathSerializer {
+
+  public static final int kMagic = 0x54524A42; // "TRJB"
+  public static final int kVersion = 1;
+  public static final int kDoublesPerSegment = 8;
+  public static final int kBytesPerSegment = kDoublesPerSegment * 8;
+  public static final String kFileExtension = ".bin";
+
+  /**
+   * Format (big endian):
+   *   int    magic
+   *   int    version
+   *   int    name length in bytes
+   *   byte[] UTF-8 name, zero padded so the header is a multiple of 8 bytes
+   *   int    left segment count
+   *   int    doubles per segment (8)
+   *   double[] left segments
+   *   int    right segment count
+   *   int    doubles per segment (8)
+   *   double[] right segments
+   *
+   * Each segment is packed as:
+   *   pos vel acc jerk heading dt x y
+   *
+   * @param path The path to serialize.
+   * @return A buffer positioned at zero holding the serialized path.
+   */
+  public ByteBuffer serialize(Path path) {
+    path.goLeft();
+    Trajectory left = path.getLeftWheelTrajectory();
+    Trajectory right = path.getRightWheelTrajectory();
+    byte[] name = path.getName().getBytes(StandardCharsets.UTF_8);
+
+    ByteBuffer buffer = ByteBuffer.allocate(headerSize(name.length)
+            + trajectorySize(left.getNumSegments())
+            + trajectorySize(right.getNumSegments()));
+    buffer.order(ByteOrder.BIG_ENDIAN);
+    buffer.putInt(kMagic);
+    buffer.putInt(kVersion);
+    buffer.putInt(name.length);
+    buffer.put(name);
+    while (buffer.position() % 8 != 0) {
+      buffer.put((byte) 0);
+    }
+    serializeTrajectory(buffer, left);
+    serializeTrajectory(buffer, right);
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Serializes the path and writes it out to the given file.
+   *
+   * @return true if the file was written.
+   */
+  public boolean serializeToFile(Path path, File file) {
+    ByteBuffer buffer = serialize(path);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+         FileChannel channel = raf.getChannel()) {
+      channel.truncate(0);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+    return true;
+  }
+
+  static int headerSize(int name_length) {
+    int size = 12 + name_length;
+    return (size + 7) & ~7;
+  }
+
+  static int trajectorySize(int num_segments) {
+    return 8 + num_segments * kBytesPerSegment;
+  }
+
+  private void serializeTrajectory(ByteBuffer buffer, Trajectory trajectory) {
+    buffer.putInt(trajectory.getNumSegments());
+    buffer.putInt(kDoublesPerSegment);
+    for (int i = 0; i < trajectory.getNumSegments(); ++i) {
+      buffer.putDouble(trajectory.getPos(i));
+      buffer.putDouble(trajectory.getVel(i));
+      buffer.putDouble(trajectory.getAcc(i));
+      buffer.putDouble(trajectory.getJerk(i));
+      buffer.putDouble(trajectory.getHeading(i));
+      buffer.putDouble(trajectory.getDt(i));
+      buffer.putDouble(trajectory.getX(i));
+      buffer.putDouble(trajectory.getY(i));
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.Path;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for methods that deserialize a Path or Trajectory from a binary
+ * buffer.
+ *
+ * @see IPathDeserializer
+ */
+public interface IBinaryPathDeserializer {
+
+  public Path deserialize(ByteBuffer serialized);
+}
@@ -0,0 +1,16 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.Path;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for methods that serialize a Path or Trajectory to a binary
+ * buffer.
+ *
+ * @see IPathSerializer
+ */
+public interface IBinaryPathSerializer {
+
+  public ByteBuffer serialize(Path path);
+}
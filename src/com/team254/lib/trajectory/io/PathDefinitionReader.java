@@ -0,0 +1,294 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.PathBatchGenerator;
+import com.team254.lib.trajectory.TrajectoryGenerator;
+import com.team254.lib.trajectory.WaypointSequence;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads path definitions from a text file into jobs for a PathBatchGenerator.
+ *
+ * Format, one statement per line, # starts a comment:
+ *   config dt=... max_vel=... max_acc=... max_jerk=...
+ *   wheelbase width
+ *   path Name
+ *   waypoint x y theta
+ *
+ * config and wheelbase lines before the first path set the defaults for
+ * every path, after a path line they only change that path. Values are
+ * expressions without spaces made of numbers, defined constants, + - * / and
+ * parentheses.
+ */
+public class PathDefinitionReader {
+
+  private final Map<String, Double> constants_ = new HashMap<>();
+
+  public PathDefinitionReader() {
+    defineConstant("PI", Math.PI);
+  }
+
+  public void defineConstant(String name, double value) {
+    constants_.put(name, value);
+  }
+
+  /**
+   * Define every public static numeric field of a class, by field name.
+   */
+  public void defineConstants(Class<?> holder) {
+    for (Field field : holder.getFields()) {
+      Class<?> type = field.getType();
+      if (Modifier.isStatic(field.getModifiers())
+              && (type == double.class || type == int.class)) {
+        try {
+          defineConstant(field.getName(), ((Number) field.get(null)).doubleValue());
+        } catch (IllegalAccessException e) {
+          // Only public fields are listed
+        }
+      }
+    }
+  }
+
+  public List<PathBatchGenerator.Job> read(File file) throws IOException {
+    return parse(new String(Files.readAllBytes(file.toPath()),
+            StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @throws IllegalArgumentException with the line number if a definition is
+   * invalid.
+   */
+  public List<PathBatchGenerator.Job> parse(String definitions) {
+    List<PathBatchGenerator.Job> jobs = new ArrayList<>();
+    TrajectoryGenerator.Config default_config = new TrajectoryGenerator.Config();
+    double default_wheelbase = 0;
+
+    // Until the first path, config lines change the defaults
+    String name = null;
+    TrajectoryGenerator.Config config = default_config;
+    double wheelbase = 0;
+    List<WaypointSequence.Waypoint> waypoints = new ArrayList<>();
+
+    String[] lines = definitions.split("\r?\n");
+    for (int i = 0; i < lines.length; ++i) {
+      String line = lines[i];
+      int comment = line.indexOf('#');
+      if (comment >= 0) {
+        line = line.substring(0, comment);
+      }
+      String[] tokens = line.trim().split("\\s+");
+      if (tokens[0].isEmpty()) {
+        continue;
+      }
+      try {
+        switch (tokens[0]) {
+          case "path":
+            expectArguments(tokens, 1);
+            if (name != null) {
+              jobs.add(makeJob(name, waypoints, config, wheelbase));
+            }
+            name = tokens[1];
+            config = copy(default_config);
+            wheelbase = default_wheelbase;
+            waypoints = new ArrayList<>();
+            break;
+          case "config":
+            for (int j = 1; j < tokens.length; ++j) {
+              setConfigValue(config, tokens[j]);
+            }
+            break;
+          case "wheelbase":
+            expectArguments(tokens, 1);
+            if (name == null) {
+              default_wheelbase = evaluate(tokens[1]);
+            } else {
+              wheelbase = evaluate(tokens[1]);
+            }
+            break;
+          case "waypoint":
+            if (name == null) {
+              throw new IllegalArgumentException("waypoint before any path");
+            }
+            expectArguments(tokens, 3);
+            waypoints.add(new WaypointSequence.Waypoint(evaluate(tokens[1]),
+                    evaluate(tokens[2]), evaluate(tokens[3])));
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown statement " + tokens[0]);
+        }
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("line " + (i + 1) + ": "
+                + e.getMessage(), e);
+      }
+    }
+    if (name != null) {
+      jobs.add(makeJob(name, waypoints, config, wheelbase));
+    }
+    return jobs;
+  }
+
+  private static PathBatchGenerator.Job makeJob(String name,
+          List<WaypointSequence.Waypoint> waypoints,
+          TrajectoryGenerator.Config config, double wheelbase) {
+    WaypointSequence sequence = new WaypointSequence(waypoints.size());
+    for (WaypointSequence.Waypoint waypoint : waypoints) {
+      sequence.addWaypoint(waypoint);
+    }
+    return new PathBatchGenerator.Job(name, sequence, config, wheelbase);
+  }
+
+  private static TrajectoryGenerator.Config copy(TrajectoryGenerator.Config config) {
+    TrajectoryGenerator.Config copy = new TrajectoryGenerator.Config();
+    copy.dt = config.dt;
+    copy.max_vel = config.max_vel;
+    copy.max_acc = config.max_acc;
+    copy.max_jerk = config.max_jerk;
+    return copy;
+  }
+
+  private static void expectArguments(String[] tokens, int count) {
+    if (tokens.length != count + 1) {
+      throw new IllegalArgumentException(tokens[0] + " takes " + count
+              + " arguments");
+    }
+  }
+
+  private void setConfigValue(TrajectoryGenerator.Config config, String token) {
+    int equals = token.indexOf('=');
+    if (equals < 0) {
+      throw new IllegalArgumentException("Expected key=value, got " + token);
+    }
+    double value = evaluate(token.substring(equals + 1));
+    switch (token.substring(0, equals)) {
+      case "dt":
+        config.dt = value;
+        break;
+      case "max_vel":
+        config.max_vel = value;
+        break;
+      case "max_acc":
+        config.max_acc = value;
+        break;
+      case "max_jerk":
+        config.max_jerk = value;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown config value " + token);
+    }
+  }
+
+  /**
+   * Evaluate an arithmetic expression of numbers and defined constants.
+   */
+  public double evaluate(String expression) {
+    ExpressionParser parser = new ExpressionParser(expression);
+    double value = parser.parseSum();
+    if (parser.pos_ != expression.length()) {
+      throw new IllegalArgumentException("Unexpected '"
+              + expression.charAt(parser.pos_) + "' in " + expression);
+    }
+    return value;
+  }
+
+  // Recursive descent, sum := product (('+'|'-') product)*,
+  // product := unary (('*'|'/') unary)*, unary := '-' unary | atom
+  private class ExpressionParser {
+    private final String expression_;
+    private int pos_ = 0;
+
+    ExpressionParser(String expression) {
+      expression_ = expression;
+    }
+
+    double parseSum() {
+      double value = parseProduct();
+      while (pos_ < expression_.length()) {
+        char op = expression_.charAt(pos_);
+        if (op == '+') {
+          ++pos_;
+          value += parseProduct();
+        } else if (op == '-') {
+          ++pos_;
+          value -= parseProduct();
+        } else {
+          break;
+        }
+      }
+      return value;
+    }
+
+    double parseProduct() {
+      double value = parseUnary();
+      while (pos_ < expression_.length()) {
+        char op = expression_.charAt(pos_);
+        if (op == '*') {
+          ++pos_;
+          value *= parseUnary();
+        } else if (op == '/') {
+          ++pos_;
+          value /= parseUnary();
+        } else {
+          break;
+        }
+      }
+      return value;
+    }
+
+    double parseUnary() {
+      if (pos_ < expression_.length() && expression_.charAt(pos_) == '-') {
+        ++pos_;
+        return -parseUnary();
+      }
+      return parseAtom();
+    }
+
+    double parseAtom() {
+      if (pos_ >= expression_.length()) {
+        throw new IllegalArgumentException("Incomplete expression "
+                + expression_);
+      }
+      char c = expression_.charAt(pos_);
+      if (c == '(') {
+        ++pos_;
+        double value = parseSum();
+        if (pos_ >= expression_.length() || expression_.charAt(pos_) != ')') {
+          throw new IllegalArgumentException("Missing ) in " + expression_);
+        }
+        ++pos_;
+        return value;
+      }
+      int start = pos_;
+      if (Character.isDigit(c) || c == '.') {
+        while (pos_ < expression_.length()
+                && (Character.isDigit(expression_.charAt(pos_))
+                || expression_.charAt(pos_) == '.')) {
+          ++pos_;
+        }
+        return Double.parseDouble(expression_.substring(start, pos_));
+      }
+      if (Character.isJavaIdentifierStart(c)) {
+        while (pos_ < expression_.length()
+                && Character.isJavaIdentifierPart(expression_.charAt(pos_))) {
+          ++pos_;
+        }
+        String name = expression_.substring(start, pos_);
+        Double value = constants_.get(name);
+        if (value == null) {
+          throw new IllegalArgumentException("Unknown constant " + name);
+        }
+        return value;
+      }
+      throw new IllegalArgumentException("Unexpected '" + c + "' in "
+              + expression_);
+    }
+  }
+}
@@ -4,6 +4,8 @@ import com.team254.lib.trajectory.Trajectory;
 import com.team254.lib.trajectory.Trajectory.Segment;
 import com.team254.lib.trajectory.Path;
 
+import java.util.Formatter;
+
 /**
  * Serializes a Path to a simple space and CR separated text file.
  * 
@@ -29,24 +31,24 @@ public class TextFileSerializer implements IPathSerializer {
    * @return A string representation.
    */
   public String serialize(Path path) {
-    String content = path.getName() + "\n";
+    StringBuilder content = new StringBuilder(path.getName()).append("\n");
     path.goLeft();
-    content += path.getLeftWheelTrajectory().getNumSegments() + "\n";
-    content += serializeTrajectory(path.getLeftWheelTrajectory());
-    content += serializeTrajectory(path.getRightWheelTrajectory());
-    return content;
+    content.append(path.getLeftWheelTrajectory().getNumSegments()).append("\n");
+    serializeTrajectory(content, path.getLeftWheelTrajectory());
+    serializeTrajectory(content, path.getRightWheelTrajectory());
+    return content.toString();
   }
   
-  private String serializeTrajectory(Trajectory trajectory) {
-    String content = "";
+  // Appends rather than concatenating, long paths were quadratic
+  private void serializeTrajectory(StringBuilder content, Trajectory trajectory) {
+    Formatter formatter = new Formatter(content);
     for (int i = 0; i < trajectory.getNumSegments(); ++i) {
       Segment segment = trajectory.getSegment(i);
-      content += String.format(
+      formatter.format(
               "%.3f %.3f %.3f %.3f %.3f %.3f %.3f %.3f\n", 
               segment.pos, segment.vel, segment.acc, segment.jerk,
               segment.heading, segment.dt, segment.x, segment.y);
     }
-    return content;
   }
   
 }
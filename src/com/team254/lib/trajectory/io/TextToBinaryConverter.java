@@ -0,0 +1,79 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.Path;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Converts every text path (see {@link TextFileSerializer}) in a directory to
+ * the binary format, then times loading the directory both ways.
+ *
+ * Usage: TextToBinaryConverter [directory], defaults to "paths".
+ */
+public class TextToBinaryConverter {
+
+  public static void main(String[] args) {
+    String directory = "paths";
+    if (args.length >= 1) {
+      directory = args[0];
+    }
+    File[] text_files = new File(directory).listFiles(
+            (dir, name) -> name.endsWith(".txt"));
+    if (text_files == null || text_files.length == 0) {
+      System.err.println("No text paths found in " + directory);
+      System.exit(1);
+    }
+
+    TextFileDeserializer text_deserializer = new TextFileDeserializer();
+    BinaryFileSerializer binary_serializer = new BinaryFileSerializer();
+    File[] binary_files = new File[text_files.length];
+    for (int i = 0; i < text_files.length; ++i) {
+      Path path = text_deserializer.deserialize(readText(text_files[i]));
+      binary_files[i] = toBinaryFile(text_files[i]);
+      if (!binary_serializer.serializeToFile(path, binary_files[i])) {
+        System.err.println(binary_files[i] + " could not be written!!!!");
+        System.exit(1);
+      }
+      System.out.println("Wrote " + binary_files[i]);
+    }
+
+    long text_start = System.nanoTime();
+    for (File file : text_files) {
+      text_deserializer.deserialize(readText(file));
+    }
+    long text_nanos = System.nanoTime() - text_start;
+
+    BinaryFileDeserializer binary_deserializer = new BinaryFileDeserializer();
+    long binary_start = System.nanoTime();
+    for (File file : binary_files) {
+      // Touch the last segment so the whole mapping has been validated
+      Path path = binary_deserializer.deserializeFile(file);
+      path.getEndHeading();
+    }
+    long binary_nanos = System.nanoTime() - binary_start;
+
+    System.out.println("Loaded " + text_files.length + " paths: text "
+            + text_nanos / 1e6 + " ms, binary " + binary_nanos / 1e6 + " ms");
+  }
+
+  public static File toBinaryFile(File text_file) {
+    String name = text_file.getName();
+    return new File(text_file.getParentFile(),
+            name.substring(0, name.length() - ".txt".length())
+            + BinaryFileSerializer.kFileExtension);
+  }
+
+  private static String readText(File file) {
+    try {
+      return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.err.println("Could not read " + file);
+      System.exit(1);
+      return null;
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.palyrobotics.frc2017.behavior;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 
 import com.palyrobotics.frc2017.config.Commands;
@@ -164,4 +165,40 @@ public class RoutineManagerTest {
 		Subsystem[] conflicts2 = {Drive.getInstance(), Intake.getInstance()};
 		assertThat("Not catching all conflicts with multiple conflicts", RoutineManager.sharedSubsystems(routinesList), equalTo(conflicts2));
 	}
+
+	/**
+	 * Steady state updates reuse the manager's commands instead of copying, so nothing is allocated
+	 */
+	@Test
+	public void testUpdateDoesNotAllocate() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		mRoutineManager.addNewRoutine(new SampleRoutine());
+		Commands commands = new Commands();
+		commands.wantedDriveState = Drive.DriveState.CHEZY;
+		commands.robotSetpoints.setSliderCustomSetpoint(1.5);
+		Commands first = mRoutineManager.update(commands);
+		assertThat("Update modified its input", commands.wantedRoutines.isEmpty(), equalTo(true));
+
+		// Warm up so nothing is allocated by class loading or the JIT on this thread
+		for (int i = 0; i < 20000; i++) {
+			commands = mRoutineManager.update(commands);
+		}
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < 20000; i++) {
+			commands = mRoutineManager.update(commands);
+		}
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		// getThreadAllocatedBytes itself can allocate a little
+		assertThat("Updates allocated " + allocated + " bytes", allocated < 1024, equalTo(true));
+
+		Commands second = mRoutineManager.update(commands);
+		assertThat("Output was not double buffered", second != commands, equalTo(true));
+		assertThat(mRoutineManager.update(second), equalTo(commands));
+		assertThat(second.robotSetpoints.sliderCustomSetpoint, equalTo(1.5));
+		assertThat(first.wantedDriveState, equalTo(Drive.DriveState.CHEZY));
+	}
 }
@@ -1,11 +1,11 @@
 package com.palyrobotics.frc2017.config;
 
+import com.palyrobotics.frc2017.behavior.SampleRoutine;
 import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.subsystems.Slider;
 import com.palyrobotics.frc2017.util.archive.DriveSignal;
 import org.junit.Test;
 
-import java.util.Optional;
-
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
@@ -47,13 +47,44 @@ public class CommandsTest {
 		copy.wantedDriveState = Drive.DriveState.CHEZY;
 		assertThat("Copy modified original drivestate", mCommands.wantedDriveState, equalTo(Drive.DriveState.NEUTRAL));
 
-		mCommands.robotSetpoints.drivePowerSetpoint = Optional.of(DriveSignal.getNeutralSignal());
-		copy.robotSetpoints.drivePowerSetpoint = null;
+		mCommands.robotSetpoints.setDrivePowerSetpoint(DriveSignal.getNeutralSignal());
+		copy.robotSetpoints.clearDrivePowerSetpoint();
 
 		assertThat("Copy modified original setpoints",
-				mCommands.robotSetpoints.drivePowerSetpoint.get(), equalTo(DriveSignal.getNeutralSignal()));
+				mCommands.robotSetpoints.drivePowerSetpoint, equalTo(DriveSignal.getNeutralSignal()));
 		
 		System.out.println(copy.cancelCurrentRoutines);
 		System.out.println(copy.wantedRoutines);
 	}
+
+	/**
+	 * Test that copyInto overwrites everything and doesn't share what the target modifies in place
+	 */
+	@Test
+	public void testCopyInto() {
+		Commands target = new Commands();
+		target.wantedRoutines.add(new SampleRoutine());
+		target.robotSetpoints.setSliderCustomSetpoint(3);
+
+		mCommands = new Commands();
+		mCommands.wantedDriveState = Drive.DriveState.CHEZY;
+		mCommands.robotSetpoints.sliderSetpoint = Slider.SliderTarget.LEFT;
+		mCommands.robotSetpoints.setDrivePowerSetpoint(DriveSignal.getNeutralSignal());
+		mCommands.leftStickInput.set(0.5, -0.25, true);
+		mCommands.copyInto(target);
+
+		assertThat(target.wantedDriveState, equalTo(Drive.DriveState.CHEZY));
+		assertThat(target.robotSetpoints.sliderSetpoint, equalTo(Slider.SliderTarget.LEFT));
+		assertThat(target.robotSetpoints.hasDrivePowerSetpoint, equalTo(true));
+		assertThat("Absent setpoint was not copied", target.robotSetpoints.hasSliderCustomSetpoint, equalTo(false));
+		assertThat("Wanted routines were not replaced", target.wantedRoutines.isEmpty(), equalTo(true));
+		assertThat(target.leftStickInput.y, equalTo(-0.25));
+		assertThat(target.leftStickInput.triggerPressed, equalTo(true));
+
+		target.leftStickInput.y = 1;
+		assertThat("Copy modified original joystick", mCommands.leftStickInput.y, equalTo(-0.25));
+
+		mCommands.copyInto(mCommands);
+		assertThat("Copying into itself changed the commands", mCommands.leftStickInput.y, equalTo(-0.25));
+	}
 }
@@ -0,0 +1,63 @@
+package com.palyrobotics.frc2017.config;
+
+import com.palyrobotics.frc2017.util.Pose;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link RobotStateHistory}
+ */
+public class RobotStateHistoryTest {
+
+	private static void add(RobotStateHistory history, double time, double heading) {
+		RobotState state = new RobotState();
+		state.drivePose.heading = heading;
+		history.add(time, state);
+	}
+
+	@Test
+	public void testOutsideHistory() {
+		RobotStateHistory history = new RobotStateHistory(10);
+		Pose pose = new Pose();
+		assertFalse(history.covers(0));
+		assertFalse(history.getPoseAt(0, pose));
+		add(history, 1.0, 0);
+		add(history, 2.0, 0);
+		assertTrue(history.covers(1.5));
+		assertFalse(history.covers(0.5));
+		assertFalse(history.covers(2.5));
+	}
+
+	@Test
+	public void testOldestSamplesAreOverwritten() {
+		RobotStateHistory history = new RobotStateHistory(3);
+		for (int i = 0; i < 5; i++) {
+			add(history, i, i * 10);
+		}
+		assertThat(history.size(), equalTo(3));
+		assertFalse("Overwritten sample is still covered", history.covers(1.5));
+		Pose pose = new Pose();
+		assertTrue(history.getPoseAt(2.5, pose));
+		assertThat(pose.heading, equalTo(20.0));
+		history.clear();
+		assertThat(history.size(), equalTo(0));
+	}
+
+	@Test
+	public void testPoseAtTime() {
+		RobotStateHistory history = new RobotStateHistory(10);
+		add(history, 1.0, 10);
+		add(history, 2.0, 20);
+		Pose pose = new Pose();
+		assertTrue(history.getPoseAt(1.5, pose));
+		assertThat(pose.heading, equalTo(10.0));
+		assertTrue(history.getPoseAt(2.0, pose));
+		assertThat(pose.heading, equalTo(20.0));
+		assertFalse(history.getPoseAt(3.0, pose));
+		assertThat("Pose was changed outside the history", pose.heading, equalTo(20.0));
+	}
+}
@@ -0,0 +1,148 @@
+package com.palyrobotics.frc2017.config;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link RobotStatePublisher}
+ */
+public class RobotStatePublisherTest {
+
+	// Every field the sensor thread writes gets the same value, so a torn snapshot has mismatched fields
+	private static void fill(RobotState state, double value) {
+		state.leftSetpoint = value;
+		state.rightSetpoint = value;
+		state.drivePose.leftEnc = value;
+		state.drivePose.leftSpeed = value;
+		state.drivePose.rightEnc = value;
+		state.drivePose.rightSpeed = value;
+		state.drivePose.heading = value;
+		state.sliderEncoder = value;
+		state.climberEncoder = value;
+	}
+
+	private static boolean isConsistent(RobotState state) {
+		double value = state.leftSetpoint;
+		return state.rightSetpoint == value && state.drivePose.leftEnc == value
+				&& state.drivePose.leftSpeed == value && state.drivePose.rightEnc == value
+				&& state.drivePose.rightSpeed == value && state.drivePose.heading == value
+				&& state.sliderEncoder == value && state.climberEncoder == value;
+	}
+
+	@Test
+	public void testPublishAndRead() {
+		RobotStatePublisher publisher = new RobotStatePublisher();
+		RobotState sensors = new RobotState();
+		fill(sensors, 3);
+		sensors.sliderClosedLoopError = Optional.of(12);
+		publisher.publish(sensors);
+		assertThat(publisher.getPublishCount(), equalTo(1L));
+
+		// Writing the back buffer after publishing doesn't change what readers see
+		fill(sensors, 4);
+		RobotState snapshot = publisher.read(new RobotState());
+		assertThat(snapshot.drivePose.rightEnc, equalTo(3.0));
+		assertThat(snapshot.sliderClosedLoopError, equalTo(Optional.of(12)));
+
+		publisher.setGamePeriod(RobotState.GamePeriod.TELEOP);
+		assertThat("Game period is not from the sensor thread", publisher.read(snapshot).gamePeriod,
+				equalTo(RobotState.GamePeriod.TELEOP));
+	}
+
+	@Test
+	public void testReadersNeverSeeTornState() throws InterruptedException {
+		RobotStatePublisher publisher = new RobotStatePublisher();
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicReference<String> torn = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			RobotState snapshot = new RobotState();
+			while (running.get() && torn.get() == null) {
+				publisher.read(snapshot);
+				if (!isConsistent(snapshot)) {
+					torn.set("left encoder " + snapshot.drivePose.leftEnc + " right encoder " + snapshot.drivePose.rightEnc);
+				}
+			}
+		});
+		reader.start();
+		RobotState sensors = new RobotState();
+		for (int i = 0; i < 200000 && torn.get() == null; i++) {
+			fill(sensors, i);
+			publisher.publish(sensors);
+		}
+		running.set(false);
+		reader.join();
+		assertThat("Read a torn state, " + torn.get(), torn.get() == null, equalTo(true));
+	}
+
+	@Test(timeout = 10000)
+	public void testReadDoesNotWaitForPublish() throws InterruptedException {
+		RobotStatePublisher publisher = new RobotStatePublisher();
+		RobotState sensors = new RobotState();
+		fill(sensors, 1);
+		publisher.publish(sensors);
+		RobotState snapshot = publisher.read(new RobotState());
+
+		// A sensor thread preempted in the middle of publishing
+		CountDownLatch publishing = new CountDownLatch(1);
+		CountDownLatch resume = new CountDownLatch(1);
+		RobotState stuck = new RobotState() {
+			@Override
+			public void copyInto(RobotState dst) {
+				publishing.countDown();
+				try {
+					resume.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.copyInto(dst);
+			}
+		};
+		fill(stuck, 2);
+		Thread writer = new Thread(() -> publisher.publish(stuck));
+		writer.start();
+		publishing.await();
+
+		publisher.read(snapshot);
+		assertThat("Reader should keep its last whole snapshot", isConsistent(snapshot), equalTo(true));
+		assertThat(snapshot.drivePose.leftEnc, equalTo(1.0));
+
+		resume.countDown();
+		writer.join();
+		assertThat(publisher.read(snapshot).drivePose.leftEnc, equalTo(2.0));
+	}
+
+	@Test
+	public void testReadDoesNotAllocate() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		RobotStatePublisher publisher = new RobotStatePublisher();
+		RobotState sensors = new RobotState();
+		RobotState snapshot = new RobotState();
+		// Warm up so nothing is allocated by class loading or the JIT on this thread
+		for (int i = 0; i < 20000; i++) {
+			fill(sensors, i);
+			publisher.publish(sensors);
+			publisher.read(snapshot);
+		}
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < 20000; i++) {
+			fill(sensors, i);
+			publisher.publish(sensors);
+			publisher.read(snapshot);
+		}
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		// getThreadAllocatedBytes itself can allocate a little
+		assertThat("Publishing and reading allocated " + allocated + " bytes", allocated < 1024, equalTo(true));
+	}
+}
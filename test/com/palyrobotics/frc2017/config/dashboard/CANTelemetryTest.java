@@ -0,0 +1,90 @@
+package com.palyrobotics.frc2017.config.dashboard;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests the batch layout of {@link CANTelemetry}
+ */
+public class CANTelemetryTest {
+
+	private static final String[] kColumns = {"a", "b"};
+
+	// Row n is time n, a = 10 * n, b = -n
+	private static void commitRows(CANTelemetry telemetry, int count) {
+		for (int i = 0; i < count; i++) {
+			long n = telemetry.getRowCount();
+			double[] row = telemetry.row();
+			row[0] = 10 * n;
+			row[1] = -n;
+			telemetry.commit(n);
+		}
+	}
+
+	private static void assertRow(double[] batch, int index, long sequence) {
+		int start = CANTelemetry.kBatchHeader + index * 3;
+		assertEquals(sequence, batch[start], 0);
+		assertEquals(10 * sequence, batch[start + 1], 0);
+		assertEquals(-sequence, batch[start + 2], 0);
+	}
+
+	@Test
+	public void testPartialFirstBatch() {
+		CANTelemetry telemetry = new CANTelemetry(kColumns, 16, 4);
+		double[] batch = new double[telemetry.getBatchLength()];
+		assertThat(telemetry.fillBatch(batch), equalTo(CANTelemetry.kBatchHeader));
+		assertEquals(0, batch[2], 0);
+
+		commitRows(telemetry, 2);
+		assertThat(telemetry.fillBatch(batch), equalTo(CANTelemetry.kBatchHeader + 2 * 3));
+		assertEquals(2, batch[0], 0);
+		assertEquals(0, batch[1], 0);
+		assertEquals(2, batch[2], 0);
+		assertRow(batch, 0, 0);
+		assertRow(batch, 1, 1);
+	}
+
+	@Test
+	public void testBatchesOverlap() {
+		CANTelemetry telemetry = new CANTelemetry(kColumns, 16, 4);
+		double[] batch = new double[telemetry.getBatchLength()];
+		commitRows(telemetry, 6);
+		assertThat(telemetry.fillBatch(batch), equalTo(telemetry.getBatchLength()));
+		assertEquals(2, batch[1], 0);
+		assertEquals(4, batch[2], 0);
+		for (int i = 0; i < 4; i++) {
+			assertRow(batch, i, 2 + i);
+		}
+
+		// The next batch repeats the rows it still covers
+		commitRows(telemetry, 1);
+		telemetry.fillBatch(batch);
+		assertEquals(3, batch[1], 0);
+		assertRow(batch, 3, 6);
+	}
+
+	@Test
+	public void testRingWraps() {
+		CANTelemetry telemetry = new CANTelemetry(kColumns, 16, 4);
+		double[] batch = new double[telemetry.getBatchLength()];
+		commitRows(telemetry, 100);
+		assertThat(telemetry.getRowCount(), equalTo(100L));
+		telemetry.fillBatch(batch);
+		assertEquals(96, batch[1], 0);
+		for (int i = 0; i < 4; i++) {
+			assertRow(batch, i, 96 + i);
+		}
+	}
+
+	@Test
+	public void testSizes() {
+		CANTelemetry telemetry = new CANTelemetry(CANTelemetry.kTrajectoryColumns, 100, 200);
+		// 100 rounds up to 128, batches are at most half the ring
+		assertThat(telemetry.getBatchRows(), equalTo(64));
+		assertThat(telemetry.getBatchLength(), equalTo(CANTelemetry.kBatchHeader + 64 * 18));
+		assertThat(telemetry.getColumnHeader().split(",").length, equalTo(17));
+	}
+}
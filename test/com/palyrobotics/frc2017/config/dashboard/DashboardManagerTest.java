@@ -0,0 +1,113 @@
+package com.palyrobotics.frc2017.config.dashboard;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests publishing {@link DashboardValue}s through {@link DashboardManager#flush}
+ */
+public class DashboardManagerTest {
+
+	// Records what was put and how many times
+	private static class FakeTable implements DashboardValue.Table {
+		final Map<String, Object> values = new HashMap<>();
+		final Map<String, Integer> puts = new HashMap<>();
+
+		private void put(String key, Object value) {
+			values.put(key, value);
+			puts.merge(key, 1, Integer::sum);
+		}
+
+		@Override
+		public void putNumber(String key, double value) {
+			put(key, value);
+		}
+
+		@Override
+		public void putBoolean(String key, boolean value) {
+			put(key, value);
+		}
+
+		@Override
+		public void putString(String key, String value) {
+			put(key, value);
+		}
+
+		int getPuts(String key) {
+			return puts.getOrDefault(key, 0);
+		}
+	}
+
+	private DashboardManager mManager = DashboardManager.getInstance();
+	private FakeTable mTable;
+
+	@Before
+	public void setUp() {
+		mTable = new FakeTable();
+		// Clear anything other tests left dirty
+		mManager.flush(new FakeTable());
+	}
+
+	@Test
+	public void testUpdatesAreCoalesced() {
+		DashboardValue value = new DashboardValue("test-coalesced", 0.0);
+		for (int i = 0; i < 5; i++) {
+			value.updateValue((double) i);
+			mManager.publishKVPair(value);
+		}
+		mManager.flush(mTable);
+		assertThat(mTable.getPuts("test-coalesced"), equalTo(1));
+		assertThat(mTable.values.get("test-coalesced"), equalTo((Object) 4.0));
+	}
+
+	@Test
+	public void testUnchangedValuesAreNotPublished() {
+		DashboardValue value = new DashboardValue("test-unchanged", true);
+		mManager.publishKVPair(value);
+		mManager.flush(mTable);
+		value.updateValue(true);
+		mManager.publishKVPair(value);
+		assertFalse(value.isDirty());
+		mManager.flush(mTable);
+		assertThat(mTable.getPuts("test-unchanged"), equalTo(1));
+		value.updateValue(false);
+		assertTrue(value.isDirty());
+		mManager.flush(mTable);
+		assertThat(mTable.values.get("test-unchanged"), equalTo((Object) false));
+	}
+
+	@Test
+	public void testTypes() {
+		DashboardValue number = new DashboardValue("test-number");
+		DashboardValue pair = new DashboardValue("test-pair");
+		DashboardValue string = new DashboardValue("test-string");
+		number.updateValue(1.5);
+		pair.updateValue(1.0, -2.0);
+		string.updateValue(DashboardValue.Type.STRING);
+		mManager.publishKVPair(number);
+		mManager.publishKVPair(pair);
+		mManager.publishKVPair(string);
+		mManager.flush(mTable);
+		assertThat(number.getType(), equalTo(DashboardValue.Type.NUMBER));
+		assertThat(mTable.values.get("test-number"), equalTo((Object) 1.5));
+		assertThat(mTable.values.get("test-pair"), equalTo((Object) "1.0, -2.0"));
+		assertThat(mTable.values.get("test-string"), equalTo((Object) "STRING"));
+	}
+
+	@Test
+	public void testNewValueReplacesKey() {
+		mManager.publishKVPair(new DashboardValue("test-replaced", "first"));
+		mManager.flush(mTable);
+		mManager.publishKVPair(new DashboardValue("test-replaced", "first"));
+		mManager.flush(mTable);
+		assertThat("A new value should be sent even if equal", mTable.getPuts("test-replaced"), equalTo(2));
+	}
+}
@@ -0,0 +1,104 @@
+package com.palyrobotics.frc2017.robot;
+
+import com.ctre.CANTalon.StatusFrameRate;
+import com.ctre.CANTalon.TalonControlMode;
+import com.palyrobotics.frc2017.config.Gains;
+import com.palyrobotics.frc2017.util.CANTalonOutput;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link CANBusProfiler} and {@link TalonStatusProfile}
+ */
+public class CANBusProfilerTest {
+	private static class NullTalon implements CANTalonWriteCoalescer.Talon {
+		@Override
+		public void changeControlMode(TalonControlMode controlMode) {
+		}
+
+		@Override
+		public void setPID(double p, double i, double d, double f, int izone, double rampRate, int profile) {
+		}
+
+		@Override
+		public void setMotionMagicAcceleration(double accel) {
+		}
+
+		@Override
+		public void setMotionMagicCruiseVelocity(double cruiseVelocity) {
+		}
+
+		@Override
+		public void set(double setpoint) {
+		}
+	}
+
+	@Test
+	public void testStatusFramesPerSecond() {
+		TalonStatusProfile profile = new TalonStatusProfile("talon");
+		// General 100, Feedback 50 and the three 10 Hz frames
+		assertThat(profile.getStatusFramesPerSecond(), equalTo(180.0));
+		profile.withPeriod(StatusFrameRate.Feedback, 5);
+		assertThat(profile.getStatusFramesPerSecond(), equalTo(330.0));
+		assertThat(profile.getPeriodMs(StatusFrameRate.Feedback), equalTo(5));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsZeroPeriod() {
+		new TalonStatusProfile("talon").withPeriod(StatusFrameRate.General, 0);
+	}
+
+	@Test
+	public void testFramesSentIncludeParameterWrites() {
+		CANBusProfiler profiler = new CANBusProfiler();
+		CANTalonWriteCoalescer writer = new CANTalonWriteCoalescer(new NullTalon());
+		int master = profiler.addDevice(new TalonStatusProfile("master"), writer);
+		int slave = profiler.addDevice(new TalonStatusProfile("slave"), null);
+		profiler.update(0);
+		assertThat(profiler.getFramesSentPerSecond(master), equalTo(100.0));
+
+		// Mode and setpoint changes only change what the control frame carries
+		CANTalonOutput output = new CANTalonOutput();
+		for (int i = 0; i < 10; i++) {
+			output.setPercentVBus(i);
+			writer.write(output);
+		}
+		profiler.update(0.25);
+		assertThat(profiler.getFramesSentPerSecond(master), equalTo(100.0));
+
+		// Gains are sent in their own frames
+		output.setPosition(1, new Gains(1, 0, 0, 0, 0, 0));
+		writer.write(output);
+		profiler.update(0.5);
+		double sent = 100.0 + CANTalonWriteCoalescer.kSetPIDFrames / 0.25;
+		assertThat(profiler.getFramesSentPerSecond(master), equalTo(sent));
+		assertThat(profiler.getFramesSentPerSecond(slave), equalTo(100.0));
+		assertThat(profiler.getFramesReceivedPerSecond(slave), equalTo(180.0));
+		assertThat(profiler.getFramesPerSecond(), equalTo(sent + 100 + 2 * 180));
+
+		// Nothing written since the last update
+		profiler.update(1.5);
+		assertThat(profiler.getFramesSentPerSecond(master), equalTo(100.0));
+		assertThat(profiler.getUtilization() > 0 && profiler.getUtilization() < 1, equalTo(true));
+	}
+
+	@Test
+	public void testRecommendsFasterThanDefaultFrames() {
+		CANBusProfiler profiler = new CANBusProfiler();
+		profiler.addDevice(new TalonStatusProfile("slave"), null);
+		assertThat(profiler.getRecommendations(), equalTo(""));
+		profiler.addDevice(new TalonStatusProfile("master").withPeriod(StatusFrameRate.Feedback, 5), null);
+		assertThat(profiler.getRecommendations().startsWith("master Feedback 5 ms -> 20 ms"), equalTo(true));
+	}
+
+	@Test
+	public void testReadLatency() {
+		CANBusProfiler profiler = new CANBusProfiler();
+		int device = profiler.addDevice(new TalonStatusProfile("master"), null);
+		profiler.recordRead(device, 50000);
+		assertThat(profiler.getReadLatency(device).getMax(), equalTo(50L));
+		assertThat(profiler.getDeviceName(device), equalTo("master"));
+	}
+}
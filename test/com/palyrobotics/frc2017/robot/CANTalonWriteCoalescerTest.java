@@ -0,0 +1,135 @@
+package com.palyrobotics.frc2017.robot;
+
+import com.ctre.CANTalon.TalonControlMode;
+import com.palyrobotics.frc2017.config.Gains;
+import com.palyrobotics.frc2017.util.CANTalonOutput;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link CANTalonWriteCoalescer} against a Talon that records what it was sent
+ */
+public class CANTalonWriteCoalescerTest {
+	private static class MockTalon implements CANTalonWriteCoalescer.Talon {
+		final List<String> calls = new ArrayList<>();
+
+		@Override
+		public void changeControlMode(TalonControlMode controlMode) {
+			calls.add("mode " + controlMode);
+		}
+
+		@Override
+		public void setPID(double p, double i, double d, double f, int izone, double rampRate, int profile) {
+			calls.add("pid " + p + " " + profile);
+		}
+
+		@Override
+		public void setMotionMagicAcceleration(double accel) {
+			calls.add("accel " + accel);
+		}
+
+		@Override
+		public void setMotionMagicCruiseVelocity(double cruiseVelocity) {
+			calls.add("cruise " + cruiseVelocity);
+		}
+
+		@Override
+		public void set(double setpoint) {
+			calls.add("set " + setpoint);
+		}
+
+		List<String> take() {
+			List<String> taken = new ArrayList<>(calls);
+			calls.clear();
+			return taken;
+		}
+	}
+
+	private static List<String> calls(String... calls) {
+		List<String> list = new ArrayList<>();
+		for (String call : calls) {
+			list.add(call);
+		}
+		return list;
+	}
+
+	private MockTalon mTalon = new MockTalon();
+	private CANTalonWriteCoalescer mWriter = new CANTalonWriteCoalescer(mTalon);
+
+	@Test
+	public void testOnlyChangesAreSent() {
+		CANTalonOutput output = new CANTalonOutput();
+		output.setPercentVBus(0.5);
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("mode PercentVbus", "set 0.5")));
+
+		mWriter.write(output);
+		assertThat("Unchanged output was sent", mTalon.take(), equalTo(calls()));
+
+		output.setPercentVBus(-0.25);
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("set -0.25")));
+
+		// The setpoint goes with a mode change even if it is the same number
+		output.setVoltage(-0.25);
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("mode Voltage", "set -0.25")));
+
+		assertThat(mWriter.getFramesSent(), equalTo(5L));
+		assertThat(mWriter.getFramesSaved(), equalTo(3L));
+	}
+
+	@Test
+	public void testGainsOnlySentWhenTheyDiffer() {
+		CANTalonOutput output = new CANTalonOutput();
+		output.setPosition(100, new Gains(1, 0, 0, 0, 0, 0));
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("mode Position", "pid 1.0 0", "set 100.0")));
+
+		// Equal gains in a new object
+		output.setPosition(200, new Gains(1, 0, 0, 0, 0, 0));
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("set 200.0")));
+		assertThat(mWriter.getFramesSaved(), equalTo(1L + CANTalonWriteCoalescer.kSetPIDFrames));
+
+		output.setPosition(200, new Gains(2, 0, 0, 0, 0, 0));
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("pid 2.0 0")));
+
+		output.profile = 1;
+		mWriter.write(output);
+		assertThat("Profile change was not sent", mTalon.take(), equalTo(calls("pid 2.0 1")));
+	}
+
+	@Test
+	public void testMotionMagic() {
+		Gains gains = new Gains(1, 0, 0, 0, 0, 0);
+		CANTalonOutput output = new CANTalonOutput();
+		output.setMotionMagic(500, gains, 40, 80);
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("mode MotionMagic", "pid 1.0 0", "accel 80.0", "cruise 40.0", "set 500.0")));
+
+		output.setMotionMagic(500, gains, 60, 80);
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("cruise 60.0")));
+	}
+
+	@Test
+	public void testInvalidateSendsEverything() {
+		CANTalonOutput output = new CANTalonOutput();
+		output.setMotionMagic(500, new Gains(1, 0, 0, 0, 0, 0), 40, 80);
+		mWriter.write(output);
+		mTalon.take();
+
+		mWriter.invalidate();
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls("mode MotionMagic", "pid 1.0 0", "accel 80.0", "cruise 40.0", "set 500.0")));
+		mWriter.write(output);
+		assertThat(mTalon.take(), equalTo(calls()));
+	}
+}
@@ -0,0 +1,175 @@
+package com.palyrobotics.frc2017.robot;
+
+import com.google.common.io.Files;
+import com.palyrobotics.frc2017.behavior.Routine;
+import com.palyrobotics.frc2017.behavior.RoutineManager;
+import com.palyrobotics.frc2017.behavior.SampleRoutine;
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.subsystems.Spatula;
+import com.palyrobotics.frc2017.util.Subsystem;
+import com.palyrobotics.frc2017.util.archive.SubsystemLoop;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class SerializerTest {
+	// 150 seconds of teleop, the subsystem loop runs twice per robot loop
+	private static final int kRobotTicks = 7500;
+
+	/**
+	 * Puts the spatula down while running
+	 */
+	private static class SpatulaDownRoutine extends Routine {
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public Commands update(Commands commands) {
+			commands.wantedSpatulaState = Spatula.SpatulaState.DOWN;
+			return commands;
+		}
+
+		@Override
+		public Commands cancel(Commands commands) {
+			return commands;
+		}
+
+		@Override
+		public boolean finished() {
+			return false;
+		}
+
+		@Override
+		public Subsystem[] getRequiredSubsystems() {
+			return new Subsystem[]{spatula};
+		}
+
+		@Override
+		public String getName() {
+			return "SpatulaDownRoutine";
+		}
+	}
+
+	/**
+	 * Records what the subsystem loop was updated with
+	 */
+	private static class LastCommandsLoop implements SubsystemLoop {
+		int updates = 0;
+		double lastLeftEnc;
+		Commands lastCommands;
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void update(Commands commands, RobotState robotState) {
+			updates++;
+			lastLeftEnc = robotState.drivePose.leftEnc;
+			lastCommands = commands;
+		}
+
+		@Override
+		public void stop() {
+		}
+
+		@Override
+		public String getStatus() {
+			return "";
+		}
+	}
+
+	private final Replay.RoutineFactory mRoutines = (name, commands) ->
+			name.equals("SpatulaDownRoutine") ? new SpatulaDownRoutine() : null;
+
+	private File mFile;
+
+	@Before
+	public void setUp() throws InterruptedException {
+		mFile = new File(Files.createTempDir(), "match.replay");
+		Serializer serializer = new Serializer(mFile.getPath());
+		assertTrue(serializer.start());
+
+		RoutineManager routineManager = new RoutineManager();
+		RobotState state = new RobotState();
+		Commands commands = new Commands();
+		routineManager.reset(commands);
+		serializer.recordReset(0);
+		for (int i = 0; i < kRobotTicks; i++) {
+			double timestamp = i * 0.02;
+			state.drivePose.leftEnc = i;
+			Commands input = commands.copy();
+			input.leftStickInput = new Commands.JoystickInput(0, i / (double) kRobotTicks, false);
+			input.wantedSpatulaState = Spatula.SpatulaState.UP;
+			if (i == 1000) {
+				input.addWantedRoutine(new SpatulaDownRoutine());
+			}
+			input.cancelCurrentRoutines = (i == 5000);
+			serializer.recordOperatorCommands(timestamp, state, input);
+			commands = routineManager.update(input);
+			serializer.recordRoutineCommands(timestamp, state, commands);
+			serializer.recordSubsystemLoop(timestamp + 0.005, state, commands);
+			serializer.recordSubsystemLoop(timestamp + 0.015, state, commands);
+			// Sleep now and then so the writer thread keeps up
+			if (i % 25 == 0) {
+				Thread.sleep(1);
+			}
+		}
+		serializer.stop();
+		assertThat(serializer.getDroppedRecords(), equalTo(0L));
+	}
+
+	@Test
+	public void testReplayMatches() throws Exception {
+		LastCommandsLoop loop = new LastCommandsLoop();
+		Replay.Result result = new Replay(mFile).run(new RoutineManager(), Collections.singletonList(loop), mRoutines);
+		assertTrue(result.toString(), result.matches());
+		assertThat(result.routineUpdates, equalTo(kRobotTicks));
+		assertThat(result.subsystemUpdates, equalTo(2 * kRobotTicks));
+		assertThat(result.records, equalTo(1 + 4 * kRobotTicks));
+		assertThat(loop.updates, equalTo(2 * kRobotTicks));
+		assertThat(loop.lastLeftEnc, equalTo((double) kRobotTicks - 1));
+		assertThat(loop.lastCommands.leftStickInput.y, equalTo((kRobotTicks - 1) / (double) kRobotTicks));
+	}
+
+	@Test
+	public void testReplayFindsChanges() throws Exception {
+		// Pretend the routine was changed to do nothing
+		Replay.RoutineFactory changed = (name, commands) -> name.equals("SpatulaDownRoutine") ? new SampleRoutine() : null;
+		Replay.Result result = new Replay(mFile).run(new RoutineManager(), Collections.emptyList(), changed);
+		assertThat(result.matches(), equalTo(false));
+		// Wanted routines start on the next update and run until canceled
+		assertThat(result.mismatchedUpdates, equalTo(4000));
+		assertThat(result.firstMismatchTimestamp, equalTo(1001 * 0.02));
+		assertThat(result.fieldMismatches, equalTo(Collections.singletonMap("wantedSpatulaState", 4000)));
+
+		Replay.Result unknown = new Replay(mFile).run(new RoutineManager(), Collections.emptyList(), (name, commands) -> null);
+		assertThat(unknown.unknownRoutines, equalTo(Collections.singletonList("SpatulaDownRoutine")));
+	}
+
+	@Test
+	public void testTruncatedFile() throws Exception {
+		try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+		Replay.Result result = new Replay(mFile).run(new RoutineManager(), Collections.emptyList(), mRoutines);
+		assertTrue(result.toString(), result.matches());
+		assertThat(result.subsystemUpdates, equalTo(2 * kRobotTicks - 1));
+	}
+
+	@Test
+	public void testReplaySpeed() throws Exception {
+		Replay.Result result = new Replay(mFile).run(new RoutineManager(), Collections.emptyList(), mRoutines);
+		System.out.println("Replayed " + kRobotTicks * 0.02 + " seconds of match in " + result.seconds + " seconds");
+		assertTrue("Replay should be faster than real time", result.seconds < kRobotTicks * 0.02);
+	}
+}
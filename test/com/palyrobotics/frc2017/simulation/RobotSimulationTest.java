@@ -0,0 +1,147 @@
+package com.palyrobotics.frc2017.simulation;
+
+import com.palyrobotics.frc2017.auto.modes.SidePegAutoMode;
+import com.palyrobotics.frc2017.auto.modes.TrajectorySidePegAutoMode;
+import com.palyrobotics.frc2017.behavior.routines.drive.CANTalonRoutine;
+import com.palyrobotics.frc2017.behavior.routines.drive.DrivePathRoutine;
+import com.palyrobotics.frc2017.behavior.routines.drive.EncoderTurnAngleRoutine;
+import com.palyrobotics.frc2017.config.Constants;
+import com.palyrobotics.frc2017.config.Gains;
+import com.palyrobotics.frc2017.subsystems.Climber;
+import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.util.LoopTimingStats;
+import com.palyrobotics.frc2017.util.archive.DriveSignal;
+import com.team254.lib.trajectory.PathGenerationService;
+import com.team254.lib.trajectory.TrajectoryGenerator;
+import com.team254.lib.trajectory.WaypointSequence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RobotSimulationTest {
+	private RobotSimulation mSimulation;
+
+	@Before
+	public void setUp() {
+		mSimulation = new RobotSimulation(new SimulatedHardware(8));
+	}
+
+	@After
+	public void tearDown() {
+		mSimulation.close();
+	}
+
+	@Test
+	public void testMotionMagicDrive() {
+		double distance = 60;
+		DriveSignal signal = DriveSignal.getNeutralSignal();
+		signal.leftMotor.setMotionMagic(distance * Constants.kDriveTicksPerInch, Gains.steikLongDriveMotionMagicGains,
+				Gains.kSteikLongDriveMotionMagicCruiseVelocity, Gains.kSteikLongDriveMotionMagicMaxAcceleration);
+		signal.rightMotor.setMotionMagic(distance * Constants.kDriveTicksPerInch, Gains.steikLongDriveMotionMagicGains,
+				Gains.kSteikLongDriveMotionMagicCruiseVelocity, Gains.kSteikLongDriveMotionMagicMaxAcceleration);
+		mSimulation.teleopInit();
+		mSimulation.addRoutine(new CANTalonRoutine(signal, true, 5));
+		mSimulation.run(4);
+
+		DrivetrainModel drivetrain = mSimulation.getHardware().getDrivetrain();
+		assertEquals(distance, drivetrain.getLeftDistance(), 1);
+		assertEquals(distance, drivetrain.getRightDistance(), 1);
+		assertEquals(0, drivetrain.getHeading(), 1);
+		assertEquals(0, drivetrain.getLeftVelocity(), 0.5);
+	}
+
+	@Test
+	public void testGeneratedPath() throws InterruptedException {
+		// Five feet straight ahead, generated while the robot waits
+		WaypointSequence waypoints = new WaypointSequence(2);
+		waypoints.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
+		waypoints.addWaypoint(new WaypointSequence.Waypoint(5, 0, 0));
+		TrajectoryGenerator.Config config = new TrajectoryGenerator.Config();
+		config.dt = 0.01;
+		config.max_vel = 5.0;
+		config.max_acc = 5.0;
+		config.max_jerk = 50.0;
+		PathGenerationService.Request request = new PathGenerationService(1).submit("Straight", waypoints, config,
+				26.375 / 12);
+		// The simulated clock runs faster than the worker, don't let the routine time out
+		request.await(5000);
+
+		mSimulation.teleopInit();
+		mSimulation.addRoutine(new DrivePathRoutine(request, Gains.kStraightTrajectoryGains, false, false));
+		mSimulation.run(4);
+
+		assertTrue(mSimulation.getRoutineManager().getCurrentRoutines().isEmpty());
+		DrivetrainModel drivetrain = mSimulation.getHardware().getDrivetrain();
+		// The trajectory gains stop a few inches short on the simulated drivetrain
+		assertEquals(60, drivetrain.getLeftDistance(), 6);
+		assertEquals(60, drivetrain.getRightDistance(), 6);
+		assertEquals(0, drivetrain.getHeading(), 2);
+	}
+
+	@Test
+	public void testEncoderTurn() {
+		mSimulation.teleopInit();
+		mSimulation.addRoutine(new EncoderTurnAngleRoutine(90));
+		mSimulation.run(5);
+		// Positive angles turn clockwise, the gyro is counterclockwise positive
+		assertEquals(-90, mSimulation.getHardware().getDrivetrain().getHeading(), 10);
+	}
+
+	@Test
+	public void testTrajectorySidePegAuto() {
+		TrajectorySidePegAutoMode mode = new TrajectorySidePegAutoMode(SidePegAutoMode.SideAutoVariant.BLUE_LOADING,
+				TrajectorySidePegAutoMode.TrajectorySidePostVariant.BACKUP);
+		boolean finished = mSimulation.runAutonomous(mode, 15);
+
+		assertTrue("Auto mode did not finish", finished);
+		// Timed on the simulated clock, about 13.7 seconds, however long the machine took
+		assertTrue("Auto mode should finish within the autonomous period", mSimulation.getTime() < 15);
+		DrivetrainModel drivetrain = mSimulation.getHardware().getDrivetrain();
+		assertTrue("Robot should drive out to the peg", drivetrain.getX() > 60);
+		// Slider ends up at the last of the auto mode's positions, 3 inches left
+		assertEquals(-3 * Constants.kSliderRevolutionsPerInch, mSimulation.getHardware().getSlider().getPosition(), 0.02);
+	}
+
+	// Times the task was updated, from the scheduler's timing stats
+	private static int getUpdates(RobotSimulation simulation, String task) {
+		LoopTimingStats timing = simulation.getScheduler().getTimingStats();
+		for (int i = 0; i < timing.getLoopCount(); i++) {
+			if (timing.getLoopName(i).equals(task)) {
+				return timing.getLoopDuration(i).getTotalCount();
+			}
+		}
+		throw new IllegalArgumentException("No task " + task);
+	}
+
+	@Test
+	public void testSubsystemPeriods() {
+		double climberLoopDt = Constants.kClimberLoopDt;
+		Constants.kClimberLoopDt = 5 * Constants.kSchedulerDt;
+		RobotSimulation simulation = new RobotSimulation(new SimulatedHardware(8));
+		try {
+			simulation.teleopInit();
+			simulation.run(1);
+		} finally {
+			simulation.close();
+			Constants.kClimberLoopDt = climberLoopDt;
+		}
+		assertEquals(100, getUpdates(simulation, Drive.getInstance().toString()));
+		assertEquals(20, getUpdates(simulation, Climber.getInstance().toString()));
+		// The routine manager runs at the rate of the periodic methods
+		assertEquals(50, getUpdates(simulation, "routines"));
+	}
+
+	@Test
+	public void testSpeed() {
+		mSimulation.setSpeed(4);
+		long start = System.nanoTime();
+		mSimulation.run(1);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		assertEquals(1, mSimulation.getTime(), 1E-9);
+		// Only a lower bound, a loaded machine can run slower than asked but never faster
+		assertTrue("Simulation should be paced to a quarter second", seconds > 0.2);
+	}
+}
@@ -0,0 +1,52 @@
+package com.palyrobotics.frc2017.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 50; i++) {
+			histogram.record(i);
+		}
+		assertEquals(50, histogram.getTotalCount());
+		assertEquals(25, histogram.getValueAtPercentile(50));
+		assertEquals(50, histogram.getValueAtPercentile(99));
+		assertEquals(50, histogram.getValueAtPercentile(100));
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertEquals(50, histogram.getMax());
+	}
+
+	@Test
+	public void testPercentilesWithinPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		// 10ms ticks with one in a hundred taking 25ms
+		for (int i = 0; i < 1000; i++) {
+			histogram.record(i % 100 == 0 ? 25000 : 10000 + i);
+		}
+		long p50 = histogram.getValueAtPercentile(50);
+		assertTrue("p50 was " + p50, Math.abs(p50 - 10500) <= 10500 / 32);
+		long p99 = histogram.getValueAtPercentile(99);
+		assertTrue("p99 was " + p99, p99 >= 10990 && p99 <= 10999 + 10999 / 32);
+		assertEquals(25000, histogram.getValueAtPercentile(100));
+		assertEquals(25000, histogram.getMax());
+	}
+
+	@Test
+	public void testClampingAndReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(LatencyHistogram.kMaxValue, histogram.getMax());
+
+		histogram.reset();
+		assertEquals(0, histogram.getTotalCount());
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		assertEquals(0, histogram.getMax());
+	}
+}
@@ -0,0 +1,75 @@
+package com.palyrobotics.frc2017.util;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoopTimingStatsTest {
+
+	@Test
+	public void testPeriodDurationsAndOverruns() {
+		LoopTimingStats stats = new LoopTimingStats("subsystem_looper", 0.01);
+		assertEquals(0, stats.addLoop("Drive"));
+		assertEquals(1, stats.addLoop("Slider"));
+
+		long start = 0;
+		for (int i = 0; i < 100; i++) {
+			stats.recordLoop(0, 2000000);
+			stats.recordLoop(1, 500000);
+			// Every tenth tick overruns the 10ms period
+			long duration = (i % 10 == 9) ? 12000000 : 3000000;
+			stats.recordTick(start, start + duration);
+			start += 10000000;
+		}
+
+		assertEquals(10, stats.getOverruns());
+		assertEquals(100, stats.getTickDuration().getTotalCount());
+		// No period for the first tick
+		assertEquals(99, stats.getPeriod().getTotalCount());
+		assertEquals(10000, stats.getPeriod().getValueAtPercentile(50), 10000 / 32);
+		assertEquals(2000, stats.getLoopDuration(0).getValueAtPercentile(99), 2000 / 32);
+		assertEquals(500, stats.getLoopDuration(1).getMax());
+		assertEquals("Slider", stats.getLoopName(1));
+
+		String summary = stats.getSummary();
+		assertTrue(summary, summary.startsWith("subsystem_looper period p50 "));
+		assertTrue(summary, summary.contains("overruns 10"));
+		assertTrue(summary, summary.contains("Drive p50 "));
+
+		stats.reset();
+		assertEquals(0, stats.getOverruns());
+		assertEquals(0, stats.getLoopDuration(0).getTotalCount());
+		stats.recordTick(start, start + 1000000);
+		assertEquals("Period should restart after a reset", 0, stats.getPeriod().getTotalCount());
+	}
+
+	@Test
+	public void testRecordingDoesNotAllocate() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		LoopTimingStats stats = new LoopTimingStats("test", 0.01);
+		stats.addLoop("drive");
+		// Warm up so nothing is allocated by class loading or the JIT on this thread
+		recordTicks(stats, 20000);
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		recordTicks(stats, 20000);
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		// getThreadAllocatedBytes itself can allocate a little
+		assertTrue("Recording allocated " + allocated + " bytes", allocated < 1024);
+	}
+
+	private static void recordTicks(LoopTimingStats stats, int ticks) {
+		long time = 0;
+		for (int i = 0; i < ticks; i++) {
+			stats.recordLoop(0, 1000000 + i);
+			stats.recordTick(time, time + 2000000);
+			time += 10000000 + (i % 7) * 1000;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.palyrobotics.frc2017.util;
+
+import com.palyrobotics.frc2017.robot.team254.lib.util.Loop;
+import com.palyrobotics.frc2017.util.PhasedScheduler.Phase;
+import com.palyrobotics.frc2017.util.PhasedScheduler.Priority;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link PhasedScheduler}, ticks are run directly on a fake clock instead of by the Notifier
+ */
+public class PhasedSchedulerTest {
+	private static final double kPeriod = 0.01;
+	private static final long kPeriodNanos = 10000000;
+
+	// Nanoseconds returned by the scheduler's clock
+	private long mNanos = 0;
+	private final List<String> mEvents = new ArrayList<>();
+	private final PhasedScheduler mScheduler = new PhasedScheduler("test", kPeriod, () -> mNanos);
+
+	// Records its updates, and takes as long as it is told to
+	private class TestLoop implements Loop {
+		final String name;
+		long durationNanos = 0;
+
+		TestLoop(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void onStart() {
+			mEvents.add("start " + name);
+		}
+
+		@Override
+		public void update() {
+			mEvents.add(name);
+			mNanos += durationNanos;
+		}
+
+		@Override
+		public void onStop() {
+			mEvents.add("stop " + name);
+		}
+	}
+
+	private TestLoop register(String name, Phase phase, Priority priority) {
+		TestLoop loop = new TestLoop(name);
+		mScheduler.register(name, phase, priority, loop);
+		return loop;
+	}
+
+	private void startAllPhases() {
+		for (Phase phase : Phase.values()) {
+			mScheduler.startPhase(phase);
+		}
+		mEvents.clear();
+	}
+
+	private List<String> tick() {
+		mEvents.clear();
+		mScheduler.runTick();
+		return new ArrayList<>(mEvents);
+	}
+
+	@Test
+	public void testPhasesRunInOrder() {
+		// Registered out of order on purpose
+		register("write", Phase.ACTUATE, Priority.CRITICAL);
+		register("drive", Phase.SUBSYSTEMS, Priority.CRITICAL);
+		register("sensors", Phase.SENSE, Priority.CRITICAL);
+		register("slider", Phase.SUBSYSTEMS, Priority.LOW);
+		register("record", Phase.ACTUATE, Priority.CRITICAL);
+		startAllPhases();
+		for (int i = 0; i < 5; i++) {
+			assertThat(tick(), equalTo(Arrays.asList("sensors", "drive", "slider", "write", "record")));
+		}
+	}
+
+	@Test
+	public void testOnlyRunningPhasesUpdate() {
+		register("sensors", Phase.SENSE, Priority.CRITICAL);
+		register("drive", Phase.SUBSYSTEMS, Priority.CRITICAL);
+		register("write", Phase.ACTUATE, Priority.CRITICAL);
+		mScheduler.startPhase(Phase.SENSE);
+		assertThat(tick(), equalTo(Arrays.asList("sensors")));
+
+		mEvents.clear();
+		mScheduler.startPhase(Phase.SUBSYSTEMS);
+		mScheduler.startPhase(Phase.SUBSYSTEMS);
+		assertThat("Phase was started twice", mEvents, equalTo(Arrays.asList("start drive")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "drive")));
+
+		mEvents.clear();
+		mScheduler.stopPhase(Phase.SUBSYSTEMS);
+		assertThat(mEvents, equalTo(Arrays.asList("stop drive")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors")));
+	}
+
+	@Test
+	public void testTaskPeriods() {
+		register("sensors", Phase.SENSE, Priority.CRITICAL);
+		mScheduler.register("climber", Phase.SUBSYSTEMS, Priority.LOW, 2 * kPeriod, new TestLoop("climber"));
+		startAllPhases();
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "climber")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "climber")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors")));
+	}
+
+	@Test
+	public void testOverrunSkipsLowerPriorities() {
+		TestLoop sensors = register("sensors", Phase.SENSE, Priority.CRITICAL);
+		register("slider", Phase.SUBSYSTEMS, Priority.NORMAL);
+		register("climber", Phase.SUBSYSTEMS, Priority.LOW);
+		register("write", Phase.ACTUATE, Priority.CRITICAL);
+		startAllPhases();
+
+		// Over half the period is only too long for low priority tasks
+		sensors.durationNanos = kPeriodNanos * 3 / 4;
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "slider", "write")));
+
+		// Over the whole period, only critical tasks run
+		sensors.durationNanos = kPeriodNanos * 3 / 2;
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "write")));
+
+		// The tick after an overrun still leaves out low priority tasks
+		sensors.durationNanos = 0;
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "slider", "write")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "slider", "climber", "write")));
+
+		assertThat(mScheduler.getSkips(0), equalTo(0));
+		assertThat(mScheduler.getSkips(1), equalTo(1));
+		assertThat(mScheduler.getSkips(2), equalTo(3));
+		assertThat(mScheduler.getTimingStats().getOverruns(), equalTo(1));
+	}
+
+	@Test
+	public void testResetTiming() {
+		TestLoop sensors = register("sensors", Phase.SENSE, Priority.CRITICAL);
+		register("climber", Phase.SUBSYSTEMS, Priority.LOW);
+		startAllPhases();
+		sensors.durationNanos = kPeriodNanos * 3 / 2;
+		tick();
+		assertThat(mScheduler.getSkips(1), equalTo(1));
+
+		// Like enabling the robot again, the next summary starts from nothing
+		mScheduler.resetTiming();
+		assertThat(mScheduler.getSkips(1), equalTo(0));
+		assertThat(mScheduler.getTimingStats().getOverruns(), equalTo(0));
+		assertThat(mScheduler.getTimingStats().getTickDuration().getTotalCount(), equalTo(0));
+
+		// The overrun before the reset doesn't make the next tick skip low priority tasks
+		sensors.durationNanos = 0;
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "climber")));
+	}
+
+	@Test
+	public void testSustainedOverrunStillRunsEveryTask() {
+		TestLoop sensors = register("sensors", Phase.SENSE, Priority.CRITICAL);
+		register("slider", Phase.SUBSYSTEMS, Priority.NORMAL);
+		register("climber", Phase.SUBSYSTEMS, Priority.LOW);
+		startAllPhases();
+		sensors.durationNanos = kPeriodNanos * 3 / 2;
+		// Skipped five ticks in a row, then run despite the overrun
+		for (int i = 0; i < 5; i++) {
+			assertThat(tick(), equalTo(Arrays.asList("sensors")));
+		}
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "slider", "climber")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors")));
+		assertThat(mScheduler.getSkips(2), equalTo(6));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPeriodFasterThanTickRejected() {
+		// 200 Hz can't be run on a 100 Hz tick
+		mScheduler.register("slider", Phase.SUBSYSTEMS, Priority.NORMAL, kPeriod / 2, new TestLoop("slider"));
+	}
+
+	@Test
+	public void testSkippedTaskDoesNotCatchUp() {
+		TestLoop sensors = register("sensors", Phase.SENSE, Priority.CRITICAL);
+		mScheduler.register("climber", Phase.SUBSYSTEMS, Priority.LOW, 2 * kPeriod, new TestLoop("climber"));
+		startAllPhases();
+		sensors.durationNanos = kPeriodNanos * 3 / 2;
+		assertThat(tick(), equalTo(Arrays.asList("sensors")));
+		sensors.durationNanos = 0;
+		// The tick after an overrun
+		assertThat(tick(), equalTo(Arrays.asList("sensors")));
+		// Late by two ticks, then back to every other tick
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "climber")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors")));
+		assertThat(tick(), equalTo(Arrays.asList("sensors", "climber")));
+	}
+}
@@ -0,0 +1,136 @@
+package com.palyrobotics.frc2017.util.archive.team254.trajectory;
+
+import com.team254.lib.trajectory.Trajectory;
+import com.team254.lib.trajectory.TrajectoryGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests sampling a profile by time in {@link TimedTrajectoryFollower}
+ */
+public class TimedTrajectoryFollowerTest {
+	private static final double kDt = 0.01;
+
+	private Trajectory mProfile;
+
+	@Before
+	public void setUp() {
+		TrajectoryGenerator.Config config = new TrajectoryGenerator.Config();
+		config.dt = kDt;
+		config.max_vel = 5.0;
+		config.max_acc = 5.0;
+		config.max_jerk = 50.0;
+		mProfile = TrajectoryGenerator.generate(config, TrajectoryGenerator.SCurvesStrategy, 0.0, 0.0, 3.0, 0.0, 1.0);
+	}
+
+	private TimedTrajectoryFollower follower(double loopPeriod) {
+		TimedTrajectoryFollower follower = new TimedTrajectoryFollower("test", loopPeriod);
+		follower.configure(1.0, 0, 0.1, 0.2, 0.05);
+		follower.setTrajectory(mProfile);
+		return follower;
+	}
+
+	@Test
+	public void testMatchesLegacyOnTime() {
+		TimedTrajectoryFollower timed = follower(kDt);
+		LegacyTrajectoryFollower legacy = new LegacyTrajectoryFollower("legacy");
+		legacy.configure(1.0, 0, 0.1, 0.2, 0.05);
+		legacy.setTrajectory(mProfile);
+		legacy.reset();
+
+		double start = 100.0;
+		for (int i = 0; !legacy.isFinishedTrajectory(); i++) {
+			assertFalse(timed.isFinishedTrajectory());
+			// Lags the profile a little, so the error isn't zero
+			double distance = 0.9 * mProfile.getPos(i);
+			assertEquals(legacy.calculate(distance), timed.calculate(distance, 0, start + i * kDt), 1E-9);
+			assertEquals(legacy.getHeading(), timed.getHeading(), 1E-9);
+		}
+		timed.calculate(0, 0, start + mProfile.getNumSegments() * kDt);
+		assertTrue(timed.isFinishedTrajectory());
+		assertThat(timed.getOverruns(), equalTo(0));
+		assertThat(timed.getSegmentsSkipped(), equalTo(0));
+		// Lagging 10%, so the error is largest at the end
+		double end = mProfile.getPos(mProfile.getNumSegments() - 1);
+		assertEquals(0.1 * end, timed.getTrackingError(), 1E-9);
+		assertEquals(0.1 * end, timed.getMaxTrackingError(), 1E-9);
+	}
+
+	@Test
+	public void testInterpolatesBetweenSegments() {
+		TimedTrajectoryFollower follower = follower(kDt / 2);
+		follower.configure(0, 0, 0, 1.0, 0);
+		follower.calculate(0, 0, 0);
+		// kv only, so the output is the sampled velocity
+		double output = follower.calculate(0, 0, 2.5 * kDt);
+		assertEquals((mProfile.getVel(2) + mProfile.getVel(3)) / 2, output, 1E-9);
+		assertThat(follower.getCurrentSegmentNumber(), equalTo(2));
+	}
+
+	@Test
+	public void testOverrunsDoNotStretchThePath() {
+		TimedTrajectoryFollower follower = follower(kDt);
+		follower.calculate(0, 0, 0);
+		follower.calculate(0, 0, kDt);
+		// Two loops missed
+		follower.calculate(0, 0, 4 * kDt);
+		assertThat(follower.getCurrentSegmentNumber(), equalTo(4));
+		assertThat(follower.getOverruns(), equalTo(1));
+		assertThat(follower.getSegmentsSkipped(), equalTo(2));
+		// Standing still, so the error is how far along the profile the clock says it should be
+		assertEquals(mProfile.getPos(4), follower.getTrackingError(), 1E-9);
+		assertEquals(mProfile.getPos(4), follower.getMaxTrackingError(), 1E-9);
+		assertEquals(20000, follower.getJitter().getMax(), 1000);
+
+		double end = mProfile.getNumSegments() * kDt;
+		follower.calculate(0, 0, end - kDt / 2);
+		assertFalse(follower.isFinishedTrajectory());
+		follower.calculate(0, 0, end);
+		assertTrue(follower.isFinishedTrajectory());
+		assertEquals(end, follower.getDuration(), 1E-9);
+	}
+
+	@Test
+	public void testSlowerLoopTakesAsLong() {
+		TimedTrajectoryFollower follower = follower(2 * kDt);
+		int calls = 0;
+		while (!follower.isFinishedTrajectory()) {
+			follower.calculate(0, 0, calls * 2 * kDt);
+			calls++;
+		}
+		// Every other segment, and the call that found the end
+		assertThat(calls, equalTo((mProfile.getNumSegments() + 1) / 2 + 1));
+		assertThat(follower.getOverruns(), equalTo(0));
+	}
+
+	@Test
+	public void testTelemetryHasThisWheelsSpeed() {
+		TimedTrajectoryFollower follower = follower(kDt);
+		follower.calculate(0, 0, 0);
+		follower.calculate(0.01, 2.0, kDt);
+		double[] row = new double[TimedTrajectoryFollower.kTelemetryColumns];
+		follower.copyTelemetry(row, 0);
+		assertEquals(0.01, row[4], 0);
+		assertEquals(2.0, row[5], 0);
+		assertEquals(mProfile.getVel(1) - 2.0, row[7], 1E-9);
+	}
+
+	@Test
+	public void testResetStartsOver() {
+		TimedTrajectoryFollower follower = follower(kDt);
+		follower.calculate(0, 0, 5);
+		follower.calculate(0, 0, 5.2);
+		follower.reset();
+		assertThat(follower.getCurrentSegmentNumber(), equalTo(0));
+		assertEquals(0, follower.getElapsed(), 0);
+		follower.calculate(0, 0, 20);
+		assertThat(follower.getCurrentSegmentNumber(), equalTo(0));
+		assertFalse(follower.isFinishedTrajectory());
+	}
+}
@@ -0,0 +1,122 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LogFileWriterTest {
+	private File mDirectory;
+
+	@Before
+	public void setUp() {
+		mDirectory = Files.createTempDir();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = mDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		mDirectory.delete();
+	}
+
+	@Test
+	public void testSizeAndTimeFlush() throws Exception {
+		File file = new File(mDirectory, "log.log");
+		LogFileWriter writer = new LogFileWriter(file, 256, 64, 1000, 0);
+		writer.open();
+		writer.write("short line\n");
+		assertThat("Should buffer below the flush size", file.length(), equalTo(0L));
+
+		writer.flushIfDue(System.currentTimeMillis());
+		assertThat("Should wait for the flush interval", file.length(), equalTo(0L));
+		writer.flushIfDue(System.currentTimeMillis() + 1000);
+		assertThat("Should flush after the flush interval", file.length(), equalTo(11L));
+
+		writer.write("a line that is long enough to pass the sixty four byte flush threshold\n");
+		assertTrue("Should flush past the flush size", file.length() > 11);
+		writer.close();
+	}
+
+	@Test
+	public void testRollover() throws Exception {
+		File file = new File(mDirectory, "log.log");
+		LogFileWriter writer = new LogFileWriter(file, 64, 64, 1000, 100);
+		writer.open();
+		for (int i = 0; i < 100; i++) {
+			writer.write("line " + i + "\n");
+		}
+		writer.close();
+
+		File[] files = mDirectory.listFiles();
+		assertTrue("Should have rolled over", files.length > 1);
+		assertTrue(new File(mDirectory, "log-1.log").exists());
+		// Every line should be intact in exactly one file
+		int lines = 0;
+		for (File part : files) {
+			for (String line : Files.readLines(part, Charsets.UTF_8)) {
+				assertTrue("Split line " + line, line.matches("line \\d+"));
+				lines++;
+			}
+		}
+		assertThat(lines, equalTo(100));
+	}
+
+	@Test
+	public void testMultibyteAcrossBufferBoundary() throws Exception {
+		File file = new File(mDirectory, "log.log");
+		LogFileWriter writer = new LogFileWriter(file, 16, 16, 1000, 0);
+		writer.open();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			expected.append("été ✓ ");
+		}
+		expected.append('\n');
+		writer.write(expected);
+		writer.close();
+		assertThat(Files.toString(file, Charsets.UTF_8), equalTo(expected.toString()));
+	}
+
+	/**
+	 * Not a correctness test, prints records/sec of the old per-line Guava append against the channel writer
+	 */
+	@Test
+	public void testThroughput() throws Exception {
+		final int records = 20000;
+		String line = "1489443090: Drive State: OFF_BOARD_CONTROLLER Left Setpoint: 0.25 Right Setpoint: 0.25\n";
+
+		File appendFile = new File(mDirectory, "append.log");
+		long start = System.nanoTime();
+		for (int i = 0; i < records; i++) {
+			Files.append(line, appendFile, Charsets.UTF_8);
+		}
+		double appendSeconds = (System.nanoTime() - start) / 1e9;
+
+		File channelFile = new File(mDirectory, "channel.log");
+		start = System.nanoTime();
+		LogFileWriter writer = new LogFileWriter(channelFile, 64 * 1024, 32 * 1024, 1000, 0);
+		writer.open();
+		for (int i = 0; i < records; i++) {
+			writer.write(line);
+		}
+		writer.close();
+		double channelSeconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("Guava Files.append: " + (int) (records / appendSeconds) + " records/sec");
+		System.out.println("LogFileWriter: " + (int) (records / channelSeconds) + " records/sec");
+		List<String> appended = Files.readLines(appendFile, Charsets.UTF_8);
+		assertThat(Files.readLines(channelFile, Charsets.UTF_8), equalTo(appended));
+	}
+}
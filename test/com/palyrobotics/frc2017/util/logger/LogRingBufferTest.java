@@ -0,0 +1,102 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LogRingBufferTest {
+	private static String read(LogRingBuffer ring, long position, String... keys) {
+		StringBuilder builder = new StringBuilder();
+		ring.appendTo(position, builder, keys);
+		return builder.toString();
+	}
+
+	@Test
+	public void testRecordsInOrder() {
+		LogRingBuffer ring = new LogRingBuffer(8, 16, Thread.currentThread());
+		ring.add(1, LogRingBuffer.kNoKey, "first");
+		ring.add(2, 0, LogRingBuffer.kTypeDouble, Double.doubleToRawLongBits(1.5));
+		ring.add(3, 1, LogRingBuffer.kTypeLong, 42);
+		ring.add(4, 0, LogRingBuffer.kTypeBoolean, 1);
+
+		assertThat("Wrong number of records", ring.available() - ring.tail(), equalTo(4L));
+		long tail = ring.tail();
+		assertThat(read(ring, tail, "a", "b"), equalTo("first"));
+		assertThat(read(ring, tail + 1, "a", "b"), equalTo("a: 1.5"));
+		assertThat(read(ring, tail + 2, "a", "b"), equalTo("b: 42"));
+		assertThat(read(ring, tail + 3, "a", "b"), equalTo("a: true"));
+		assertThat(ring.timeAt(tail + 3), equalTo(4L));
+	}
+
+	@Test
+	public void testTruncatesLongStrings() {
+		LogRingBuffer ring = new LogRingBuffer(4, 4, Thread.currentThread());
+		ring.add(0, LogRingBuffer.kNoKey, new StringBuilder("abcdefgh"));
+		assertThat(read(ring, ring.tail()), equalTo("abcd"));
+	}
+
+	@Test
+	public void testDropsWhenFull() {
+		LogRingBuffer ring = new LogRingBuffer(4, 8, Thread.currentThread());
+		for (int i = 0; i < 6; i++) {
+			ring.add(i, LogRingBuffer.kNoKey, LogRingBuffer.kTypeLong, i);
+		}
+		assertThat("Full ring should drop new records", ring.getDropped(), equalTo(2L));
+		assertThat(read(ring, ring.available() - 1), equalTo("3"));
+
+		// Consuming frees space and the ring wraps around
+		ring.consumeTo(ring.available());
+		assertTrue(ring.add(10, LogRingBuffer.kNoKey, LogRingBuffer.kTypeLong, 10));
+		assertThat(read(ring, ring.tail()), equalTo("10"));
+		assertThat(ring.getDropped(), equalTo(2L));
+	}
+
+	@Test
+	public void testLoggingDoesNotAllocate() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Logger logger = Logger.getInstance();
+		logger.logSubsystemThread("Warm up");
+		LogRingBuffer ring = logger.threadRing();
+		long dropped = ring.getDropped();
+		// Warm up so the keys exist and the JIT has run, draining like the writer thread does
+		for (int i = 0; i < 20000; i++) {
+			logger.logSubsystemThread("drive", i * 0.5);
+			logger.logSubsystemThread("slider", i);
+			logger.logSubsystemThread("Drive State: OFF_BOARD_CONTROLLER");
+			ring.consumeTo(ring.available());
+		}
+		long id = Thread.currentThread().getId();
+		// A late JIT compile or deoptimization can land in any one run, so take the best of a few
+		long allocated = Long.MAX_VALUE;
+		for (int run = 0; run < 5; run++) {
+			long before = threads.getThreadAllocatedBytes(id);
+			for (int i = 0; i < 2000; i++) {
+				logger.logSubsystemThread("drive", i * 0.5);
+				logger.logSubsystemThread("slider", i);
+				logger.logSubsystemThread("Drive State: OFF_BOARD_CONTROLLER");
+				ring.consumeTo(ring.available());
+			}
+			allocated = Math.min(allocated, threads.getThreadAllocatedBytes(id) - before);
+		}
+		assertThat("Records were dropped instead of logged", ring.getDropped(), equalTo(dropped));
+		// Leave some room for the allocation counter itself
+		assertTrue("Logging allocated " + allocated + " bytes", allocated < 1024);
+	}
+
+	@Test
+	public void testRingReleasedWhenThreadDies() throws Exception {
+		LogRingBuffer[] ring = new LogRingBuffer[1];
+		Thread thread = new Thread(() -> {
+			ring[0] = new LogRingBuffer(4, 8, Thread.currentThread());
+			assertTrue(ring[0].isOwnerAlive());
+		});
+		thread.start();
+		thread.join();
+		assertFalse("Ring outlived its thread", ring[0].isOwnerAlive());
+	}
+}
@@ -0,0 +1,142 @@
+package com.palyrobotics.frc2017.util.logger;
+
+import com.google.common.io.Files;
+import com.palyrobotics.frc2017.config.Commands;
+import com.palyrobotics.frc2017.config.RobotState;
+import com.palyrobotics.frc2017.subsystems.Drive;
+import com.palyrobotics.frc2017.subsystems.Slider;
+import com.palyrobotics.frc2017.util.archive.DriveSignal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MatchRecorderTest {
+	// 150 second match at 100 Hz, plus a partial block at the end
+	private static final int kFrames = 15000 + 37;
+	private static final double kDt = 0.01;
+
+	private File mDirectory;
+	private File mRecording;
+
+	@Before
+	public void setUp() {
+		mDirectory = Files.createTempDir();
+		RobotState state = new RobotState();
+		Commands commands = new Commands();
+		MatchRecorder recorder = MatchRecorder.getInstance();
+		assertTrue(recorder.start(new File(mDirectory, "match.rec")));
+		for (int i = 0; i < kFrames; i++) {
+			state.drivePose.leftEnc = i;
+			state.drivePose.heading = -i * 0.5;
+			state.drivePose.leftError = (i % 2 == 0) ? Optional.of((double) i) : Optional.empty();
+			state.sliderClosedLoopError = Optional.of(i % 100);
+			state.gamePeriod = (i < 1500) ? RobotState.GamePeriod.AUTO : RobotState.GamePeriod.TELEOP;
+			commands.wantedDriveState = (i < 1500) ? Drive.DriveState.OFF_BOARD_CONTROLLER : Drive.DriveState.CHEZY;
+			commands.robotSetpoints.sliderSetpoint = Slider.SliderTarget.CENTER;
+			commands.robotSetpoints.clearSliderCustomSetpoint();
+			commands.leftStickInput.y = i / (double) kFrames;
+			commands.cancelCurrentRoutines = (i % 3 == 0);
+			if (i == 42) {
+				DriveSignal signal = DriveSignal.getNeutralSignal();
+				signal.leftMotor.setPercentVBus(0.5);
+				signal.rightMotor.setVoltage(-6);
+				commands.robotSetpoints.setDrivePowerSetpoint(signal);
+			} else {
+				commands.robotSetpoints.clearDrivePowerSetpoint();
+			}
+			// Sleep now and then so the writer thread keeps up
+			if (i % MatchRecordFormat.kFramesPerBlock == 0) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+				}
+			}
+			recorder.record(100 + i * kDt, state, commands);
+		}
+		recorder.stop();
+		mRecording = recorder.getFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : mDirectory.listFiles()) {
+			file.delete();
+		}
+		mDirectory.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		assertThat("Recorder dropped frames", MatchRecorder.getInstance().getDroppedFrames(), equalTo(0L));
+		MatchRecordReader reader = new MatchRecordReader(mRecording);
+		assertThat(reader.getFrameCount(), equalTo(kFrames));
+		assertThat(reader.getSchemaVersion(), equalTo(MatchRecordFormat.kSchemaVersion));
+
+		RobotState state = new RobotState();
+		Commands commands = new Commands();
+		for (int i : new int[]{0, 42, 43, 1499, 1500, 9999, kFrames - 1}) {
+			double timestamp = reader.readFrame(i, state, commands);
+			assertThat(timestamp, equalTo(100 + i * kDt));
+			assertThat(state.drivePose.leftEnc, equalTo((double) i));
+			assertThat(state.drivePose.heading, equalTo(-i * 0.5));
+			assertThat(state.drivePose.leftError.isPresent(), equalTo(i % 2 == 0));
+			assertThat(state.sliderClosedLoopError, equalTo(Optional.of(i % 100)));
+			assertThat(state.gamePeriod, equalTo((i < 1500) ? RobotState.GamePeriod.AUTO : RobotState.GamePeriod.TELEOP));
+			assertThat(commands.wantedDriveState, equalTo((i < 1500) ? Drive.DriveState.OFF_BOARD_CONTROLLER : Drive.DriveState.CHEZY));
+			assertThat(commands.robotSetpoints.sliderSetpoint, equalTo(Slider.SliderTarget.CENTER));
+			assertThat(commands.robotSetpoints.hasSliderCustomSetpoint, equalTo(false));
+			assertThat(commands.leftStickInput.y, equalTo(i / (double) kFrames));
+			assertThat(commands.cancelCurrentRoutines, equalTo(i % 3 == 0));
+			assertThat(commands.robotSetpoints.hasDrivePowerSetpoint, equalTo(i == 42));
+			if (i == 42) {
+				assertThat(commands.robotSetpoints.drivePowerSetpoint.leftMotor.getSetpoint(), equalTo(0.5));
+				assertThat(commands.robotSetpoints.drivePowerSetpoint.rightMotor.getSetpoint(), equalTo(-6.0));
+			}
+		}
+	}
+
+	@Test
+	public void testSeek() throws Exception {
+		MatchRecordReader reader = new MatchRecordReader(mRecording);
+		assertThat("Before the recording", reader.seek(0), equalTo(0));
+		assertThat("After the recording", reader.seek(1e6), equalTo(kFrames - 1));
+		for (int i : new int[]{0, 1, 127, 128, 129, 7777, 14999, 15000, kFrames - 1}) {
+			assertThat("Exact timestamp", reader.seek(reader.getTimestamp(i)), equalTo(i));
+			assertThat("Between frames", reader.seek(reader.getTimestamp(i) + kDt / 2), equalTo(i));
+		}
+	}
+
+	@Test
+	public void testNewFileEachRecording() {
+		File first = mRecording;
+		MatchRecorder recorder = MatchRecorder.getInstance();
+		recorder.start(new File(mDirectory, "match.rec"));
+		recorder.stop();
+		assertThat(recorder.getFile().getName(), equalTo("match1.rec"));
+		assertTrue(first.exists());
+	}
+
+	@Test
+	public void testExport() throws Exception {
+		MatchRecordReader reader = new MatchRecordReader(mRecording);
+		StringWriter csv = new StringWriter();
+		MatchRecordExporter.writeCsv(reader, csv);
+		String[] lines = csv.toString().split("\n");
+		assertThat(lines.length, equalTo(kFrames + 1));
+		assertThat(lines[0], startsWith("time,gamePeriod,"));
+		assertThat(lines[1], startsWith("100.0,AUTO,"));
+
+		StringWriter json = new StringWriter();
+		MatchRecordExporter.writeJson(reader, json);
+		assertThat(json.toString(), startsWith("{\"schemaVersion\": " + MatchRecordFormat.kSchemaVersion));
+	}
+}
@@ -0,0 +1,148 @@
+package com.palyrobotics.frc2017.vision;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link MJPEGClient} against a socket that takes a limited number of bytes per write
+ */
+public class MJPEGClientTest {
+
+	private static class LimitedChannel implements GatheringByteChannel {
+		private final ByteArrayOutputStream mWritten = new ByteArrayOutputStream();
+		private int mLimit;
+
+		LimitedChannel(int limit) {
+			mLimit = limit;
+		}
+
+		@Override
+		public int write(ByteBuffer src) {
+			int count = Math.min(mLimit, src.remaining());
+			for (int i = 0; i < count; i++) {
+				mWritten.write(src.get());
+			}
+			return count;
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) {
+			// Like a socket, stops at the first buffer it can't take all of
+			int limit = mLimit;
+			long total = 0;
+			for (int i = offset; i < offset + length && mLimit > 0; i++) {
+				int written = write(srcs[i]);
+				mLimit -= written;
+				total += written;
+				if (srcs[i].hasRemaining()) {
+					break;
+				}
+			}
+			mLimit = limit;
+			return total;
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs) {
+			return write(srcs, 0, srcs.length);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		String getWritten() {
+			return new String(mWritten.toByteArray(), StandardCharsets.US_ASCII);
+		}
+	}
+
+	private static ByteBuffer ascii(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static ByteBuffer[] frame(String image) {
+		return new ByteBuffer[]{ascii("<"), ascii(image), ascii(">")};
+	}
+
+	@Test
+	public void testRequestParsing() {
+		MJPEGClient client = new MJPEGClient(new LimitedChannel(100), "test", 0);
+		assertFalse(client.readRequest(ascii("GET /stream.mjpg HTTP/1.1\r\nHost: ")));
+		assertTrue(client.readRequest(ascii("roborio\r\n\r\n")));
+		assertThat(client.getRoute(), equalTo("stream.mjpg"));
+
+		MJPEGClient post = new MJPEGClient(new LimitedChannel(100), "test", 0);
+		assertTrue(post.readRequest(ascii("POST / HTTP/1.1\n\n")));
+		assertThat(post.getRoute(), nullValue());
+	}
+
+	@Test
+	public void testSharedFrameIsNotMoved() throws Exception {
+		ByteBuffer[] frame = frame("jpeg");
+		LimitedChannel first = new LimitedChannel(100), second = new LimitedChannel(100);
+		MJPEGClient a = new MJPEGClient(first, "a", 0), b = new MJPEGClient(second, "b", 0);
+		a.startStreaming(ascii("HEAD"));
+		b.startStreaming(ascii("HEAD"));
+		assertTrue(a.offer(frame, null));
+		assertTrue(a.write());
+		assertTrue(b.offer(frame, null));
+		assertTrue(b.write());
+		assertThat(first.getWritten(), equalTo("HEAD<jpeg>"));
+		assertThat(second.getWritten(), equalTo("HEAD<jpeg>"));
+		assertThat(frame[1].position(), equalTo(0));
+	}
+
+	@Test
+	public void testSlowClientDropsFrames() throws Exception {
+		LimitedChannel channel = new LimitedChannel(3);
+		MJPEGClient client = new MJPEGClient(channel, "slow", 0);
+		assertFalse("Should not take frames before the request", client.offer(frame("0"), null));
+		client.startStreaming(ascii(""));
+		assertTrue(client.offer(frame("first"), null));
+		assertFalse(client.write());
+		assertFalse("Should drop frames while writing", client.offer(frame("second"), null));
+		while (!client.write()) {
+		}
+		assertTrue(client.offer(frame("third"), null));
+		while (!client.write()) {
+		}
+		assertThat(channel.getWritten(), equalTo("<first><third>"));
+		assertThat(client.getFramesSent(), equalTo(2L));
+		assertThat(client.getFramesDropped(), equalTo(1L));
+		assertThat(client.getBytesSent(), equalTo(14L));
+	}
+
+	@Test
+	public void testRates() throws Exception {
+		MJPEGClient client = new MJPEGClient(new LimitedChannel(100), "test", 0);
+		client.startStreaming(ascii(""));
+		for (int i = 0; i < 4; i++) {
+			client.offer(frame("12345678"), null);
+			client.write();
+		}
+		// 4 frames of 10 bytes in half a second
+		client.updateStats(500000000L);
+		MJPEGServerSocket.ClientStats stats = client.getStats();
+		assertEquals(8, stats.framesPerSecond, 1e-9);
+		assertEquals(80, stats.bytesPerSecond, 1e-9);
+		assertThat(stats.framesSent, equalTo(4L));
+		client.updateStats(1500000000L);
+		assertEquals(0, client.getStats().framesPerSecond, 1e-9);
+	}
+}
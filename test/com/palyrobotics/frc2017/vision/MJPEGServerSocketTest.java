@@ -0,0 +1,110 @@
+package com.palyrobotics.frc2017.vision;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Streams to dashboards over loopback
+ */
+public class MJPEGServerSocketTest {
+	private MJPEGServerSocket mServer;
+	private VisionFramePool mPool = new VisionFramePool(4, 64);
+	private long mSequence = 0;
+
+	@Before
+	public void setUp() {
+		mServer = new MJPEGServerSocket(0, null);
+		mServer.start();
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	private VisionFrame frame(byte[] image) {
+		VisionFrame frame = mPool.acquire();
+		frame.getBufferForWriting().put(image);
+		frame.setFilled(image.length, 0, ++mSequence);
+		return frame;
+	}
+
+	private static Socket connect(int port) throws IOException {
+		Socket socket = new Socket("localhost", port);
+		socket.setSoTimeout(5000);
+		OutputStream out = socket.getOutputStream();
+		out.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+		return socket;
+	}
+
+	// Reads up to and including the next blank line
+	private static String readHeaders(InputStream in) throws IOException {
+		StringBuilder headers = new StringBuilder();
+		while (headers.indexOf("\r\n\r\n") < 0) {
+			int b = in.read();
+			if (b < 0) {
+				throw new IOException("Stream closed");
+			}
+			headers.append((char) b);
+		}
+		return headers.toString();
+	}
+
+	private static byte[] readPart(InputStream in) throws IOException {
+		String headers = readHeaders(in);
+		assertThat(headers, containsString("--team8robotics"));
+		int start = headers.indexOf("Content-Length: ") + "Content-Length: ".length();
+		int length = Integer.parseInt(headers.substring(start, headers.indexOf("\r\n", start)));
+		byte[] image = new byte[length];
+		new DataInputStream(in).readFully(image);
+		assertThat(in.read(), equalTo((int) '\r'));
+		assertThat(in.read(), equalTo((int) '\n'));
+		return image;
+	}
+
+	@Test(timeout = 10000)
+	public void testStreamsToEveryClient() throws Exception {
+		byte[] first = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3};
+		byte[] second = {(byte) 0xFF, (byte) 0xD8, 4, 5};
+		VisionFrame firstFrame = frame(first);
+		mServer.publish(firstFrame);
+		firstFrame.release();
+		try (Socket a = connect(mServer.getPort()); Socket b = connect(mServer.getPort())) {
+			InputStream inA = a.getInputStream(), inB = b.getInputStream();
+			assertThat(readHeaders(inA), containsString("multipart/x-mixed-replace"));
+			assertThat(readHeaders(inB), containsString("multipart/x-mixed-replace"));
+			// Clients start with the latest image, then get each new one on the same connection
+			assertArrayEquals(first, readPart(inA));
+			assertArrayEquals(first, readPart(inB));
+			VisionFrame secondFrame = frame(second);
+			mServer.publish(secondFrame);
+			secondFrame.release();
+			assertArrayEquals(second, readPart(inA));
+			assertArrayEquals(second, readPart(inB));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testBadRequestIsRefused() throws Exception {
+		try (Socket socket = new Socket("localhost", mServer.getPort())) {
+			socket.setSoTimeout(5000);
+			socket.getOutputStream().write("POST / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+			assertThat(readHeaders(socket.getInputStream()), containsString("500"));
+			assertThat(socket.getInputStream().read(), equalTo(-1));
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.palyrobotics.frc2017.vision;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link VisionFramePool} and {@link VisionFrame}
+ */
+public class VisionFramePoolTest {
+
+	private static VisionFrame fill(VisionFrame frame, byte... image) {
+		frame.getBufferForWriting().put(image);
+		frame.setFilled(image.length, 1.5, 7);
+		return frame;
+	}
+
+	@Test
+	public void testExhaustedPoolReturnsNull() {
+		VisionFramePool pool = new VisionFramePool(2, 16);
+		VisionFrame a = pool.acquire(), b = pool.acquire();
+		assertThat(pool.acquire(), nullValue());
+		assertThat(pool.getMisses(), equalTo(1L));
+		a.release();
+		assertThat("Released frame should be reused", pool.acquire(), sameInstance(a));
+		assertThat(pool.getFreeCount(), equalTo(0));
+		b.release();
+		assertThat(pool.getFreeCount(), equalTo(1));
+	}
+
+	@Test
+	public void testFrameIsRecycledAfterLastRelease() {
+		VisionFramePool pool = new VisionFramePool(1, 16);
+		VisionFrame frame = pool.acquire();
+		frame.retain();
+		assertThat(frame.getReferenceCount(), equalTo(2));
+		frame.release();
+		assertThat("Frame still held was recycled", pool.getFreeCount(), equalTo(0));
+		frame.release();
+		assertThat(pool.getFreeCount(), equalTo(1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testReleaseTwiceThrows() {
+		VisionFramePool pool = new VisionFramePool(1, 16);
+		VisionFrame frame = pool.acquire();
+		frame.release();
+		frame.release();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRetainAfterReleaseThrows() {
+		VisionFramePool pool = new VisionFramePool(1, 16);
+		VisionFrame frame = pool.acquire();
+		frame.release();
+		frame.retain();
+	}
+
+	@Test
+	public void testViewsAreIndependent() {
+		VisionFrame frame = fill(new VisionFramePool(1, 16).acquire(), (byte) 1, (byte) 2, (byte) 3);
+		assertThat(frame.getLength(), equalTo(3));
+		assertThat(frame.getReceivedTime(), equalTo(1.5));
+		assertThat(frame.getSequence(), equalTo(7L));
+		ByteBuffer first = frame.getData(), second = frame.getData();
+		assertThat(first.remaining(), equalTo(3));
+		first.get();
+		assertThat(second.position(), equalTo(0));
+		assertThat(second.get(2), equalTo((byte) 3));
+	}
+
+	@Test(expected = ReadOnlyBufferException.class)
+	public void testViewIsReadOnly() {
+		VisionFrame frame = fill(new VisionFramePool(1, 16).acquire(), (byte) 1);
+		frame.getData().put(0, (byte) 2);
+	}
+}
@@ -0,0 +1,141 @@
+package com.palyrobotics.frc2017.vision;
+
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records frames with {@link VisionFrameRecorder} and reads them back with {@link VisionFrameReader}
+ */
+public class VisionFrameRecorderTest {
+	private static final int kFrames = 20;
+
+	private File mDirectory;
+	private VisionFramePool mPool;
+
+	@Before
+	public void setUp() {
+		mDirectory = Files.createTempDir();
+		mPool = new VisionFramePool(8, 256);
+	}
+
+	@After
+	public void tearDown() {
+		VisionFrameRecorder.getInstance().stop();
+	}
+
+	private static byte[] image(int i) {
+		byte[] image = new byte[100 + i];
+		for (int b = 0; b < image.length; b++) {
+			image[b] = (byte) (i + b);
+		}
+		return image;
+	}
+
+	// Records kFrames frames 0.1 s apart, waiting for a free frame like the socket would not
+	private File record(long segmentBytes) throws InterruptedException {
+		VisionFrameRecorder recorder = VisionFrameRecorder.getInstance();
+		assertTrue(recorder.start(new File(mDirectory, "match.vindex"), segmentBytes));
+		for (int i = 0; i < kFrames; i++) {
+			VisionFrame frame;
+			while ((frame = mPool.acquire()) == null) {
+				Thread.sleep(1);
+			}
+			byte[] image = image(i);
+			frame.getBufferForWriting().put(image);
+			frame.setFilled(image.length, 10 + i * 0.1, i + 1);
+			recorder.record(frame);
+			frame.release();
+			// Keep the writer ahead of the queue so nothing is dropped
+			while (recorder.getFramesWritten() + recorder.getFramesDropped() < i + 1) {
+				Thread.sleep(1);
+			}
+		}
+		File index = recorder.getIndexFile();
+		recorder.stop();
+		return index;
+	}
+
+	@Test
+	public void testFramesReadBack() throws Exception {
+		File index = record(1 << 20);
+		assertThat("Frames were not returned to the pool", mPool.getFreeCount(), equalTo(mPool.getSize()));
+		try (VisionFrameReader reader = new VisionFrameReader(index)) {
+			assertThat(reader.getFrameCount(), equalTo(kFrames));
+			for (int i = 0; i < kFrames; i++) {
+				assertArrayEquals(image(i), reader.readFrame(i));
+				assertThat(reader.getSequence(i), equalTo(i + 1L));
+			}
+			assertThat(reader.seek(10.55), equalTo(5));
+			assertThat(reader.seek(0), equalTo(0));
+			assertThat(reader.seek(100), equalTo(kFrames - 1));
+		}
+	}
+
+	@Test
+	public void testSegmentsRollOver() throws Exception {
+		// Two or three frames per segment
+		File index = record(250);
+		assertTrue(VisionFrameIndex.getSegmentFile(index, 5).exists());
+		try (VisionFrameReader reader = new VisionFrameReader(index)) {
+			for (int i = 0; i < kFrames; i++) {
+				assertArrayEquals(image(i), reader.readFrame(i));
+			}
+		}
+	}
+
+	@Test
+	public void testClipIsFramesBackToBack() throws Exception {
+		File index = record(250);
+		File clip = new File(mDirectory, "clip.mjpg");
+		try (VisionFrameReader reader = new VisionFrameReader(index)) {
+			assertThat(reader.writeClip(10.25, 10.5, clip), equalTo(4));
+		}
+		byte[] data = Files.toByteArray(clip);
+		int offset = 0;
+		for (int i = 2; i <= 5; i++) {
+			byte[] image = image(i);
+			for (int b = 0; b < image.length; b++) {
+				assertThat(data[offset + b], equalTo(image[b]));
+			}
+			offset += image.length;
+		}
+		assertThat(data.length, equalTo(offset));
+	}
+
+	@Test
+	public void testCutOffIndexIsRead() throws Exception {
+		File index = record(1 << 20);
+		try (FileOutputStream out = new FileOutputStream(index, true)) {
+			out.write(new byte[VisionFrameIndex.kEntrySize / 2]);
+		}
+		try (VisionFrameReader reader = new VisionFrameReader(index)) {
+			assertThat(reader.getFrameCount(), equalTo(kFrames));
+		}
+	}
+
+	@Test
+	public void testNeverOverwrites() throws Exception {
+		File first = record(1 << 20);
+		File second = record(1 << 20);
+		assertThat(second.getName(), equalTo("match1.vindex"));
+		assertFalse(first.equals(second));
+	}
+
+	@Test
+	public void testMissingDirectoryIsNotRecorded() throws IOException {
+		assertFalse(VisionFrameRecorder.getInstance().start(new File(new File(mDirectory, "missing"), "match.vindex")));
+		assertFalse(VisionFrameRecorder.getInstance().isRecording());
+	}
+}
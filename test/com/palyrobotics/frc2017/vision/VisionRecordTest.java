@@ -0,0 +1,93 @@
+package com.palyrobotics.frc2017.vision;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests {@link VisionRecord} and {@link VisionRecordHolder}
+ */
+public class VisionRecordTest {
+
+	@Test
+	public void testDecodeWhatTheNexusWrites() throws IOException {
+		// Written the way the app writes to the socket
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(VisionRecord.kMagic);
+		out.writeLong(123456789L);
+		out.writeInt(VisionRecord.State.STREAMING.code);
+		out.writeDouble(-2.5);
+		out.writeDouble(0.75);
+		byte[] data = bytes.toByteArray();
+		assertThat(data.length, equalTo(VisionRecord.kBytes));
+
+		VisionRecord record = VisionRecord.decode(data, data.length, 4.0);
+		assertThat(record.timestamp, equalTo(123456789L));
+		assertThat(record.state, equalTo(VisionRecord.State.STREAMING));
+		assertThat(record.xDisplacement, equalTo(-2.5));
+		assertThat(record.confidence, equalTo(0.75));
+		assertThat(record.receivedTime, equalTo(4.0));
+	}
+
+	@Test
+	public void testEncodeRoundTrip() {
+		VisionRecord record = new VisionRecord(42, VisionRecord.State.NONE, 1.25, 0.5, 0);
+		byte[] data = record.encode();
+		VisionRecord decoded = VisionRecord.decode(data, data.length, 1);
+		assertThat(decoded.timestamp, equalTo(42L));
+		assertThat(decoded.state, equalTo(VisionRecord.State.NONE));
+		assertThat(decoded.xDisplacement, equalTo(1.25));
+		assertThat(decoded.confidence, equalTo(0.5));
+	}
+
+	@Test
+	public void testDecodeFromBuffer() {
+		byte[] data = new VisionRecord(42, VisionRecord.State.STREAMING, 1.25, 0.5, 0).encode();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 4);
+		buffer.putInt(0).put(data).flip();
+		buffer.position(4);
+		VisionRecord decoded = VisionRecord.decode(buffer, 2);
+		assertThat(decoded.timestamp, equalTo(42L));
+		assertThat(decoded.xDisplacement, equalTo(1.25));
+		assertThat("Position should be left alone", buffer.position(), equalTo(4));
+	}
+
+	@Test
+	public void testImagesAreNotRecords() {
+		byte[] jpeg = new byte[VisionRecord.kBytes];
+		jpeg[0] = (byte) 0xFF;
+		jpeg[1] = (byte) 0xD8;
+		assertThat(VisionRecord.decode(jpeg, jpeg.length, 0), nullValue());
+		byte[] record = new VisionRecord(1, VisionRecord.State.STREAMING, 0, 1, 0).encode();
+		assertThat("Wrong length was decoded", VisionRecord.decode(record, record.length - 1, 0), nullValue());
+		assertThat(VisionRecord.decode(null, 0, 0), nullValue());
+	}
+
+	@Test
+	public void testUnknownStateIsNone() {
+		assertThat(VisionRecord.State.fromCode(99), equalTo(VisionRecord.State.NONE));
+		assertThat(VisionRecord.State.fromCode(1), equalTo(VisionRecord.State.STREAMING));
+	}
+
+	@Test
+	public void testHolderFreshness() {
+		VisionRecordHolder holder = new VisionRecordHolder();
+		assertThat(holder.get(), nullValue());
+		assertThat(holder.getFresh(0, 0.5), nullValue());
+
+		VisionRecord record = new VisionRecord(1, VisionRecord.State.STREAMING, 3, 1, 10);
+		holder.set(record);
+		assertThat(holder.getCount(), equalTo(1L));
+		assertThat(holder.getFresh(10.25, 0.5), equalTo(record));
+		assertThat("Stale record was returned", holder.getFresh(11, 0.5), nullValue());
+		assertThat(holder.get(), equalTo(record));
+	}
+}
@@ -0,0 +1,52 @@
+package com.palyrobotics.frc2017.vision;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link VisionSampleHistory}
+ */
+public class VisionSampleHistoryTest {
+
+	private static VisionRecord record(long timestamp, double xDisplacement, double receivedTime) {
+		return new VisionRecord(timestamp, VisionRecord.State.STREAMING, xDisplacement, 1, receivedTime);
+	}
+
+	@Test
+	public void testClockOffsetUsesFastestDelivery() {
+		VisionSampleHistory samples = new VisionSampleHistory(8);
+		// Nexus clock is 100 s behind, delivery takes 50 ms then 20 ms
+		samples.add(record(1000, 0, 101.05));
+		assertEquals(100.05, samples.getClockOffset(), 1e-9);
+		samples.add(record(1100, 0, 101.12));
+		assertEquals(100.02, samples.getClockOffset(), 1e-9);
+		// Earlier samples are moved to the better estimate too
+		assertEquals(101.02, samples.getCaptureTime(1), 1e-9);
+		assertEquals(101.12, samples.getCaptureTime(0), 1e-9);
+	}
+
+	@Test
+	public void testStaleSamplesAreIgnored() {
+		VisionSampleHistory samples = new VisionSampleHistory(8);
+		assertTrue(Double.isNaN(samples.getLatestCaptureTime(0, 0.5)));
+		samples.add(record(0, 1, 10));
+		assertEquals(10, samples.getLatestCaptureTime(10.2, 0.5), 1e-9);
+		assertTrue(Double.isNaN(samples.getLatestCaptureTime(11, 0.5)));
+		samples.add(new VisionRecord(100, VisionRecord.State.NONE, 0, 0, 10.1));
+		assertEquals("Should skip samples without a target", 10, samples.getLatestCaptureTime(10.2, 0.5), 1e-9);
+	}
+
+	@Test
+	public void testLatestXDisplacementMatchesCaptureTime() {
+		VisionSampleHistory samples = new VisionSampleHistory(8);
+		assertTrue(Double.isNaN(samples.getLatestXDisplacement(0, 0.5)));
+		samples.add(record(0, 5, 10));
+		samples.add(new VisionRecord(100, VisionRecord.State.NONE, -3, 0, 10.1));
+		// The newest streaming sample, the same one getLatestCaptureTime() returns
+		assertEquals(5, samples.getLatestXDisplacement(10.2, 0.5), 0);
+		assertEquals(10, samples.getLatestCaptureTime(10.2, 0.5), 1e-9);
+		assertTrue(Double.isNaN(samples.getLatestXDisplacement(11, 0.5)));
+	}
+}
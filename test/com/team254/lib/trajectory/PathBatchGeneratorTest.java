@@ -0,0 +1,98 @@
+package com.team254.lib.trajectory;
+
+import com.team254.lib.trajectory.io.BinaryFileDeserializer;
+import com.team254.lib.trajectory.io.BinaryFileSerializer;
+import com.team254.lib.trajectory.io.TextFileSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that paths generated in a batch match generating them one at a time.
+ */
+public class PathBatchGeneratorTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("paths").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private static PathBatchGenerator.Job makeJob(String name, double x, double y, double theta) {
+		WaypointSequence p = new WaypointSequence(2);
+		p.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
+		p.addWaypoint(new WaypointSequence.Waypoint(x, y, theta));
+		TrajectoryGenerator.Config config = new TrajectoryGenerator.Config();
+		config.dt = .01;
+		config.max_acc = 10.0;
+		config.max_jerk = 50.0;
+		config.max_vel = 10.0;
+		return new PathBatchGenerator.Job(name, p, config, 2.0);
+	}
+
+	@Test
+	public void testBatchMatchesSerial() throws Exception {
+		List<PathBatchGenerator.Job> jobs = new ArrayList<>();
+		jobs.add(makeJob("Straight", 8, 0, 0));
+		jobs.add(makeJob("Left", 8, 5, Math.PI / 3));
+		jobs.add(makeJob("Right", 8, -5, -Math.PI / 3));
+
+		List<PathBatchGenerator.Result> results = new PathBatchGenerator(3).generateToDirectory(jobs, directory);
+		assertEquals(jobs.size(), results.size());
+
+		TextFileSerializer serializer = new TextFileSerializer();
+		for (int i = 0; i < jobs.size(); ++i) {
+			PathBatchGenerator.Job job = jobs.get(i);
+			PathBatchGenerator.Result result = results.get(i);
+			assertTrue(result.toString(), result.succeeded());
+			assertSame(job, result.job);
+			assertTrue(result.generate_nanos > 0);
+
+			String expected = serializer.serialize(PathGenerator.makePath(job.waypoints, job.config,
+					job.wheelbase_width, job.name));
+			String written = new String(Files.readAllBytes(new File(directory, job.name + ".txt").toPath()),
+					StandardCharsets.UTF_8);
+			assertEquals(expected, written);
+
+			Path binary = new BinaryFileDeserializer().deserializeFile(
+					new File(directory, job.name + BinaryFileSerializer.kFileExtension));
+			assertNotNull(binary);
+			assertEquals(expected, serializer.serialize(binary));
+		}
+	}
+
+	@Test
+	public void testFailureDoesNotStopBatch() {
+		List<PathBatchGenerator.Job> jobs = new ArrayList<>();
+		WaypointSequence single = new WaypointSequence(1);
+		single.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
+		jobs.add(new PathBatchGenerator.Job("Single", single, new TrajectoryGenerator.Config(), 2.0));
+		jobs.add(makeJob("Straight", 8, 0, 0));
+
+		List<PathBatchGenerator.Result> results = new PathBatchGenerator(2).generate(jobs);
+		assertFalse(results.get(0).succeeded());
+		assertNull(results.get(0).path);
+		assertTrue(results.get(1).succeeded());
+		assertNotNull(results.get(1).path);
+	}
+}
@@ -0,0 +1,124 @@
+package com.team254.lib.trajectory;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests generating paths on the {@link PathGenerationService} worker
+ */
+public class PathGenerationServiceTest {
+	private static final double kWheelbaseWidth = 26.375 / 12;
+
+	private static TrajectoryGenerator.Config config() {
+		TrajectoryGenerator.Config config = new TrajectoryGenerator.Config();
+		config.dt = .01;
+		config.max_vel = 5.0;
+		config.max_acc = 5.0;
+		config.max_jerk = 50.0;
+		return config;
+	}
+
+	private static WaypointSequence sidePeg() {
+		WaypointSequence waypoints = new WaypointSequence(2);
+		waypoints.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
+		waypoints.addWaypoint(new WaypointSequence.Waypoint(104 / 12.0, -67.5 / 12.0, -Math.PI / 3));
+		return waypoints;
+	}
+
+	@Test
+	public void testMatchesPathGenerator() throws InterruptedException {
+		PathGenerationService service = new PathGenerationService(2);
+		PathGenerationService.Request request = service.submit("SidePeg", sidePeg(), config(), kWheelbaseWidth);
+		Path path = request.await(5000);
+		assertNotNull(request.getError(), path);
+		assertTrue(request.succeeded());
+		assertTrue(request.getGenerateMillis() > 0);
+
+		// Fewer arc length samples, but the same path to well under a millimeter
+		Path expected = PathGenerator.makePath(sidePeg(), config(), kWheelbaseWidth, "SidePeg");
+		Trajectory left = path.getLeftWheelTrajectory();
+		Trajectory expectedLeft = expected.getLeftWheelTrajectory();
+		assertEquals(expectedLeft.getNumSegments(), left.getNumSegments());
+		for (int i = 0; i < left.getNumSegments(); ++i) {
+			assertEquals(expectedLeft.getX(i), left.getX(i), 1E-4);
+			assertEquals(expectedLeft.getY(i), left.getY(i), 1E-4);
+			assertEquals(expectedLeft.getPos(i), left.getPos(i), 1E-4);
+		}
+		assertEquals(1, service.getGenerated());
+		assertEquals(request.getGenerateMillis(), service.getMaxGenerateMillis(), 1E-6);
+	}
+
+	@Test
+	public void testFailures() throws InterruptedException {
+		PathGenerationService service = new PathGenerationService(2);
+		WaypointSequence one = new WaypointSequence(1);
+		one.addWaypoint(new WaypointSequence.Waypoint(0, 0, 0));
+		PathGenerationService.Request request = service.submit("One", one, config(), kWheelbaseWidth);
+		assertNull(request.await(5000));
+		assertTrue(request.isDone());
+		assertFalse(request.succeeded());
+		assertEquals("Not enough waypoints", request.getError());
+		assertEquals(1, service.getFailed());
+		// Too late to cancel
+		assertFalse(request.cancel());
+	}
+
+	// Holds the worker inside generate() until released, the first thing it does is count the waypoints
+	private static class BlockingWaypoints extends WaypointSequence {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		BlockingWaypoints() {
+			super(1);
+		}
+
+		@Override
+		public int getNumWaypoints() {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return 0;
+		}
+	}
+
+	@Test
+	public void testQueueFullAndCancel() throws InterruptedException {
+		PathGenerationService service = new PathGenerationService(1);
+		BlockingWaypoints blocking = new BlockingWaypoints();
+		PathGenerationService.Request busy = service.submit("Busy", blocking, config(), kWheelbaseWidth);
+		assertTrue(blocking.started.await(5, TimeUnit.SECONDS));
+		// The worker is held, so one request fits in the queue and the next doesn't
+		PathGenerationService.Request queued = service.submit("Queued", sidePeg(), config(), kWheelbaseWidth);
+		PathGenerationService.Request full = service.submit("Full", sidePeg(), config(), kWheelbaseWidth);
+		assertTrue(full.isDone());
+		assertEquals("Queue full", full.getError());
+		assertFalse(queued.isDone());
+		blocking.release.countDown();
+
+		assertNotNull(queued.getError(), queued.await(5000));
+		assertTrue(busy.isDone());
+		assertEquals("Not enough waypoints", busy.getError());
+		assertEquals(2, service.getFailed());
+		assertEquals(1, service.getGenerated());
+		assertSame(service, queued.getService());
+
+		PathGenerationService.Request cancelled = new PathGenerationService.Request("Cancelled", sidePeg(), config(),
+				kWheelbaseWidth);
+		assertTrue(cancelled.cancel());
+		assertTrue(cancelled.isDone());
+		assertFalse(cancelled.begin());
+		assertNull(cancelled.getPath());
+	}
+}
@@ -180,4 +180,54 @@ public class SplineTest {
     test(10, 5, 0, 30, -5, 0, false);
     test(30, -5, 0, 40, 0, 0, false);
   }
+
+  // The integration getPercentageForDistance used to run on every call
+  private static double integratePercentageForDistance(Spline s,
+          double distance) {
+    final int kNumSamples = 100000;
+    double arc_length = 0;
+    double t = 0;
+    double last_arc_length = 0;
+    double dydt;
+    double integrand, last_integrand
+            = Math.sqrt(1 + s.e_ * s.e_) / kNumSamples;
+    distance /= s.knot_distance_;
+    for (int i = 1; i <= kNumSamples; ++i) {
+      t = ((double) i) / kNumSamples;
+      double x_hat = t * s.knot_distance_;
+      dydt = (5 * s.a_ * x_hat + 4 * s.b_) * x_hat * x_hat * x_hat
+              + 3 * s.c_ * x_hat * x_hat + 2 * s.d_ * x_hat + s.e_;
+      integrand = Math.sqrt(1 + dydt * dydt) / kNumSamples;
+      arc_length += (integrand + last_integrand) / 2;
+      if (arc_length > distance) {
+        break;
+      }
+      last_integrand = integrand;
+      last_arc_length = arc_length;
+    }
+    double interpolated = t;
+    if (arc_length != last_arc_length) {
+      interpolated += ((distance - last_arc_length)
+              / (arc_length - last_arc_length) - 1) / (double) kNumSamples;
+    }
+    return interpolated;
+  }
+
+  @Test
+  public void testPercentageForDistanceMatchesIntegration() {
+    Spline.Type[] types = {Spline.CubicHermite, Spline.QuinticHermite};
+    for (Spline.Type type : types) {
+      Spline s = new Spline();
+      assertTrue(Spline.reticulateSplines(0, 0, 0, 8.7, 5.6, Math.PI / 3, s,
+              type));
+      double length = s.calculateLength();
+      for (double distance = -0.5; distance <= length + 0.5;
+              distance += length / 97) {
+        Assert.assertEquals(integratePercentageForDistance(s, distance),
+                s.getPercentageForDistance(distance), 0);
+      }
+      Assert.assertEquals(0, s.getPercentageForDistance(0), 0);
+      Assert.assertEquals(1, s.getPercentageForDistance(length), 0);
+    }
+  }
 }
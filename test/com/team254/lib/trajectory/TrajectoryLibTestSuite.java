@@ -22,7 +22,10 @@ import org.junit.runners.Suite;
   com.team254.lib.trajectory.TrajectoryGeneratorTest.class,
   com.team254.lib.trajectory.SplineTest.class,
   com.team254.lib.trajectory.PathGeneratorTest.class,
-  com.team254.lib.trajectory.io.SerializationDeserializationTest.class})
+  com.team254.lib.trajectory.PathBatchGeneratorTest.class,
+  com.team254.lib.trajectory.io.SerializationDeserializationTest.class,
+  com.team254.lib.trajectory.io.BinarySerializationTest.class,
+  com.team254.lib.trajectory.io.PathDefinitionReaderTest.class})
 public class TrajectoryLibTestSuite {
 
   @BeforeClass
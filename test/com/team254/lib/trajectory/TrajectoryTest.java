@@ -0,0 +1,121 @@
+package com.team254.lib.trajectory;
+
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the columnar {@link Trajectory} and its {@link Trajectory.Segment} adapter
+ */
+public class TrajectoryTest {
+
+	// Segment i has pos i, vel i + 0.1, ... y i + 0.7
+	private static Trajectory.Segment segment(int i) {
+		return new Trajectory.Segment(i, i + 0.1, i + 0.2, i + 0.3, i + 0.4, i + 0.5, i + 0.6, i + 0.7);
+	}
+
+	private static Trajectory trajectory(int length) {
+		Trajectory.Segment[] segments = new Trajectory.Segment[length];
+		for (int i = 0; i < length; ++i) {
+			segments[i] = segment(i);
+		}
+		return new Trajectory(segments);
+	}
+
+	private static void checkSegment(Trajectory.Segment expected, Trajectory.Segment actual) {
+		assertEquals(expected.pos, actual.pos, 0);
+		assertEquals(expected.vel, actual.vel, 0);
+		assertEquals(expected.acc, actual.acc, 0);
+		assertEquals(expected.jerk, actual.jerk, 0);
+		assertEquals(expected.heading, actual.heading, 0);
+		assertEquals(expected.dt, actual.dt, 0);
+		assertEquals(expected.x, actual.x, 0);
+		assertEquals(expected.y, actual.y, 0);
+	}
+
+	@Test
+	public void testAccessorsMatchSegments() {
+		Trajectory traj = trajectory(5);
+		for (int i = 0; i < 5; ++i) {
+			checkSegment(segment(i), traj.getSegment(i));
+			assertEquals(i + 0.4, traj.getHeading(i), 0);
+			assertEquals(i + 0.7, traj.getY(i), 0);
+		}
+		// Past the end is an empty segment
+		checkSegment(new Trajectory.Segment(), traj.getSegment(5));
+	}
+
+	@Test
+	public void testInvertedIsAView() {
+		Trajectory traj = trajectory(3);
+		traj.setInvertedY(true);
+		assertEquals(-2.4, traj.getHeading(2), 0);
+		assertEquals(-2.7, traj.getY(2), 0);
+		assertEquals(2.6, traj.getX(2), 0);
+		Trajectory.Segment out = new Trajectory.Segment();
+		assertSame(out, traj.getSegment(2, out));
+		assertEquals(-2.4, out.heading, 0);
+
+		// The stored values are untouched
+		traj.setInvertedY(false);
+		assertEquals(2.4, traj.getHeading(2), 0);
+		assertEquals(2.7, traj.getY(2), 0);
+	}
+
+	@Test
+	public void testSegmentsAreCopies() {
+		Trajectory traj = trajectory(2);
+		Trajectory.Segment segment = traj.getSegment(1);
+		assertNotSame(segment, traj.getSegment(1));
+		segment.pos = 100;
+		assertEquals(1, traj.getPos(1), 0);
+
+		traj.setSegment(1, segment);
+		assertEquals(100, traj.getPos(1), 0);
+		traj.setVel(1, -1);
+		assertEquals(-1, traj.getSegment(1).vel, 0);
+	}
+
+	@Test
+	public void testCopyAppendScale() {
+		Trajectory traj = trajectory(3);
+		Trajectory copy = traj.copy();
+		copy.scale(2);
+		assertEquals(2, traj.getPos(2), 0);
+		assertEquals(4, copy.getPos(2), 0);
+		assertEquals(2.4, copy.getHeading(2), 0);
+
+		Trajectory inverted = trajectory(2);
+		inverted.setInvertedY(true);
+		traj.append(inverted);
+		assertEquals(5, traj.getNumSegments());
+		checkSegment(segment(2), traj.getSegment(2));
+		assertEquals(1, traj.getPos(4), 0);
+		// Appended as read, inversion included
+		assertEquals(-1.7, traj.getY(4), 0);
+	}
+
+	@Test
+	public void testMappedMatchesHeap() {
+		Trajectory heap = trajectory(4);
+		DoubleBuffer data = DoubleBuffer.allocate(4 * 8);
+		for (int i = 0; i < 4; ++i) {
+			Trajectory.Segment s = segment(i);
+			data.put(s.pos).put(s.vel).put(s.acc).put(s.jerk).put(s.heading).put(s.dt).put(s.x).put(s.y);
+		}
+		MappedTrajectory mapped = new MappedTrajectory(data, 4);
+		mapped.setInvertedY(true);
+		heap.setInvertedY(true);
+		for (int i = 0; i < 4; ++i) {
+			checkSegment(heap.getSegment(i), mapped.getSegment(i));
+			assertEquals(heap.getHeading(i), mapped.getHeading(i), 0);
+		}
+		Trajectory copied = mapped.copy();
+		copied.setPos(0, 10);
+		checkSegment(segment(3), copied.getSegment(3));
+	}
+}
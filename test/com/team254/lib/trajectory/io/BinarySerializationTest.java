@@ -0,0 +1,124 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.Path;
+import com.team254.lib.trajectory.PathGenerator;
+import com.team254.lib.trajectory.Trajectory;
+import com.team254.lib.trajectory.TrajectoryGenerator;
+import com.team254.lib.trajectory.WaypointSequence;
+import com.team254.lib.trajectory.WaypointSequence.Waypoint;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the binary path format against the generator and the text format.
+ */
+public class BinarySerializationTest {
+
+	private Path path;
+
+	@Before
+	public void setUp() {
+		WaypointSequence p = new WaypointSequence(10);
+		p.addWaypoint(new Waypoint(0, 0, 0));
+		p.addWaypoint(new Waypoint(10, 0, 0));
+		p.addWaypoint(new Waypoint(20, 20, Math.PI / 4));
+
+		TrajectoryGenerator.Config config = new TrajectoryGenerator.Config();
+		config.dt = .01;
+		config.max_acc = 1000.0;
+		config.max_jerk = 5000.0;
+		config.max_vel = 100.0;
+
+		path = PathGenerator.makePath(p, config, 25.0, "TestPath");
+	}
+
+	private void checkSegmentsEqual(Trajectory.Segment a, Trajectory.Segment b) {
+		assertEquals(a.pos, b.pos, 0);
+		assertEquals(a.vel, b.vel, 0);
+		assertEquals(a.acc, b.acc, 0);
+		assertEquals(a.jerk, b.jerk, 0);
+		assertEquals(a.heading, b.heading, 0);
+		assertEquals(a.dt, b.dt, 0);
+		assertEquals(a.x, b.x, 0);
+		assertEquals(a.y, b.y, 0);
+	}
+
+	private void checkPathsEqual(Path expected, Path actual) {
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getLeftWheelTrajectory().getNumSegments(),
+				actual.getLeftWheelTrajectory().getNumSegments());
+		assertEquals(expected.getRightWheelTrajectory().getNumSegments(),
+				actual.getRightWheelTrajectory().getNumSegments());
+		for (int i = 0; i < expected.getLeftWheelTrajectory().getNumSegments(); ++i) {
+			checkSegmentsEqual(expected.getLeftWheelTrajectory().getSegment(i),
+					actual.getLeftWheelTrajectory().getSegment(i));
+			checkSegmentsEqual(expected.getRightWheelTrajectory().getSegment(i),
+					actual.getRightWheelTrajectory().getSegment(i));
+		}
+	}
+
+	@Test
+	public void testBufferRoundTrip() {
+		ByteBuffer serialized = new BinaryFileSerializer().serialize(path);
+		Path deserialized = new BinaryFileDeserializer().deserialize(serialized);
+		assertNotNull(deserialized);
+		// Doubles are stored exactly, unlike the text format
+		checkPathsEqual(path, deserialized);
+	}
+
+	@Test
+	public void testInvertedY() {
+		Path deserialized = new BinaryFileDeserializer().deserialize(
+				new BinaryFileSerializer().serialize(path));
+		path.goRight();
+		deserialized.goRight();
+		checkPathsEqual(path, deserialized);
+		assertEquals(path.getEndHeading(), deserialized.getEndHeading(), 0);
+	}
+
+	@Test
+	public void testRejectsGarbage() {
+		ByteBuffer garbage = ByteBuffer.wrap("TestPath\n42\n".getBytes());
+		assertNull(new BinaryFileDeserializer().deserialize(garbage));
+
+		ByteBuffer serialized = new BinaryFileSerializer().serialize(path);
+		serialized.limit(serialized.limit() - 8);
+		assertNull("Truncated path should not load",
+				new BinaryFileDeserializer().deserialize(serialized));
+	}
+
+	@Test
+	public void testMappedFileAgainstText() throws Exception {
+		File text = File.createTempFile("TestPath", ".txt");
+		File binary = File.createTempFile("TestPath", BinaryFileSerializer.kFileExtension);
+		text.deleteOnExit();
+		binary.deleteOnExit();
+
+		String serialized = new TextFileSerializer().serialize(path);
+		java.nio.file.Files.write(text.toPath(), serialized.getBytes());
+		assertTrue(new BinaryFileSerializer().serializeToFile(path, binary));
+
+		Path fromText = new TextFileDeserializer().deserialize(
+				new String(java.nio.file.Files.readAllBytes(text.toPath())));
+		Path fromBinary = new BinaryFileDeserializer().deserializeFile(binary);
+
+		checkPathsEqual(path, fromBinary);
+		assertEquals(fromText.getLeftWheelTrajectory().getNumSegments(),
+				fromBinary.getLeftWheelTrajectory().getNumSegments());
+	}
+
+	@Test
+	public void testCopyIsWritable() {
+		Path deserialized = new BinaryFileDeserializer().deserialize(
+				new BinaryFileSerializer().serialize(path));
+		Trajectory copy = deserialized.getLeftWheelTrajectory().copy();
+		copy.scale(2.0);
+		assertEquals(2.0 * path.getLeftWheelTrajectory().getSegment(10).pos,
+				copy.getSegment(10).pos, 1E-9);
+	}
+}
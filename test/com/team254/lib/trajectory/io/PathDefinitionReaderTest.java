@@ -0,0 +1,94 @@
+package com.team254.lib.trajectory.io;
+
+import com.team254.lib.trajectory.PathBatchGenerator;
+import com.team254.lib.trajectory.WaypointSequence;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests reading path definitions and evaluating their expressions.
+ */
+public class PathDefinitionReaderTest {
+
+	private PathDefinitionReader reader;
+
+	@Before
+	public void setUp() {
+		reader = new PathDefinitionReader();
+		reader.defineConstant("kPegX", 104);
+		reader.defineConstant("kTurn", Math.PI / 3);
+	}
+
+	@Test
+	public void testExpressions() {
+		assertEquals(2.5, reader.evaluate("2.5"), 0);
+		assertEquals(-104 / 12.0, reader.evaluate("-kPegX/12"), 1E-12);
+		assertEquals(7, reader.evaluate("1+2*3"), 0);
+		assertEquals(9, reader.evaluate("(1+2)*3"), 0);
+		assertEquals(-Math.PI / 3, reader.evaluate("-kTurn"), 0);
+		assertEquals(Math.PI / 2, reader.evaluate("PI/2"), 0);
+		assertEquals(1, reader.evaluate("--1"), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownConstant() {
+		reader.evaluate("kMissing/12");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTrailingGarbage() {
+		reader.evaluate("1+2)");
+	}
+
+	@Test
+	public void testDefaultsAndOverrides() {
+		List<PathBatchGenerator.Job> jobs = reader.parse(
+				"# defaults\n"
+				+ "config dt=0.01 max_vel=5 max_acc=5 max_jerk=50\n"
+				+ "wheelbase 26.375/12\n"
+				+ "path First\n"
+				+ "waypoint 0 0 0\n"
+				+ "waypoint kPegX/12 -6 -kTurn  # turn right\n"
+				+ "\n"
+				+ "path Second\n"
+				+ "config max_vel=10\n"
+				+ "wheelbase 2\n"
+				+ "waypoint 0 0 0\n"
+				+ "waypoint 8 3 0\n"
+				+ "waypoint 16 3 0\n");
+		assertEquals(2, jobs.size());
+
+		PathBatchGenerator.Job first = jobs.get(0);
+		assertEquals("First", first.name);
+		assertEquals(5, first.config.max_vel, 0);
+		assertEquals(50, first.config.max_jerk, 0);
+		assertEquals(26.375 / 12, first.wheelbase_width, 0);
+		assertEquals(2, first.waypoints.getNumWaypoints());
+		WaypointSequence.Waypoint peg = first.waypoints.getWaypoint(1);
+		assertEquals(104 / 12.0, peg.x, 1E-12);
+		assertEquals(-6, peg.y, 0);
+		assertEquals(-Math.PI / 3, peg.theta, 0);
+
+		// Overrides only apply to their own path and never leak into the defaults
+		PathBatchGenerator.Job second = jobs.get(1);
+		assertEquals(10, second.config.max_vel, 0);
+		assertEquals(5, second.config.max_acc, 0);
+		assertEquals(2, second.wheelbase_width, 0);
+		assertEquals(3, second.waypoints.getNumWaypoints());
+		assertNotSame(first.config, second.config);
+	}
+
+	@Test
+	public void testErrorsHaveLineNumbers() {
+		try {
+			reader.parse("path First\nwaypoint 0 0\n");
+			fail("Expected a missing argument error");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("line 2:"));
+		}
+	}
+}